@@ -0,0 +1,201 @@
+package org.osm2world.benchmark;
+
+import static java.lang.Math.*;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.osm2world.core.math.SimplePolygonXZ;
+import org.osm2world.core.math.VectorXZ;
+import org.osm2world.core.osm.creation.OSMFileReader;
+import org.osm2world.core.osm.data.OSMData;
+
+import com.slimjars.dist.gnu.trove.list.array.TLongArrayList;
+
+import de.topobyte.osm4j.core.model.iface.OsmBounds;
+import de.topobyte.osm4j.core.model.impl.Bounds;
+import de.topobyte.osm4j.core.model.impl.Node;
+import de.topobyte.osm4j.core.model.impl.Tag;
+import de.topobyte.osm4j.core.model.impl.Way;
+
+/**
+ * creates the inputs for the benchmarks.
+ * All synthetic data is deterministic, so results remain comparable between runs.
+ */
+final class BenchmarkData {
+
+	/** prefix of input names which describe synthetic OSM data, followed by the number of blocks */
+	static final String SYNTHETIC_PREFIX = "synthetic-";
+
+	private static final long SEED = 42;
+
+	/** prevents instantiation */
+	private BenchmarkData() {}
+
+	/**
+	 * creates a star-shaped polygon with irregular radii between 0.6 and 1.0 times the radius
+	 */
+	static SimplePolygonXZ createPolygon(VectorXZ center, double radius, int vertexCount) {
+
+		Random random = new Random(SEED + vertexCount);
+
+		List<VectorXZ> vertexLoop = new ArrayList<VectorXZ>(vertexCount + 1);
+
+		for (int i = 0; i < vertexCount; i++) {
+			double angle = 2 * PI * i / vertexCount;
+			double r = radius * (0.6 + 0.4 * random.nextDouble());
+			vertexLoop.add(center.add(new VectorXZ(r * sin(angle), r * cos(angle))));
+		}
+
+		vertexLoop.add(vertexLoop.get(0));
+
+		return new SimplePolygonXZ(vertexLoop);
+
+	}
+
+	/**
+	 * creates square holes on a regular grid, all within the inner radius
+	 * of a polygon created by {@link #createPolygon(VectorXZ, double, int)}
+	 */
+	static List<SimplePolygonXZ> createHoles(VectorXZ center, double radius, int holeCount) {
+
+		List<SimplePolygonXZ> holes = new ArrayList<SimplePolygonXZ>(holeCount);
+
+		int gridSize = (int) ceil(sqrt(holeCount));
+		double gridExtent = 0.8 * radius;
+		double cellSize = gridExtent / gridSize;
+
+		for (int i = 0; i < holeCount; i++) {
+
+			VectorXZ cellCenter = center.add(new VectorXZ(
+					-gridExtent / 2 + (i % gridSize + 0.5) * cellSize,
+					-gridExtent / 2 + (i / gridSize + 0.5) * cellSize));
+
+			holes.add(createSquare(cellCenter, cellSize / 4));
+
+		}
+
+		return holes;
+
+	}
+
+	static SimplePolygonXZ createSquare(VectorXZ center, double halfSize) {
+		return new SimplePolygonXZ(asList(
+				center.add(new VectorXZ(-halfSize, -halfSize)),
+				center.add(new VectorXZ(+halfSize, -halfSize)),
+				center.add(new VectorXZ(+halfSize, +halfSize)),
+				center.add(new VectorXZ(-halfSize, +halfSize)),
+				center.add(new VectorXZ(-halfSize, -halfSize))));
+	}
+
+	/**
+	 * returns OSM data for an input name. This is either {@link #SYNTHETIC_PREFIX}
+	 * followed by the block count for {@link #createSyntheticOSMData(int)},
+	 * the name of a file in the test resources, or the path of an OSM file.
+	 */
+	static OSMData loadOSMData(String input) throws IOException {
+
+		if (input.startsWith(SYNTHETIC_PREFIX)) {
+			return createSyntheticOSMData(Integer.parseInt(input.substring(SYNTHETIC_PREFIX.length())));
+		}
+
+		URL resource = BenchmarkData.class.getClassLoader().getResource(input);
+		File file = (resource != null) ? new File(resource.getFile()) : new File(input);
+
+		return new OSMFileReader(file).getData();
+
+	}
+
+	/**
+	 * creates a synthetic town with a square grid of blocks.
+	 * Each block contains a building and a tree, and is bordered by roads.
+	 * A block is roughly 100 m wide.
+	 */
+	static OSMData createSyntheticOSMData(int blockCount) {
+
+		Random random = new Random(SEED);
+
+		int gridSize = (int) ceil(sqrt(blockCount));
+		double blockDegrees = 0.001;
+
+		List<Node> nodes = new ArrayList<Node>();
+		List<Way> ways = new ArrayList<Way>();
+
+		long nextId = 1;
+
+		/* roads along the grid lines */
+
+		long[][] crossingIds = new long[gridSize + 1][gridSize + 1];
+
+		for (int x = 0; x <= gridSize; x++) {
+			for (int y = 0; y <= gridSize; y++) {
+				crossingIds[x][y] = nextId;
+				nodes.add(new Node(nextId++, x * blockDegrees, y * blockDegrees));
+			}
+		}
+
+		for (int i = 0; i <= gridSize; i++) {
+
+			TLongArrayList horizontal = new TLongArrayList();
+			TLongArrayList vertical = new TLongArrayList();
+
+			for (int j = 0; j <= gridSize; j++) {
+				horizontal.add(crossingIds[j][i]);
+				vertical.add(crossingIds[i][j]);
+			}
+
+			for (TLongArrayList nodeIds : asList(horizontal, vertical)) {
+				Way road = new Way(nextId++, nodeIds);
+				road.setTags(asList(new Tag("highway", "residential"), new Tag("lanes", "2")));
+				ways.add(road);
+			}
+
+		}
+
+		/* buildings and trees within the blocks */
+
+		for (int block = 0; block < blockCount; block++) {
+
+			double minLon = (block % gridSize) * blockDegrees;
+			double minLat = (block / gridSize) * blockDegrees;
+
+			double size = blockDegrees * (0.3 + 0.3 * random.nextDouble());
+			double lon = minLon + 0.2 * blockDegrees;
+			double lat = minLat + 0.2 * blockDegrees;
+
+			TLongArrayList buildingNodeIds = new TLongArrayList();
+
+			for (double[] offset : new double[][] {{0, 0}, {size, 0}, {size, size}, {0, size}}) {
+				buildingNodeIds.add(nextId);
+				nodes.add(new Node(nextId++, lon + offset[0], lat + offset[1]));
+			}
+
+			buildingNodeIds.add(buildingNodeIds.get(0));
+
+			Way building = new Way(nextId++, buildingNodeIds);
+			building.setTags(asList(new Tag("building", "yes"),
+					new Tag("building:levels", Integer.toString(1 + random.nextInt(8))),
+					new Tag("roof:shape", random.nextBoolean() ? "gabled" : "hipped")));
+			ways.add(building);
+
+			Node tree = new Node(nextId++, minLon + 0.85 * blockDegrees, minLat + 0.85 * blockDegrees);
+			tree.setTags(asList(new Tag("natural", "tree")));
+			nodes.add(tree);
+
+		}
+
+		List<OsmBounds> bounds = singletonList(
+				new Bounds(0, gridSize * blockDegrees, gridSize * blockDegrees, 0));
+
+		return new OSMData(bounds, nodes, ways, emptyList());
+
+	}
+
+}
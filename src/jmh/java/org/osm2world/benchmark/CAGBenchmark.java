@@ -0,0 +1,68 @@
+package org.osm2world.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osm2world.core.math.PolygonWithHolesXZ;
+import org.osm2world.core.math.SimplePolygonXZ;
+import org.osm2world.core.math.VectorXZ;
+import org.osm2world.core.math.algorithms.CAGUtil;
+
+/**
+ * measures {@link CAGUtil#subtractPolygons(SimplePolygonXZ, List)} with a growing number
+ * of subtracted polygons, similar to the way areas are cut out of surfaces
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CAGBenchmark {
+
+	@Param({"1", "16", "256"})
+	public int subtractedCount;
+
+	private SimplePolygonXZ basePolygon;
+	private List<SimplePolygonXZ> subtractPolygons;
+
+	@Setup
+	public void setUp() {
+
+		basePolygon = BenchmarkData.createPolygon(VectorXZ.NULL_VECTOR, 100, 64);
+
+		/* randomly placed squares, some of which overlap each other or the outline */
+
+		Random random = new Random(subtractedCount);
+
+		subtractPolygons = new ArrayList<SimplePolygonXZ>(subtractedCount);
+
+		for (int i = 0; i < subtractedCount; i++) {
+			VectorXZ center = new VectorXZ(
+					-100 + 200 * random.nextDouble(),
+					-100 + 200 * random.nextDouble());
+			subtractPolygons.add(BenchmarkData.createSquare(center, 2 + 8 * random.nextDouble()));
+		}
+
+	}
+
+	@Benchmark
+	public Collection<PolygonWithHolesXZ> subtractPolygons() {
+		return CAGUtil.subtractPolygons(basePolygon, subtractPolygons);
+	}
+
+}
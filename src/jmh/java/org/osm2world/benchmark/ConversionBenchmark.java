@@ -0,0 +1,58 @@
+package org.osm2world.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osm2world.core.ConversionFacade;
+import org.osm2world.core.ConversionFacade.Results;
+import org.osm2world.core.osm.data.OSMData;
+
+/**
+ * measures a complete {@link ConversionFacade} run with the default modules,
+ * from {@link OSMData} to the world objects with elevations
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ConversionBenchmark {
+
+	/** see {@link BenchmarkData#loadOSMData(String)} */
+	@Param({"synthetic-100", "synthetic-1000", "synthetic-10000",
+		"mp_two_holes_advanced.osm", "coastline_islands_and_coast.osm"})
+	public String input;
+
+	private OSMData osmData;
+	private Configuration config;
+
+	@Setup
+	public void setUp() throws IOException {
+
+		osmData = BenchmarkData.loadOSMData(input);
+
+		config = new BaseConfiguration();
+		config.addProperty("triangulationCacheSize", 0);
+
+	}
+
+	@Benchmark
+	public Results createRepresentations() throws IOException {
+		return new ConversionFacade().createRepresentations(osmData, null, config, null);
+	}
+
+}
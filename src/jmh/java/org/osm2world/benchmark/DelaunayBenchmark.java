@@ -0,0 +1,101 @@
+package org.osm2world.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.osm2world.core.map_elevation.creation.DelaunayTriangulation;
+import org.osm2world.core.math.AxisAlignedBoundingBoxXZ;
+import org.osm2world.core.math.VectorXYZ;
+import org.osm2world.core.math.VectorXZ;
+
+/**
+ * measures building a {@link DelaunayTriangulation} from elevation sites,
+ * and probing it for the natural neighbors of other points
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DelaunayBenchmark {
+
+	private static final int PROBE_COUNT = 100;
+
+	@Param({"1000", "10000", "100000"})
+	public int siteCount;
+
+	private AxisAlignedBoundingBoxXZ bounds;
+	private List<VectorXYZ> sites;
+	private List<VectorXZ> probePoints;
+
+	private DelaunayTriangulation triangulation;
+
+	@Setup
+	public void setUp() {
+
+		/* sites with a density similar to SRTM data, about one per 30 m */
+
+		double size = 30 * Math.sqrt(siteCount);
+
+		Random random = new Random(siteCount);
+
+		sites = new ArrayList<VectorXYZ>(siteCount);
+
+		for (int i = 0; i < siteCount; i++) {
+			sites.add(new VectorXYZ(size * random.nextDouble(),
+					100 * random.nextDouble(), size * random.nextDouble()));
+		}
+
+		probePoints = new ArrayList<VectorXZ>(PROBE_COUNT);
+
+		for (int i = 0; i < PROBE_COUNT; i++) {
+			probePoints.add(new VectorXZ(size * random.nextDouble(), size * random.nextDouble()));
+		}
+
+		bounds = new AxisAlignedBoundingBoxXZ(sites).pad(100);
+
+		triangulation = createTriangulation();
+
+	}
+
+	@Benchmark
+	public DelaunayTriangulation insert() {
+		return createTriangulation();
+	}
+
+	/** probes {@value #PROBE_COUNT} points */
+	@Benchmark
+	public void probe(Blackhole blackhole) {
+		for (VectorXZ point : probePoints) {
+			blackhole.consume(triangulation.probe(point));
+		}
+	}
+
+	private DelaunayTriangulation createTriangulation() {
+
+		DelaunayTriangulation result = new DelaunayTriangulation(bounds);
+
+		for (VectorXYZ site : sites) {
+			result.insert(site);
+		}
+
+		return result;
+
+	}
+
+}
@@ -0,0 +1,62 @@
+package org.osm2world.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osm2world.core.map_data.creation.MetricMapProjection;
+import org.osm2world.core.map_data.creation.OSMToMapDataConverter;
+import org.osm2world.core.map_data.data.MapData;
+import org.osm2world.core.osm.data.OSMData;
+
+import de.topobyte.osm4j.core.resolve.EntityNotFoundException;
+
+/**
+ * measures {@link OSMToMapDataConverter#createMapData(OSMData)}
+ * for synthetic data of increasing size and for some checked-in test files
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapDataBenchmark {
+
+	/** see {@link BenchmarkData#loadOSMData(String)} */
+	@Param({"synthetic-100", "synthetic-1000", "synthetic-10000",
+		"mp_two_holes_advanced.osm", "coastline_islands_and_coast.osm"})
+	public String input;
+
+	private OSMData osmData;
+	private OSMToMapDataConverter converter;
+
+	@Setup
+	public void setUp() throws IOException {
+
+		osmData = BenchmarkData.loadOSMData(input);
+
+		MetricMapProjection mapProjection = new MetricMapProjection();
+		mapProjection.setOrigin(osmData);
+
+		converter = new OSMToMapDataConverter(mapProjection, new BaseConfiguration());
+
+	}
+
+	@Benchmark
+	public MapData createMapData() throws IOException, EntityNotFoundException {
+		return converter.createMapData(osmData);
+	}
+
+}
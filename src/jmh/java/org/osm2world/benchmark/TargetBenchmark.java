@@ -0,0 +1,79 @@
+package org.osm2world.benchmark;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osm2world.core.ConversionFacade;
+import org.osm2world.core.ConversionFacade.Results;
+import org.osm2world.core.map_data.data.MapData;
+import org.osm2world.core.target.TargetUtil;
+import org.osm2world.core.target.common.RecordingTarget;
+import org.osm2world.core.target.obj.ObjTarget;
+import org.osm2world.core.target.statistics.StatisticsTarget;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * measures rendering the world objects of a finished conversion to several targets
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TargetBenchmark {
+
+	/** see {@link BenchmarkData#loadOSMData(String)} */
+	@Param({"synthetic-100", "synthetic-1000", "synthetic-10000"})
+	public String input;
+
+	private MapData mapData;
+
+	/** stream which discards the output of file-based targets */
+	private final PrintStream nullStream = new PrintStream(ByteStreams.nullOutputStream());
+
+	@Setup
+	public void setUp() throws IOException {
+
+		Results results = new ConversionFacade().createRepresentations(
+				BenchmarkData.loadOSMData(input), null, new BaseConfiguration(), null);
+
+		mapData = results.getMapData();
+
+	}
+
+	@Benchmark
+	public StatisticsTarget statistics() {
+		StatisticsTarget target = new StatisticsTarget();
+		TargetUtil.renderWorldObjects(target, mapData, true);
+		return target;
+	}
+
+	@Benchmark
+	public ObjTarget obj() {
+		ObjTarget target = new ObjTarget(nullStream, nullStream);
+		TargetUtil.renderWorldObjects(target, mapData, true);
+		target.finish();
+		return target;
+	}
+
+	@Benchmark
+	public RecordingTarget record() {
+		return RecordingTarget.record(mapData);
+	}
+
+}
@@ -0,0 +1,74 @@
+package org.osm2world.benchmark;
+
+import static java.util.Collections.emptyList;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osm2world.core.math.Poly2TriUtil;
+import org.osm2world.core.math.SimplePolygonXZ;
+import org.osm2world.core.math.TriangleXZ;
+import org.osm2world.core.math.VectorXZ;
+import org.osm2world.core.math.algorithms.EarClippingTriangulationUtil;
+import org.osm2world.core.math.algorithms.Earcut4JTriangulationUtil;
+import org.osm2world.core.math.algorithms.TriangulationCache;
+import org.osm2world.core.util.exception.TriangulationException;
+
+/**
+ * compares the triangulation algorithms for polygons of different sizes, with and without holes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TriangulationBenchmark {
+
+	@Param({"16", "256", "4096"})
+	public int vertexCount;
+
+	@Param({"0", "16"})
+	public int holeCount;
+
+	private SimplePolygonXZ polygon;
+	private List<SimplePolygonXZ> holes;
+
+	@Setup
+	public void setUp() {
+
+		/* measure the algorithms rather than cache lookups */
+		TriangulationCache.setMaximumWeight(0);
+
+		polygon = BenchmarkData.createPolygon(VectorXZ.NULL_VECTOR, 100, vertexCount);
+		holes = BenchmarkData.createHoles(VectorXZ.NULL_VECTOR, 100, holeCount);
+
+	}
+
+	@Benchmark
+	public List<TriangleXZ> earClipping() {
+		return EarClippingTriangulationUtil.triangulate(polygon, holes);
+	}
+
+	@Benchmark
+	public List<TriangleXZ> earcut4j() {
+		return Earcut4JTriangulationUtil.triangulate(polygon, holes);
+	}
+
+	@Benchmark
+	public List<TriangleXZ> poly2tri() throws TriangulationException {
+		return Poly2TriUtil.triangulate(polygon, holes, emptyList(), emptyList());
+	}
+
+}
@@ -124,4 +124,20 @@ public interface CLIArguments {
 	File getParameterFileDir();
 	boolean isParameterFileDir();
 
+	/* distributed conversion */
+
+	@Option(description="distribute the conversion to workers connecting to this port;"
+			+ " work units are the lines of the parameter file or, alternatively, the tiles of the orthographic view")
+	int getCoordinator();
+	boolean isCoordinator();
+
+	@Option(description="network address the coordinator listens on, 0.0.0.0 for all interfaces;"
+			+ " workers are not authenticated, so only make the coordinator reachable from trusted networks",
+			longName="coordinator_address", defaultValue="127.0.0.1")
+	String getCoordinatorAddress();
+
+	@Option(description="host:port of a coordinator to receive work from", pattern=".+:[0-9]+")
+	String getWorker();
+	boolean isWorker();
+
 }
@@ -7,13 +7,14 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public final class CLIArgumentsUtil {
 
-	public static enum ProgramMode {GUI, CONVERT, HELP, VERSION, PARAMFILE, PARAMFILEDIR}
+	public static enum ProgramMode {GUI, CONVERT, HELP, VERSION, PARAMFILE, PARAMFILEDIR, COORDINATOR, WORKER}
 	public static enum OutputMode {OBJ, POV, WEB_PBF, PNG, PPM, GD}
 	public static enum InputMode {FILE, OVERPASS}
 
@@ -96,7 +97,9 @@ public final class CLIArgumentsUtil {
 	}
 
 	public static final ProgramMode getProgramMode(CLIArguments args) {
-		return args.isParameterFileDir() ? PARAMFILEDIR
+		return args.isWorker() ? WORKER
+				: args.isCoordinator() ? COORDINATOR
+				: args.isParameterFileDir() ? PARAMFILEDIR
 				: args.isParameterFile() ? PARAMFILE
 					: args.getHelp() ? HELP
 						: args.getVersion() ? VERSION
@@ -164,4 +167,32 @@ public final class CLIArgumentsUtil {
 
 	}
 
+	/**
+	 * removes options and their values from unparsed command line arguments
+	 *
+	 * @param optionNames  names of the options to remove, including the leading dashes
+	 */
+	public static final String[] removeOptions(String[] unparsedArgs, String... optionNames) {
+
+		List<String> result = new ArrayList<>();
+
+		boolean removing = false;
+
+		for (String arg : unparsedArgs) {
+
+			// negative numbers (e.g. in coordinates) are values, not option names
+			if (arg.startsWith("-") && !arg.matches("-[0-9.].*")) {
+				removing = Arrays.asList(optionNames).contains(arg);
+			}
+
+			if (!removing) {
+				result.add(arg);
+			}
+
+		}
+
+		return result.toArray(new String[result.size()]);
+
+	}
+
 }
@@ -0,0 +1,475 @@
+package org.osm2world.console;
+
+import static java.lang.Math.*;
+import static org.osm2world.console.CLIArgumentsUtil.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.osm2world.console.CLIArgumentsUtil.ProgramMode;
+
+import com.lexicalscope.jewel.cli.ArgumentValidationException;
+import com.lexicalscope.jewel.cli.CliFactory;
+
+/**
+ * distributes conversions across several worker processes,
+ * which can run on the same machine or on different ones.
+ *
+ * Each work unit is a set of command line parameters for one conversion run.
+ * {@link Worker}s connect to the coordinator via TCP and receive one work unit at a time.
+ * They run it and send the output files back to the coordinator,
+ * which writes them to the output paths of the work unit.
+ * Input and config files are read by the workers, so their paths need to be valid for all workers.
+ *
+ * There is no authentication or encryption. Any process which can connect to the coordinator
+ * receives work units and can supply their output files, so the coordinator's socket
+ * must only be reachable from trusted machines.
+ *
+ * Failed work units, including those of workers which lost their connection,
+ * are retried until they have failed a maximum number of times.
+ * Work units which take much longer than expected ("stragglers") are handed to another worker
+ * as soon as there is an idle one. Whichever copy finishes first provides the output.
+ */
+public class Coordinator {
+
+	/** version of the protocol used between coordinator and workers, sent by workers when connecting */
+	static final int PROTOCOL_VERSION = 1;
+
+	/* message types */
+
+	static final String UNIT = "UNIT";
+	static final String FINISHED = "FINISHED";
+	static final String SUCCESS = "SUCCESS";
+	static final String FAILURE = "FAILURE";
+
+	public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+	/** default time in milliseconds after which a work unit is considered a straggler */
+	public static final long DEFAULT_STRAGGLER_TIMEOUT = 10 * 60 * 1000;
+
+	/** time in milliseconds which workers are given to receive the final message before being disconnected */
+	private static final long SHUTDOWN_TIMEOUT = 2000;
+
+	private static final class WorkUnit {
+
+		final int id;
+
+		/** the unit's command line parameters, without the output files */
+		final String[] args;
+
+		final List<File> outputFiles;
+
+		/** number of workers currently running this unit */
+		int runningCount = 0;
+
+		int failureCount = 0;
+		long lastStartTime;
+
+		boolean done = false;
+		boolean failed = false;
+
+		WorkUnit(int id, String[] args, List<File> outputFiles) {
+			this.id = id;
+			this.args = args;
+			this.outputFiles = outputFiles;
+		}
+
+		boolean isFinished() {
+			return done || failed;
+		}
+
+	}
+
+	private final List<WorkUnit> units = new ArrayList<WorkUnit>();
+	private final Queue<WorkUnit> pendingUnits = new ArrayDeque<WorkUnit>();
+
+	private final int maxAttempts;
+	private final long stragglerTimeout;
+
+	private int finishedCount = 0;
+	private boolean anyFailed = false;
+
+	/**
+	 * @param unitArgs          unparsed command line parameters for each work unit
+	 * @param maxAttempts       number of failures after which a work unit is given up
+	 * @param stragglerTimeout  time in milliseconds after which a running work unit
+	 *                          is additionally handed to another worker
+	 * @throws IllegalArgumentException  if one of the work units is not a valid conversion run
+	 */
+	public Coordinator(List<String[]> unitArgs, int maxAttempts, long stragglerTimeout) {
+
+		this.maxAttempts = maxAttempts;
+		this.stragglerTimeout = stragglerTimeout;
+
+		for (String[] args : unitArgs) {
+
+			CLIArguments parsedArgs;
+
+			try {
+				parsedArgs = CliFactory.parseArguments(CLIArguments.class, args);
+			} catch (ArgumentValidationException e) {
+				throw new IllegalArgumentException("invalid work unit " + Arrays.toString(args)
+						+ ": " + e.getMessage(), e);
+			}
+
+			if (getProgramMode(parsedArgs) != ProgramMode.CONVERT) {
+				throw new IllegalArgumentException("work unit is not a conversion: " + Arrays.toString(args));
+			} else if (!isValid(parsedArgs)) {
+				throw new IllegalArgumentException("invalid work unit " + Arrays.toString(args)
+						+ ": " + getErrorString(parsedArgs));
+			}
+
+			WorkUnit unit = new WorkUnit(units.size(),
+					removeOptions(args, "-o", "--output"), parsedArgs.getOutput());
+
+			units.add(unit);
+			pendingUnits.add(unit);
+
+		}
+
+	}
+
+	/**
+	 * accepts workers on a server socket and hands work units to them until all are finished.
+	 * Closes the server socket before returning.
+	 *
+	 * @return  true if all work units were successful
+	 */
+	public boolean run(ServerSocket serverSocket) throws IOException {
+
+		ExecutorService executor = Executors.newCachedThreadPool();
+		Set<Socket> sockets = Collections.synchronizedSet(new HashSet<Socket>());
+
+		executor.submit(() -> {
+			while (!serverSocket.isClosed()) {
+				try {
+					Socket socket = serverSocket.accept();
+					sockets.add(socket);
+					executor.submit(() -> handleWorker(socket));
+				} catch (RejectedExecutionException e) {
+					// the coordinator is shutting down
+				} catch (IOException e) {
+					if (!serverSocket.isClosed()) {
+						System.err.println("could not accept worker connection: " + e);
+					}
+				}
+			}
+		});
+
+		try {
+
+			synchronized (this) {
+				while (finishedCount < units.size()) {
+					wait();
+				}
+			}
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} finally {
+
+			serverSocket.close();
+
+			/* give idle workers the chance to receive the final message,
+			 * then disconnect those which are still busy with a duplicate of a finished unit */
+
+			executor.shutdown();
+
+			try {
+				executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			synchronized (sockets) {
+				for (Socket socket : sockets) {
+					socket.close();
+				}
+			}
+
+			executor.shutdownNow();
+
+		}
+
+		synchronized (this) {
+			return !anyFailed;
+		}
+
+	}
+
+	/**
+	 * communicates with a single worker until all work units are finished
+	 * or the connection is lost
+	 */
+	private void handleWorker(Socket socket) {
+
+		WorkUnit unit = null;
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+
+			if (in.readInt() != PROTOCOL_VERSION) {
+				System.err.println("rejecting worker with incompatible protocol version: "
+						+ socket.getRemoteSocketAddress());
+				return;
+			}
+
+			while ((unit = nextUnit()) != null) {
+
+				out.writeUTF(UNIT);
+				out.writeInt(unit.id);
+				writeStrings(out, unit.args);
+				String[] outputNames = new String[unit.outputFiles.size()];
+				for (int i = 0; i < outputNames.length; i++) {
+					outputNames[i] = unit.outputFiles.get(i).getName();
+				}
+				writeStrings(out, outputNames);
+				out.flush();
+
+				String response = in.readUTF();
+
+				if (in.readInt() != unit.id) {
+					throw new IOException("worker responded with the wrong work unit id");
+				}
+
+				if (SUCCESS.equals(response)) {
+					List<File> receivedFiles = receiveFiles(in, unit);
+					WorkUnit completedUnit = unit;
+					unit = null;
+					reportSuccess(completedUnit, receivedFiles);
+				} else {
+					String message = in.readUTF();
+					WorkUnit failedUnit = unit;
+					unit = null;
+					reportFailure(failedUnit, message);
+				}
+
+			}
+
+			out.writeUTF(FINISHED);
+			out.flush();
+
+		} catch (IOException e) {
+			if (unit != null) {
+				reportFailure(unit, "lost connection to worker: " + e);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+	}
+
+	/**
+	 * returns the next work unit for an idle worker, waiting if necessary.
+	 * Prefers pending units; otherwise returns a straggler if there is one.
+	 *
+	 * @return  the next work unit, null if all units are finished
+	 */
+	private synchronized WorkUnit nextUnit() throws InterruptedException {
+
+		while (finishedCount < units.size()) {
+
+			long now = System.currentTimeMillis();
+
+			WorkUnit unit = pendingUnits.poll();
+
+			if (unit == null) {
+
+				/* look for the straggler which has been running for the longest time */
+
+				long nextStragglerTime = Long.MAX_VALUE;
+
+				for (WorkUnit u : units) {
+					if (!u.isFinished() && u.runningCount == 1) {
+						if (u.lastStartTime + stragglerTimeout <= now) {
+							if (unit == null || u.lastStartTime < unit.lastStartTime) {
+								unit = u;
+							}
+						} else {
+							nextStragglerTime = min(nextStragglerTime, u.lastStartTime + stragglerTimeout);
+						}
+					}
+				}
+
+				if (unit == null) {
+					if (nextStragglerTime == Long.MAX_VALUE) {
+						wait();
+					} else {
+						wait(max(1, nextStragglerTime - now));
+					}
+					continue;
+				}
+
+				System.out.println("work unit " + unit.id + " is taking long, handing it to another worker");
+
+			}
+
+			unit.runningCount += 1;
+			unit.lastStartTime = now;
+
+			return unit;
+
+		}
+
+		return null;
+
+	}
+
+	private synchronized void reportSuccess(WorkUnit unit, List<File> receivedFiles) {
+
+		unit.runningCount -= 1;
+
+		if (unit.isFinished()) {
+			// another copy of this unit has finished first
+			deleteFiles(receivedFiles);
+			return;
+		}
+
+		try {
+			for (int i = 0; i < receivedFiles.size(); i++) {
+				Files.move(receivedFiles.get(i).toPath(), unit.outputFiles.get(i).toPath(),
+						StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException e) {
+			deleteFiles(receivedFiles);
+			unit.runningCount += 1;
+			reportFailure(unit, "could not write output: " + e);
+			return;
+		}
+
+		unit.done = true;
+		finishedCount += 1;
+
+		System.out.println("finished work unit " + unit.id + " (" + finishedCount + "/" + units.size() + ")");
+
+		notifyAll();
+
+	}
+
+	private synchronized void reportFailure(WorkUnit unit, String message) {
+
+		unit.runningCount -= 1;
+
+		if (unit.isFinished()) return;
+
+		unit.failureCount += 1;
+
+		System.err.println("work unit " + unit.id + " failed (attempt " + unit.failureCount + "): " + message);
+
+		if (unit.runningCount == 0) {
+
+			if (unit.failureCount < maxAttempts) {
+				pendingUnits.add(unit);
+			} else {
+				System.err.println("giving up on work unit " + unit.id + ": " + Arrays.toString(unit.args));
+				unit.failed = true;
+				anyFailed = true;
+				finishedCount += 1;
+			}
+
+		}
+
+		notifyAll();
+
+	}
+
+	/**
+	 * receives a work unit's output files from a worker and stores them
+	 * as temporary files in the directories of the output files
+	 */
+	private static List<File> receiveFiles(DataInputStream in, WorkUnit unit) throws IOException {
+
+		if (in.readInt() != unit.outputFiles.size()) {
+			throw new IOException("worker sent the wrong number of output files");
+		}
+
+		List<File> receivedFiles = new ArrayList<File>();
+
+		try {
+
+			for (File outputFile : unit.outputFiles) {
+
+				File tempFile = File.createTempFile("osm2world-", ".part",
+						outputFile.getAbsoluteFile().getParentFile());
+				receivedFiles.add(tempFile);
+
+				long length = in.readLong();
+
+				try (OutputStream os = new BufferedOutputStream(new FileOutputStream(tempFile))) {
+					copy(in, os, length);
+				}
+
+			}
+
+		} catch (IOException e) {
+			deleteFiles(receivedFiles);
+			throw e;
+		}
+
+		return receivedFiles;
+
+	}
+
+	private static void deleteFiles(List<File> files) {
+		for (File file : files) {
+			if (!file.delete()) {
+				System.err.println("Warning: Could not delete temporary file " + file);
+			}
+		}
+	}
+
+	/** copies a given number of bytes from a stream */
+	static void copy(InputStream in, OutputStream out, long length) throws IOException {
+
+		byte[] buffer = new byte[8192];
+
+		while (length > 0) {
+			int count = in.read(buffer, 0, (int) min(buffer.length, length));
+			if (count < 0) throw new EOFException();
+			out.write(buffer, 0, count);
+			length -= count;
+		}
+
+	}
+
+	static void writeStrings(DataOutputStream out, String[] strings) throws IOException {
+		out.writeInt(strings.length);
+		for (String s : strings) {
+			out.writeUTF(s);
+		}
+	}
+
+	static String[] readStrings(DataInputStream in) throws IOException {
+		String[] strings = new String[in.readInt()];
+		for (int i = 0; i < strings.length; i++) {
+			strings[i] = in.readUTF();
+		}
+		return strings;
+	}
+
+}
@@ -0,0 +1,151 @@
+package org.osm2world.console;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.osm2world.console.CLIArgumentsUtil.removeOptions;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.osm2world.core.target.common.rendering.TileNumber;
+
+/**
+ * implementation of the modes triggered by {@link CLIArguments#isCoordinator()}
+ * and {@link CLIArguments#isWorker()}. See {@link Coordinator} and {@link Worker}.
+ */
+public final class DistributedMode {
+
+	/** prevents instantiation */
+	private DistributedMode() {}
+
+	/**
+	 * runs a {@link Coordinator} which listens for workers on the port from the command line.
+	 * It only accepts connections on the loopback interface unless a different address is chosen,
+	 * because anyone who can connect is trusted with the work units and their output files.
+	 *
+	 * @param unparsedArgs  the original command line parameters
+	 */
+	public static void runCoordinator(CLIArguments args, String[] unparsedArgs) {
+
+		Coordinator coordinator;
+
+		try {
+			coordinator = new Coordinator(createWorkUnits(args, unparsedArgs),
+					Coordinator.DEFAULT_MAX_ATTEMPTS, Coordinator.DEFAULT_STRAGGLER_TIMEOUT);
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+			return;
+		}
+
+		try (ServerSocket serverSocket = new ServerSocket(args.getCoordinator(), 50,
+				InetAddress.getByName(args.getCoordinatorAddress()))) {
+
+			System.out.println("waiting for workers on " + serverSocket.getInetAddress().getHostAddress()
+					+ ", port " + serverSocket.getLocalPort());
+
+			if (!coordinator.run(serverSocket)) {
+				System.err.println("some work units have failed");
+				System.exit(1);
+			}
+
+		} catch (IOException e) {
+			System.err.println("IO issue encountered in coordinator mode, exiting.\n" + e);
+			System.exit(1);
+		}
+
+	}
+
+	/**
+	 * runs a {@link Worker}
+	 *
+	 * @param address  host and port of the coordinator, separated by a colon
+	 */
+	public static void runWorker(String address) {
+
+		int separatorIndex = address.lastIndexOf(':');
+
+		String host = address.substring(0, separatorIndex);
+		int port = Integer.parseInt(address.substring(separatorIndex + 1));
+
+		try {
+			new Worker(host, port).run();
+		} catch (IOException e) {
+			System.err.println("IO issue encountered in worker mode, exiting.\n" + e);
+			System.exit(1);
+		}
+
+	}
+
+	/**
+	 * splits the work into work units. These are the lines of the parameter file if one is used.
+	 * Otherwise, multiple tiles for the orthographic view are split into one work unit per tile,
+	 * with the tile number appended to the names of the output files.
+	 * If neither is the case, the parameters define a single work unit.
+	 *
+	 * @param unparsedArgs  the original command line parameters
+	 */
+	static List<String[]> createWorkUnits(CLIArguments args, String[] unparsedArgs) throws IOException {
+
+		if (args.isParameterFile()) {
+			return CLIArgumentsUtil.getUnparsedParameterGroups(args.getParameterFile());
+		}
+
+		String[] baseArgs = removeOptions(unparsedArgs, "--coordinator", "--coordinator_address");
+
+		if (args.isOviewTiles() && args.getOviewTiles().size() > 1 && args.isOutput()) {
+
+			baseArgs = removeOptions(baseArgs, "--oview.tiles", "-o", "--output");
+
+			List<String[]> units = new ArrayList<String[]>();
+
+			for (TileNumber tile : args.getOviewTiles()) {
+
+				List<String> unitArgs = new ArrayList<String>(asList(baseArgs));
+
+				unitArgs.add("--oview.tiles");
+				unitArgs.add(tile.toString());
+
+				unitArgs.add("--output");
+				for (File outputFile : args.getOutput()) {
+					unitArgs.add(getTileOutputFile(outputFile, tile).getPath());
+				}
+
+				units.add(unitArgs.toArray(new String[unitArgs.size()]));
+
+			}
+
+			return units;
+
+		}
+
+		return singletonList(baseArgs);
+
+	}
+
+	/**
+	 * returns the name of an output file for one tile, e.g. "name_13_4402_2687.png" for "name.png"
+	 */
+	static File getTileOutputFile(File outputFile, TileNumber tile) {
+
+		Matcher matcher = Pattern.compile(CLIArguments.OUTPUT_PATTERN).matcher(outputFile.getName());
+
+		if (!matcher.matches()) {
+			throw new IllegalArgumentException("not an output file: " + outputFile);
+		}
+
+		String baseName = matcher.group(1);
+		String extension = outputFile.getName().substring(baseName.length());
+
+		return new File(outputFile.getParentFile(),
+				baseName + "_" + tile.zoom + "_" + tile.x + "_" + tile.y + extension);
+
+	}
+
+}
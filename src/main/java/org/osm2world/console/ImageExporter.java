@@ -30,6 +30,7 @@ import org.apache.commons.configuration.Configuration;
 import org.osm2world.console.CLIArgumentsUtil.OutputMode;
 import org.osm2world.core.ConversionFacade.Results;
 import org.osm2world.core.target.TargetUtil;
+import org.osm2world.core.target.common.RecordingTarget;
 import org.osm2world.core.target.common.lighting.GlobalLightingParameters;
 import org.osm2world.core.target.common.rendering.Camera;
 import org.osm2world.core.target.common.rendering.Projection;
@@ -60,6 +61,7 @@ public class ImageExporter {
 	private static final int DEFAULT_CANVAS_LIMIT = 1024;
 
 	private final Results results;
+	private final RecordingTarget recording;
 	private final Configuration config;
 
 	private File backgroundImage;
@@ -90,8 +92,20 @@ public class ImageExporter {
 	 */
 	public ImageExporter(Configuration config, Results results,
 			CLIArgumentsGroup expectedGroup) {
+		this(config, results, null, expectedGroup);
+	}
+
+	/**
+	 * variant of {@link #ImageExporter(Configuration, Results, CLIArgumentsGroup)}
+	 * which replays a recording instead of rendering the world objects for each target.
+	 *
+	 * @param recording  recording of the world objects in the results' map data, can be null
+	 */
+	public ImageExporter(Configuration config, Results results,
+			RecordingTarget recording, CLIArgumentsGroup expectedGroup) {
 
 		this.results = results;
+		this.recording = recording;
 		this.config = config;
 
 		/* parse background color/image and other configuration options */
@@ -308,7 +322,7 @@ public class ImageExporter {
 	}
 
 	private static JOGLTarget createJOGLTarget(GL gl, Results results,
-			Configuration config) {
+			RecordingTarget recording, Configuration config) {
 
 		JOGLTarget target;
 		if ("shader".equals(config.getString("joglImplementation"))) {
@@ -340,7 +354,7 @@ public class ImageExporter {
 		boolean underground = config.getBoolean("renderUnderground", true);
 
 		target.setXZBoundary(results.getMapData().getBoundary());
-		TargetUtil.renderWorldObjects(target, results.getMapData(), underground);
+		TargetUtil.renderWorldObjects(target, results.getMapData(), recording, underground);
 
 		target.finish();
 
@@ -595,7 +609,7 @@ public class ImageExporter {
 
 			/* render map data into buffer if it needs to be rendered multiple times */
 			if (!unbufferedRendering ) {
-				bufferTarget = createJOGLTarget(drawable.getGL(), results, config);
+				bufferTarget = createJOGLTarget(drawable.getGL(), results, recording, config);
 			}
 		}
 
@@ -642,7 +656,7 @@ public class ImageExporter {
 			/* render to pBuffer */
 
 			JOGLTarget target = (bufferTarget == null)?
-					createJOGLTarget(drawable.getGL(), results, config) : bufferTarget;
+					createJOGLTarget(drawable.getGL(), results, recording, config) : bufferTarget;
 
 					if (backgroundImage != null) {
 						target.drawBackgoundImage(backgroundImage,
@@ -54,6 +54,16 @@ public class OSM2World {
 			System.exit(1);
 		}
 
+		/* check for distributed modes */
+
+		if (args.isWorker()) {
+			DistributedMode.runWorker(args.getWorker());
+			return;
+		} else if (args.isCoordinator()) {
+			DistributedMode.runCoordinator(args, unparsedArgs);
+			return;
+		}
+
 		/* check for parameter file directory mode */
 
 		if (args.isParameterFileDir()) {
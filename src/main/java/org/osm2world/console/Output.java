@@ -9,10 +9,12 @@ import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.configuration.Configuration;
 import org.osm2world.console.CLIArgumentsUtil.OutputMode;
+import org.osm2world.core.ChunkedConversion;
 import org.osm2world.core.ConversionFacade;
 import org.osm2world.core.ConversionFacade.Phase;
 import org.osm2world.core.ConversionFacade.ProgressListener;
@@ -27,19 +29,28 @@ import org.osm2world.core.map_elevation.creation.ZeroInterpolator;
 import org.osm2world.core.math.AxisAlignedBoundingBoxXZ;
 import org.osm2world.core.math.VectorXYZ;
 import org.osm2world.core.math.VectorXZ;
+import org.osm2world.core.math.algorithms.TriangulationCache;
 import org.osm2world.core.osm.creation.OSMDataReader;
 import org.osm2world.core.osm.creation.OSMFileReader;
+import org.osm2world.core.osm.creation.OverpassCache;
 import org.osm2world.core.osm.creation.OverpassReader;
+import org.osm2world.core.target.common.LevelOfDetail;
+import org.osm2world.core.target.common.RecordingTarget;
 import org.osm2world.core.target.common.rendering.Camera;
 import org.osm2world.core.target.common.rendering.OrthoTilesUtil;
 import org.osm2world.core.target.common.rendering.OrthoTilesUtil.CardinalDirection;
 import org.osm2world.core.target.common.rendering.Projection;
+import org.osm2world.core.target.common.rendering.TileNumber;
 import org.osm2world.core.target.frontend_pbf.FrontendPbfTarget;
 import org.osm2world.core.target.obj.ObjWriter;
 import org.osm2world.core.target.povray.POVRayWriter;
+import org.osm2world.core.util.Metrics;
 
 public final class Output {
 
+	/** name of the file within the mapDataCacheDir that holds the {@link TriangulationCache} */
+	private static final String TRIANGULATION_CACHE_FILE_NAME = "triangulations.o2wtc";
+
 	private Output() {}
 
 	public static void output(Configuration config,
@@ -48,6 +59,13 @@ public final class Output {
 
 		long start = System.currentTimeMillis();
 
+		String metricsFile = config.getString("metricsFile", null);
+
+		if (metricsFile != null) {
+			Metrics.reset();
+			Metrics.setEnabled(true, config.getBoolean("metricsJFR", false));
+		}
+
 		OSMDataReader dataReader = null;
 
 		switch (argumentsGroup.getRepresentative().getInputMode()) {
@@ -80,40 +98,81 @@ public final class Output {
 				}
 
 				dataReader = new OverpassReader(argumentsGroup.getRepresentative().getOverpassURL(),
-						new LatLon(minLat, minLon), new LatLon(maxLat, maxLon));
+						new LatLon(minLat, minLon), new LatLon(maxLat, maxLon), createOverpassCache(config));
 
 			} else { //due to input validation, there needs to be either a query or bounding box for Overpass input mode
 				assert argumentsGroup.getRepresentative().isInputQuery();
 				dataReader = new OverpassReader(argumentsGroup.getRepresentative().getOverpassURL(),
-						argumentsGroup.getRepresentative().getInputQuery());
+						argumentsGroup.getRepresentative().getInputQuery(), createOverpassCache(config));
 			}
 			break;
 
 		}
 
 
-		ConversionFacade cf = new ConversionFacade();
+		if (config.containsKey("chunkSize") && dataReader instanceof OSMFileReader) {
+
+			/* convert large inputs in chunks, with separate output files for each chunk */
+
+			outputChunks(config, argumentsGroup, ((OSMFileReader) dataReader).getFile());
+
+			writeMetrics(metricsFile);
+
+			if (argumentsGroup.getRepresentative().getPerformancePrint()) {
+				long timeSec = (System.currentTimeMillis() - start) / 1000;
+				System.out.println("finished after " + timeSec + " s");
+			}
+
+			return;
+
+		}
+
+		ConversionFacade cf = createConversionFacade(config);
 		PerformanceListener perfListener =
 			new PerformanceListener(argumentsGroup.getRepresentative());
 		cf.addProgressListener(perfListener);
 
-		String interpolatorType = config.getString("terrainInterpolator");
-		if ("ZeroInterpolator".equals(interpolatorType)) {
-			cf.setTerrainEleInterpolatorFactory(ZeroInterpolator::new);
-		} else if ("LeastSquaresInterpolator".equals(interpolatorType)) {
-			cf.setTerrainEleInterpolatorFactory(LeastSquaresInterpolator::new);
-		} else if ("NaturalNeighborInterpolator".equals(interpolatorType)) {
-			cf.setTerrainEleInterpolatorFactory(NaturalNeighborInterpolator::new);
+		File triangulationCacheFile = null;
+
+		if (config.containsKey("mapDataCacheDir")) {
+
+			triangulationCacheFile = new File(config.getString("mapDataCacheDir"),
+					TRIANGULATION_CACHE_FILE_NAME);
+
+			TriangulationCache.setMaximumWeight(config.getLong(
+					"triangulationCacheSize", TriangulationCache.DEFAULT_MAXIMUM_WEIGHT));
+
+			if (triangulationCacheFile.exists()) {
+				try {
+					TriangulationCache.load(triangulationCacheFile);
+				} catch (IOException e) {
+					System.err.println("could not read triangulation cache: " + e);
+				}
+			}
+
 		}
 
-		String enforcerType = config.getString("eleConstraintEnforcer");
-		if ("NoneEleConstraintEnforcer".equals(enforcerType)) {
-			cf.setEleConstraintEnforcerFactory(NoneEleConstraintEnforcer::new);
-		} else if ("SimpleEleConstraintEnforcer".equals(enforcerType)) {
-			cf.setEleConstraintEnforcerFactory(SimpleEleConstraintEnforcer::new);
+		Results results;
+
+		if (dataReader instanceof OSMFileReader) {
+			// passing the file allows the facade to use cached map data
+			File inputFile = ((OSMFileReader) dataReader).getFile();
+			results = cf.createRepresentations(inputFile, null, config, null);
+		} else {
+			results = cf.createRepresentations(dataReader.getData(), null, config, null);
 		}
 
-		Results results = cf.createRepresentations(dataReader.getData(), null, config, null);
+		/* render the world objects only once if they are needed for several outputs,
+		 * or if they can be rendered in parallel */
+
+		RecordingTarget recording = null;
+
+		int replayableOutputs = countReplayableOutputs(config, argumentsGroup);
+		int renderThreads = config.getInt("renderThreads", 1);
+
+		if (replayableOutputs > 1 || (replayableOutputs > 0 && renderThreads > 1)) {
+			recording = RecordingTarget.record(results.getMapData(), renderThreads);
+		}
 
 		ImageExporter exporter = null;
 
@@ -186,7 +245,7 @@ public final class Output {
 
 						ObjWriter.writeObjFile(outputFile,
 								results.getMapData(), results.getMapProjection(),
-								camera, projection, underground);
+								camera, projection, underground, recording);
 					} else {
 						ObjWriter.writeObjFiles(outputFile,
 								results.getMapData(), results.getMapProjection(),
@@ -196,17 +255,34 @@ public final class Output {
 
 				case POV:
 					POVRayWriter.writePOVInstructionFile(outputFile,
-							results.getMapData(), camera, projection);
+							results.getMapData(), camera, projection, recording);
 					break;
 
 				case WEB_PBF:
 					AxisAlignedBoundingBoxXZ bbox = null;
+					LevelOfDetail levelOfDetail = LevelOfDetail.HIGH;
 					if (args.isOviewTiles()) {
 						// TODO define a more generic --tiles parameter (as well as --bbox)
 						bbox = OrthoTilesUtil.boundsForTiles(results.getMapProjection(), args.getOviewTiles());
+						int minZoom = Integer.MAX_VALUE;
+						for (TileNumber tile : args.getOviewTiles()) {
+							minZoom = Math.min(minZoom, tile.zoom);
+						}
+						levelOfDetail = LevelOfDetail.forTileZoom(minZoom);
+					}
+					// optionally write several files with explicitly chosen levels of detail
+					String[] levelOfDetailNames = config.getStringArray("frontendPbfLevelsOfDetail");
+					if (levelOfDetailNames.length == 0) {
+						FrontendPbfTarget.writePbfFile(outputFile, results.getMapData(),
+								bbox, results.getMapProjection(), config, levelOfDetail);
+					} else {
+						List<LevelOfDetail> levelsOfDetail = new ArrayList<LevelOfDetail>();
+						for (String name : levelOfDetailNames) {
+							levelsOfDetail.add(LevelOfDetail.valueOf(name.trim().toUpperCase()));
+						}
+						FrontendPbfTarget.writePbfFiles(outputFile, results.getMapData(),
+								bbox, results.getMapProjection(), config, levelsOfDetail);
 					}
-					FrontendPbfTarget.writePbfFile(
-							outputFile, results.getMapData(), bbox, results.getMapProjection());
 					break;
 
 				case PNG:
@@ -217,7 +293,7 @@ public final class Output {
 					}
 					if (exporter == null) {
 						exporter = new ImageExporter(
-								config, results, argumentsGroup);
+								config, results, recording, argumentsGroup);
 					}
 					exporter.writeImageFile(outputFile, outputMode,
 							args.getResolution().x, args.getResolution().y,
@@ -235,6 +311,17 @@ public final class Output {
 			exporter = null;
 		}
 
+		if (triangulationCacheFile != null) {
+			try {
+				triangulationCacheFile.getParentFile().mkdirs();
+				TriangulationCache.save(triangulationCacheFile);
+			} catch (IOException e) {
+				System.err.println("could not write triangulation cache: " + e);
+			}
+		}
+
+		writeMetrics(metricsFile);
+
 		if (argumentsGroup.getRepresentative().getPerformancePrint()) {
 			long timeSec = (System.currentTimeMillis() - start) / 1000;
 			System.out.println("finished after " + timeSec + " s");
@@ -255,6 +342,137 @@ public final class Output {
 
 	}
 
+	/**
+	 * creates an {@link OverpassCache} if a cache directory is configured
+	 *
+	 * @return  the cache, null if Overpass responses should not be cached
+	 */
+	private static OverpassCache createOverpassCache(Configuration config) {
+
+		if (!config.containsKey("overpassCacheDir")) return null;
+
+		return new OverpassCache(new File(config.getString("overpassCacheDir")),
+				config.getLong("overpassCacheTTL", OverpassCache.DEFAULT_TTL_MILLIS / 1000) * 1000,
+				config.getLong("overpassCacheMaxSize", OverpassCache.DEFAULT_MAX_SIZE_BYTES / (1024 * 1024)) * 1024 * 1024);
+
+	}
+
+	/**
+	 * creates a {@link ConversionFacade} using the interpolator and enforcer from the config
+	 */
+	private static ConversionFacade createConversionFacade(Configuration config) {
+
+		ConversionFacade cf = new ConversionFacade();
+
+		String interpolatorType = config.getString("terrainInterpolator");
+		if ("ZeroInterpolator".equals(interpolatorType)) {
+			cf.setTerrainEleInterpolatorFactory(ZeroInterpolator::new);
+		} else if ("LeastSquaresInterpolator".equals(interpolatorType)) {
+			cf.setTerrainEleInterpolatorFactory(LeastSquaresInterpolator::new);
+		} else if ("NaturalNeighborInterpolator".equals(interpolatorType)) {
+			cf.setTerrainEleInterpolatorFactory(NaturalNeighborInterpolator::new);
+		}
+
+		String enforcerType = config.getString("eleConstraintEnforcer");
+		if ("NoneEleConstraintEnforcer".equals(enforcerType)) {
+			cf.setEleConstraintEnforcerFactory(NoneEleConstraintEnforcer::new);
+		} else if ("SimpleEleConstraintEnforcer".equals(enforcerType)) {
+			cf.setEleConstraintEnforcerFactory(SimpleEleConstraintEnforcer::new);
+		}
+
+		return cf;
+
+	}
+
+	/**
+	 * converts the input file using a {@link ChunkedConversion}.
+	 * Each OBJ output file is replaced with one file per chunk,
+	 * e.g. "out_2_3.obj" for column 2 and row 3. Other output formats are not supported.
+	 */
+	private static void outputChunks(Configuration config,
+			CLIArgumentsGroup argumentsGroup, File inputFile) throws IOException {
+
+		List<File> objFiles = new ArrayList<File>();
+
+		for (CLIArguments args : argumentsGroup.getCLIArgumentsList()) {
+			for (File outputFile : args.getOutput()) {
+				if (CLIArgumentsUtil.getOutputMode(outputFile) == OutputMode.OBJ) {
+					objFiles.add(outputFile);
+				} else {
+					System.err.println("output format is not supported for chunked conversion: "
+							+ outputFile);
+				}
+			}
+		}
+
+		boolean underground = config.getBoolean("renderUnderground", true);
+
+		ChunkedConversion conversion = new ChunkedConversion(() -> createConversionFacade(config), config);
+
+		conversion.convert(inputFile, null, (chunk, results, coreData) -> {
+			for (File objFile : objFiles) {
+
+				String name = objFile.getName().replaceAll("\\.obj$", "");
+				File chunkFile = new File(objFile.getAbsoluteFile().getParentFile(),
+						name + "_" + chunk.column + "_" + chunk.row + ".obj");
+
+				ObjWriter.writeObjFile(chunkFile, coreData, results.getMapProjection(),
+						null, null, underground);
+
+			}
+		});
+
+	}
+
+	private static void writeMetrics(String metricsFile) {
+		if (metricsFile != null) {
+			try {
+				Metrics.write(new File(metricsFile));
+			} catch (IOException e) {
+				System.err.println("could not write metrics: " + e);
+			}
+			Metrics.setEnabled(false, false);
+		}
+	}
+
+	/**
+	 * counts the requested output files which render all world objects
+	 * to a target that can replay a {@link RecordingTarget}
+	 */
+	private static int countReplayableOutputs(Configuration config,
+			CLIArgumentsGroup argumentsGroup) {
+
+		int count = 0;
+
+		for (CLIArguments args : argumentsGroup.getCLIArgumentsList()) {
+			for (File outputFile : args.getOutput()) {
+				switch (CLIArgumentsUtil.getOutputMode(outputFile)) {
+				case OBJ:
+					if (config.getInteger("primitiveThresholdOBJ", null) == null) {
+						count ++;
+					}
+					break;
+				case POV:
+					count ++;
+					break;
+				case PNG:
+				case PPM:
+				case GD:
+					/* the shader implementation is a ModelTarget, which cannot replay recordings */
+					if (!"shader".equals(config.getString("joglImplementation"))) {
+						count ++;
+					}
+					break;
+				default:
+					break;
+				}
+			}
+		}
+
+		return count;
+
+	}
+
 	private static class PerformanceListener implements ProgressListener {
 
 		private final CLIArguments args;
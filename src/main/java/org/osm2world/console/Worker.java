@@ -0,0 +1,158 @@
+package org.osm2world.console;
+
+import static org.osm2world.console.Coordinator.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * counterpart of a {@link Coordinator}. Connects to the coordinator,
+ * then receives and runs work units until the coordinator reports that all work is finished.
+ * The output files of each work unit are written to a temporary directory
+ * and sent to the coordinator.
+ */
+public class Worker {
+
+	/** maximum length of failure messages sent to the coordinator */
+	private static final int MAX_MESSAGE_LENGTH = 1000;
+
+	/**
+	 * runs a single conversion
+	 */
+	@FunctionalInterface
+	public static interface UnitRunner {
+
+		/**
+		 * @param args  the command line parameters of the conversion run
+		 */
+		public void run(String[] args) throws Exception;
+
+	}
+
+	private final String host;
+	private final int port;
+	private final UnitRunner runner;
+
+	/**
+	 * creates a worker which runs each work unit like a call of OSM2World from the command line
+	 */
+	public Worker(String host, int port) {
+		this(host, port, OSM2World::main);
+	}
+
+	public Worker(String host, int port, UnitRunner runner) {
+		this.host = host;
+		this.port = port;
+		this.runner = runner;
+	}
+
+	/**
+	 * connects to the coordinator and runs work units until all work is finished
+	 */
+	public void run() throws IOException {
+
+		try (Socket socket = new Socket(host, port);
+				DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+
+			out.writeInt(PROTOCOL_VERSION);
+			out.flush();
+
+			while (UNIT.equals(in.readUTF())) {
+
+				int id = in.readInt();
+				String[] args = readStrings(in);
+				String[] outputNames = readStrings(in);
+
+				File tempDir = Files.createTempDirectory("osm2world-worker-").toFile();
+
+				try {
+
+					/* the index prefix keeps names unique, the original name keeps the file type */
+
+					List<File> outputFiles = new ArrayList<File>(outputNames.length);
+
+					for (int i = 0; i < outputNames.length; i++) {
+						outputFiles.add(new File(tempDir, i + "-" + outputNames[i]));
+					}
+
+					String failureMessage = runUnit(args, outputFiles);
+
+					if (failureMessage == null) {
+
+						out.writeUTF(SUCCESS);
+						out.writeInt(id);
+						out.writeInt(outputFiles.size());
+
+						for (File outputFile : outputFiles) {
+							out.writeLong(outputFile.length());
+							Files.copy(outputFile.toPath(), out);
+						}
+
+					} else {
+
+						out.writeUTF(FAILURE);
+						out.writeInt(id);
+						out.writeUTF(failureMessage.length() > MAX_MESSAGE_LENGTH
+								? failureMessage.substring(0, MAX_MESSAGE_LENGTH)
+								: failureMessage);
+
+					}
+
+					out.flush();
+
+				} finally {
+					for (File file : tempDir.listFiles()) {
+						file.delete();
+					}
+					tempDir.delete();
+				}
+
+			}
+
+		}
+
+	}
+
+	/**
+	 * runs a work unit with the given output files
+	 *
+	 * @return  null if the work unit was successful, a description of the problem otherwise
+	 */
+	private String runUnit(String[] args, List<File> outputFiles) {
+
+		String[] fullArgs = Arrays.copyOf(args, args.length + 1 + outputFiles.size());
+
+		fullArgs[args.length] = "--output";
+
+		for (int i = 0; i < outputFiles.size(); i++) {
+			fullArgs[args.length + 1 + i] = outputFiles.get(i).getPath();
+		}
+
+		try {
+			runner.run(fullArgs);
+		} catch (Exception e) {
+			e.printStackTrace();
+			return e.toString();
+		}
+
+		for (File outputFile : outputFiles) {
+			if (!outputFile.isFile()) {
+				return "output file has not been created: " + outputFile.getName();
+			}
+		}
+
+		return null;
+
+	}
+
+}
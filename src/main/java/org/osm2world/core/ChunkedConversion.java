@@ -0,0 +1,364 @@
+package org.osm2world.core;
+
+import static java.lang.Math.*;
+import static java.util.Collections.singletonList;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import org.apache.commons.configuration.Configuration;
+import org.osm2world.core.ConversionFacade.Results;
+import org.osm2world.core.map_data.creation.LatLon;
+import org.osm2world.core.map_data.creation.LatLonBounds;
+import org.osm2world.core.map_data.creation.MapProjection;
+import org.osm2world.core.map_data.data.MapData;
+import org.osm2world.core.map_data.data.MapElement;
+import org.osm2world.core.math.AxisAlignedBoundingBoxXZ;
+import org.osm2world.core.math.VectorXZ;
+import org.osm2world.core.osm.creation.BoundedOSMFileReader;
+import org.osm2world.core.osm.data.OSMData;
+import org.osm2world.core.util.Metrics;
+import org.osm2world.core.util.functions.Factory;
+import org.osm2world.core.world.creation.WorldModule;
+
+import de.topobyte.osm4j.core.model.iface.OsmBounds;
+import de.topobyte.osm4j.core.model.impl.Bounds;
+
+/**
+ * converts regions which are too large to be held in memory at once.
+ *
+ * The region is partitioned into a grid of chunks. Each chunk is read from the input file
+ * together with a halo around it (using a {@link BoundedOSMFileReader}) and converted on its own.
+ * Of the results, only the map elements whose center lies within the chunk's core
+ * (the chunk without the halo) are passed on to a {@link ChunkConsumer},
+ * which usually writes them to disk. Each map element is therefore output exactly once,
+ * while the halo provides the surroundings needed to model elements near the chunk's border.
+ * The halo should be at least as large as the distance at which objects influence each other.
+ * Elements which are created to fill the file's bounds, such as water polygons from coastlines
+ * and empty terrain, are only created within the core, so they don't overlap between chunks.
+ *
+ * All chunks use a {@link MapProjection} with the same origin, so their results fit together.
+ *
+ * Relevant config properties:<ul>
+ * <li>chunkSize: the size of the chunks in degrees, required</li>
+ * <li>chunkHalo: the size of the halo in meters, defaults to {@value #DEFAULT_CHUNK_HALO}</li>
+ * <li>chunkThreads: number of chunks to convert in parallel, defaults to 1</li>
+ * <li>chunkMemoryBudget: approximate memory in MB available to chunks
+ * running in parallel, defaults to half of the maximum heap size.
+ * To estimate each chunk's share before it is read, the input file's nodes are counted
+ * in an additional pass if chunkThreads is &gt; 1.</li>
+ * </ul>
+ */
+public class ChunkedConversion {
+
+	/** default size of the halo around each chunk, in meters */
+	public static final double DEFAULT_CHUNK_HALO = 250;
+
+	/** rough estimate of the memory needed for each node of the input data during a conversion */
+	private static final long ESTIMATED_BYTES_PER_NODE = 4096;
+
+	private static final double METERS_PER_DEGREE_LAT = 111320;
+
+	/**
+	 * a rectangular part of the region, identified by its column and row in the grid of chunks
+	 */
+	public static final class Chunk {
+
+		public final int column;
+		public final int row;
+
+		/** the area for which this chunk's results are output */
+		public final LatLonBounds core;
+
+		/** the area which is read from the input, the core plus a halo */
+		public final LatLonBounds bounds;
+
+		private final int columnCount;
+		private final int rowCount;
+
+		private Chunk(int column, int row, int columnCount, int rowCount,
+				LatLonBounds core, LatLonBounds bounds) {
+			this.column = column;
+			this.row = row;
+			this.columnCount = columnCount;
+			this.rowCount = rowCount;
+			this.core = core;
+			this.bounds = bounds;
+		}
+
+		/**
+		 * checks whether a position is within this chunk's core.
+		 * Cores contain their southern and western border, but not the northern and eastern one,
+		 * so each position belongs to exactly one chunk. Cores at the edge of the grid
+		 * extend beyond the region, so positions outside the region also belong to a chunk.
+		 */
+		public boolean coreContains(double lat, double lon) {
+			return (lat >= core.minlat || row == 0)
+					&& (lat < core.maxlat || row == rowCount - 1)
+					&& (lon >= core.minlon || column == 0)
+					&& (lon < core.maxlon || column == columnCount - 1);
+		}
+
+		@Override
+		public String toString() {
+			return "chunk " + column + "/" + row;
+		}
+
+	}
+
+	/**
+	 * receives the results for each chunk.
+	 * Will be called concurrently for different chunks if the chunkThreads config property is > 1.
+	 */
+	@FunctionalInterface
+	public static interface ChunkConsumer {
+
+		/**
+		 * @param results   all results of the chunk's conversion, including the halo
+		 * @param coreData  map data with only those elements whose center is within the chunk's core
+		 */
+		public void accept(Chunk chunk, Results results, MapData coreData) throws IOException;
+
+	}
+
+	private final Factory<? extends ConversionFacade> facadeFactory;
+	private final Configuration config;
+
+	/**
+	 * @param facadeFactory  creates a configured {@link ConversionFacade} for each chunk
+	 * @param config         the configuration for the conversion of each chunk,
+	 *                       including the chunk-related properties
+	 */
+	public ChunkedConversion(Factory<? extends ConversionFacade> facadeFactory, Configuration config) {
+		this.facadeFactory = facadeFactory;
+		this.config = config;
+		if (!config.containsKey("chunkSize")) {
+			throw new IllegalArgumentException("chunkSize config property is required");
+		}
+	}
+
+	/**
+	 * partitions a region into chunks based on the chunkSize and chunkHalo config properties
+	 */
+	public List<Chunk> createChunks(LatLonBounds region) {
+
+		double chunkSize = config.getDouble("chunkSize");
+		double halo = config.getDouble("chunkHalo", DEFAULT_CHUNK_HALO);
+
+		int columnCount = max(1, (int) ceil((region.maxlon - region.minlon) / chunkSize));
+		int rowCount = max(1, (int) ceil((region.maxlat - region.minlat) / chunkSize));
+
+		List<Chunk> chunks = new ArrayList<Chunk>(columnCount * rowCount);
+
+		for (int row = 0; row < rowCount; row++) {
+			for (int column = 0; column < columnCount; column++) {
+
+				LatLonBounds core = new LatLonBounds(
+						region.minlat + row * chunkSize,
+						region.minlon + column * chunkSize,
+						min(region.maxlat, region.minlat + (row + 1) * chunkSize),
+						min(region.maxlon, region.minlon + (column + 1) * chunkSize));
+
+				double maxAbsLat = max(abs(core.minlat), abs(core.maxlat));
+				double haloLat = halo / METERS_PER_DEGREE_LAT;
+				double haloLon = halo / (METERS_PER_DEGREE_LAT * max(0.01, cos(toRadians(maxAbsLat))));
+
+				LatLonBounds bounds = new LatLonBounds(
+						core.minlat - haloLat, core.minlon - haloLon,
+						core.maxlat + haloLat, core.maxlon + haloLon);
+
+				chunks.add(new Chunk(column, row, columnCount, rowCount, core, bounds));
+
+			}
+		}
+
+		return chunks;
+
+	}
+
+	/**
+	 * converts an OSM file in chunks
+	 *
+	 * @param osmFile        the input file, will be read several times for each chunk
+	 * @param moduleFactory  creates the modules for each chunk; null to use a default module list
+	 * @param consumer       receives the results for each chunk
+	 */
+	public void convert(File osmFile, Factory<? extends List<? extends WorldModule>> moduleFactory,
+			ChunkConsumer consumer) throws IOException {
+
+		LatLonBounds region = BoundedOSMFileReader.readBounds(osmFile);
+
+		if (region == null) return;
+
+		LatLon origin = new LatLon(
+				(region.minlat + region.maxlat) / 2,
+				(region.minlon + region.maxlon) / 2);
+
+		List<Chunk> chunks = createChunks(region);
+
+		int threadCount = config.getInt("chunkThreads", 1);
+
+		Semaphore memory = new Semaphore(getMemoryBudget());
+
+		long[] nodeCounts = threadCount > 1 ? countNodes(osmFile, chunks) : null;
+
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+
+		try {
+
+			List<Future<?>> futures = new ArrayList<Future<?>>(chunks.size());
+
+			for (int i = 0; i < chunks.size(); i++) {
+				Chunk chunk = chunks.get(i);
+				int permits = nodeCounts == null ? 1 : getPermits(nodeCounts[i]);
+				futures.add(executor.submit(() -> {
+					convertChunk(osmFile, chunk, origin, moduleFactory, consumer, memory, permits);
+					return null;
+				}));
+			}
+
+			for (Future<?> future : futures) {
+				future.get();
+			}
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			} else if (e.getCause() instanceof CancellationException) {
+				throw (CancellationException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+
+	}
+
+	/** returns the memory budget in MB, see the chunkMemoryBudget config property */
+	private int getMemoryBudget() {
+		return max(1, config.getInt("chunkMemoryBudget",
+				(int) (Runtime.getRuntime().maxMemory() / 2 / (1024 * 1024))));
+	}
+
+	/**
+	 * returns the share of the memory budget for a chunk, in MB
+	 *
+	 * @param nodeCount  the number of nodes within the chunk's bounds, including the halo
+	 */
+	private int getPermits(long nodeCount) {
+		long estimatedMB = nodeCount * ESTIMATED_BYTES_PER_NODE / (1024 * 1024);
+		return (int) max(1, min(getMemoryBudget(), estimatedMB));
+	}
+
+	/**
+	 * counts the nodes within each chunk's bounds (including the halo) in a single pass over the file.
+	 * Only the chunks next to the one containing a node are checked,
+	 * so the counts are too low for halos which are larger than the chunks themselves.
+	 *
+	 * @return  the node count for each chunk, in the order of the chunks
+	 */
+	private long[] countNodes(File osmFile, List<Chunk> chunks) throws IOException {
+
+		double chunkSize = config.getDouble("chunkSize");
+
+		Chunk firstChunk = chunks.get(0);
+		int columnCount = firstChunk.columnCount;
+		int rowCount = firstChunk.rowCount;
+
+		long[] nodeCounts = new long[chunks.size()];
+
+		try (Metrics.Timer timer = Metrics.startTimer("count nodes")) {
+
+			BoundedOSMFileReader.forEachNode(osmFile, node -> {
+
+				double lat = node.getLatitude();
+				double lon = node.getLongitude();
+
+				int column = (int) floor((lon - firstChunk.core.minlon) / chunkSize);
+				int row = (int) floor((lat - firstChunk.core.minlat) / chunkSize);
+
+				for (int r = max(0, row - 1); r <= min(rowCount - 1, row + 1); r++) {
+					for (int c = max(0, column - 1); c <= min(columnCount - 1, column + 1); c++) {
+						LatLonBounds bounds = chunks.get(r * columnCount + c).bounds;
+						if (lat >= bounds.minlat && lat <= bounds.maxlat
+								&& lon >= bounds.minlon && lon <= bounds.maxlon) {
+							nodeCounts[r * columnCount + c] ++;
+						}
+					}
+				}
+
+			});
+
+		}
+
+		return nodeCounts;
+
+	}
+
+	/**
+	 * @param permits  the chunk's share of the memory budget, acquired before the chunk is read
+	 */
+	private void convertChunk(File osmFile, Chunk chunk, LatLon origin,
+			Factory<? extends List<? extends WorldModule>> moduleFactory,
+			ChunkConsumer consumer, Semaphore memory, int permits) throws IOException, InterruptedException {
+
+		/* wait until enough of the memory budget is available for this chunk */
+
+		memory.acquire(permits);
+
+		try {
+
+			OSMData osmData;
+
+			try (Metrics.Timer timer = Metrics.startTimer("read chunk")) {
+				osmData = new BoundedOSMFileReader(osmFile, chunk.bounds).getData();
+			}
+
+			if (osmData.getNodes().isEmpty()) return;
+
+			/* use the core as the file bounds, so elements filling the bounds
+			 * (coastline water polygons and empty terrain) are not duplicated in neighboring chunks */
+
+			OsmBounds coreBounds = new Bounds(chunk.core.minlon, chunk.core.maxlon,
+					chunk.core.maxlat, chunk.core.minlat);
+
+			osmData = new OSMData(singletonList(coreBounds),
+					osmData.getNodes(), osmData.getWays(), osmData.getRelations());
+
+			ConversionFacade cf = facadeFactory.get();
+			cf.setMapProjectionOrigin(origin);
+
+			Results results = cf.createRepresentations(osmData,
+					moduleFactory == null ? null : moduleFactory.get(), config, null);
+
+			MapProjection projection = results.getMapProjection();
+
+			List<VectorXZ> coreCorners = new ArrayList<VectorXZ>(2);
+			coreCorners.add(projection.calcPos(chunk.core.getMin()));
+			coreCorners.add(projection.calcPos(chunk.core.getMax()));
+
+			MapData coreData = results.getMapData().filter((MapElement e) -> {
+				VectorXZ center = e.getAxisAlignedBoundingBoxXZ().center();
+				return chunk.coreContains(projection.calcLat(center), projection.calcLon(center));
+			}, new AxisAlignedBoundingBoxXZ(coreCorners));
+
+			consumer.accept(chunk, results, coreData);
+
+		} finally {
+			memory.release(permits);
+		}
+
+	}
+
+}
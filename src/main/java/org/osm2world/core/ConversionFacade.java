@@ -1,5 +1,6 @@
 package org.osm2world.core;
 
+import static com.google.common.collect.Lists.newArrayList;
 import static java.util.Collections.emptyList;
 
 import java.io.File;
@@ -8,10 +9,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 
 import org.apache.commons.configuration.BaseConfiguration;
 import org.apache.commons.configuration.Configuration;
-import org.apache.commons.lang.time.StopWatch;
+import org.osm2world.core.map_data.creation.LatLon;
+import org.osm2world.core.map_data.creation.MapDataSnapshot;
 import org.osm2world.core.map_data.creation.MapProjection;
 import org.osm2world.core.map_data.creation.MetricMapProjection;
 import org.osm2world.core.map_data.creation.OSMToMapDataConverter;
@@ -26,14 +29,20 @@ import org.osm2world.core.map_elevation.creation.TerrainInterpolator;
 import org.osm2world.core.map_elevation.creation.ZeroInterpolator;
 import org.osm2world.core.map_elevation.data.EleConnector;
 import org.osm2world.core.math.VectorXYZ;
+import org.osm2world.core.math.algorithms.TriangulationCache;
 import org.osm2world.core.osm.creation.OSMDataReader;
 import org.osm2world.core.osm.creation.OSMFileReader;
 import org.osm2world.core.osm.data.OSMData;
 import org.osm2world.core.target.Renderable;
+import org.osm2world.core.target.ShardableTarget;
 import org.osm2world.core.target.Target;
 import org.osm2world.core.target.TargetUtil;
+import org.osm2world.core.target.common.RecordingTarget;
 import org.osm2world.core.target.common.material.Materials;
+import org.osm2world.core.util.CancellationToken;
 import org.osm2world.core.util.FaultTolerantIterationUtil;
+import org.osm2world.core.util.Metrics;
+import org.osm2world.core.util.ProgressTracker;
 import org.osm2world.core.util.functions.Factory;
 import org.osm2world.core.world.creation.WorldCreator;
 import org.osm2world.core.world.creation.WorldModule;
@@ -160,6 +169,10 @@ public class ConversionFacade {
 
 	private Factory<? extends EleConstraintEnforcer> eleConstraintEnforcerFactory = NoneEleConstraintEnforcer::new;
 
+	private LatLon mapProjectionOrigin = null;
+
+	private CancellationToken cancellationToken = null;
+
 	/**
 	 * sets the factory that will make {@link MapProjection}
 	 * instances during subsequent calls to
@@ -170,6 +183,18 @@ public class ConversionFacade {
 		this.mapProjectionFactory = mapProjectionFactory;
 	}
 
+	/**
+	 * sets a fixed origin for the {@link MapProjection} used during subsequent calls to
+	 * {@link #createRepresentations(OSMData, List, Configuration, List)}.
+	 * This is useful if the results of several conversions need to fit together.
+	 * Map data snapshots (see the mapDataCacheDir config property) are not used with a fixed origin.
+	 *
+	 * @param origin  the origin, null to derive it from each conversion's input data
+	 */
+	public void setMapProjectionOrigin(LatLon origin) {
+		this.mapProjectionOrigin = origin;
+	}
+
 	/**
 	 * sets the factory that will make {@link EleConstraintEnforcer}
 	 * instances during subsequent calls to
@@ -190,12 +215,29 @@ public class ConversionFacade {
 		this.terrainEleInterpolatorFactory = enforcerFactory;
 	}
 
+	/**
+	 * sets a token which allows subsequent calls to
+	 * {@link #createRepresentations(OSMData, List, Configuration, List)}
+	 * to be cancelled from another thread. The token is checked after each element,
+	 * a cancelled conversion throws a {@link CancellationException}.
+	 *
+	 * @param cancellationToken  token to check, null if the conversion cannot be cancelled
+	 */
+	public void setCancellationToken(CancellationToken cancellationToken) {
+		this.cancellationToken = cancellationToken;
+	}
+
 
 	/**
 	 * performs all necessary steps to go from
 	 * an OSM file to the renderable {@link WorldObject}s.
 	 * Sends updates to {@link ProgressListener}s.
 	 *
+	 * If the mapDataCacheDir config property is set, the {@link MapData} is
+	 * stored there as a {@link MapDataSnapshot} and loaded from the snapshot
+	 * in later runs with the same file and config, skipping OSM parsing
+	 * and the {@link OSMToMapDataConverter}.
+	 *
 	 * @param osmFile       file to read OSM data from; != null
 	 * @param worldModules  modules that will create the {@link WorldObject}s
 	 *                      in the result; null to use a default module list
@@ -209,13 +251,75 @@ public class ConversionFacade {
 			List<? extends Target<?>> targets)
 			throws IOException {
 
-		if (osmFile == null) {
-			throw new IllegalArgumentException("osmFile must not be null");
-		}
+		try {
+
+			if (osmFile == null) {
+				throw new IllegalArgumentException("osmFile must not be null");
+			}
+
+			if (config == null) {
+				config = new BaseConfiguration();
+			}
+
+			String mapDataCacheDir = config.getString("mapDataCacheDir", null);
+
+			if (mapDataCacheDir == null || mapProjectionOrigin != null) {
+				OSMData osmData = new OSMFileReader(osmFile).getData();
+				return createRepresentations(osmData, worldModules, config, targets);
+			}
+
+			/* use a map data snapshot from an earlier run if available */
+
+			updatePhase(Phase.MAP_DATA);
+
+			OriginMapProjection mapProjection = mapProjectionFactory.get();
+
+			String snapshotKey = MapDataSnapshot.cacheKey(osmFile, config, mapProjection.getClass());
+			File snapshotFile = new File(mapDataCacheDir, snapshotKey + MapDataSnapshot.FILE_EXTENSION);
+
+			MapDataSnapshot snapshot = null;
+
+			if (snapshotFile.exists()) {
+				try {
+					snapshot = MapDataSnapshot.read(snapshotFile, snapshotKey);
+				} catch (IOException e) {
+					System.err.println("could not read map data snapshot: " + e);
+				}
+			}
+
+			MapData mapData;
+
+			if (snapshot != null) {
+
+				checkBoundingBoxSize(snapshot.getBounds(), config);
+
+				mapProjection.setOrigin(snapshot.getOrigin());
+				mapData = snapshot.getMapData();
 
-		OSMData osmData = new OSMFileReader(osmFile).getData();
+			} else {
 
-		return createRepresentations(osmData, worldModules, config, targets);
+				OSMData osmData = new OSMFileReader(osmFile).getData();
+
+				checkBoundingBoxSize(osmData.getBounds(), config);
+
+				mapProjection.setOrigin(osmData);
+				mapData = createMapData(osmData, mapProjection, config, phaseProgress);
+
+				try {
+					snapshotFile.getParentFile().mkdirs();
+					MapDataSnapshot.write(snapshotFile, snapshotKey,
+							mapProjection.getOrigin(), osmData.getBounds(), mapData);
+				} catch (IOException e) {
+					System.err.println("could not write map data snapshot: " + e);
+				}
+
+			}
+
+			return createRepresentations(mapProjection, mapData, worldModules, config, targets);
+
+		} finally {
+			stopPhaseTimer();
+		}
 
 	}
 
@@ -242,19 +346,50 @@ public class ConversionFacade {
 			List<? extends Target<?>> targets)
 			throws IOException, BoundingBoxSizeException {
 
-		/* check the inputs */
+		try {
 
-		if (osmData == null) {
-			throw new IllegalArgumentException("osmData must not be null");
-		}
+			/* check the inputs */
+
+			if (osmData == null) {
+				throw new IllegalArgumentException("osmData must not be null");
+			}
+
+			if (config == null) {
+				config = new BaseConfiguration();
+			}
+
+			checkBoundingBoxSize(osmData.getBounds(), config);
+
+			/* create map data from OSM data */
+			updatePhase(Phase.MAP_DATA);
+
+			OriginMapProjection mapProjection = mapProjectionFactory.get();
 
-		if (config == null) {
-			config = new BaseConfiguration();
+			if (mapProjectionOrigin != null) {
+				mapProjection.setOrigin(mapProjectionOrigin);
+			} else {
+				mapProjection.setOrigin(osmData);
+			}
+
+			MapData mapData = createMapData(osmData, mapProjection, config, phaseProgress);
+
+			return createRepresentations(mapProjection, mapData, worldModules, config, targets);
+
+		} finally {
+			stopPhaseTimer();
 		}
 
+	}
+
+	/**
+	 * @throws BoundingBoxSizeException  if one of the bounds is larger than
+	 *                                   the maxBoundingBoxDegrees config property
+	 */
+	private static void checkBoundingBoxSize(Collection<OsmBounds> bounds, Configuration config) {
+
 		Double maxBoundingBoxDegrees = config.getDouble("maxBoundingBoxDegrees", null);
 		if (maxBoundingBoxDegrees != null) {
-			for (OsmBounds bound : osmData.getBounds()) {
+			for (OsmBounds bound : bounds) {
 				if (bound.getTop() - bound.getBottom() > maxBoundingBoxDegrees
 						|| bound.getRight() - bound.getLeft() > maxBoundingBoxDegrees) {
 					throw new BoundingBoxSizeException(bound);
@@ -262,20 +397,31 @@ public class ConversionFacade {
 			}
 		}
 
-		/* create map data from OSM data */
-		updatePhase(Phase.MAP_DATA);
+	}
 
-		OriginMapProjection mapProjection = mapProjectionFactory.get();
-		mapProjection.setOrigin(osmData);
+	private static MapData createMapData(OSMData osmData, MapProjection mapProjection,
+			Configuration config, ProgressTracker progress) throws IOException {
 
 		OSMToMapDataConverter converter = new OSMToMapDataConverter(mapProjection, config);
 		MapData mapData = null;
 		try {
-			mapData = converter.createMapData(osmData);
+			mapData = converter.createMapData(osmData, progress);
 		} catch (EntityNotFoundException e) {
 			// TODO: what to do here?
 		}
 
+		return mapData;
+
+	}
+
+	/**
+	 * performs all steps after the creation of {@link MapData},
+	 * starting with {@link Phase#REPRESENTATION}.
+	 */
+	private Results createRepresentations(MapProjection mapProjection, MapData mapData,
+			List<? extends WorldModule> worldModules, Configuration config,
+			List<? extends Target<?>> targets) {
+
 		/* apply world modules */
 		updatePhase(Phase.REPRESENTATION);
 
@@ -284,12 +430,14 @@ public class ConversionFacade {
 		}
 
 		Materials.configureMaterials(config);
+		TriangulationCache.setMaximumWeight(config.getLong(
+				"triangulationCacheSize", TriangulationCache.DEFAULT_MAXIMUM_WEIGHT));
 			//this will cause problems if multiple conversions are run
 			//at the same time, because global variables are being modified
 
 		WorldCreator moduleManager =
 			new WorldCreator(config, worldModules);
-		moduleManager.addRepresentationsTo(mapData);
+		moduleManager.addRepresentationsTo(mapData, phaseProgress);
 
 		/* determine elevations */
 		updatePhase(Phase.ELEVATION);
@@ -310,12 +458,51 @@ public class ConversionFacade {
 		updatePhase(Phase.FINISHED);
 
 		boolean underground = config.getBoolean("renderUnderground", true);
+		int renderThreads = config.getInt("renderThreads", 1);
 
 		if (targets != null) {
+
+			/* with several targets, only render the world objects once and replay them.
+			 * Recordings are also used to render in parallel for targets which aren't shardable.
+			 * Targets which cannot use a recording (such as ModelTargets) are rendered directly. */
+
+			List<Target<?>> replayTargets = new ArrayList<Target<?>>();
+
 			for (Target<?> target : targets) {
-				TargetUtil.renderWorldObjects(target, mapData, underground);
+				if (RecordingTarget.canReplayTo(target)) {
+					replayTargets.add(target);
+				}
+			}
+
+			RecordingTarget recording = null;
+
+			if (replayTargets.size() > 1 || (renderThreads > 1 && replayTargets.size() == 1
+					&& !(replayTargets.get(0) instanceof ShardableTarget<?>))) {
+				recording = RecordingTarget.record(mapData, renderThreads,
+						phaseProgress.subTask(0, 1.0 / (targets.size() + 1)));
+			}
+
+			/* the recording (if any) and each target count as an equal share of the progress */
+
+			int stepCount = targets.size() + (recording != null ? 1 : 0);
+
+			for (int i = 0; i < targets.size(); i++) {
+
+				Target<?> target = targets.get(i);
+
+				int step = i + (recording != null ? 1 : 0);
+				ProgressTracker targetProgress = phaseProgress.subTask(
+						(double) step / stepCount, (double) (step + 1) / stepCount);
+
+				if (recording != null && RecordingTarget.canReplayTo(target)) {
+					TargetUtil.renderWorldObjects(target, mapData, recording, underground, targetProgress);
+				} else {
+					TargetUtil.renderWorldObjects(target, mapData, underground, renderThreads, targetProgress);
+				}
 				target.finish();
+
 			}
+
 		}
 
 		return new Results(mapProjection, mapData, eleData);
@@ -337,30 +524,19 @@ public class ConversionFacade {
 
 		/* provide known elevations from eleData to the interpolator */
 
-		StopWatch stopWatch = new StopWatch();
-		stopWatch.start();
-
 		if (!(interpolator instanceof ZeroInterpolator)) {
 
 			Collection<VectorXYZ> sites = emptyList();
 
-			try {
-
+			try (Metrics.Timer timer = Metrics.startTimer("getSites")) {
 				sites = eleData.getSites(mapData);
-
-				System.out.println("time getSites: " + stopWatch);
-				stopWatch.reset();
-				stopWatch.start();
-
 			} catch (IOException e) {
 				e.printStackTrace();
 			}
 
-			interpolator.setKnownSites(sites);
-
-			System.out.println("time setKnownSites: " + stopWatch);
-			stopWatch.reset();
-			stopWatch.start();
+			try (Metrics.Timer timer = Metrics.startTimer("setKnownSites")) {
+				interpolator.setKnownSites(sites);
+			}
 
 		}
 
@@ -368,18 +544,20 @@ public class ConversionFacade {
 
 		final List<EleConnector> connectors = new ArrayList<EleConnector>();
 
-		FaultTolerantIterationUtil.iterate(mapData.getWorldObjects(), (WorldObject worldObject) -> {
+		final List<WorldObject> worldObjects = newArrayList(mapData.getWorldObjects());
 
-			for (EleConnector conn : worldObject.getEleConnectors()) {
-				conn.setPosXYZ(interpolator.interpolateEle(conn.pos));
-				connectors.add(conn);
-			}
+		try (Metrics.Timer timer = Metrics.startTimer("terrain interpolation")) {
+
+			FaultTolerantIterationUtil.iterate(worldObjects, (WorldObject worldObject) -> {
 
-		});
+				for (EleConnector conn : worldObject.getEleConnectors()) {
+					conn.setPosXYZ(interpolator.interpolateEle(conn.pos));
+					connectors.add(conn);
+				}
 
-		System.out.println("time terrain interpolation: " + stopWatch);
-		stopWatch.reset();
-		stopWatch.start();
+			}, phaseProgress.subTask(0, 0.5));
+
+		}
 
 		/* enforce constraints defined by WorldObjects */
 
@@ -390,24 +568,25 @@ public class ConversionFacade {
 						eleConstraintEnforcerFactory.get())
 				: eleConstraintEnforcerFactory.get();
 
-		enforcer.addConnectors(connectors);
+		try (Metrics.Timer timer = Metrics.startTimer("add constraints")) {
 
-		if (!(enforcer instanceof NoneEleConstraintEnforcer)) {
+			enforcer.addConnectors(connectors);
 
-			FaultTolerantIterationUtil.iterate(mapData.getWorldObjects(),
-					(WorldObject o) -> o.defineEleConstraints(enforcer));
+			if (!(enforcer instanceof NoneEleConstraintEnforcer)) {
 
-		}
+				FaultTolerantIterationUtil.iterate(worldObjects,
+						(WorldObject o) -> o.defineEleConstraints(enforcer),
+						phaseProgress.subTask(0.5, 0.75));
+
+			}
 
-		System.out.println("time add constraints: " + stopWatch);
-		stopWatch.reset();
-		stopWatch.start();
+		}
 
-		enforcer.enforceConstraints();
+		try (Metrics.Timer timer = Metrics.startTimer("enforce constraints")) {
+			enforcer.enforceConstraints();
+		}
 
-		System.out.println("time enforce constraints: " + stopWatch);
-		stopWatch.reset();
-		stopWatch.start();
+		phaseProgress.updateProgress(1);
 
 	}
 
@@ -428,8 +607,12 @@ public class ConversionFacade {
 		/** announces the start of a new phase */
 		public void updatePhase(Phase newPhase);
 
-//		/** announces the fraction of the current phase that is completed */
-//		public void updatePhaseProgress(float phaseProgress);
+		/**
+		 * announces the fraction of the current phase that is completed.
+		 * Can be called from threads other than the one running the conversion.
+		 * The default implementation ignores the progress.
+		 */
+		public default void updatePhaseProgress(float phaseProgress) {}
 
 	}
 
@@ -439,17 +622,79 @@ public class ConversionFacade {
 		listeners.add(listener);
 	}
 
+	/** timer for the current phase, see {@link Metrics} */
+	private Metrics.Timer phaseTimer = null;
+
 	private void updatePhase(Phase newPhase) {
+
+		throwIfCancelled();
+
+		stopPhaseTimer();
+
+		if (newPhase != Phase.FINISHED) {
+			phaseTimer = Metrics.startTimer(newPhase.toString());
+		}
+
+		lastPhaseProgress = 0;
+
 		for (ProgressListener listener : listeners) {
 			listener.updatePhase(newPhase);
 		}
 	}
 
-//	private void updatePhaseProgress(float phaseProgress) {
-//		for (ProgressListener listener : listeners) {
-//			listener.updatePhaseProgress(phaseProgress);
-//		}
-//	}
+	private void stopPhaseTimer() {
+		if (phaseTimer != null) {
+			phaseTimer.close();
+			phaseTimer = null;
+		}
+	}
+
+	/**
+	 * smallest increase of the phase progress that is passed on to the listeners.
+	 * Progress is reported after each element, so most updates are dropped.
+	 */
+	private static final float MIN_PHASE_PROGRESS_STEP = 0.01f;
+
+	/** the phase progress most recently passed on to the listeners */
+	private volatile float lastPhaseProgress = 0;
+
+	/**
+	 * receives the progress of the current phase from the individual steps of the conversion,
+	 * checks for cancellation and informs the listeners
+	 */
+	private final ProgressTracker phaseProgress = (double progress) -> {
+
+		throwIfCancelled();
+
+		float phaseProgress = (float) progress;
+
+		if (phaseProgress >= lastPhaseProgress + MIN_PHASE_PROGRESS_STEP
+				|| (phaseProgress >= 1 && lastPhaseProgress < 1)) {
+			updatePhaseProgress(phaseProgress);
+		}
+
+	};
+
+	private synchronized void updatePhaseProgress(float phaseProgress) {
+
+		if (phaseProgress <= lastPhaseProgress) return; //another thread was faster
+
+		lastPhaseProgress = phaseProgress;
+
+		for (ProgressListener listener : listeners) {
+			listener.updatePhaseProgress(phaseProgress);
+		}
+
+	}
+
+	/**
+	 * @throws CancellationException  if the conversion has been cancelled
+	 */
+	private void throwIfCancelled() {
+		if (cancellationToken != null) {
+			cancellationToken.throwIfCancelled();
+		}
+	}
 
 	/**
 	 * exception to be thrown if the OSM input data covers an area
@@ -0,0 +1,788 @@
+package org.osm2world.core.map_data.creation;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.configuration.Configuration;
+import org.osm2world.core.map_data.data.MapArea;
+import org.osm2world.core.map_data.data.MapAreaSegment;
+import org.osm2world.core.map_data.data.MapData;
+import org.osm2world.core.map_data.data.MapElement;
+import org.osm2world.core.map_data.data.MapNode;
+import org.osm2world.core.map_data.data.MapRelation;
+import org.osm2world.core.map_data.data.MapRelation.Membership;
+import org.osm2world.core.map_data.data.MapWay;
+import org.osm2world.core.map_data.data.MapWaySegment;
+import org.osm2world.core.map_data.data.overlaps.MapIntersectionWW;
+import org.osm2world.core.map_data.data.overlaps.MapOverlap;
+import org.osm2world.core.map_data.data.overlaps.MapOverlapAA;
+import org.osm2world.core.map_data.data.overlaps.MapOverlapNA;
+import org.osm2world.core.map_data.data.overlaps.MapOverlapType;
+import org.osm2world.core.map_data.data.overlaps.MapOverlapWA;
+import org.osm2world.core.math.AxisAlignedBoundingBoxXZ;
+import org.osm2world.core.math.VectorXZ;
+
+import com.slimjars.dist.gnu.trove.list.array.TLongArrayList;
+
+import de.topobyte.osm4j.core.model.iface.EntityType;
+import de.topobyte.osm4j.core.model.iface.OsmBounds;
+import de.topobyte.osm4j.core.model.iface.OsmEntity;
+import de.topobyte.osm4j.core.model.iface.OsmNode;
+import de.topobyte.osm4j.core.model.iface.OsmRelation;
+import de.topobyte.osm4j.core.model.iface.OsmRelationMember;
+import de.topobyte.osm4j.core.model.iface.OsmTag;
+import de.topobyte.osm4j.core.model.iface.OsmWay;
+import de.topobyte.osm4j.core.model.impl.Bounds;
+import de.topobyte.osm4j.core.model.impl.Node;
+import de.topobyte.osm4j.core.model.impl.Relation;
+import de.topobyte.osm4j.core.model.impl.RelationMember;
+import de.topobyte.osm4j.core.model.impl.Tag;
+import de.topobyte.osm4j.core.model.impl.Way;
+
+/**
+ * a compact binary snapshot of {@link MapData} as it is returned by
+ * {@link OSMToMapDataConverter}, i.e. before any representations have been added.
+ *
+ * Snapshots contain nodes, ways, areas, relations and overlaps,
+ * as well as the projection origin and the input file's bounds.
+ * They are identified by a key (see {@link #cacheKey(File, Configuration, Class)})
+ * that changes whenever the input file or any conversion-relevant
+ * configuration changes. Loading a snapshot skips the OSM parsing step and
+ * the calculations performed during {@link OSMToMapDataConverter#createMapData}.
+ *
+ * Snapshot files are memory-mapped during reading
+ * and are therefore limited to 2 GB.
+ */
+public final class MapDataSnapshot {
+
+	/** file extension used for snapshot files, including the dot */
+	public static final String FILE_EXTENSION = ".o2wmd";
+
+	private static final int MAGIC_NUMBER = 0x4F32574D; // "O2WM"
+
+	/** version of the binary format, must be increased after each format change */
+	private static final int FORMAT_VERSION = 1;
+
+	private static final byte NODE = 0, WAY = 1, RELATION = 2, AREA = 3;
+
+	private static final byte OVERLAP_WW = 0, OVERLAP_WA = 1, OVERLAP_AA = 2, OVERLAP_NA = 3;
+
+	private final LatLon origin;
+	private final Collection<OsmBounds> bounds;
+	private final MapData mapData;
+
+	private MapDataSnapshot(LatLon origin, Collection<OsmBounds> bounds, MapData mapData) {
+		this.origin = origin;
+		this.bounds = bounds;
+		this.mapData = mapData;
+	}
+
+	/** returns the origin of the projection used to create the map data */
+	public LatLon getOrigin() {
+		return origin;
+	}
+
+	/** returns the bounds of the original OSM input */
+	public Collection<OsmBounds> getBounds() {
+		return bounds;
+	}
+
+	public MapData getMapData() {
+		return mapData;
+	}
+
+	/**
+	 * calculates a key identifying the map data that would result from converting a file.
+	 * It is based on the file's content and the configuration options
+	 * which affect the conversion from OSM data to {@link MapData}.
+	 *
+	 * @param projectionClass  type of the map projection used for the conversion
+	 */
+	public static String cacheKey(File osmFile, Configuration config,
+			Class<? extends MapProjection> projectionClass) throws IOException {
+
+		MessageDigest digest;
+
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new Error("SHA-256 must be supported by every JVM", e);
+		}
+
+		try (InputStream stream = new FileInputStream(osmFile)) {
+			byte[] buffer = new byte[1 << 16];
+			int read;
+			while ((read = stream.read(buffer)) > 0) {
+				digest.update(buffer, 0, read);
+			}
+		}
+
+		String settings = "format=" + FORMAT_VERSION
+				+ ";projection=" + projectionClass.getName()
+				+ ";createTerrain=" + config.getBoolean("createTerrain", true);
+
+		digest.update(settings.getBytes(UTF_8));
+
+		StringBuilder result = new StringBuilder();
+		for (byte b : digest.digest()) {
+			result.append(String.format("%02x", b));
+		}
+		return result.toString();
+
+	}
+
+	/**
+	 * writes a snapshot. Must be called before any representations are added to the map data.
+	 * The file is first written to a temporary location and then moved,
+	 * so concurrent readers will never see an incomplete snapshot.
+	 *
+	 * @param key  the key returned by {@link #cacheKey(File, Configuration, Class)}
+	 */
+	public static void write(File file, String key, LatLon origin,
+			Collection<OsmBounds> bounds, MapData mapData) throws IOException {
+
+		File tempFile = File.createTempFile("snapshot", ".tmp",
+				file.getAbsoluteFile().getParentFile());
+
+		try {
+
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(tempFile), 1 << 16))) {
+				new Writer(out).write(key, origin, bounds, mapData);
+			}
+
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+		} finally {
+			tempFile.delete();
+		}
+
+	}
+
+	/**
+	 * reads a snapshot
+	 *
+	 * @param key  the expected key, see {@link #cacheKey(File, Configuration, Class)}
+	 * @return  the snapshot; null if the file is not a snapshot with the expected key and format version
+	 */
+	public static MapDataSnapshot read(File file, String key) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			try {
+				return new Reader(buffer).read(key);
+			} catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+				throw new IOException("corrupt map data snapshot: " + file, e);
+			}
+
+		}
+
+	}
+
+	private static final class Writer {
+
+		private final DataOutputStream out;
+
+		private final Map<String, Integer> stringIndices = new HashMap<>();
+		private final Map<OsmEntity, Integer> entityIndices = new IdentityHashMap<>();
+		private final Map<MapNode, Integer> nodeIndices = new IdentityHashMap<>();
+		private final Map<MapWaySegment, Integer> segmentIndices = new IdentityHashMap<>();
+		private final Map<MapArea, Integer> areaIndices = new IdentityHashMap<>();
+		private final Map<MapOverlap<?, ?>, Integer> overlapIndices = new IdentityHashMap<>();
+
+		private final List<String> strings = new ArrayList<>();
+		private final List<OsmEntity> entities = new ArrayList<>();
+		private final List<MapOverlap<?, ?>> overlaps = new ArrayList<>();
+
+		public Writer(DataOutputStream out) {
+			this.out = out;
+		}
+
+		public void write(String key, LatLon origin, Collection<OsmBounds> bounds,
+				MapData mapData) throws IOException {
+
+			/* index all objects that are referenced from elsewhere */
+
+			for (MapNode node : mapData.getMapNodes()) {
+				nodeIndices.put(node, nodeIndices.size());
+				indexEntity(node.getOsmElement());
+			}
+
+			for (MapWay way : mapData.getMapWays()) {
+				indexEntity(way.getOsmElement());
+			}
+
+			for (MapWaySegment segment : mapData.getMapWaySegments()) {
+				segmentIndices.put(segment, segmentIndices.size());
+			}
+
+			for (MapArea area : mapData.getMapAreas()) {
+				areaIndices.put(area, areaIndices.size());
+				indexEntity(area.getOsmElement());
+			}
+
+			for (MapRelation relation : mapData.getMapRelations()) {
+				indexEntity(relation.getOsmElement());
+				for (Membership membership : relation.getMemberships()) {
+					indexString(membership.getRole());
+				}
+			}
+
+			for (MapElement element : mapData.getMapElements()) {
+				for (MapOverlap<?, ?> overlap : element.getOverlaps()) {
+					if (!overlapIndices.containsKey(overlap)) {
+						overlapIndices.put(overlap, overlaps.size());
+						overlaps.add(overlap);
+					}
+				}
+			}
+
+			/* header */
+
+			out.writeInt(MAGIC_NUMBER);
+			out.writeInt(FORMAT_VERSION);
+			writeString(key);
+
+			out.writeDouble(origin.lat);
+			out.writeDouble(origin.lon);
+
+			out.writeInt(bounds.size());
+			for (OsmBounds b : bounds) {
+				out.writeDouble(b.getLeft());
+				out.writeDouble(b.getRight());
+				out.writeDouble(b.getTop());
+				out.writeDouble(b.getBottom());
+			}
+
+			AxisAlignedBoundingBoxXZ fileBoundary = mapData.getBoundary();
+			boolean hasFileBoundary = fileBoundary != mapData.getDataBoundary();
+			out.writeBoolean(hasFileBoundary);
+			if (hasFileBoundary) {
+				out.writeDouble(fileBoundary.minX);
+				out.writeDouble(fileBoundary.minZ);
+				out.writeDouble(fileBoundary.maxX);
+				out.writeDouble(fileBoundary.maxZ);
+			}
+
+			/* string table and OSM entities */
+
+			out.writeInt(strings.size());
+			for (String string : strings) {
+				writeString(string);
+			}
+
+			out.writeInt(entities.size());
+			for (OsmEntity entity : entities) {
+				writeEntity(entity);
+			}
+
+			/* map elements */
+
+			out.writeInt(mapData.getMapNodes().size());
+			for (MapNode node : mapData.getMapNodes()) {
+				out.writeDouble(node.getPos().x);
+				out.writeDouble(node.getPos().z);
+				out.writeInt(entityIndices.get(node.getOsmElement()));
+			}
+
+			out.writeInt(mapData.getMapAreas().size());
+			for (MapArea area : mapData.getMapAreas()) {
+				out.writeInt(entityIndices.get(area.getOsmElement()));
+				writeNodeList(area.getBoundaryNodes());
+				out.writeInt(area.getHoles().size());
+				for (List<MapNode> hole : area.getHoles()) {
+					writeNodeList(hole);
+				}
+			}
+
+			for (MapNode node : mapData.getMapNodes()) {
+				out.writeInt(node.getAdjacentAreas().size());
+				for (MapArea area : node.getAdjacentAreas()) {
+					out.writeInt(areaIndices.get(area));
+				}
+			}
+
+			out.writeInt(mapData.getMapWays().size());
+			for (MapWay way : mapData.getMapWays()) {
+				out.writeInt(entityIndices.get(way.getOsmElement()));
+				writeNodeList(way.getNodes());
+			}
+
+			Map<MapWay, Integer> wayIndices = new IdentityHashMap<>();
+			for (MapWay way : mapData.getMapWays()) {
+				wayIndices.put(way, wayIndices.size());
+			}
+
+			out.writeInt(mapData.getMapRelations().size());
+			for (MapRelation relation : mapData.getMapRelations()) {
+				out.writeInt(entityIndices.get(relation.getOsmElement()));
+				out.writeInt(relation.getMemberships().size());
+				for (Membership membership : relation.getMemberships()) {
+					MapRelation.Element element = membership.getElement();
+					if (element instanceof MapNode) {
+						out.writeByte(NODE);
+						out.writeInt(nodeIndices.get(element));
+					} else if (element instanceof MapWay) {
+						out.writeByte(WAY);
+						out.writeInt(wayIndices.get(element));
+					} else {
+						out.writeByte(AREA);
+						out.writeInt(areaIndices.get(element));
+					}
+					out.writeInt(stringIndices.get(membership.getRole()));
+				}
+			}
+
+			/* overlaps (written once, then referenced by each participating element) */
+
+			out.writeInt(overlaps.size());
+			for (MapOverlap<?, ?> overlap : overlaps) {
+				writeOverlap(overlap);
+			}
+
+			for (MapWaySegment segment : mapData.getMapWaySegments()) {
+				writeOverlapList(segment);
+			}
+
+			for (MapArea area : mapData.getMapAreas()) {
+				writeOverlapList(area);
+			}
+
+		}
+
+		private void indexString(String string) {
+			if (!stringIndices.containsKey(string)) {
+				stringIndices.put(string, strings.size());
+				strings.add(string);
+			}
+		}
+
+		private void indexEntity(OsmEntity entity) {
+
+			if (entityIndices.containsKey(entity)) return;
+
+			entityIndices.put(entity, entities.size());
+			entities.add(entity);
+
+			for (int i = 0; i < entity.getNumberOfTags(); i++) {
+				indexString(entity.getTag(i).getKey());
+				indexString(entity.getTag(i).getValue());
+			}
+
+			if (entity instanceof OsmRelation) {
+				OsmRelation relation = (OsmRelation) entity;
+				for (int i = 0; i < relation.getNumberOfMembers(); i++) {
+					indexString(relation.getMember(i).getRole());
+				}
+			}
+
+		}
+
+		private void writeString(String string) throws IOException {
+			byte[] bytes = string.getBytes(UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+
+		private void writeEntity(OsmEntity entity) throws IOException {
+
+			if (entity instanceof OsmNode) {
+				out.writeByte(NODE);
+			} else if (entity instanceof OsmWay) {
+				out.writeByte(WAY);
+			} else {
+				out.writeByte(RELATION);
+			}
+
+			out.writeLong(entity.getId());
+
+			out.writeInt(entity.getNumberOfTags());
+			for (int i = 0; i < entity.getNumberOfTags(); i++) {
+				out.writeInt(stringIndices.get(entity.getTag(i).getKey()));
+				out.writeInt(stringIndices.get(entity.getTag(i).getValue()));
+			}
+
+			if (entity instanceof OsmNode) {
+
+				OsmNode node = (OsmNode) entity;
+				out.writeDouble(node.getLongitude());
+				out.writeDouble(node.getLatitude());
+
+			} else if (entity instanceof OsmWay) {
+
+				OsmWay way = (OsmWay) entity;
+				out.writeInt(way.getNumberOfNodes());
+				for (int i = 0; i < way.getNumberOfNodes(); i++) {
+					out.writeLong(way.getNodeId(i));
+				}
+
+			} else {
+
+				OsmRelation relation = (OsmRelation) entity;
+				out.writeInt(relation.getNumberOfMembers());
+				for (int i = 0; i < relation.getNumberOfMembers(); i++) {
+					OsmRelationMember member = relation.getMember(i);
+					out.writeByte(member.getType().ordinal());
+					out.writeLong(member.getId());
+					out.writeInt(stringIndices.get(member.getRole()));
+				}
+
+			}
+
+		}
+
+		private void writeNodeList(Collection<MapNode> nodes) throws IOException {
+			out.writeInt(nodes.size());
+			for (MapNode node : nodes) {
+				out.writeInt(nodeIndices.get(node));
+			}
+		}
+
+		private void writeOverlap(MapOverlap<?, ?> overlap) throws IOException {
+
+			if (overlap instanceof MapIntersectionWW) {
+
+				MapIntersectionWW intersection = (MapIntersectionWW) overlap;
+				out.writeByte(OVERLAP_WW);
+				out.writeInt(segmentIndices.get(intersection.e1));
+				out.writeInt(segmentIndices.get(intersection.e2));
+				out.writeDouble(intersection.pos.x);
+				out.writeDouble(intersection.pos.z);
+
+			} else if (overlap instanceof MapOverlapWA) {
+
+				MapOverlapWA overlapWA = (MapOverlapWA) overlap;
+				out.writeByte(OVERLAP_WA);
+				out.writeInt(segmentIndices.get(overlapWA.e1));
+				out.writeInt(areaIndices.get(overlapWA.e2));
+				out.writeByte(overlapWA.type.ordinal());
+
+				out.writeInt(overlapWA.getIntersectionPositions().size());
+				for (VectorXZ pos : overlapWA.getIntersectionPositions()) {
+					out.writeDouble(pos.x);
+					out.writeDouble(pos.z);
+				}
+
+				List<MapAreaSegment> areaSegments = new ArrayList<>(overlapWA.e2.getAreaSegments());
+				out.writeInt(overlapWA.getIntersectingAreaSegments().size());
+				for (MapAreaSegment areaSegment : overlapWA.getIntersectingAreaSegments()) {
+					out.writeInt(areaSegments.indexOf(areaSegment));
+				}
+
+			} else if (overlap instanceof MapOverlapAA) {
+
+				out.writeByte(OVERLAP_AA);
+				out.writeInt(areaIndices.get(overlap.e1));
+				out.writeInt(areaIndices.get(overlap.e2));
+				out.writeByte(overlap.type.ordinal());
+
+			} else if (overlap instanceof MapOverlapNA) {
+
+				out.writeByte(OVERLAP_NA);
+				out.writeInt(nodeIndices.get(overlap.e1));
+				out.writeInt(areaIndices.get(overlap.e2));
+				out.writeByte(overlap.type.ordinal());
+
+			} else {
+				throw new IllegalArgumentException("unsupported overlap type: " + overlap.getClass());
+			}
+
+		}
+
+		private void writeOverlapList(MapElement element) throws IOException {
+			out.writeInt(element.getOverlaps().size());
+			for (MapOverlap<?, ?> overlap : element.getOverlaps()) {
+				out.writeInt(overlapIndices.get(overlap));
+			}
+		}
+
+	}
+
+	private static final class Reader {
+
+		private final ByteBuffer in;
+
+		private String[] strings;
+		private OsmEntity[] entities;
+		private List<MapNode> nodes;
+		private List<MapWay> ways;
+		private List<MapArea> areas;
+		private List<MapWaySegment> segments;
+
+		public Reader(ByteBuffer in) {
+			this.in = in;
+		}
+
+		public MapDataSnapshot read(String expectedKey) {
+
+			/* header */
+
+			if (in.remaining() < 8 || in.getInt() != MAGIC_NUMBER || in.getInt() != FORMAT_VERSION
+					|| !expectedKey.equals(readString())) {
+				return null;
+			}
+
+			LatLon origin = new LatLon(in.getDouble(), in.getDouble());
+
+			int boundsCount = in.getInt();
+			List<OsmBounds> bounds = new ArrayList<>(boundsCount);
+			for (int i = 0; i < boundsCount; i++) {
+				bounds.add(new Bounds(in.getDouble(), in.getDouble(), in.getDouble(), in.getDouble()));
+			}
+
+			AxisAlignedBoundingBoxXZ fileBoundary = null;
+			if (in.get() != 0) {
+				fileBoundary = new AxisAlignedBoundingBoxXZ(
+						in.getDouble(), in.getDouble(), in.getDouble(), in.getDouble());
+			}
+
+			/* string table and OSM entities */
+
+			strings = new String[in.getInt()];
+			for (int i = 0; i < strings.length; i++) {
+				strings[i] = readString();
+			}
+
+			entities = new OsmEntity[in.getInt()];
+			for (int i = 0; i < entities.length; i++) {
+				entities[i] = readEntity();
+			}
+
+			/* map elements, created in the same order as in OSMToMapDataConverter */
+
+			int nodeCount = in.getInt();
+			nodes = new ArrayList<>(nodeCount);
+			for (int i = 0; i < nodeCount; i++) {
+				VectorXZ pos = new VectorXZ(in.getDouble(), in.getDouble());
+				nodes.add(new MapNode(pos, (OsmNode) entities[in.getInt()]));
+			}
+
+			int areaCount = in.getInt();
+			areas = new ArrayList<>(areaCount);
+			for (int i = 0; i < areaCount; i++) {
+				OsmEntity entity = entities[in.getInt()];
+				List<MapNode> outer = readNodeList();
+				int holeCount = in.getInt();
+				List<List<MapNode>> holes = new ArrayList<>(holeCount);
+				for (int h = 0; h < holeCount; h++) {
+					holes.add(readNodeList());
+				}
+				areas.add(new MapArea(entity, outer, holes));
+			}
+
+			for (MapNode node : nodes) {
+				int adjacentAreaCount = in.getInt();
+				for (int i = 0; i < adjacentAreaCount; i++) {
+					node.addAdjacentArea(areas.get(in.getInt()));
+				}
+			}
+
+			for (MapNode node : nodes) {
+				node.calculateAdjacentAreaSegments();
+			}
+
+			int wayCount = in.getInt();
+			ways = new ArrayList<>(wayCount);
+			for (int i = 0; i < wayCount; i++) {
+
+				OsmWay osmWay = (OsmWay) entities[in.getInt()];
+				List<MapNode> wayNodes = readNodeList();
+
+				MapWay way = new MapWay(osmWay, wayNodes);
+				ways.add(way);
+
+				for (int n = 0; n < wayNodes.size(); n++) {
+					if (n > 0) {
+						wayNodes.get(n).addInboundLine(way.getWaySegments().get(n - 1));
+					}
+					if (n + 1 < wayNodes.size()) {
+						wayNodes.get(n).addOutboundLine(way.getWaySegments().get(n));
+					}
+				}
+
+			}
+
+			int relationCount = in.getInt();
+			List<MapRelation> relations = new ArrayList<>(relationCount);
+			for (int i = 0; i < relationCount; i++) {
+
+				MapRelation relation = new MapRelation((OsmRelation) entities[in.getInt()]);
+
+				int memberCount = in.getInt();
+				for (int m = 0; m < memberCount; m++) {
+					byte elementType = in.get();
+					int index = in.getInt();
+					String role = strings[in.getInt()];
+					switch (elementType) {
+					case NODE: relation.addMembership(role, nodes.get(index)); break;
+					case WAY: relation.addMembership(role, ways.get(index)); break;
+					default: relation.addMembership(role, areas.get(index)); break;
+					}
+				}
+
+				relations.add(relation);
+
+			}
+
+			MapData mapData = new MapData(nodes, ways, areas, relations, fileBoundary);
+
+			/* overlaps */
+
+			segments = new ArrayList<>(mapData.getMapWaySegments());
+
+			MapOverlap<?, ?>[] overlaps = new MapOverlap<?, ?>[in.getInt()];
+			for (int i = 0; i < overlaps.length; i++) {
+				overlaps[i] = readOverlap();
+			}
+
+			for (MapWaySegment segment : segments) {
+				int overlapCount = in.getInt();
+				for (int i = 0; i < overlapCount; i++) {
+					segment.addOverlap(overlaps[in.getInt()]);
+				}
+			}
+
+			for (MapArea area : areas) {
+				int overlapCount = in.getInt();
+				for (int i = 0; i < overlapCount; i++) {
+					area.addOverlap(overlaps[in.getInt()]);
+				}
+			}
+
+			return new MapDataSnapshot(origin, bounds, mapData);
+
+		}
+
+		private String readString() {
+			byte[] bytes = new byte[in.getInt()];
+			in.get(bytes);
+			return new String(bytes, UTF_8);
+		}
+
+		private OsmEntity readEntity() {
+
+			byte type = in.get();
+			long id = in.getLong();
+
+			int tagCount = in.getInt();
+			List<OsmTag> tags = new ArrayList<>(tagCount);
+			for (int i = 0; i < tagCount; i++) {
+				tags.add(new Tag(strings[in.getInt()], strings[in.getInt()]));
+			}
+
+			switch (type) {
+
+			case NODE:
+				Node node = new Node(id, in.getDouble(), in.getDouble());
+				node.setTags(tags);
+				return node;
+
+			case WAY:
+				int nodeCount = in.getInt();
+				TLongArrayList nodeIds = new TLongArrayList(nodeCount);
+				for (int i = 0; i < nodeCount; i++) {
+					nodeIds.add(in.getLong());
+				}
+				return new Way(id, nodeIds, tags);
+
+			default:
+				int memberCount = in.getInt();
+				List<OsmRelationMember> members = new ArrayList<>(memberCount);
+				for (int i = 0; i < memberCount; i++) {
+					EntityType memberType = EntityType.values()[in.get()];
+					long memberId = in.getLong();
+					members.add(new RelationMember(memberId, memberType, strings[in.getInt()]));
+				}
+				return new Relation(id, members, tags);
+
+			}
+
+		}
+
+		private List<MapNode> readNodeList() {
+			int size = in.getInt();
+			List<MapNode> result = new ArrayList<>(size);
+			for (int i = 0; i < size; i++) {
+				result.add(nodes.get(in.getInt()));
+			}
+			return result;
+		}
+
+		private MapOverlap<?, ?> readOverlap() {
+
+			byte kind = in.get();
+
+			switch (kind) {
+
+			case OVERLAP_WW: {
+				MapWaySegment line1 = segments.get(in.getInt());
+				MapWaySegment line2 = segments.get(in.getInt());
+				return new MapIntersectionWW(line1, line2, new VectorXZ(in.getDouble(), in.getDouble()));
+			}
+
+			case OVERLAP_WA: {
+
+				MapWaySegment line = segments.get(in.getInt());
+				MapArea area = areas.get(in.getInt());
+				MapOverlapType type = MapOverlapType.values()[in.get()];
+
+				int positionCount = in.getInt();
+				List<VectorXZ> positions = new ArrayList<>(positionCount);
+				for (int i = 0; i < positionCount; i++) {
+					positions.add(new VectorXZ(in.getDouble(), in.getDouble()));
+				}
+
+				List<MapAreaSegment> areaSegments = new ArrayList<>(area.getAreaSegments());
+				int segmentCount = in.getInt();
+				List<MapAreaSegment> intersectingSegments = new ArrayList<>(segmentCount);
+				for (int i = 0; i < segmentCount; i++) {
+					intersectingSegments.add(areaSegments.get(in.getInt()));
+				}
+
+				return new MapOverlapWA(line, area, type, positions, intersectingSegments);
+
+			}
+
+			case OVERLAP_AA: {
+				MapArea area1 = areas.get(in.getInt());
+				MapArea area2 = areas.get(in.getInt());
+				return new MapOverlapAA(area1, area2, MapOverlapType.values()[in.get()]);
+			}
+
+			default: {
+				MapNode node = nodes.get(in.getInt());
+				MapArea area = areas.get(in.getInt());
+				return new MapOverlapNA(node, area, MapOverlapType.values()[in.get()]);
+			}
+
+			}
+
+		}
+
+	}
+
+}
@@ -9,11 +9,17 @@ import static java.util.Arrays.asList;
 import static java.util.Collections.*;
 import static java.util.Comparator.comparingDouble;
 import static org.osm2world.core.math.GeometryUtil.*;
+import static org.osm2world.core.math.algorithms.CAGUtil.*;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.osm2world.core.map_data.data.MapArea;
 import org.osm2world.core.map_data.data.MapNode;
@@ -23,6 +29,7 @@ import org.osm2world.core.math.LineSegmentXZ;
 import org.osm2world.core.math.PolygonWithHolesXZ;
 import org.osm2world.core.math.SimplePolygonXZ;
 import org.osm2world.core.math.VectorXZ;
+import org.osm2world.core.math.datastructures.IntersectionGrid;
 import org.osm2world.core.math.datastructures.IntersectionTestObject;
 import org.osm2world.core.osm.data.OSMData;
 import org.osm2world.core.osm.ruleset.HardcodedRuleset;
@@ -196,7 +203,11 @@ final class MultipolygonAreaBuilder {
 	}
 
 	/**
-	 * builds closed rings from any mixture of closed and unclosed segments
+	 * builds closed rings from any mixture of closed and unclosed segments.
+	 *
+	 * Unclosed sequences are indexed by their end nodes, so each step of
+	 * extending a ring only has to look at the sequences sharing its last node.
+	 * A ring keeps the direction of the sequence it was started with.
 	 *
 	 * @return  null if building closed rings isn't possible
 	 */
@@ -205,65 +216,101 @@ final class MultipolygonAreaBuilder {
 
 		List<Ring> closedRings = new ArrayList<Ring>();
 
-		NodeSequence currentRing = null;
+		/* index the unclosed sequences by their end nodes */
 
-		while (sequences.size() > 0) {
+		Map<MapNode, List<NodeSequence>> sequencesByEndNode = new HashMap<MapNode, List<NodeSequence>>();
 
-			if (currentRing == null) {
+		for (NodeSequence sequence : sequences) {
+			if (!sequence.isClosed()) {
+				for (MapNode endNode : asList(sequence.getFirstNode(), sequence.getLastNode())) {
+					sequencesByEndNode.computeIfAbsent(endNode, n -> new ArrayList<NodeSequence>(2)).add(sequence);
+				}
+			}
+		}
 
-				// start a new ring with any remaining node sequence
+		Set<NodeSequence> usedSequences = newSetFromMap(new IdentityHashMap<NodeSequence, Boolean>());
 
-				currentRing = sequences.remove(sequences.size() - 1);
+		/* start a new ring with each remaining node sequence */
 
-			} else {
+		for (int i = sequences.size() - 1; i >= 0; i--) {
 
-				// try to continue the ring by appending a node sequence
+			NodeSequence startSequence = sequences.get(i);
 
-				NodeSequence assignedSequence = null;
+			if (usedSequences.contains(startSequence)) continue;
 
-				for (NodeSequence sequence : sequences) {
+			NodeSequence currentRing = startSequence;
 
-					if (currentRing.tryAdd(sequence)) {
-						assignedSequence = sequence;
-						break;
-					}
+			if (!startSequence.isClosed()) {
 
-				}
+				usedSequences.add(startSequence);
+				removeFromIndex(sequencesByEndNode, startSequence);
 
-				if (assignedSequence != null) {
-					sequences.remove(assignedSequence);
-				} else {
-					return null;
-				}
+				currentRing = new NodeSequence();
+				currentRing.addAll(startSequence);
 
-			}
+				/* continue the ring by appending node sequences at its end */
+
+				while (!currentRing.isClosed()) {
+
+					List<NodeSequence> candidates = sequencesByEndNode.get(currentRing.getLastNode());
 
-			// check whether the ring under construction is closed
+					if (candidates == null || candidates.isEmpty()) {
+						return null;
+					}
+
+					NodeSequence sequence = candidates.get(0);
+
+					usedSequences.add(sequence);
+					removeFromIndex(sequencesByEndNode, sequence);
+
+					currentRing.append(sequence);
 
-			if (currentRing != null && currentRing.isClosed()) {
-				try {
-					closedRings.add(new Ring(currentRing));
-					currentRing = null;
-				} catch (InvalidGeometryException e) {
-					throw new InvalidGeometryException(String.format(
-							"self-intersecting ring (with %d nodes)",
-							currentRing.size() - 1), e);
 				}
+
 			}
 
-		}
+			try {
+				closedRings.add(new Ring(currentRing));
+			} catch (InvalidGeometryException e) {
+				throw new InvalidGeometryException(String.format(
+						"self-intersecting ring (with %d nodes)",
+						currentRing.size() - 1), e);
+			}
 
-		if (currentRing != null) {
-			// the last ring could not be closed
-			return null;
 		}
 
 		return closedRings;
 
 	}
 
+	private static final void removeFromIndex(
+			Map<MapNode, List<NodeSequence>> sequencesByEndNode, NodeSequence sequence) {
+
+		for (MapNode endNode : asList(sequence.getFirstNode(), sequence.getLastNode())) {
+
+			List<NodeSequence> list = sequencesByEndNode.get(endNode);
+
+			for (int i = 0; i < list.size(); i++) {
+				if (list.get(i) == sequence) {
+					list.remove(i);
+					break;
+				}
+			}
+
+		}
+
+	}
+
 	/**
-	 * @param rings  rings to build polygons from; will be empty afterwards
+	 * builds polygons from closed rings. Rings are nested based on containment:
+	 * Each ring's parent is the smallest ring containing it. Rings at an even depth of
+	 * that tree become outer rings, rings at an odd depth become holes of their parent.
+	 *
+	 * Candidates for containing a ring are found using an {@link IntersectionGrid}
+	 * (any ring containing another one also covers the grid cell of its first node),
+	 * so large relations don't require comparing each ring with every other ring.
+	 *
+	 * @param rings  rings to build polygons from
 	 */
 	private static final Collection<MapArea> buildPolygonsFromRings(
 			OsmRelation relation, List<Ring> rings) {
@@ -271,63 +318,77 @@ final class MultipolygonAreaBuilder {
 		Collection<MapArea> finishedPolygons =
 				new ArrayList<MapArea>(rings.size() / 2);
 
-		/* build polygon */
+		if (rings.isEmpty()) return finishedPolygons;
 
-		while (!rings.isEmpty()) {
+		/* index the rings' bounding boxes */
 
-			/* find an outer ring */
+		AxisAlignedBoundingBoxXZ bounds = rings.get(0).getAxisAlignedBoundingBoxXZ();
 
-			Ring outerRing = null;
+		for (Ring ring : rings) {
+			bounds = AxisAlignedBoundingBoxXZ.union(bounds, ring.getAxisAlignedBoundingBoxXZ());
+		}
 
-			for (Ring candidate : rings) {
+		int cellCount = max(1, (int) Math.sqrt(rings.size()));
 
-				boolean containedInOtherRings = false;
+		IntersectionGrid<Ring> grid = new IntersectionGrid<Ring>(
+				bounds.pad(1), cellCount, cellCount);
 
-				for (Ring otherRing : rings) {
-					if (otherRing != candidate
-							&& otherRing.containsRing(candidate)) {
-						containedInOtherRings = true;
-						break;
-					}
-				}
+		for (Ring ring : rings) {
+			grid.insert(ring);
+		}
 
-				if (!containedInOtherRings) {
-					outerRing = candidate;
-					break;
-				}
+		/* find each ring's parent, starting with the largest rings */
 
-			}
+		List<Ring> ringsByArea = new ArrayList<Ring>(rings);
+		ringsByArea.sort(comparingDouble((Ring r) -> r.getPolygon().getArea()).reversed());
 
-			/* find inner rings of that ring */
+		Map<Ring, Ring> parents = new IdentityHashMap<Ring, Ring>();
+		Map<Ring, Integer> depths = new IdentityHashMap<Ring, Integer>();
 
-			Collection<Ring> innerRings = new ArrayList<Ring>();
+		for (Ring ring : ringsByArea) {
 
-			for (Ring ring : rings) {
-				if (ring != outerRing && outerRing.containsRing(ring)) {
+			VectorXZ firstPos = ring.closedNodeSequence.get(0).getPos();
+			Collection<Ring> candidates = grid.getCellArray()
+					[grid.cellXForCoord(firstPos.x, firstPos.z)]
+					[grid.cellZForCoord(firstPos.x, firstPos.z)];
 
-					boolean containedInOtherRings = false;
+			Ring parent = null;
 
-					for (Ring otherRing : rings) {
-						if (otherRing != ring && otherRing != outerRing
-								&& otherRing.containsRing(ring)) {
-							containedInOtherRings = true;
-							break;
-						}
-					}
+			for (Ring candidate : candidates) {
+				if (candidate != ring
+						&& depths.containsKey(candidate)
+						&& candidate.getPolygon().getArea() > ring.getPolygon().getArea()
+						&& (parent == null
+							|| candidate.getPolygon().getArea() < parent.getPolygon().getArea())
+						&& candidate.getAxisAlignedBoundingBoxXZ().contains(ring)
+						&& candidate.containsRing(ring)) {
+					parent = candidate;
+				}
+			}
 
-					if (!containedInOtherRings) {
-						innerRings.add(ring);
-					}
+			parents.put(ring, parent);
+			depths.put(ring, parent == null ? 0 : depths.get(parent) + 1);
 
-				}
+		}
+
+		/* create an area for each outer ring, using the inner rings directly within it as holes */
+
+		Map<Ring, List<Ring>> innerRings = new IdentityHashMap<Ring, List<Ring>>();
+
+		for (Ring ring : rings) {
+			if (depths.get(ring) % 2 != 0) {
+				innerRings.computeIfAbsent(parents.get(ring), r -> new ArrayList<Ring>()).add(ring);
 			}
+		}
+
+		for (Ring outerRing : rings) {
 
-			/* create a new area and remove the used rings */
+			if (depths.get(outerRing) % 2 != 0) continue;
 
-			List<List<MapNode>> holes = new ArrayList<List<MapNode>>(innerRings.size());
-			List<SimplePolygonXZ> holesXZ = new ArrayList<SimplePolygonXZ>(innerRings.size());
+			List<List<MapNode>> holes = new ArrayList<List<MapNode>>();
+			List<SimplePolygonXZ> holesXZ = new ArrayList<SimplePolygonXZ>();
 
-			for (Ring innerRing : innerRings) {
+			for (Ring innerRing : innerRings.getOrDefault(outerRing, emptyList())) {
 				holes.add(innerRing.closedNodeSequence);
 				holesXZ.add(innerRing.getPolygon());
 			}
@@ -337,9 +398,6 @@ final class MultipolygonAreaBuilder {
 
 			finishedPolygons.add(area);
 
-			rings.remove(outerRing);
-			rings.removeAll(innerRings);
-
 		}
 
 		return finishedPolygons;
@@ -349,6 +407,12 @@ final class MultipolygonAreaBuilder {
 	private static final List<OsmTag> COASTLINE_NODE_TAGS = singletonList(
 		new Tag("osm2world:note", "fake node from coastline processing"));
 
+	/**
+	 * water polygons from coastline processing with more vertices than this
+	 * are split into grid-aligned pieces
+	 */
+	private static final int MAX_COASTLINE_POLYGON_VERTICES = 1000;
+
 	/**
 	 * turns all coastline ways into {@link MapArea}s
 	 * based on an artificial natural=water multipolygon relation.
@@ -361,14 +425,16 @@ final class MultipolygonAreaBuilder {
 	 * It cannot distinguish between water and land tiles if there is no
 	 * coastline at all (it will then guess based on the tags being used),
 	 * but should be able to handle all other cases.
+	 *
+	 * Large water polygons are split into pieces, see
+	 * {@link #splitLargeAreas(OsmRelation, Collection, AxisAlignedBoundingBoxXZ, FakeNodeFactory)}.
 	 * @throws EntityNotFoundException
 	 */
 	public static final Collection<MapArea> createAreasForCoastlines(
 			OSMData osmData, TLongObjectMap<MapNode> nodeIdMap,
 			Collection<MapNode> mapNodes, AxisAlignedBoundingBoxXZ fileBoundary) throws EntityNotFoundException {
 
-		long highestRelationId = 0;
-		long highestNodeId = 0;
+		if (fileBoundary == null) return emptyList();
 
 		List<OsmWay> coastlineWays = new ArrayList<OsmWay>();
 
@@ -378,251 +444,388 @@ final class MultipolygonAreaBuilder {
 			}
 		}
 
-		for (OsmRelation relation : osmData.getRelations()) {
-			if (relation.getId() > highestRelationId) {
-				highestRelationId = relation.getId();
-			}
+		if (coastlineWays.isEmpty() && !isProbablySeaTile(osmData)) {
+			return emptyList();
 		}
 
-		for (OsmNode node : osmData.getNodes()) {
-			if (node.getId() > highestNodeId) {
-				highestNodeId = node.getId();
-			}
-		}
+		FakeNodeFactory nodeFactory = new FakeNodeFactory(osmData, nodeIdMap, mapNodes);
 
-		if (fileBoundary != null) {
+		/* find coastline intersections with bounding box.
+		 * They will be inserted into the coastlines, and into a list
+		 * (sorted counterclockwise) of nodes on the bounding box.
+		 * Segments with both nodes strictly within the bounding box cannot
+		 * intersect it, so only the remaining segments are tested against its sides.
+		 */
 
-			/* build node sequences (may be closed or unclosed) */
+		List<LineSegmentXZ> sides = getSidesClockwise(fileBoundary);
 
-			List<NodeSequence> origCoastlines = new ArrayList<NodeSequence>();
+		List<List<NodeOnBBox>> intersectionsBySide = new ArrayList<List<NodeOnBBox>>(sides.size());
 
-			for (OsmWay coastlineWay : coastlineWays) {
-				origCoastlines.add(new NodeSequence(coastlineWay, nodeIdMap));
-			}
+		for (int s = 0; s < sides.size(); s++) {
+			intersectionsBySide.add(new ArrayList<NodeOnBBox>());
+		}
 
-			/* find coastline intersections with bounding box.
-			 * They will be inserted into the rings that intersect the coastline,
-			 * and into a list (sorted counterclockwise) of intersection nodes.
-			 */
+		List<NodeSequence> origCoastlines = new ArrayList<NodeSequence>(coastlineWays.size());
 
-			List<NodeOnBBox> bBoxNodes = new ArrayList<NodeOnBBox>();
+		for (OsmWay coastlineWay : coastlineWays) {
 
-			for (final LineSegmentXZ side : getSidesClockwise(fileBoundary)) {
+			NodeSequence wayNodes = new NodeSequence(coastlineWay, nodeIdMap);
+			NodeSequence coastline = new NodeSequence();
 
-				List<NodeOnBBox> intersectionsSide =
-						new ArrayList<NodeOnBBox>();
+			coastline.add(wayNodes.get(0));
 
-				for (NodeSequence coastline : origCoastlines) {
+			for (int i = 0; i + 1 < wayNodes.size(); i++) {
 
-					for (int i = 0; i + 1 < coastline.size(); i++) {
+				VectorXZ r1 = wayNodes.get(i).getPos();
+				VectorXZ r2 = wayNodes.get(i + 1).getPos();
 
-						VectorXZ r1 = coastline.get(i).getPos();
-						VectorXZ r2 = coastline.get(i + 1).getPos();
+				if (!isStrictlyInside(fileBoundary, r1) || !isStrictlyInside(fileBoundary, r2)) {
+
+					List<MapNode> newNodes = new ArrayList<MapNode>(2);
+
+					for (int s = 0; s < sides.size(); s++) {
+
+						LineSegmentXZ side = sides.get(s);
 
 						VectorXZ intersection = getLineSegmentIntersection(
 								side.p1, side.p2, r1, r2);
 
 						if (intersection != null) {
 
-							MapNode intersectionNode;
+							MapNode intersectionNode = null;
 
 							if (intersection.equals(r1)) {
-								intersectionNode = coastline.get(i);
+								intersectionNode = wayNodes.get(i);
 							} else if (intersection.equals(r2)) {
-								intersectionNode = coastline.get(i + 1);
+								intersectionNode = wayNodes.get(i + 1);
 							} else {
 
-								intersectionNode = createFakeMapNode(intersection,
-										++highestNodeId, osmData, nodeIdMap, mapNodes);
+								// a segment through a corner intersects two sides at the same position
 
-								coastline.add(i + 1, intersectionNode);
+								for (MapNode newNode : newNodes) {
+									if (newNode.getPos().equals(intersection)) {
+										intersectionNode = newNode;
+									}
+								}
 
-								i += 1;
+								if (intersectionNode == null) {
+									intersectionNode = nodeFactory.createNode(intersection);
+									newNodes.add(intersectionNode);
+								}
 
 							}
 
-							intersectionsSide.add(new NodeOnBBox(intersectionNode,
+							intersectionsBySide.get(s).add(new NodeOnBBox(intersectionNode,
 									isRightOf(r1, side.p1, side.p2)));
 
 						}
 
 					}
 
+					newNodes.sort(comparingDouble(n -> n.getPos().distanceTo(r1)));
+					coastline.addAll(newNodes);
+
 				}
 
-				/* add intersections for this side of the bbox,
-				 * sorted by distance from corner */
+				coastline.add(wayNodes.get(i + 1));
 
-				intersectionsSide.sort(comparingDouble(n -> n.node.getPos().distanceTo(side.p1)));
+			}
 
-				bBoxNodes.addAll(intersectionsSide);
+			origCoastlines.add(coastline);
 
-				MapNode cornerNode = createFakeMapNode(side.p2,
-						++highestNodeId, osmData, nodeIdMap, mapNodes);
-				bBoxNodes.add(new NodeOnBBox(cornerNode, null));
+		}
 
-			}
+		/* add intersections for each side of the bbox,
+		 * sorted by distance from corner */
 
-			/* rings are possibly shortened or split by removing all nodes
-			 * outside the bbox. */
+		List<NodeOnBBox> bBoxNodes = new ArrayList<NodeOnBBox>();
 
-			List<NodeSequence> modifiedCoastlines = new ArrayList<NodeSequence>();
+		for (int s = 0; s < sides.size(); s++) {
 
-			for (NodeSequence origCoastline : origCoastlines) {
+			LineSegmentXZ side = sides.get(s);
 
-				NodeSequence modifiedCoastline = new NodeSequence();
+			List<NodeOnBBox> intersectionsSide = intersectionsBySide.get(s);
+			intersectionsSide.sort(comparingDouble(n -> n.node.getPos().distanceTo(side.p1)));
 
-				for (MapNode node : origCoastline) {
+			bBoxNodes.addAll(intersectionsSide);
 
-					boolean isOnBBox = false;
+			MapNode cornerNode = nodeFactory.createNode(side.p2);
+			bBoxNodes.add(new NodeOnBBox(cornerNode, null));
 
-					for (NodeOnBBox bBoxNode : bBoxNodes) {
-						if (bBoxNode.node.equals(node)) {
-							isOnBBox = true;
-						}
-					}
+		}
 
-					if (fileBoundary.contains(node) || isOnBBox) {
+		Set<MapNode> bBoxNodeSet = new HashSet<MapNode>();
 
-						modifiedCoastline.add(node);
+		for (NodeOnBBox bBoxNode : bBoxNodes) {
+			bBoxNodeSet.add(bBoxNode.node);
+		}
 
-					} else {
+		/* rings are possibly shortened or split by removing all nodes
+		 * outside the bbox. */
 
-						if (!modifiedCoastline.isEmpty()) {
-							modifiedCoastlines.add(modifiedCoastline);
-							modifiedCoastline = new NodeSequence();
-						}
+		List<NodeSequence> modifiedCoastlines = new ArrayList<NodeSequence>();
 
+		for (NodeSequence origCoastline : origCoastlines) {
+
+			NodeSequence modifiedCoastline = new NodeSequence();
+
+			for (MapNode node : origCoastline) {
+
+				if (fileBoundary.contains(node.getPos()) || bBoxNodeSet.contains(node)) {
+
+					modifiedCoastline.add(node);
+
+				} else {
+
+					if (!modifiedCoastline.isEmpty()) {
+						modifiedCoastlines.add(modifiedCoastline);
+						modifiedCoastline = new NodeSequence();
 					}
 
 				}
 
-				if (!modifiedCoastline.isEmpty()) {
-					modifiedCoastlines.add(modifiedCoastline);
-				}
+			}
 
+			if (!modifiedCoastline.isEmpty()) {
+				modifiedCoastlines.add(modifiedCoastline);
 			}
 
+		}
+
+		/* parts of the bounding box between outgoing and incoming
+		 * intersection nodes are used as additional coastline sections */
+
+		List<NodeSequence> bboxSections = new ArrayList<NodeSequence>();
 
-			/* parts of the bounding box between outgoing and incoming
-			 * intersection nodes are used as additional coastline sections */
+		if (bBoxNodes.size() > 4) { //more than just corners
 
-			List<NodeSequence> bboxSections = new ArrayList<NodeSequence>();
+			int firstIntersectionIndex = -1;
+			int currentIndex = 0;
 
-			if (bBoxNodes.size() > 4) { //more than just corners
+			List<MapNode> currentSequence = null;
 
-				int firstIntersectionIndex = -1;
-				int currentIndex = 0;
+			while (currentIndex != firstIntersectionIndex) {
 
-				List<MapNode> currentSequence = null;
+				NodeOnBBox currentBBoxNode = bBoxNodes.get(currentIndex);
 
-				while (currentIndex != firstIntersectionIndex) {
+				if (currentBBoxNode.outgoingIntersection == TRUE) {
 
-					NodeOnBBox currentBBoxNode = bBoxNodes.get(currentIndex);
+					currentSequence = new ArrayList<MapNode>();
+					currentSequence.add(currentBBoxNode.node);
 
-					if (currentBBoxNode.outgoingIntersection == TRUE) {
+					if (firstIntersectionIndex == -1) {
+						firstIntersectionIndex = currentIndex;
+					}
+
+				} else if (currentBBoxNode.outgoingIntersection == FALSE) {
+
+					if (currentSequence != null) {
 
-						currentSequence = new ArrayList<MapNode>();
 						currentSequence.add(currentBBoxNode.node);
 
-						if (firstIntersectionIndex == -1) {
-							firstIntersectionIndex = currentIndex;
-						}
+						NodeSequence finishedBboxPart = new NodeSequence();
+						finishedBboxPart.addAll(currentSequence);
+						bboxSections.add(finishedBboxPart);
 
-					} else if (currentBBoxNode.outgoingIntersection == FALSE) {
+						currentSequence = null;
 
-						if (currentSequence != null) {
+					}
 
-							currentSequence.add(currentBBoxNode.node);
+				} else {
 
-							NodeSequence finishedBboxPart = new NodeSequence();
-							finishedBboxPart.addAll(currentSequence);
-							bboxSections.add(finishedBboxPart);
+					if (currentSequence != null) {
+						currentSequence.add(currentBBoxNode.node);
+					}
 
-							currentSequence = null;
+				}
 
-						}
+				currentIndex = (currentIndex + 1) % bBoxNodes.size();
 
-					} else {
+			}
 
-						if (currentSequence != null) {
-							currentSequence.add(currentBBoxNode.node);
-						}
+		}
 
+		/* construct closed rings and turn them into polygons with holes
+		 * (as if the coastlines were multipolygon member ways) */
+
+		List<Ring> closedRings;
+
+		if (!bboxSections.isEmpty()) {
+
+			modifiedCoastlines.addAll(bboxSections);
+
+			closedRings = buildRings(modifiedCoastlines);
+
+		} else {
+
+			closedRings = buildRings(modifiedCoastlines);
+
+			if (closedRings != null) {
+
+				/* if there is an island, but no coastline intersects
+				 * the boundary, create a boundary around the entire tile.
+				 * Do the same for water tiles (tiles without any land). */
+
+				boolean hasIsland = false;
+
+				for (Ring closedRing : closedRings) {
+					if (!closedRing.getPolygon().isClockwise()) {
+						hasIsland = true;
+						break;
 					}
+				}
+
+				if (hasIsland || coastlineWays.isEmpty() || isProbablySeaTile(osmData)) {
+
+					NodeSequence boundaryRing = new NodeSequence();
+
+					for (VectorXZ pos : fileBoundary.polygonXZ().getVertices()) {
+						boundaryRing.add(nodeFactory.createNode(pos));
+					}
+
+					boundaryRing.add(boundaryRing.get(0));
 
-					currentIndex = (currentIndex + 1) % bBoxNodes.size();
+					closedRings.add(new Ring(boundaryRing));
 
 				}
 
 			}
 
-			/* construct closed rings and turn them into polygons with holes
-			 * (as if the coastlines were multipolygon member ways) */
+		}
+
+		if (closedRings != null) {
+
+			long highestRelationId = 0;
 
-			List<Ring> closedRings;
+			for (OsmRelation relation : osmData.getRelations()) {
+				if (relation.getId() > highestRelationId) {
+					highestRelationId = relation.getId();
+				}
+			}
 
-			if (!bboxSections.isEmpty()) {
+			List<OsmTag> tags = new ArrayList<>();
 
-				modifiedCoastlines.addAll(bboxSections);
+			tags.add(new Tag("type", "multipolygon"));
+			tags.add(new Tag("natural", "water"));
 
-				closedRings = buildRings(modifiedCoastlines);
+			List<? extends OsmRelationMember> members = new ArrayList<>();
+			OsmRelation relation = new Relation(highestRelationId + 1, members, tags);
 
-			} else {
+			return splitLargeAreas(relation, buildPolygonsFromRings(relation, closedRings),
+					fileBoundary, nodeFactory);
 
-				closedRings = buildRings(modifiedCoastlines);
+		}
 
-				if (closedRings != null) {
+		return emptyList();
 
-					/* if there is an island, but no coastline intersects
-					 * the boundary, create a boundary around the entire tile.
-					 * Do the same for water tiles (tiles without any land). */
+	}
 
-					boolean hasIsland = false;
+	private static final boolean isStrictlyInside(AxisAlignedBoundingBoxXZ box, VectorXZ v) {
+		return v.x > box.minX && v.x < box.maxX && v.z > box.minZ && v.z < box.maxZ;
+	}
 
-					for (Ring closedRing : closedRings) {
-						if (!closedRing.getPolygon().isClockwise()) {
-							hasIsland = true;
-							break;
-						}
-					}
+	/**
+	 * splits areas with more than {@link #MAX_COASTLINE_POLYGON_VERTICES} vertices
+	 * into pieces along a grid aligned with the file boundary.
+	 * The pieces have much smaller bounding boxes than the original area,
+	 * which keeps later overlap tests with other map elements cheap.
+	 */
+	private static final Collection<MapArea> splitLargeAreas(OsmRelation relation,
+			Collection<MapArea> areas, AxisAlignedBoundingBoxXZ fileBoundary,
+			FakeNodeFactory nodeFactory) {
+
+		List<MapArea> result = new ArrayList<MapArea>(areas.size());
+
+		for (MapArea area : areas) {
+
+			PolygonWithHolesXZ polygon = area.getPolygon();
+
+			int vertexCount = 0;
+
+			for (SimplePolygonXZ p : polygon.getPolygons()) {
+				vertexCount += p.size();
+			}
+
+			if (vertexCount <= MAX_COASTLINE_POLYGON_VERTICES) {
+				result.add(area);
+				continue;
+			}
+
+			/* existing nodes are reused for the pieces' vertices where possible,
+			 * new vertices along the cell boundaries are shared by adjacent pieces */
+
+			Map<VectorXZ, MapNode> nodeMap = new HashMap<VectorXZ, MapNode>();
+
+			for (MapNode node : area.getBoundaryNodes()) {
+				nodeMap.put(node.getPos(), node);
+			}
+
+			AxisAlignedBoundingBoxXZ areaBox = area.getAxisAlignedBoundingBoxXZ();
+			AxisAlignedBoundingBoxXZ gridBox = AxisAlignedBoundingBoxXZ.union(fileBoundary, areaBox);
+
+			int cellsPerAxis = (int) Math.ceil(Math.sqrt((double) vertexCount / MAX_COASTLINE_POLYGON_VERTICES));
+
+			double cellSizeX = gridBox.sizeX() / cellsPerAxis;
+			double cellSizeZ = gridBox.sizeZ() / cellsPerAxis;
+
+			for (int x = 0; x < cellsPerAxis; x++) {
+				for (int z = 0; z < cellsPerAxis; z++) {
+
+					AxisAlignedBoundingBoxXZ cell = new AxisAlignedBoundingBoxXZ(
+							gridBox.minX + x * cellSizeX, gridBox.minZ + z * cellSizeZ,
+							gridBox.minX + (x + 1) * cellSizeX, gridBox.minZ + (z + 1) * cellSizeZ);
 
-					if (hasIsland || isProbablySeaTile(osmData)) {
+					if (!cell.overlaps(areaBox)) continue;
 
-						NodeSequence boundaryRing = new NodeSequence();
+					List<SimplePolygonXZ> cellHoles = new ArrayList<SimplePolygonXZ>();
 
-						for (VectorXZ pos : fileBoundary.polygonXZ().getVertices()) {
-							boundaryRing.add(createFakeMapNode(pos,
-									++highestNodeId, osmData, nodeIdMap, mapNodes));
+					for (SimplePolygonXZ hole : polygon.getHoles()) {
+						if (cell.overlaps(new AxisAlignedBoundingBoxXZ(hole.getVertices()))) {
+							cellHoles.add(hole);
 						}
+					}
+
+					for (PolygonWithHolesXZ cellPart : intersectPolygons(
+							asList(polygon.getOuter(), cell.polygonXZ()))) {
 
-						boundaryRing.add(boundaryRing.get(0));
+						Collection<PolygonWithHolesXZ> pieces = cellHoles.isEmpty()
+								? singletonList(cellPart)
+								: subtractPolygons(cellPart.getOuter(), cellHoles);
 
-						closedRings.add(new Ring(boundaryRing));
+						for (PolygonWithHolesXZ piece : pieces) {
+							result.add(createAreaForPiece(relation, piece, nodeMap, nodeFactory));
+						}
 
 					}
 
 				}
-
 			}
 
-			if (closedRings != null) {
+		}
 
-				List<OsmTag> tags = new ArrayList<>();
+		return result;
 
-				tags.add(new Tag("type", "multipolygon"));
-				tags.add(new Tag("natural", "water"));
+	}
 
-				List<? extends OsmRelationMember> members = new ArrayList<>();
-				OsmRelation relation = new Relation(highestRelationId + 1, members, tags);
+	private static final MapArea createAreaForPiece(OsmRelation relation, PolygonWithHolesXZ piece,
+			Map<VectorXZ, MapNode> nodeMap, FakeNodeFactory nodeFactory) {
 
-				return buildPolygonsFromRings(relation, closedRings);
+		List<List<MapNode>> nodeLoops = new ArrayList<List<MapNode>>();
 
+		for (SimplePolygonXZ p : piece.getPolygons()) {
+
+			List<MapNode> nodeLoop = new ArrayList<MapNode>(p.size() + 1);
+
+			for (VectorXZ v : p.getVertexList()) {
+				nodeLoop.add(nodeMap.computeIfAbsent(v, nodeFactory::createNode));
 			}
 
+			nodeLoops.add(nodeLoop);
+
 		}
 
-		return emptyList();
+		return new MapArea(relation, nodeLoops.get(0),
+				nodeLoops.subList(1, nodeLoops.size()), piece);
 
 	}
 
@@ -637,23 +840,6 @@ final class MultipolygonAreaBuilder {
 
 	}
 
-	private static MapNode createFakeMapNode(VectorXZ pos, long nodeId,
-			OSMData osmData, TLongObjectMap<MapNode> nodeIdMap,
-			Collection<MapNode> mapNodes) {
-
-		Node osmNode = new Node(nodeId + 1, NaN, NaN);
-		osmNode.setTags(COASTLINE_NODE_TAGS);
-
-		osmData.getData().getNodes().put(osmNode.getId(), osmNode);
-
-		MapNode mapNode = new MapNode(pos, osmNode);
-		mapNodes.add(mapNode);
-		nodeIdMap.put(osmNode.getId(), mapNode);
-
-		return mapNode;
-
-	}
-
 	/**
 	 * guesses whether this is a pure sea tile (no land at all)
 	 */
@@ -681,6 +867,50 @@ final class MultipolygonAreaBuilder {
 
 	}
 
+	/**
+	 * creates the artificial nodes needed for coastline processing,
+	 * e.g. at intersections of coastlines with the file boundary
+	 */
+	private static final class FakeNodeFactory {
+
+		private final OSMData osmData;
+		private final TLongObjectMap<MapNode> nodeIdMap;
+		private final Collection<MapNode> mapNodes;
+
+		/** highest node id used so far, negative until the first node is created */
+		private long highestNodeId = -1;
+
+		public FakeNodeFactory(OSMData osmData, TLongObjectMap<MapNode> nodeIdMap,
+				Collection<MapNode> mapNodes) {
+			this.osmData = osmData;
+			this.nodeIdMap = nodeIdMap;
+			this.mapNodes = mapNodes;
+		}
+
+		public MapNode createNode(VectorXZ pos) {
+
+			if (highestNodeId < 0) {
+				highestNodeId = 0;
+				for (OsmNode node : osmData.getNodes()) {
+					highestNodeId = max(highestNodeId, node.getId());
+				}
+			}
+
+			Node osmNode = new Node(++highestNodeId, NaN, NaN);
+			osmNode.setTags(COASTLINE_NODE_TAGS);
+
+			osmData.getData().getNodes().put(osmNode.getId(), osmNode);
+
+			MapNode mapNode = new MapNode(pos, osmNode);
+			mapNodes.add(mapNode);
+			nodeIdMap.put(osmNode.getId(), mapNode);
+
+			return mapNode;
+
+		}
+
+	}
+
 	private static final class NodeSequence extends ArrayList<MapNode> {
 
 		private static final long serialVersionUID = -1189277554247756781L; //generated SerialUID
@@ -707,44 +937,20 @@ final class MultipolygonAreaBuilder {
 		}
 
 		/**
-		 * tries to add another sequence onto the start or end of this one.
-		 * If it succeeds, the other sequence may also be modified and
-		 * should be considered "spent".
+		 * appends another sequence which starts or ends with this sequence's last node.
+		 * The other sequence is reversed if necessary, but will not be modified.
 		 */
-		public boolean tryAdd(NodeSequence other) {
+		public void append(NodeSequence other) {
 
-			if (getLastNode() == other.getFirstNode()) {
+			MapNode lastNode = remove(size() - 1);
 
-				//add the sequence at the end
-				remove(size() - 1);
+			if (lastNode == other.getFirstNode()) {
 				addAll(other);
-				return true;
-
-			} else if (getLastNode() == other.getLastNode()) {
-
-				//add the sequence backwards at the end
-				remove(size() - 1);
-				Collections.reverse(other);
-				addAll(other);
-				return true;
-
-			} else if (getFirstNode() == other.getLastNode()) {
-
-				//add the sequence at the beginning
-				remove(0);
-				addAll(0, other);
-				return true;
-
-			} else if (getFirstNode() == other.getFirstNode()) {
-
-				//add the sequence backwards at the beginning
-				remove(0);
-				Collections.reverse(other);
-				addAll(0, other);
-				return true;
-
 			} else {
-				return false;
+				assert lastNode == other.getLastNode();
+				for (int i = other.size() - 1; i >= 0; i--) {
+					add(other.get(i));
+				}
 			}
 
 		}
@@ -768,6 +974,8 @@ final class MultipolygonAreaBuilder {
 		private final NodeSequence closedNodeSequence;
 		private final SimplePolygonXZ polygon;
 
+		private AxisAlignedBoundingBoxXZ boundingBox = null;
+
 		public Ring(NodeSequence closedNodeSequence) {
 
 			assert closedNodeSequence.isClosed();
@@ -781,6 +989,8 @@ final class MultipolygonAreaBuilder {
 		@Override
 		public AxisAlignedBoundingBoxXZ getAxisAlignedBoundingBoxXZ() {
 
+			if (boundingBox != null) return boundingBox;
+
 			double minX = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
 			double maxX = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
 
@@ -789,7 +999,9 @@ final class MultipolygonAreaBuilder {
 				maxX = max(maxX, n.getPos().x); maxZ = max(maxZ, n.getPos().z);
 			}
 
-			return new AxisAlignedBoundingBoxXZ(minX, minZ, maxX, maxZ);
+			boundingBox = new AxisAlignedBoundingBoxXZ(minX, minZ, maxX, maxZ);
+
+			return boundingBox;
 
 		}
 
@@ -42,6 +42,7 @@ import org.osm2world.core.math.VectorXZ;
 import org.osm2world.core.osm.data.OSMData;
 import org.osm2world.core.osm.ruleset.HardcodedRuleset;
 import org.osm2world.core.osm.ruleset.Ruleset;
+import org.osm2world.core.util.ProgressTracker;
 
 import de.topobyte.osm4j.core.model.iface.OsmBounds;
 import de.topobyte.osm4j.core.model.iface.OsmNode;
@@ -73,18 +74,27 @@ public class OSMToMapDataConverter {
 	}
 
 	public MapData createMapData(OSMData osmData) throws IOException, EntityNotFoundException {
+		return createMapData(osmData, ProgressTracker.NONE);
+	}
+
+	/**
+	 * variant of {@link #createMapData(OSMData)} which reports its progress
+	 */
+	public MapData createMapData(OSMData osmData, ProgressTracker progress)
+			throws IOException, EntityNotFoundException {
 
 		final List<MapNode> mapNodes = new ArrayList<>();
 		final List<MapWay> mapWays = new ArrayList<>();
 		final List<MapArea> mapAreas = new ArrayList<>();
 		final List<MapRelation> mapRelations = new ArrayList<>();
 
-		createMapElements(osmData, mapNodes, mapWays, mapAreas, mapRelations);
+		createMapElements(osmData, mapNodes, mapWays, mapAreas, mapRelations,
+				progress.subTask(0, 0.5));
 
 		MapData mapData = new MapData(mapNodes, mapWays, mapAreas, mapRelations,
 				calculateFileBoundary(osmData.getBounds()));
 
-		calculateIntersectionsInMapData(mapData);
+		calculateIntersectionsInMapData(mapData, progress.subTask(0.5, 1));
 
 		return mapData;
 
@@ -95,11 +105,18 @@ public class OSMToMapDataConverter {
 	 * based on OSM data from an {@link OSMData} dataset.
 	 * and adds them to collections
 	 * @param mapRelations
+	 * @param progress  receives progress updates, proportional to the number of
+	 *                  OSM elements visited in the loops over all nodes, ways and relations
 	 * @throws EntityNotFoundException
 	 */
 	private void createMapElements(final OSMData osmData,
 			final List<MapNode> mapNodes, final List<MapWay> mapWays,
-			final List<MapArea> mapAreas, List<MapRelation> mapRelations) throws EntityNotFoundException {
+			final List<MapArea> mapAreas, List<MapRelation> mapRelations,
+			ProgressTracker progress) throws EntityNotFoundException {
+
+		final long totalCount = osmData.getNodes().size()
+				+ 2 * (osmData.getWays().size() + osmData.getRelations().size());
+		long completedCount = 0;
 
 		/* create MapNode for each OSM node */
 
@@ -110,6 +127,7 @@ public class OSMToMapDataConverter {
 			MapNode mapNode = new MapNode(nodePos, node);
 			mapNodes.add(mapNode);
 			nodeIdMap.put(node.getId(), mapNode);
+			progress.updateProgress(++completedCount, totalCount);
 		}
 
 		/* create areas ... */
@@ -118,6 +136,8 @@ public class OSMToMapDataConverter {
 
 		/* ... based on multipolygons */
 
+		final long multipolygonStartCount = completedCount;
+
 		iterate(osmData.getRelations(), (OsmRelation relation ) -> {
 
 			Map<String, String> tags = getTagsAsMap(relation);
@@ -146,7 +166,10 @@ public class OSMToMapDataConverter {
 				// TODO: what to do here?
 			}
 
-		});
+		}, progress.subTask((double) multipolygonStartCount / totalCount,
+				(double) (multipolygonStartCount + osmData.getRelations().size()) / totalCount));
+
+		completedCount += osmData.getRelations().size();
 
 		/* ... based on coastline ways */
 
@@ -165,6 +188,7 @@ public class OSMToMapDataConverter {
 		/* ... based on closed ways */
 
 		for (OsmWay way : osmData.getWays()) {
+			progress.updateProgress(++completedCount, totalCount);
 			if (isClosed(way) && !areaMap.containsKey(way)) {
 				//create MapArea only if at least one tag is an area tag
 				for (OsmTag tag : getTagsAsList(way)) {
@@ -219,6 +243,7 @@ public class OSMToMapDataConverter {
 		/* create ways from remaining OSM ways */
 
 		for (OsmWay osmWay : osmData.getWays()) {
+			progress.updateProgress(++completedCount, totalCount);
 			boolean hasTags = osmWay.getNumberOfTags() != 0;
 			if (hasTags && !areaMap.containsKey(osmWay)) {
 
@@ -266,6 +291,7 @@ public class OSMToMapDataConverter {
 		}
 
 		for (OsmRelation osmRelation : osmData.getRelations()) {
+			progress.updateProgress(++completedCount, totalCount);
 			boolean hasTags = osmRelation.getNumberOfTags() != 0;
 			if (hasTags && !relationIdMap.containsKey(osmRelation.getId())) {
 
@@ -317,12 +343,18 @@ public class OSMToMapDataConverter {
 	 * calculates intersections and adds the information to the
 	 * {@link MapElement}s
 	 */
-	private static void calculateIntersectionsInMapData(MapData mapData) {
+	private static void calculateIntersectionsInMapData(MapData mapData,
+			ProgressTracker progress) {
 
 		MapDataIndex index = new MapIntersectionGrid(mapData.getDataBoundary());
 
+		int elementCount = mapData.getMapElementCount();
+		int completedCount = 0;
+
 		for (MapElement e1 : mapData.getMapElements()) {
 
+			progress.updateProgress(completedCount++, elementCount);
+
 			if (e1.getTags().isEmpty() && e1 instanceof MapNode) continue;
 
 			/* collect all nearby elements */
@@ -355,6 +387,8 @@ public class OSMToMapDataConverter {
 
 		}
 
+		progress.updateProgress(1);
+
 	}
 
 	/**
@@ -4,6 +4,7 @@ import static java.util.stream.Collectors.toList;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Predicate;
 
 import org.osm2world.core.math.AxisAlignedBoundingBoxXZ;
 import org.osm2world.core.math.VectorXZ;
@@ -39,19 +40,45 @@ public class MapData {
 
 	public MapData(List<MapNode> mapNodes, List<MapWay> mapWays, List<MapArea> mapAreas,
 			List<MapRelation> mapRelations, AxisAlignedBoundingBoxXZ fileBoundary) {
+		this(mapNodes, mapWays,
+				mapWays.stream().flatMap(w -> w.getWaySegments().stream()).collect(toList()),
+				mapAreas, mapRelations, fileBoundary);
+	}
+
+	private MapData(List<MapNode> mapNodes, List<MapWay> mapWays, List<MapWaySegment> mapWaySegments,
+			List<MapArea> mapAreas, List<MapRelation> mapRelations, AxisAlignedBoundingBoxXZ fileBoundary) {
 
 		this.mapNodes = mapNodes;
 		this.mapWays = mapWays;
+		this.mapWaySegments = mapWaySegments;
 		this.mapAreas = mapAreas;
 		this.mapRelations = mapRelations;
 		this.fileBoundary = fileBoundary;
 
-		mapWaySegments = mapWays.stream().flatMap(w -> w.getWaySegments().stream()).collect(toList());
-
 		calculateDataBoundary();
 
 	}
 
+	/**
+	 * returns a data set containing only those map elements which are accepted by a filter.
+	 * The elements are shared with this data set, not copied.
+	 * Ways are included if at least one of their segments is accepted,
+	 * but only the accepted segments are part of {@link #getMapElements()}.
+	 *
+	 * @param fileBoundary  the boundary of the new data set, can be null
+	 */
+	public MapData filter(Predicate<? super MapElement> filter, AxisAlignedBoundingBoxXZ fileBoundary) {
+
+		return new MapData(
+				mapNodes.stream().filter(filter).collect(toList()),
+				mapWays.stream().filter(w -> w.getWaySegments().stream().anyMatch(filter)).collect(toList()),
+				mapWaySegments.stream().filter(filter).collect(toList()),
+				mapAreas.stream().filter(filter).collect(toList()),
+				mapRelations,
+				fileBoundary);
+
+	}
+
 	private void calculateDataBoundary() {
 
 		double minX = Double.POSITIVE_INFINITY;
@@ -84,6 +111,11 @@ public class MapData {
 		return Iterables.concat(mapNodes, mapWaySegments, mapAreas);
 	}
 
+	/** returns the number of elements in {@link #getMapElements()} */
+	public int getMapElementCount() {
+		return mapNodes.size() + mapWaySegments.size() + mapAreas.size();
+	}
+
 	public List<MapRelation> getMapRelations() {
 		return mapRelations;
 	}
@@ -4,220 +4,272 @@ import static java.lang.Math.*;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
-import java.util.PriorityQueue;
-
-import org.apache.commons.lang.time.StopWatch;
-import org.apache.commons.math3.linear.Array2DRowRealMatrix;
-import org.apache.commons.math3.linear.ArrayRealVector;
-import org.apache.commons.math3.linear.QRDecomposition;
-import org.apache.commons.math3.linear.RealMatrix;
-import org.apache.commons.math3.linear.RealVector;
+import java.util.stream.IntStream;
+
 import org.osm2world.core.math.AxisAlignedBoundingBoxXZ;
 import org.osm2world.core.math.VectorXYZ;
 import org.osm2world.core.math.VectorXZ;
-import org.osm2world.core.math.datastructures.IntersectionGrid;
 import org.osm2world.core.math.datastructures.IntersectionTestObject;
+import org.osm2world.core.math.datastructures.KDTreeXZ;
+import org.osm2world.core.util.Metrics;
 
 /**
  * uses least squares method to approximate a polynomial at each site,
  * and calculates elevations based on the polynomials at the nearest sites.
+ *
+ * The polynomials are calculated in parallel. Both the calculation and the interpolation
+ * are thread-safe.
  */
 public class LeastSquaresInterpolator implements TerrainInterpolator {
 
-	private static final double CELL_SIZE = 50; //should only affect performance
 	private static final int SITES_FOR_APPROX = 9;
 	private static final int SITES_FOR_INTERPOL = 29;
 
-	private Collection<SiteWithPolynomial> sites;
-	private IntersectionGrid<SiteWithPolynomial> siteGrid; //TODO: rename IntersectionGrid to something more generic
+	/** pivots smaller than this (relative to the largest diagonal element) indicate a singular system */
+	private static final double SINGULARITY_TOLERANCE = 1e-12;
+
+	/** buffers for nearest neighbor queries and equation systems, reused by each thread */
+	private static final ThreadLocal<Workspace> WORKSPACE = ThreadLocal.withInitial(Workspace::new);
+
+	private List<SiteWithPolynomial> sites;
+
+	/** the sites which have a polynomial, and a tree containing them (using their index in that array) */
+	private SiteWithPolynomial[] polynomialSites;
+	private KDTreeXZ polynomialSiteTree;
 
 	@Override
 	public void setKnownSites(Collection<VectorXYZ> siteVectors) {
 
-		StopWatch stopWatch = new StopWatch();
-		stopWatch.start();
+		double[] xs = new double[siteVectors.size()];
+		double[] zs = new double[siteVectors.size()];
+		double[] ys = new double[siteVectors.size()];
 
-		sites = new ArrayList<SiteWithPolynomial>(siteVectors.size());
+		KDTreeXZ siteTree;
 
-		siteGrid = new IntersectionGrid<SiteWithPolynomial>(
-				new AxisAlignedBoundingBoxXZ(siteVectors).pad(CELL_SIZE/2),
-				CELL_SIZE, CELL_SIZE);
+		try (Metrics.Timer timer = Metrics.startTimer("tree")) {
 
-		for (VectorXYZ siteVector : siteVectors) {
-			SiteWithPolynomial s = new SiteWithPolynomial(siteVector);
-			sites.add(s);
-			siteGrid.insert(s);
-		}
+			sites = new ArrayList<SiteWithPolynomial>(siteVectors.size());
 
-		System.out.println("  time grid: " + stopWatch);
-		stopWatch.reset();
-		stopWatch.start();
+			for (VectorXYZ siteVector : siteVectors) {
+				xs[sites.size()] = siteVector.x;
+				zs[sites.size()] = siteVector.z;
+				ys[sites.size()] = siteVector.y;
+				sites.add(new SiteWithPolynomial(siteVector));
+			}
+
+			siteTree = new KDTreeXZ(xs, zs);
+
+		}
 
 		/* approximate a polynomial at each site */
 
-		Map<SiteWithPolynomial, List<SiteWithPolynomial>> nearestSiteMap
-			= new HashMap<SiteWithPolynomial, List<SiteWithPolynomial>>();
+		try (Metrics.Timer timer = Metrics.startTimer("polynomials")) {
 
-		for (SiteWithPolynomial site : sites) {
+			IntStream.range(0, sites.size()).parallel().forEach(i -> {
 
-			List<SiteWithPolynomial> nearestSites =
-					findNearestSites(site.pos.xz(), SITES_FOR_APPROX, false);
+				Workspace w = WORKSPACE.get();
 
-			nearestSiteMap.put(site, nearestSites);
+				int count = siteTree.findNearest(xs[i], zs[i], SITES_FOR_APPROX, w.ids, w.distancesSq);
 
-		}
+				if (count == SITES_FOR_APPROX) {
+					sites.get(i).setPolynomial(calculatePolynomial(w, count, xs, zs, ys, xs[i], zs[i]));
+				}
 
-		System.out.println("  time nearest sites: " + stopWatch);
-		stopWatch.reset();
-		stopWatch.start();
+			});
 
-		calculatePolynomials:
-		for (SiteWithPolynomial site : sites) {
+		}
 
-			List<SiteWithPolynomial> nearestSites =
-					nearestSiteMap.get(site);
+		try (Metrics.Timer timer = Metrics.startTimer("tree")) {
 
-			RealVector vector = new ArrayRealVector(SITES_FOR_APPROX);
-			RealMatrix matrix = new Array2DRowRealMatrix(
-					SITES_FOR_APPROX, DefaultPolynomial.NUM_COEFFS);
+			List<SiteWithPolynomial> sitesWithPolynomial = new ArrayList<SiteWithPolynomial>();
 
-			for (int row = 0; row < SITES_FOR_APPROX; row++) {
-				SiteWithPolynomial nearSite = nearestSites.get(row);
-				DefaultPolynomial.populateMatrix(matrix, row, nearSite.pos.x, nearSite.pos.z);
-				vector.setEntry(row, nearSite.pos.y);
+			for (SiteWithPolynomial site : sites) {
+				if (site.getPolynomial() != null) {
+					sitesWithPolynomial.add(site);
+				}
 			}
 
-			QRDecomposition qr = new QRDecomposition(matrix);
-			RealVector solution = qr.getSolver().solve(vector);
+			polynomialSites = sitesWithPolynomial.toArray(new SiteWithPolynomial[0]);
 
-			double[] coeffs = solution.toArray();
+			double[] polynomialXs = new double[polynomialSites.length];
+			double[] polynomialZs = new double[polynomialSites.length];
 
-			for (double coeff : coeffs) {
-				if (coeff > 10e3) {
-					continue calculatePolynomials;
-				}
+			for (int i = 0; i < polynomialSites.length; i++) {
+				polynomialXs[i] = polynomialSites[i].pos.x;
+				polynomialZs[i] = polynomialSites[i].pos.z;
 			}
 
-			site.setPolynomial(new DefaultPolynomial(coeffs));
+			polynomialSiteTree = new KDTreeXZ(polynomialXs, polynomialZs);
 
 		}
 
-		System.out.println("  time polyonmials: " + stopWatch);
-		stopWatch.reset();
-		stopWatch.start();
-
 	}
 
-	@Override
-	public VectorXYZ interpolateEle(VectorXZ pos) {
+	/**
+	 * approximates a polynomial for the nearest sites found by the previous query using the workspace.
+	 * Solves the normal equations of the least squares problem.
+	 * To keep them well-conditioned, coordinates are relative to the origin
+	 * and scaled by the distance of the farthest site.
+	 *
+	 * @return  the polynomial, or null if it could not be determined reliably
+	 */
+	private static Polynomial calculatePolynomial(Workspace w, int count,
+			double[] xs, double[] zs, double[] ys, double originX, double originZ) {
 
-		List<SiteWithPolynomial> nearestSites =
-				findNearestSites(pos, SITES_FOR_INTERPOL, true);
+		final int n = DefaultPolynomial.NUM_COEFFS;
 
-		double eleSum = 0;
-		double weightSum = 0;
+		double scale = sqrt(w.distancesSq[count - 1]);
 
-		for (SiteWithPolynomial site : nearestSites) {
+		if (scale == 0) return null;
 
-			double distance = site.pos.distanceToXZ(pos);
+		/* build the augmented matrix [A^T A | A^T y] */
 
-			double weight = max(1 - distance / 120, 0);
+		double[] m = w.matrix;
+		double[] row = w.row;
 
-			weightSum += weight;
+		for (int i = 0; i < m.length; i++) {
+			m[i] = 0;
+		}
 
-			eleSum += weight * site.getPolynomial().evaluateAt(pos.x, pos.z);
+		for (int k = 0; k < count; k++) {
+
+			int id = w.ids[k];
+			DefaultPolynomial.populateRow(row,
+					(xs[id] - originX) / scale, (zs[id] - originZ) / scale);
+
+			for (int i = 0; i < n; i++) {
+				for (int j = i; j < n; j++) {
+					m[i * (n + 1) + j] += row[i] * row[j];
+				}
+				m[i * (n + 1) + n] += row[i] * ys[id];
+			}
 
 		}
 
-		double ele = eleSum / weightSum;
+		double maxDiagonal = 0;
 
-		return pos.xyz(ele);
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < i; j++) {
+				m[i * (n + 1) + j] = m[j * (n + 1) + i];
+			}
+			maxDiagonal = max(maxDiagonal, m[i * (n + 1) + i]);
+		}
 
-	}
+		/* Gaussian elimination with partial pivoting */
 
-	/**
-	 * provides access to the polynomials approximated internally.
-	 * This is usually only interesting for debugging or similar tasks.
-	 */
-	public Collection<SiteWithPolynomial> getSitesWithPolynomials() {
-		return sites;
-	}
+		for (int col = 0; col < n; col++) {
+
+			int pivotRow = col;
+			for (int r = col + 1; r < n; r++) {
+				if (abs(m[r * (n + 1) + col]) > abs(m[pivotRow * (n + 1) + col])) {
+					pivotRow = r;
+				}
+			}
 
-	private List<SiteWithPolynomial> findNearestSites(
-			final VectorXZ pos, int numberSites, boolean requirePolynomial) {
+			if (abs(m[pivotRow * (n + 1) + col]) <= SINGULARITY_TOLERANCE * maxDiagonal) {
+				return null;
+			}
+
+			if (pivotRow != col) {
+				for (int c = col; c <= n; c++) {
+					double temp = m[col * (n + 1) + c];
+					m[col * (n + 1) + c] = m[pivotRow * (n + 1) + c];
+					m[pivotRow * (n + 1) + c] = temp;
+				}
+			}
 
-		PriorityQueue<SiteWithPolynomial> result =
-				new PriorityQueue<SiteWithPolynomial>(numberSites,
-						new Comparator<SiteWithPolynomial>() {
-					@Override
-					public int compare(SiteWithPolynomial s1, SiteWithPolynomial s2) {
-						return - Double.compare(s1.pos.distanceToXZ(pos),
-								s2.pos.distanceToXZ(pos));
-					}
-				});
+			for (int r = col + 1; r < n; r++) {
+				double factor = m[r * (n + 1) + col] / m[col * (n + 1) + col];
+				for (int c = col; c <= n; c++) {
+					m[r * (n + 1) + c] -= factor * m[col * (n + 1) + c];
+				}
+			}
+
+		}
+
+		double[] coeffs = new double[n];
+
+		for (int r = n - 1; r >= 0; r--) {
+			double sum = m[r * (n + 1) + n];
+			for (int c = r + 1; c < n; c++) {
+				sum -= m[r * (n + 1) + c] * coeffs[c];
+			}
+			coeffs[r] = sum / m[r * (n + 1) + r];
+		}
 
-		Collection<SiteWithPolynomial>[][] cellArray = siteGrid.getCellArray();
-		int cellX = siteGrid.cellXForCoord(pos.x, pos.z);
-		int cellZ = siteGrid.cellZForCoord(pos.x, pos.z);
+		/* undo the scaling */
 
-		int cellRange = 0;
+		coeffs[1] /= scale;
+		coeffs[2] /= scale;
+		coeffs[3] /= scale * scale;
+		coeffs[4] /= scale * scale;
+		coeffs[5] /= scale * scale;
 
-		do {
+		DefaultPolynomial polynomial = new DefaultPolynomial(coeffs, originX, originZ);
 
-			for (int i = max(cellX-cellRange, 0); i < min(cellX+cellRange+1, cellArray.length); i++) {
-				for (int j = max(cellZ-cellRange, 0); j < min(cellZ+cellRange+1, cellArray[i].length); j++) {
+		for (double coeff : polynomial.getGlobalCoeffs()) {
+			if (coeff > 10e3) {
+				return null;
+			}
+		}
 
-					//needs to be on the outer ring of cells (others have been checked before)
-					if (i == cellX-cellRange || i == cellX+cellRange
-							|| j == cellZ-cellRange || j == cellZ+cellRange) {
+		return polynomial;
 
-						Collection<SiteWithPolynomial> sitesInCell = cellArray[i][j];
+	}
 
-						if (sitesInCell != null) {
-							for (SiteWithPolynomial site : sitesInCell) {
+	@Override
+	public VectorXYZ interpolateEle(VectorXZ pos) {
 
-								if (requirePolynomial && site.polynomial == null) continue;
+		Workspace w = WORKSPACE.get();
 
-								if (result.size() < numberSites) {
+		int count = polynomialSiteTree.findNearest(pos.x, pos.z,
+				SITES_FOR_INTERPOL, w.ids, w.distancesSq);
 
-									result.add(site);
+		double eleSum = 0;
+		double weightSum = 0;
 
-								} else if (site.pos.distanceToXZ(pos) <
-										result.peek().pos.distanceToXZ(pos)) {
+		for (int i = 0; i < count; i++) {
 
-									result.remove();
-									result.add(site);
+			SiteWithPolynomial site = polynomialSites[w.ids[i]];
 
-								}
-							}
-						}
+			double distance = sqrt(w.distancesSq[i]);
 
-					}
+			double weight = max(1 - distance / 120, 0);
 
-				}
-			}
+			weightSum += weight;
+
+			eleSum += weight * site.getPolynomial().evaluateAt(pos.x, pos.z);
 
-			cellRange ++;
+		}
 
-		} while (result.size() < numberSites
-				|| cellRange * CELL_SIZE < result.peek().pos.distanceToXZ(pos));
+		double ele = eleSum / weightSum;
 
-		//TODO error handling (not enough sites)
+		return pos.xyz(ele);
+
+	}
+
+	/**
+	 * provides access to the polynomials approximated internally.
+	 * This is usually only interesting for debugging or similar tasks.
+	 */
+	public Collection<SiteWithPolynomial> getSitesWithPolynomials() {
+		return sites;
+	}
 
-		/* get the result as a list with ascending distance */
+	/**
+	 * buffers used by a single thread
+	 */
+	private static final class Workspace {
 
-		List<SiteWithPolynomial> resultList =
-				new ArrayList<SiteWithPolynomial>(result);
+		final int[] ids = new int[max(SITES_FOR_APPROX, SITES_FOR_INTERPOL)];
+		final double[] distancesSq = new double[ids.length];
 
-		Collections.reverse(resultList);
+		final double[] row = new double[DefaultPolynomial.NUM_COEFFS];
 
-		return resultList;
+		/** augmented matrix of the normal equations, stored row by row */
+		final double[] matrix = new double[DefaultPolynomial.NUM_COEFFS * (DefaultPolynomial.NUM_COEFFS + 1)];
 
 	}
 
@@ -227,19 +279,27 @@ public class LeastSquaresInterpolator implements TerrainInterpolator {
 
 	}
 
+	/**
+	 * a polynomial of degree 2. Its variables are coordinates relative to an origin.
+	 */
 	public static final class DefaultPolynomial implements Polynomial {
 
 		private static final int NUM_COEFFS = 6;
 
 		private final double[] coeffs;
+		private final double originX, originZ;
 
-		private DefaultPolynomial(double[] coeffs) {
+		private DefaultPolynomial(double[] coeffs, double originX, double originZ) {
 			assert coeffs.length == NUM_COEFFS;
 			this.coeffs = coeffs;
+			this.originX = originX;
+			this.originZ = originZ;
 		}
 
 		@Override
 		public double evaluateAt(double x, double z) {
+			x -= originX;
+			z -= originZ;
 			return coeffs[0]
 					+ coeffs[1] * x
 					+ coeffs[2] * z
@@ -248,24 +308,40 @@ public class LeastSquaresInterpolator implements TerrainInterpolator {
 					+ coeffs[5] * z*z;
 		}
 
-		public static void populateMatrix(RealMatrix matrix, int row,
-				double x, double z) {
+		/**
+		 * returns the coefficients for coordinates which are not relative to the origin
+		 */
+		private double[] getGlobalCoeffs() {
+			return new double[] {
+					evaluateAt(0, 0),
+					coeffs[1] - 2 * coeffs[3] * originX - coeffs[4] * originZ,
+					coeffs[2] - coeffs[4] * originX - 2 * coeffs[5] * originZ,
+					coeffs[3],
+					coeffs[4],
+					coeffs[5]};
+		}
+
+		/**
+		 * writes the values of the polynomial's terms at a position to an array
+		 */
+		private static void populateRow(double[] row, double x, double z) {
 
-			matrix.setEntry(row, 0, 1);
-			matrix.setEntry(row, 1, x);
-			matrix.setEntry(row, 2, z);
-			matrix.setEntry(row, 3, x*x);
-			matrix.setEntry(row, 4, x*z);
-			matrix.setEntry(row, 5, z*z);
+			row[0] = 1;
+			row[1] = x;
+			row[2] = z;
+			row[3] = x*x;
+			row[4] = x*z;
+			row[5] = z*z;
 
 		}
 
 		@Override
 		public String toString() {
 			return String.format(Locale.US,
-					"%.3f + %.3fx + %.3fz + %.3fx^2 + %.3fxz + %.3fz^2",
+					"%.3f + %.3fx + %.3fz + %.3fx^2 + %.3fxz + %.3fz^2 (origin %.3f, %.3f)",
 					coeffs[0], coeffs[1], coeffs[2],
-					coeffs[3], coeffs[4], coeffs[5]);
+					coeffs[3], coeffs[4], coeffs[5],
+					originX, originZ);
 		}
 
 	}
@@ -3,9 +3,11 @@ package org.osm2world.core.map_elevation.data;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.osm2world.core.math.PolygonWithHolesXZ;
@@ -173,6 +175,66 @@ public class EleConnectorGroup implements Iterable<EleConnector> {
 
 	}
 
+	/**
+	 * packed variant of {@link #getTriangulationXYZ(Collection)}.
+	 *
+	 * @return  x, y and z coordinate of each vertex of the counterclockwise triangles
+	 */
+	public double[] getTriangulationXYZPositions(
+			Collection<? extends TriangleXZ> trianglesXZ) {
+
+		/* index the connectors by position, keeping the first one for each position
+		 * (like getConnector) */
+
+		Map<VectorXZ, EleConnector> connectorMap =
+				new HashMap<VectorXZ, EleConnector>(2 * eleConnectors.size());
+
+		for (EleConnector c : eleConnectors) {
+			connectorMap.putIfAbsent(c.pos, c);
+		}
+
+		double[] result = new double[9 * trianglesXZ.size()];
+
+		int i = 0;
+
+		for (TriangleXZ triangleXZ : trianglesXZ) {
+
+			if (triangleXZ.isClockwise()) {
+				i = putPosXYZ(result, i, triangleXZ.v3, connectorMap);
+				i = putPosXYZ(result, i, triangleXZ.v2, connectorMap);
+				i = putPosXYZ(result, i, triangleXZ.v1, connectorMap);
+			} else {
+				i = putPosXYZ(result, i, triangleXZ.v1, connectorMap);
+				i = putPosXYZ(result, i, triangleXZ.v2, connectorMap);
+				i = putPosXYZ(result, i, triangleXZ.v3, connectorMap);
+			}
+
+		}
+
+		return result;
+
+	}
+
+	private static int putPosXYZ(double[] positions, int i, VectorXZ pos,
+			Map<VectorXZ, EleConnector> connectorMap) {
+
+		EleConnector c = connectorMap.get(pos);
+
+		if (c != null) {
+			VectorXYZ posXYZ = c.getPosXYZ();
+			positions[i] = posXYZ.x;
+			positions[i + 1] = posXYZ.y;
+			positions[i + 2] = posXYZ.z;
+		} else {
+			positions[i] = pos.x;
+			positions[i + 1] = 0;
+			positions[i + 2] = pos.z;
+		}
+
+		return i + 3;
+
+	}
+
 	@Override
 	public Iterator<EleConnector> iterator() {
 		return eleConnectors.iterator();
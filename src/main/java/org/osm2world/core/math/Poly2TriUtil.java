@@ -5,6 +5,8 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 
+import org.osm2world.core.math.algorithms.TriangulationCache;
+import org.osm2world.core.math.algorithms.TriangulationCache.Algorithm;
 import org.osm2world.core.util.exception.TriangulationException;
 import org.poly2tri.Poly2Tri;
 import org.poly2tri.triangulation.Triangulatable;
@@ -172,6 +174,15 @@ public class Poly2TriUtil {
 			Collection<SimplePolygonXZ> holes,
 			Collection<LineSegmentXZ> segments, Collection<VectorXZ> points) throws TriangulationException {
 
+		return TriangulationCache.triangulate(Algorithm.POLY2TRI, polygon, holes, segments, points,
+				() -> triangulateUncached(polygon, holes, segments, points));
+
+	}
+
+	private static final List<TriangleXZ> triangulateUncached(SimplePolygonXZ polygon,
+			Collection<SimplePolygonXZ> holes,
+			Collection<LineSegmentXZ> segments, Collection<VectorXZ> points) throws TriangulationException {
+
 		CDTSet cdt = new CDTSet(polygon, holes, segments, points);
 		TriangulationContext<?> tcx = Poly2Tri
 				.createContext(TriangulationAlgorithm.DTSweep);
@@ -0,0 +1,200 @@
+package org.osm2world.core.math;
+
+import static java.lang.Math.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * spatial index for the segments of a {@link PolygonXZ}.
+ * Divides the polygon's bounding box into a regular grid of roughly as many cells
+ * as the polygon has segments, and stores the indices of the segments overlapping each cell.
+ *
+ * This makes point-in-polygon tests and segment intersection tests
+ * for polygons with many vertices much faster, as only a few segments need to be checked.
+ */
+final class PolygonSegmentIndex {
+
+	/** polygons with fewer vertices are not indexed, a linear search is fast enough for them */
+	static final int MIN_INDEXED_SIZE = 32;
+
+	/** the polygon's vertex loop, segment i goes from vertex i to i+1 */
+	private final List<VectorXZ> vertexLoop;
+
+	final double minX, minZ, maxX, maxZ;
+
+	private final int cellsX, cellsZ;
+	private final double cellSizeX, cellSizeZ;
+
+	/** start of each cell's entries in {@link #cellSegments}, with an additional entry at the end */
+	private final int[] cellStart;
+
+	/** segment indices for all cells */
+	private final int[] cellSegments;
+
+	PolygonSegmentIndex(List<VectorXZ> vertexLoop) {
+
+		this.vertexLoop = vertexLoop;
+
+		int numSegments = vertexLoop.size() - 1;
+
+		/* calculate the bounding box and grid layout */
+
+		double minX = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+
+		for (VectorXZ v : vertexLoop) {
+			minX = min(minX, v.x); minZ = min(minZ, v.z);
+			maxX = max(maxX, v.x); maxZ = max(maxZ, v.z);
+		}
+
+		this.minX = minX; this.minZ = minZ;
+		this.maxX = maxX; this.maxZ = maxZ;
+
+		double sizeX = max(maxX - minX, 1e-9);
+		double sizeZ = max(maxZ - minZ, 1e-9);
+
+		double targetCellSize = sqrt(sizeX * sizeZ / numSegments);
+
+		cellsX = (int) min(numSegments, max(1, ceil(sizeX / targetCellSize)));
+		cellsZ = (int) min(numSegments, max(1, ceil(sizeZ / targetCellSize)));
+
+		cellSizeX = sizeX / cellsX;
+		cellSizeZ = sizeZ / cellsZ;
+
+		/* count the entries for each cell, then fill them in */
+
+		int[] cellCounts = new int[cellsX * cellsZ];
+
+		for (int s = 0; s < numSegments; s++) {
+			VectorXZ p1 = vertexLoop.get(s);
+			VectorXZ p2 = vertexLoop.get(s + 1);
+			for (int cx = cellX(min(p1.x, p2.x)); cx <= cellX(max(p1.x, p2.x)); cx++) {
+				for (int cz = cellZ(min(p1.z, p2.z)); cz <= cellZ(max(p1.z, p2.z)); cz++) {
+					cellCounts[cz * cellsX + cx] ++;
+				}
+			}
+		}
+
+		cellStart = new int[cellCounts.length + 1];
+
+		for (int c = 0; c < cellCounts.length; c++) {
+			cellStart[c + 1] = cellStart[c] + cellCounts[c];
+		}
+
+		cellSegments = new int[cellStart[cellCounts.length]];
+
+		int[] cellFill = Arrays.copyOf(cellStart, cellCounts.length);
+
+		for (int s = 0; s < numSegments; s++) {
+			VectorXZ p1 = vertexLoop.get(s);
+			VectorXZ p2 = vertexLoop.get(s + 1);
+			for (int cx = cellX(min(p1.x, p2.x)); cx <= cellX(max(p1.x, p2.x)); cx++) {
+				for (int cz = cellZ(min(p1.z, p2.z)); cz <= cellZ(max(p1.z, p2.z)); cz++) {
+					cellSegments[cellFill[cz * cellsX + cx] ++] = s;
+				}
+			}
+		}
+
+	}
+
+	private int cellX(double x) {
+		return max(0, min(cellsX - 1, (int) floor((x - minX) / cellSizeX)));
+	}
+
+	private int cellZ(double z) {
+		return max(0, min(cellsZ - 1, (int) floor((z - minZ) / cellSizeZ)));
+	}
+
+	/**
+	 * ray casting point-in-polygon test.
+	 * Produces the same results as {@link SimplePolygonXZ#contains(List, VectorXZ)},
+	 * but only checks segments in the grid row containing the point.
+	 */
+	boolean contains(VectorXZ test) {
+
+		if (test.z < minZ || test.z > maxZ || test.x > maxX) {
+			return false;
+		}
+
+		int row = cellZ(test.z);
+		int startCell = cellX(test.x);
+
+		boolean c = false;
+
+		for (int cx = startCell; cx < cellsX; cx++) {
+
+			int cell = row * cellsX + cx;
+
+			for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+
+				int s = cellSegments[k];
+
+				VectorXZ vj = vertexLoop.get(s);
+				VectorXZ vi = vertexLoop.get(s + 1);
+
+				// only count segments spanning several cells once
+				if (cx != max(startCell, cellX(min(vi.x, vj.x)))) continue;
+
+				if (((vi.z > test.z) != (vj.z > test.z))
+						&& (test.x < (vj.x - vi.x) * (test.z - vi.z) / (vj.z - vi.z) + vi.x)) {
+					c = !c;
+				}
+
+			}
+
+		}
+
+		return c;
+
+	}
+
+	/**
+	 * returns the indices of all segments which might intersect the box.
+	 * The result is sorted and free of duplicates.
+	 */
+	int[] candidateSegments(double boxMinX, double boxMinZ, double boxMaxX, double boxMaxZ) {
+
+		if (boxMaxX < minX || boxMinX > maxX || boxMaxZ < minZ || boxMinZ > maxZ) {
+			return new int[0];
+		}
+
+		int minCX = cellX(boxMinX), maxCX = cellX(boxMaxX);
+		int minCZ = cellZ(boxMinZ), maxCZ = cellZ(boxMaxZ);
+
+		int[] result = new int[16];
+		int size = 0;
+
+		for (int cz = minCZ; cz <= maxCZ; cz++) {
+			for (int cx = minCX; cx <= maxCX; cx++) {
+				int cell = cz * cellsX + cx;
+				for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+					if (size == result.length) {
+						result = Arrays.copyOf(result, 2 * size);
+					}
+					result[size++] = cellSegments[k];
+				}
+			}
+		}
+
+		Arrays.sort(result, 0, size);
+
+		int uniqueSize = 0;
+		for (int i = 0; i < size; i++) {
+			if (uniqueSize == 0 || result[uniqueSize - 1] != result[i]) {
+				result[uniqueSize++] = result[i];
+			}
+		}
+
+		return Arrays.copyOf(result, uniqueSize);
+
+	}
+
+	/**
+	 * @see #candidateSegments(double, double, double, double)
+	 */
+	int[] candidateSegments(VectorXZ p1, VectorXZ p2) {
+		return candidateSegments(min(p1.x, p2.x), min(p1.z, p2.z), max(p1.x, p2.x), max(p1.z, p2.z));
+	}
+
+}
@@ -17,6 +17,9 @@ public class PolygonXZ implements PolygonShapeXZ {
 	/** polygon vertices; first and last vertex are equal */
 	protected final List<VectorXZ> vertexLoop;
 
+	/** lazily created index for the segments, null for small polygons or if not yet created */
+	private volatile PolygonSegmentIndex segmentIndex;
+
 	/**
 	 * @param vertexLoop  vertices defining the polygon;
 	 *                    first and last vertex must be equal
@@ -126,6 +129,21 @@ public class PolygonXZ implements PolygonShapeXZ {
 
 	}
 
+	/**
+	 * returns a spatial index for this polygon's segments, creating it if necessary.
+	 *
+	 * @return  the index, or null if this polygon is too small to benefit from it
+	 */
+	PolygonSegmentIndex getSegmentIndex() {
+
+		if (segmentIndex == null && size() >= PolygonSegmentIndex.MIN_INDEXED_SIZE) {
+			segmentIndex = new PolygonSegmentIndex(vertexLoop);
+		}
+
+		return segmentIndex;
+
+	}
+
 	public List<LineSegmentXZ> getSegments() {
 		List<LineSegmentXZ> segments = new ArrayList<LineSegmentXZ>(vertexLoop.size());
 		for (int i=0; i+1 < vertexLoop.size(); i++) {
@@ -161,6 +179,21 @@ public class PolygonXZ implements PolygonShapeXZ {
 	public boolean intersects(VectorXZ segmentP1, VectorXZ segmentP2) {
 		//TODO: (performance): passing "vector TO second point", rather than point2, would avoid having to calc it here - and that information could be reused for all comparisons involving the segment
 
+		PolygonSegmentIndex index = getSegmentIndex();
+
+		if (index != null) {
+
+			for (int i : index.candidateSegments(segmentP1, segmentP2)) {
+				if (GeometryUtil.getTrueLineSegmentIntersection(segmentP1, segmentP2,
+						vertexLoop.get(i), vertexLoop.get(i+1)) != null) {
+					return true;
+				}
+			}
+
+			return false;
+
+		}
+
 		for (int i=0; i+1<vertexLoop.size(); i++) {
 
 			VectorXZ intersection = GeometryUtil.getTrueLineSegmentIntersection(
@@ -187,7 +220,26 @@ public class PolygonXZ implements PolygonShapeXZ {
 	 */
 	public boolean intersects(PolygonXZ outlinePolygonXZ) {
 
-		//TODO (performance): currently performs pairwise intersection checks for sides of this and other - this might not be the fastest method
+		/* iterate over the sides of the smaller polygon,
+		 * using the index of the larger one (if it has one) */
+
+		if (outlinePolygonXZ.size() > size()) {
+			return outlinePolygonXZ.intersects(this);
+		}
+
+		PolygonSegmentIndex index = getSegmentIndex();
+
+		if (index != null) {
+
+			for (int i=0; i+1<outlinePolygonXZ.vertexLoop.size(); i++) {
+				if (intersects(outlinePolygonXZ.vertexLoop.get(i), outlinePolygonXZ.vertexLoop.get(i+1))) {
+					return true;
+				}
+			}
+
+			return false;
+
+		}
 
 		for (int i=0; i+1<vertexLoop.size(); i++) {
 			if (outlinePolygonXZ.intersects(vertexLoop.get(i), vertexLoop.get(i+1))) {
@@ -203,6 +255,21 @@ public class PolygonXZ implements PolygonShapeXZ {
 
 		List<LineSegmentXZ> intersectionSegments = new ArrayList<LineSegmentXZ>();
 
+		PolygonSegmentIndex index = getSegmentIndex();
+
+		if (index != null) {
+
+			for (int i : index.candidateSegments(lineSegment.p1, lineSegment.p2)) {
+				if (GeometryUtil.getTrueLineSegmentIntersection(lineSegment.p1, lineSegment.p2,
+						vertexLoop.get(i), vertexLoop.get(i+1)) != null) {
+					intersectionSegments.add(new LineSegmentXZ(vertexLoop.get(i), vertexLoop.get(i+1)));
+				}
+			}
+
+			return intersectionSegments;
+
+		}
+
 		for (LineSegmentXZ polygonSegment : getSegments()) {
 
 			VectorXZ intersection = GeometryUtil.getTrueLineSegmentIntersection(
@@ -225,6 +292,27 @@ public class PolygonXZ implements PolygonShapeXZ {
 
 		List<VectorXZ> intersectionPositions = new ArrayList<VectorXZ>();
 
+		PolygonSegmentIndex index = getSegmentIndex();
+
+		if (index != null) {
+
+			for (int i : index.candidateSegments(lineSegment.p1, lineSegment.p2)) {
+
+				VectorXZ intersection = GeometryUtil.getTrueLineSegmentIntersection(
+						lineSegment.p1, lineSegment.p2,
+						vertexLoop.get(i), vertexLoop.get(i+1)
+						);
+
+				if (intersection != null) {
+					intersectionPositions.add(intersection);
+				}
+
+			}
+
+			return intersectionPositions;
+
+		}
+
 		for (int i=0; i+1<vertexLoop.size(); i++) {
 
 			VectorXZ intersection = GeometryUtil.getTrueLineSegmentIntersection(
@@ -225,7 +225,15 @@ public class SimplePolygonXZ extends PolygonXZ implements SimpleClosedShapeXZ {
 	 * returns true if the polygon contains a given position
 	 */
 	public boolean contains(VectorXZ test) {
-		return SimplePolygonXZ.contains(vertexLoop, test);
+
+		PolygonSegmentIndex index = getSegmentIndex();
+
+		if (index != null) {
+			return index.contains(test);
+		} else {
+			return SimplePolygonXZ.contains(vertexLoop, test);
+		}
+
 	}
 
 	/**
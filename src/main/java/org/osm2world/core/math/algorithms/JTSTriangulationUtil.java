@@ -19,6 +19,7 @@ import org.osm2world.core.math.PolygonWithHolesXZ;
 import org.osm2world.core.math.SimplePolygonXZ;
 import org.osm2world.core.math.TriangleXZ;
 import org.osm2world.core.math.VectorXZ;
+import org.osm2world.core.math.algorithms.TriangulationCache.Algorithm;
 
 /**
  * uses the JTS library for triangulation.
@@ -57,6 +58,17 @@ public final class JTSTriangulationUtil {
 			Collection<LineSegmentXZ> segments,
 			Collection<VectorXZ> points) {
 
+		return TriangulationCache.triangulate(Algorithm.JTS, polygon, holes, segments, points,
+				() -> triangulateUncached(polygon, holes, segments, points));
+
+	}
+
+	private static final List<TriangleXZ> triangulateUncached(
+			SimplePolygonXZ polygon,
+			Collection<SimplePolygonXZ> holes,
+			Collection<LineSegmentXZ> segments,
+			Collection<VectorXZ> points) {
+
 		ConformingDelaunayTriangulationBuilder triangulationBuilder =
 			new ConformingDelaunayTriangulationBuilder();
 
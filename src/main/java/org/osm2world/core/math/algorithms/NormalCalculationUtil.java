@@ -3,6 +3,7 @@ package org.osm2world.core.math.algorithms;
 import static java.util.Arrays.asList;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -120,22 +121,81 @@ public final class NormalCalculationUtil {
 
 	/**
 	 * calculates normals for vertices that are shared by multiple triangles.
+	 *
+	 * Identical vertex positions are first welded into a common vertex index.
+	 * The normal at a triangle's corner is the normalized sum of the normals of
+	 * all triangles sharing the vertex whose normals differ by no more than
+	 * {@link #MAX_ANGLE_RADIANS} from the triangle's own normal.
+	 * Nearly coplanar neighbors are only counted once.
 	 */
 	public static final Collection<TriangleXYZWithNormals> calculateTrianglesWithNormals(
 			Collection<TriangleXYZ> triangles) {
 
-		Map<VectorXYZ, List<TriangleXYZ>> adjacentTriangles =
-			calculateAdjacentTriangles(triangles);
+		TriangleXYZ[] triangleArray = triangles.toArray(new TriangleXYZ[triangles.size()]);
+
+		/* weld identical positions, assigning an index to each distinct vertex */
+
+		Map<VectorXYZ, Integer> vertexIndices = new HashMap<VectorXYZ, Integer>();
+		int[] cornerVertices = new int[3 * triangleArray.length];
+
+		for (int t = 0; t < triangleArray.length; t++) {
+			cornerVertices[3 * t] = vertexIndex(triangleArray[t].v1, vertexIndices);
+			cornerVertices[3 * t + 1] = vertexIndex(triangleArray[t].v2, vertexIndices);
+			cornerVertices[3 * t + 2] = vertexIndex(triangleArray[t].v3, vertexIndices);
+		}
+
+		/* calculate each triangle's normal once */
+
+		double[] faceNormals = new double[3 * triangleArray.length];
+
+		for (int t = 0; t < triangleArray.length; t++) {
+			putFaceNormal(faceNormals, t, triangleArray[t]);
+		}
+
+		/* build the adjacency in compressed sparse row layout:
+		 * the triangles using vertex v are adjacentTriangles[adjacencyStarts[v] .. adjacencyStarts[v+1]-1],
+		 * in the order of the input */
+
+		int vertexCount = vertexIndices.size();
+
+		int[] adjacencyStarts = new int[vertexCount + 1];
+
+		for (int vertex : cornerVertices) {
+			adjacencyStarts[vertex + 1] ++;
+		}
+
+		int maxAdjacencyCount = 0;
+
+		for (int v = 0; v < vertexCount; v++) {
+			maxAdjacencyCount = Math.max(maxAdjacencyCount, adjacencyStarts[v + 1]);
+			adjacencyStarts[v + 1] += adjacencyStarts[v];
+		}
+
+		int[] adjacentTriangles = new int[cornerVertices.length];
+		int[] nextAdjacencyIndex = Arrays.copyOf(adjacencyStarts, vertexCount);
+
+		for (int corner = 0; corner < cornerVertices.length; corner++) {
+			adjacentTriangles[nextAdjacencyIndex[cornerVertices[corner]] ++] = corner / 3;
+		}
+
+		/* accumulate the normals for each corner */
+
+		int[] relevantTriangles = new int[maxAdjacencyCount];
 
 		Collection<TriangleXYZWithNormals> result =
-			new ArrayList<TriangleXYZWithNormals>(triangles.size());
+			new ArrayList<TriangleXYZWithNormals>(triangleArray.length);
 
-		for (TriangleXYZ triangle : triangles) {
+		for (int t = 0; t < triangleArray.length; t++) {
 
-			result.add(new TriangleXYZWithNormals(triangle,
-					calculateNormal(triangle.v1, triangle, adjacentTriangles),
-					calculateNormal(triangle.v2, triangle, adjacentTriangles),
-					calculateNormal(triangle.v3, triangle, adjacentTriangles)));
+			VectorXYZ[] normals = new VectorXYZ[3];
+
+			for (int c = 0; c < 3; c++) {
+				normals[c] = calculateNormal(cornerVertices[3 * t + c], t, triangleArray,
+						faceNormals, adjacencyStarts, adjacentTriangles, relevantTriangles);
+			}
+
+			result.add(new TriangleXYZWithNormals(triangleArray[t],
+					normals[0], normals[1], normals[2]));
 
 		}
 
@@ -143,31 +203,118 @@ public final class NormalCalculationUtil {
 
 	}
 
-	private static VectorXYZ calculateNormal(VectorXYZ v, TriangleXYZ triangle,
-			Map<VectorXYZ, List<TriangleXYZ>> adjacentTrianglesMap) {
+	private static int vertexIndex(VectorXYZ v, Map<VectorXYZ, Integer> vertexIndices) {
+
+		Integer index = vertexIndices.get(v);
+
+		if (index == null) {
+			index = vertexIndices.size();
+			vertexIndices.put(v, index);
+		}
+
+		return index;
+
+	}
+
+	/**
+	 * writes the same normal as {@link TriangleXYZ#getNormal()} to a packed array
+	 */
+	private static void putFaceNormal(double[] faceNormals, int t, TriangleXYZ triangle) {
+
+		double ax = triangle.v2.x - triangle.v1.x;
+		double ay = triangle.v2.y - triangle.v1.y;
+		double az = triangle.v2.z - triangle.v1.z;
+
+		double bx = triangle.v2.x - triangle.v3.x;
+		double by = triangle.v2.y - triangle.v3.y;
+		double bz = triangle.v2.z - triangle.v3.z;
+
+		double x = ay * bz - az * by;
+		double y = az * bx - ax * bz;
+		double z = ax * by - ay * bx;
+
+		double length = Math.sqrt(x*x + y*y + z*z);
+
+		faceNormals[3 * t] = x / length;
+		faceNormals[3 * t + 1] = y / length;
+		faceNormals[3 * t + 2] = z / length;
+
+	}
+
+	private static final double MAX_COPLANAR_ANGLE_RADIANS = 0.01;
 
-		/* find adjacent triangles whose normals are close enough to that of t
-		 * and save their normal vectors */
+	/*
+	 * comparing the angle between two unit normals to a threshold is equivalent to comparing
+	 * their dot product to the threshold's cosine, which avoids calling acos.
+	 * The cosines are adjusted so that the results are exactly those of comparing
+	 * acos(dot) to the threshold (acos is semi-monotonic).
+	 */
+
+	/** smallest dot product for which acos(dot) <= {@link #MAX_ANGLE_RADIANS} */
+	private static final double MIN_DOT_SMOOTH = minDot(MAX_ANGLE_RADIANS, true);
 
-		List<VectorXYZ> relevantNormals = new ArrayList<VectorXYZ>();
+	/** smallest dot product for which acos(dot) < {@link #MAX_COPLANAR_ANGLE_RADIANS} */
+	private static final double MIN_DOT_COPLANAR = minDot(MAX_COPLANAR_ANGLE_RADIANS, false);
 
-		for (TriangleXYZ t2 : adjacentTrianglesMap.get(v)) {
+	private static double minDot(double angle, boolean inclusive) {
 
-			if (triangle == t2 ||
-					triangle.getNormal().angleTo(t2.getNormal()) <= MAX_ANGLE_RADIANS) {
+		double dot = Math.cos(angle);
+
+		while (!withinAngle(dot, angle, inclusive)) {
+			dot = Math.nextUp(dot);
+		}
+
+		while (withinAngle(Math.nextDown(dot), angle, inclusive)) {
+			dot = Math.nextDown(dot);
+		}
+
+		return dot;
+
+	}
+
+	private static boolean withinAngle(double dot, double angle, boolean inclusive) {
+		return inclusive ? Math.acos(dot) <= angle : Math.acos(dot) < angle;
+	}
+
+	/**
+	 * dot product of the normals of two triangles.
+	 * Can be slightly larger than 1 due to rounding, acos is NaN in that case.
+	 */
+	private static double faceNormalDot(double[] faceNormals, int t1, int t2) {
+		return faceNormals[3 * t1] * faceNormals[3 * t2]
+				+ faceNormals[3 * t1 + 1] * faceNormals[3 * t2 + 1]
+				+ faceNormals[3 * t1 + 2] * faceNormals[3 * t2 + 2];
+	}
+
+	private static VectorXYZ calculateNormal(int vertex, int triangle, TriangleXYZ[] triangles,
+			double[] faceNormals, int[] adjacencyStarts, int[] adjacentTriangles,
+			int[] relevantTriangles) {
+
+		/* find adjacent triangles whose normals are close enough to that of the triangle */
+
+		int relevantCount = 0;
+
+		for (int i = adjacencyStarts[vertex]; i < adjacencyStarts[vertex + 1]; i++) {
+
+			int t2 = adjacentTriangles[i];
+
+			double dot = faceNormalDot(faceNormals, triangle, t2);
+
+			if (triangles[triangle] == triangles[t2] || (dot >= MIN_DOT_SMOOTH && dot <= 1)) {
 
 				//add, unless one of the existing normals is very similar
 
 				boolean notCoplanar = true;
-				for (VectorXYZ n : relevantNormals) {
-					if (n.angleTo(t2.getNormal()) < 0.01) {
+				for (int j = 0; j < relevantCount; j++) {
+					double coplanarDot = faceNormalDot(faceNormals, relevantTriangles[j], t2);
+					if (coplanarDot >= MIN_DOT_COPLANAR && coplanarDot <= 1) {
 						notCoplanar = false;
 						break;
 					}
 				}
 
 				if (notCoplanar) {
-					relevantNormals.add(t2.getNormal());
+					relevantTriangles[relevantCount++] = t2;
 				}
 
 			}
@@ -176,33 +323,18 @@ public final class NormalCalculationUtil {
 		/* calculate sum of relevant normals,
 		 * normalize it and set the result as normal for the vertex */
 
-		VectorXYZ normal = new VectorXYZ(0, 0, 0);
-		for (VectorXYZ addNormal : relevantNormals) {
-			normal = normal.add(addNormal);
-		}
-
-		return normal.normalize();
+		double x = 0, y = 0, z = 0;
 
-	}
+		for (int j = 0; j < relevantCount; j++) {
+			x += faceNormals[3 * relevantTriangles[j]];
+			y += faceNormals[3 * relevantTriangles[j] + 1];
+			z += faceNormals[3 * relevantTriangles[j] + 2];
+		}
 
-	private static Map<VectorXYZ, List<TriangleXYZ>> calculateAdjacentTriangles(
-			Collection<TriangleXYZ> triangles) {
+		double length = Math.sqrt(x*x + y*y + z*z);
 
-		Map<VectorXYZ, List<TriangleXYZ>> result =
-			new HashMap<VectorXYZ, List<TriangleXYZ>>();
+		return new VectorXYZ(x / length, y / length, z / length);
 
-		for (TriangleXYZ triangle : triangles) {
-			for (VectorXYZ vertex : triangle.getVertices()) {
-				List<TriangleXYZ> triangleList = result.get(vertex);
-				if (triangleList == null) {
-					triangleList = new ArrayList<TriangleXYZ>();
-					result.put(vertex, triangleList);
-				}
-				triangleList.add(triangle);
-			}
-		}
-
-		return result;
 	}
 
 }
@@ -0,0 +1,368 @@
+package org.osm2world.core.math.algorithms;
+
+import static java.lang.Math.*;
+import static java.util.stream.Collectors.toList;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.osm2world.core.math.AxisAlignedBoundingBoxXZ;
+import org.osm2world.core.math.PolygonWithHolesXZ;
+import org.osm2world.core.math.SimplePolygonXZ;
+import org.osm2world.core.math.VectorXZ;
+
+/**
+ * distributes points pseudo-randomly on a polygon area while keeping a minimum distance
+ * between the points, based on Poisson disk sampling ("dart throwing").
+ * This can be used for features such as trees in a forest.
+ *
+ * The polygon's bounding box is divided into tiles which are sampled in parallel.
+ * To decide whether a point is within the area, a coarse raster of the polygon (minus any avoided
+ * polygons) is created first, so exact point-in-polygon tests are only needed near outlines.
+ * The result for a set of parameters will always be identical,
+ * regardless of the number of threads.
+ */
+public final class PoissonDiskSamplingUtil {
+
+	/** expected number of candidate points per tile */
+	private static final int POINTS_PER_TILE = 1000;
+
+	/** number of raster cells along each side of a tile */
+	private static final int RASTER_CELLS_PER_TILE = 32;
+
+	/** upper limit for the total number of raster cells */
+	private static final long MAX_RASTER_CELLS = 4_000_000;
+
+	private static final byte OUTSIDE = 0;
+	private static final byte INSIDE = 1;
+	private static final byte BORDER = 2;
+
+	/** prevents instantiation */
+	private PoissonDiskSamplingUtil() { }
+
+	/**
+	 * distributes points on a polygon area.
+	 *
+	 * @param seed              a seed for random number generation
+	 * @param polygon           polygon on which the points should be placed; != null
+	 * @param avoidedPolygons   areas within the polygon where no points should be placed; != null
+	 * @param boundary          boundary of the relevant area or null;
+	 *                          points outside of the boundary are optional.
+	 * @param density           desired number of points per unit of area
+	 * @param minimumDistance   minimum distance between resulting points; 0 to allow any distance
+	 */
+	public static List<VectorXZ> distributePoints(long seed, PolygonWithHolesXZ polygon,
+			Collection<SimplePolygonXZ> avoidedPolygons, AxisAlignedBoundingBoxXZ boundary,
+			double density, double minimumDistance) {
+
+		if (density <= 0) {
+			return new ArrayList<VectorXZ>();
+		}
+
+		AxisAlignedBoundingBoxXZ outerBox = new AxisAlignedBoundingBoxXZ(
+				polygon.getOuter().getVertices());
+
+		double tileSize = sqrt(POINTS_PER_TILE / density);
+
+		int tilesX = (int)(outerBox.sizeX() / tileSize) + 1;
+		int tilesZ = (int)(outerBox.sizeZ() / tileSize) + 1;
+
+		CoverageRaster raster = new CoverageRaster(polygon, avoidedPolygons, outerBox,
+				tileSize / RASTER_CELLS_PER_TILE);
+
+		/*
+		 * process the tiles in four phases.
+		 * Tiles within one phase are never adjacent, so they can be sampled in parallel
+		 * while checking the minimum distance to points from earlier phases.
+		 */
+
+		PointGrid acceptedPoints = new PointGrid(minimumDistance);
+
+		List<List<VectorXZ>> tileResults = new ArrayList<List<VectorXZ>>(tilesX * tilesZ);
+		for (int i = 0; i < tilesX * tilesZ; i++) {
+			tileResults.add(null);
+		}
+
+		for (int phase = 0; phase < 4; phase++) {
+
+			List<Integer> tileIndices = new ArrayList<Integer>();
+
+			for (int tileZ = phase / 2; tileZ < tilesZ; tileZ += 2) {
+				for (int tileX = phase % 2; tileX < tilesX; tileX += 2) {
+					tileIndices.add(tileZ * tilesX + tileX);
+				}
+			}
+
+			List<List<VectorXZ>> phaseResults = tileIndices.parallelStream()
+					.map(tileIndex -> sampleTile(seed, tileIndex, raster, acceptedPoints,
+							new AxisAlignedBoundingBoxXZ(
+									outerBox.minX + tileSize * (tileIndex % tilesX),
+									outerBox.minZ + tileSize * (tileIndex / tilesX),
+									outerBox.minX + tileSize * (tileIndex % tilesX + 1),
+									outerBox.minZ + tileSize * (tileIndex / tilesX + 1)),
+							boundary, density, minimumDistance))
+					.collect(toList());
+
+			for (int i = 0; i < tileIndices.size(); i++) {
+				tileResults.set(tileIndices.get(i), phaseResults.get(i));
+				for (VectorXZ v : phaseResults.get(i)) {
+					acceptedPoints.add(v);
+				}
+			}
+
+		}
+
+		List<VectorXZ> result = new ArrayList<VectorXZ>();
+
+		for (List<VectorXZ> tileResult : tileResults) {
+			result.addAll(tileResult);
+		}
+
+		return result;
+
+	}
+
+	private static List<VectorXZ> sampleTile(long seed, int tileIndex,
+			CoverageRaster raster, PointGrid acceptedPoints,
+			AxisAlignedBoundingBoxXZ tile, AxisAlignedBoundingBoxXZ boundary,
+			double density, double minimumDistance) {
+
+		List<VectorXZ> result = new ArrayList<VectorXZ>();
+
+		if (boundary != null && !boundary.overlaps(tile)) {
+			return result;
+		}
+
+		Random rand = new Random(seed * 31 + tileIndex);
+
+		PointGrid tilePoints = new PointGrid(minimumDistance);
+
+		int numCandidates = (int) round(density * tile.area());
+
+		for (int i = 0; i < numCandidates; ++i) {
+
+			double x = tile.minX + tile.sizeX() * rand.nextDouble();
+			double z = tile.minZ + tile.sizeZ() * rand.nextDouble();
+
+			VectorXZ v = new VectorXZ(x, z);
+
+			if (raster.contains(v)
+					&& !acceptedPoints.hasPointCloserThan(v, minimumDistance)
+					&& !tilePoints.hasPointCloserThan(v, minimumDistance)) {
+				result.add(v);
+				tilePoints.add(v);
+			}
+
+		}
+
+		return result;
+
+	}
+
+	/**
+	 * raster of the area covered by a polygon minus some avoided polygons.
+	 * Cells which are crossed by any outline are marked as border cells,
+	 * all other cells are either entirely inside or entirely outside.
+	 */
+	private static final class CoverageRaster {
+
+		private final PolygonWithHolesXZ polygon;
+		private final List<SimplePolygonXZ> avoidedPolygons;
+		private final List<AxisAlignedBoundingBoxXZ> avoidedBoxes;
+
+		private final AxisAlignedBoundingBoxXZ box;
+		private final double cellSize;
+		private final int cellsX, cellsZ;
+
+		private final byte[] cells;
+
+		CoverageRaster(PolygonWithHolesXZ polygon, Collection<SimplePolygonXZ> avoidedPolygons,
+				AxisAlignedBoundingBoxXZ box, double minCellSize) {
+
+			this.polygon = polygon;
+			this.box = box;
+
+			this.avoidedPolygons = new ArrayList<SimplePolygonXZ>();
+			this.avoidedBoxes = new ArrayList<AxisAlignedBoundingBoxXZ>();
+
+			for (SimplePolygonXZ avoidedPolygon : avoidedPolygons) {
+				AxisAlignedBoundingBoxXZ avoidedBox =
+						new AxisAlignedBoundingBoxXZ(avoidedPolygon.getVertices());
+				if (avoidedBox.overlaps(box)) {
+					this.avoidedPolygons.add(avoidedPolygon);
+					this.avoidedBoxes.add(avoidedBox);
+				}
+			}
+
+			cellSize = max(minCellSize, sqrt(max(box.area(), 1e-9) / MAX_RASTER_CELLS));
+
+			cellsX = (int)(box.sizeX() / cellSize) + 1;
+			cellsZ = (int)(box.sizeZ() / cellSize) + 1;
+
+			cells = new byte[cellsX * cellsZ];
+
+			/* mark the cells along all outlines as border cells */
+
+			List<SimplePolygonXZ> outlines = new ArrayList<SimplePolygonXZ>(polygon.getPolygons());
+			outlines.addAll(this.avoidedPolygons);
+
+			for (SimplePolygonXZ outline : outlines) {
+				List<VectorXZ> vs = outline.getVertexList();
+				for (int i = 0; i + 1 < vs.size(); i++) {
+					markBorder(vs.get(i), vs.get(i + 1));
+				}
+			}
+
+			/* classify runs of cells between border cells in each row with a single test */
+
+			for (int z = 0; z < cellsZ; z++) {
+
+				byte runValue = BORDER;
+
+				for (int x = 0; x < cellsX; x++) {
+
+					if (cells[z * cellsX + x] == BORDER) {
+						runValue = BORDER;
+					} else {
+						if (runValue == BORDER) {
+							VectorXZ center = new VectorXZ(
+									box.minX + (x + 0.5) * cellSize,
+									box.minZ + (z + 0.5) * cellSize);
+							runValue = containsExact(center) ? INSIDE : OUTSIDE;
+						}
+						cells[z * cellsX + x] = runValue;
+					}
+
+				}
+
+			}
+
+		}
+
+		/** marks all cells touched by a segment as border cells, using the segment's bounding box */
+		private void markBorder(VectorXZ p1, VectorXZ p2) {
+
+			int minCX = cellX(min(p1.x, p2.x)), maxCX = cellX(max(p1.x, p2.x));
+			int minCZ = cellZ(min(p1.z, p2.z)), maxCZ = cellZ(max(p1.z, p2.z));
+
+			if ((maxCX - minCX) * (maxCZ - minCZ) > 4 * (maxCX - minCX + maxCZ - minCZ)) {
+
+				/* long diagonal segment: step along it instead of marking its entire bounding box */
+
+				double length = VectorXZ.distance(p1, p2);
+				int steps = (int) ceil(2 * length / cellSize);
+
+				for (int i = 0; i <= steps; i++) {
+					double t = (double) i / steps;
+					int cx = cellX(p1.x + t * (p2.x - p1.x));
+					int cz = cellZ(p1.z + t * (p2.z - p1.z));
+					for (int x = max(0, cx - 1); x <= min(cellsX - 1, cx + 1); x++) {
+						for (int z = max(0, cz - 1); z <= min(cellsZ - 1, cz + 1); z++) {
+							cells[z * cellsX + x] = BORDER;
+						}
+					}
+				}
+
+			} else {
+
+				for (int x = minCX; x <= maxCX; x++) {
+					for (int z = minCZ; z <= maxCZ; z++) {
+						cells[z * cellsX + x] = BORDER;
+					}
+				}
+
+			}
+
+		}
+
+		private int cellX(double x) {
+			return max(0, min(cellsX - 1, (int) floor((x - box.minX) / cellSize)));
+		}
+
+		private int cellZ(double z) {
+			return max(0, min(cellsZ - 1, (int) floor((z - box.minZ) / cellSize)));
+		}
+
+		boolean contains(VectorXZ v) {
+
+			if (!box.contains(v)) return false;
+
+			switch (cells[cellZ(v.z) * cellsX + cellX(v.x)]) {
+				case INSIDE: return true;
+				case OUTSIDE: return false;
+				default: return containsExact(v);
+			}
+
+		}
+
+		private boolean containsExact(VectorXZ v) {
+
+			if (!polygon.contains(v)) return false;
+
+			for (int i = 0; i < avoidedPolygons.size(); i++) {
+				if (avoidedBoxes.get(i).contains(v) && avoidedPolygons.get(i).contains(v)) {
+					return false;
+				}
+			}
+
+			return true;
+
+		}
+
+	}
+
+	/**
+	 * hash grid of points for minimum distance queries
+	 */
+	private static final class PointGrid {
+
+		private final double cellSize;
+
+		private final Map<Long, List<VectorXZ>> cells = new HashMap<Long, List<VectorXZ>>();
+
+		PointGrid(double cellSize) {
+			this.cellSize = cellSize;
+		}
+
+		private static long key(long cellX, long cellZ) {
+			return (cellX << 32) ^ (cellZ & 0xFFFFFFFFL);
+		}
+
+		void add(VectorXZ v) {
+			if (cellSize > 0) {
+				long key = key((long) floor(v.x / cellSize), (long) floor(v.z / cellSize));
+				cells.computeIfAbsent(key, k -> new ArrayList<VectorXZ>(1)).add(v);
+			}
+		}
+
+		boolean hasPointCloserThan(VectorXZ v, double distance) {
+
+			if (cellSize <= 0 || cells.isEmpty()) return false;
+
+			long cellX = (long) floor(v.x / cellSize);
+			long cellZ = (long) floor(v.z / cellSize);
+
+			for (long x = cellX - 1; x <= cellX + 1; x++) {
+				for (long z = cellZ - 1; z <= cellZ + 1; z++) {
+					List<VectorXZ> points = cells.get(key(x, z));
+					if (points != null) {
+						for (VectorXZ p : points) {
+							if (p.distanceTo(v) < distance) {
+								return true;
+							}
+						}
+					}
+				}
+			}
+
+			return false;
+
+		}
+
+	}
+
+}
@@ -0,0 +1,332 @@
+package org.osm2world.core.math.algorithms;
+
+import static java.util.Arrays.asList;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.osm2world.core.math.LineSegmentXZ;
+import org.osm2world.core.math.SimplePolygonXZ;
+import org.osm2world.core.math.TriangleXZ;
+import org.osm2world.core.math.VectorXZ;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * bounded cache for the results of triangulation algorithms.
+ *
+ * The same polygons are often triangulated many times, e.g. once for each target
+ * or for each re-render in the viewer. Entries are keyed by the exact coordinates of the
+ * outer polygon, holes, segments and points, and by the algorithm that was used.
+ * Entries are evicted based on their weight (the number of vertices in input and result),
+ * so the memory use stays roughly proportional to {@link #getMaximumWeight()}.
+ *
+ * The cache is shared by all threads and conversion runs within a JVM.
+ * It can also be persisted with {@link #save(File)} and restored with {@link #load(File)}.
+ */
+public final class TriangulationCache {
+
+	/** the triangulation algorithms whose results are cached. Results are never shared between algorithms. */
+	public static enum Algorithm {
+		EARCUT, JTS, POLY2TRI
+	}
+
+	/** a triangulation run that is only performed if the result is not yet cached */
+	@FunctionalInterface
+	public static interface Triangulation<E extends Exception> {
+		List<TriangleXZ> triangulate() throws E;
+	}
+
+	/** default for {@link #getMaximumWeight()}, corresponds to a few hundred MB at most */
+	public static final long DEFAULT_MAXIMUM_WEIGHT = 4_000_000;
+
+	private static final int MAGIC_NUMBER = 0x4F325754; // "O2WT"
+	private static final int FORMAT_VERSION = 1;
+
+	private static volatile long maximumWeight = DEFAULT_MAXIMUM_WEIGHT;
+
+	private static volatile Cache<Key, TriangleXZ[]> cache = createCache(maximumWeight);
+
+	/** prevents instantiation */
+	private TriangulationCache() { }
+
+	private static Cache<Key, TriangleXZ[]> createCache(long maximumWeight) {
+		return CacheBuilder.newBuilder()
+				.maximumWeight(maximumWeight)
+				.weigher((Key key, TriangleXZ[] value) -> key.weight() + 3 * value.length)
+				.build();
+	}
+
+	/**
+	 * returns the maximum total weight of all cache entries.
+	 * The weight of an entry is the number of input vertices plus the number of result vertices.
+	 */
+	public static synchronized long getMaximumWeight() {
+		return maximumWeight;
+	}
+
+	/**
+	 * changes the maximum weight. The cache is cleared if the weight differs from the current one.
+	 * A weight of 0 disables caching.
+	 */
+	public static synchronized void setMaximumWeight(long maximumWeight) {
+		if (maximumWeight != TriangulationCache.maximumWeight) {
+			TriangulationCache.maximumWeight = maximumWeight;
+			cache = createCache(maximumWeight);
+		}
+	}
+
+	/** removes all entries from the cache */
+	public static void clear() {
+		cache.invalidateAll();
+	}
+
+	/** returns the number of cached triangulations */
+	public static long size() {
+		return cache.size();
+	}
+
+	/**
+	 * returns the cached result of the triangulation for a set of inputs,
+	 * or performs the triangulation and caches the result.
+	 * If the triangulation throws an exception, nothing is cached.
+	 *
+	 * @return  a new, modifiable list each time
+	 */
+	public static <E extends Exception> List<TriangleXZ> triangulate(Algorithm algorithm,
+			SimplePolygonXZ outerPolygon, Collection<SimplePolygonXZ> holes,
+			Collection<LineSegmentXZ> segments, Collection<VectorXZ> points,
+			Triangulation<E> triangulation) throws E {
+
+		if (maximumWeight == 0) {
+			return triangulation.triangulate();
+		}
+
+		Key key = new Key(algorithm, outerPolygon, holes, segments, points);
+
+		TriangleXZ[] result = cache.getIfPresent(key);
+
+		if (result == null) {
+			result = triangulation.triangulate().toArray(new TriangleXZ[0]);
+			cache.put(key, result);
+		}
+
+		return new ArrayList<>(asList(result));
+
+	}
+
+	/**
+	 * writes all cached triangulations to a file.
+	 * The file is first written to a temporary location and then moved.
+	 */
+	public static void save(File file) throws IOException {
+
+		File tempFile = File.createTempFile("triangulations", ".tmp",
+				file.getAbsoluteFile().getParentFile());
+
+		try {
+
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(tempFile), 1 << 16))) {
+
+				out.writeInt(MAGIC_NUMBER);
+				out.writeInt(FORMAT_VERSION);
+
+				for (Map.Entry<Key, TriangleXZ[]> entry : cache.asMap().entrySet()) {
+
+					Key key = entry.getKey();
+
+					out.writeBoolean(true);
+					out.writeByte(key.algorithm.ordinal());
+
+					out.writeInt(key.sizes.length);
+					for (int size : key.sizes) {
+						out.writeInt(size);
+					}
+
+					out.writeInt(key.coords.length);
+					for (double coord : key.coords) {
+						out.writeDouble(coord);
+					}
+
+					out.writeInt(entry.getValue().length);
+					for (TriangleXZ t : entry.getValue()) {
+						for (VectorXZ v : asList(t.v1, t.v2, t.v3)) {
+							out.writeDouble(v.x);
+							out.writeDouble(v.z);
+						}
+					}
+
+				}
+
+				out.writeBoolean(false);
+
+			}
+
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+		} finally {
+			tempFile.delete();
+		}
+
+	}
+
+	/**
+	 * adds the triangulations from a file created with {@link #save(File)} to the cache.
+	 * Files with an incompatible format version are ignored.
+	 */
+	public static void load(File file) throws IOException {
+
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+
+			if (in.readInt() != MAGIC_NUMBER || in.readInt() != FORMAT_VERSION) {
+				return;
+			}
+
+			while (in.readBoolean()) {
+
+				Algorithm algorithm = Algorithm.values()[in.readByte()];
+
+				int[] sizes = new int[in.readInt()];
+				for (int i = 0; i < sizes.length; i++) {
+					sizes[i] = in.readInt();
+				}
+
+				double[] coords = new double[in.readInt()];
+				for (int i = 0; i < coords.length; i++) {
+					coords[i] = in.readDouble();
+				}
+
+				TriangleXZ[] triangles = new TriangleXZ[in.readInt()];
+				for (int i = 0; i < triangles.length; i++) {
+					triangles[i] = new TriangleXZ(
+							new VectorXZ(in.readDouble(), in.readDouble()),
+							new VectorXZ(in.readDouble(), in.readDouble()),
+							new VectorXZ(in.readDouble(), in.readDouble()));
+				}
+
+				cache.put(new Key(algorithm, sizes, coords), triangles);
+
+			}
+
+		} catch (EOFException | ArrayIndexOutOfBoundsException e) {
+			throw new IOException("corrupt triangulation cache file: " + file, e);
+		}
+
+	}
+
+	/**
+	 * the inputs of a triangulation, stored as flat coordinate arrays.
+	 * Equality is based on the exact coordinate values.
+	 */
+	private static final class Key {
+
+		final Algorithm algorithm;
+
+		/**
+		 * number of vertices in the outer polygon, the number of holes,
+		 * the number of vertices of each hole, the number of segments and the number of points
+		 */
+		final int[] sizes;
+
+		/** x and z coordinates of all vertices, in the order described for {@link #sizes} */
+		final double[] coords;
+
+		private final int hashCode;
+
+		Key(Algorithm algorithm, SimplePolygonXZ outerPolygon, Collection<SimplePolygonXZ> holes,
+				Collection<LineSegmentXZ> segments, Collection<VectorXZ> points) {
+
+			this.algorithm = algorithm;
+
+			sizes = new int[holes.size() + 4];
+
+			int numVertices = outerPolygon.size() + 2 * segments.size() + points.size();
+			for (SimplePolygonXZ hole : holes) {
+				numVertices += hole.size();
+			}
+
+			coords = new double[2 * numVertices];
+
+			int sizeIndex = 0;
+			int coordIndex = 0;
+
+			sizes[sizeIndex++] = outerPolygon.size();
+			coordIndex = addCoords(coordIndex, outerPolygon.getVertices());
+
+			sizes[sizeIndex++] = holes.size();
+			for (SimplePolygonXZ hole : holes) {
+				sizes[sizeIndex++] = hole.size();
+				coordIndex = addCoords(coordIndex, hole.getVertices());
+			}
+
+			sizes[sizeIndex++] = segments.size();
+			for (LineSegmentXZ segment : segments) {
+				coordIndex = addCoords(coordIndex, segment.getVertexList());
+			}
+
+			sizes[sizeIndex++] = points.size();
+			coordIndex = addCoords(coordIndex, points);
+
+			hashCode = calculateHashCode();
+
+		}
+
+		Key(Algorithm algorithm, int[] sizes, double[] coords) {
+			this.algorithm = algorithm;
+			this.sizes = sizes;
+			this.coords = coords;
+			this.hashCode = calculateHashCode();
+		}
+
+		private int addCoords(int coordIndex, Collection<VectorXZ> vs) {
+			for (VectorXZ v : vs) {
+				coords[coordIndex++] = v.x;
+				coords[coordIndex++] = v.z;
+			}
+			return coordIndex;
+		}
+
+		private int calculateHashCode() {
+			return 31 * (31 * algorithm.hashCode() + Arrays.hashCode(sizes)) + Arrays.hashCode(coords);
+		}
+
+		int weight() {
+			return coords.length / 2;
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) return true;
+			if (!(obj instanceof Key)) return false;
+			Key other = (Key) obj;
+			return hashCode == other.hashCode
+					&& algorithm == other.algorithm
+					&& Arrays.equals(sizes, other.sizes)
+					&& Arrays.equals(coords, other.coords);
+		}
+
+	}
+
+}
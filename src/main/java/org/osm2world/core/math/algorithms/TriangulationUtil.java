@@ -1,5 +1,7 @@
 package org.osm2world.core.math.algorithms;
 
+import static java.util.Collections.emptyList;
+
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -10,10 +12,12 @@ import org.osm2world.core.math.PolygonWithHolesXZ;
 import org.osm2world.core.math.SimplePolygonXZ;
 import org.osm2world.core.math.TriangleXZ;
 import org.osm2world.core.math.VectorXZ;
+import org.osm2world.core.math.algorithms.TriangulationCache.Algorithm;
 
 /**
  * triangulation utility class that picks a suitable implementation, such as
- * {@link Earcut4JTriangulationUtil} or {@link JTSTriangulationUtil}
+ * {@link Earcut4JTriangulationUtil} or {@link JTSTriangulationUtil}.
+ * Results are cached in the {@link TriangulationCache}.
  */
 public class TriangulationUtil {
 
@@ -55,7 +59,8 @@ public class TriangulationUtil {
 			SimplePolygonXZ outerPolygon,
 			Collection<SimplePolygonXZ> holes) {
 
-		return Earcut4JTriangulationUtil.triangulate(outerPolygon, holes);
+		return TriangulationCache.triangulate(Algorithm.EARCUT, outerPolygon, holes, emptyList(), emptyList(),
+				() -> Earcut4JTriangulationUtil.triangulate(outerPolygon, holes));
 
 	}
 
@@ -0,0 +1,269 @@
+package org.osm2world.core.math.datastructures;
+
+/**
+ * a static two-dimensional k-d tree for nearest neighbor queries on points in the XZ plane.
+ *
+ * The tree is built once from arrays of coordinates and cannot be modified afterwards.
+ * It is stored implicitly in primitive arrays: The median of each range of points is the node
+ * splitting that range, so queries do not need to create any objects.
+ * Small ranges are not split any further and are searched linearly instead.
+ *
+ * Points are identified by their index in the coordinate arrays passed to the constructor.
+ * Queries are thread-safe.
+ */
+public class KDTreeXZ {
+
+	/** ranges with at most this many points are leaves */
+	private static final int LEAF_SIZE = 8;
+
+	/** coordinates of the points, in tree order */
+	private final double[] xs, zs;
+
+	/** original index of each point, in tree order */
+	private final int[] ids;
+
+	/** whether the node at a position splits its range along the x axis (otherwise along the z axis) */
+	private final boolean[] splitX;
+
+	/**
+	 * builds a tree containing the points (x[i], z[i])
+	 *
+	 * @param x  x coordinates of the points
+	 * @param z  z coordinates of the points, same length as x
+	 */
+	public KDTreeXZ(double[] x, double[] z) {
+
+		if (x.length != z.length) {
+			throw new IllegalArgumentException("coordinate arrays of different length");
+		}
+
+		xs = x.clone();
+		zs = z.clone();
+		ids = new int[x.length];
+		splitX = new boolean[x.length];
+
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = i;
+		}
+
+		build(0, ids.length);
+
+	}
+
+	public int size() {
+		return ids.length;
+	}
+
+	/**
+	 * finds the k points nearest to a position.
+	 * The results are written to the arrays provided by the caller, ordered by ascending distance.
+	 *
+	 * @param resultIds          receives the indices of the nearest points, needs a length of at least k
+	 * @param resultDistancesSq  receives the squared distances of the nearest points, needs a length of at least k
+	 * @return  the number of points found. Less than k only if the tree contains less than k points.
+	 */
+	public int findNearest(double x, double z, int k, int[] resultIds, double[] resultDistancesSq) {
+
+		if (resultIds.length < k || resultDistancesSq.length < k) {
+			throw new IllegalArgumentException("result arrays are too short for " + k + " points");
+		}
+
+		if (k <= 0) return 0;
+
+		int count = search(0, ids.length, x, z, k, resultIds, resultDistancesSq, 0);
+
+		/* the results are a max heap, sort them by ascending distance */
+
+		for (int end = count - 1; end > 0; end--) {
+			swap(resultIds, resultDistancesSq, 0, end);
+			siftDown(resultIds, resultDistancesSq, 0, end);
+		}
+
+		return count;
+
+	}
+
+	/**
+	 * searches the subtree for the range [lo, hi) and adds points to the max heap of results
+	 *
+	 * @param count  the current number of results
+	 * @return  the new number of results
+	 */
+	private int search(int lo, int hi, double x, double z, int k,
+			int[] heapIds, double[] heapDistancesSq, int count) {
+
+		if (hi - lo <= LEAF_SIZE) {
+			for (int i = lo; i < hi; i++) {
+				count = offer(i, x, z, k, heapIds, heapDistancesSq, count);
+			}
+			return count;
+		}
+
+		int mid = (lo + hi) >>> 1;
+
+		count = offer(mid, x, z, k, heapIds, heapDistancesSq, count);
+
+		double diff = splitX[mid] ? x - xs[mid] : z - zs[mid];
+
+		/* search the side containing the position first, then the other side if it can contain closer points */
+
+		if (diff < 0) {
+			count = search(lo, mid, x, z, k, heapIds, heapDistancesSq, count);
+			if (count < k || diff * diff < heapDistancesSq[0]) {
+				count = search(mid + 1, hi, x, z, k, heapIds, heapDistancesSq, count);
+			}
+		} else {
+			count = search(mid + 1, hi, x, z, k, heapIds, heapDistancesSq, count);
+			if (count < k || diff * diff < heapDistancesSq[0]) {
+				count = search(lo, mid, x, z, k, heapIds, heapDistancesSq, count);
+			}
+		}
+
+		return count;
+
+	}
+
+	/**
+	 * adds the point at a position in tree order to the max heap of results if it is among the k nearest so far
+	 *
+	 * @return  the new number of results
+	 */
+	private int offer(int i, double x, double z, int k,
+			int[] heapIds, double[] heapDistancesSq, int count) {
+
+		double dx = xs[i] - x;
+		double dz = zs[i] - z;
+		double distanceSq = dx * dx + dz * dz;
+
+		if (count < k) {
+			heapIds[count] = ids[i];
+			heapDistancesSq[count] = distanceSq;
+			siftUp(heapIds, heapDistancesSq, count);
+			count ++;
+		} else if (distanceSq < heapDistancesSq[0]) {
+			heapIds[0] = ids[i];
+			heapDistancesSq[0] = distanceSq;
+			siftDown(heapIds, heapDistancesSq, 0, count);
+		}
+
+		return count;
+
+	}
+
+	/**
+	 * arranges the points in the range [lo, hi) so that the median splits them along the range's wider extent
+	 */
+	private void build(int lo, int hi) {
+
+		if (hi - lo <= LEAF_SIZE) return;
+
+		double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+		double minZ = Double.POSITIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+
+		for (int i = lo; i < hi; i++) {
+			minX = Math.min(minX, xs[i]);
+			maxX = Math.max(maxX, xs[i]);
+			minZ = Math.min(minZ, zs[i]);
+			maxZ = Math.max(maxZ, zs[i]);
+		}
+
+		boolean alongX = maxX - minX >= maxZ - minZ;
+		double[] coords = alongX ? xs : zs;
+
+		int mid = (lo + hi) >>> 1;
+
+		select(coords, lo, hi, mid);
+
+		splitX[mid] = alongX;
+
+		build(lo, mid);
+		build(mid + 1, hi);
+
+	}
+
+	/**
+	 * partially sorts the range [lo, hi) so that the point at position n has the nth smallest coordinate,
+	 * all points before it have smaller or equal coordinates and all points after it have larger or equal ones
+	 */
+	private void select(double[] coords, int lo, int hi, int n) {
+
+		while (hi - lo > 1) {
+
+			double pivot = coords[(lo + hi) >>> 1];
+
+			int i = lo;
+			int j = hi - 1;
+
+			while (i <= j) {
+				while (coords[i] < pivot) i++;
+				while (coords[j] > pivot) j--;
+				if (i <= j) {
+					swapPoints(i, j);
+					i++;
+					j--;
+				}
+			}
+
+			if (n <= j) {
+				hi = j + 1;
+			} else if (n >= i) {
+				lo = i;
+			} else {
+				return;
+			}
+
+		}
+
+	}
+
+	private void swapPoints(int i, int j) {
+
+		double tempX = xs[i];
+		xs[i] = xs[j];
+		xs[j] = tempX;
+
+		double tempZ = zs[i];
+		zs[i] = zs[j];
+		zs[j] = tempZ;
+
+		int tempId = ids[i];
+		ids[i] = ids[j];
+		ids[j] = tempId;
+
+	}
+
+	private static void siftUp(int[] heapIds, double[] heapDistancesSq, int i) {
+		while (i > 0) {
+			int parent = (i - 1) / 2;
+			if (heapDistancesSq[parent] >= heapDistancesSq[i]) break;
+			swap(heapIds, heapDistancesSq, parent, i);
+			i = parent;
+		}
+	}
+
+	private static void siftDown(int[] heapIds, double[] heapDistancesSq, int i, int size) {
+		while (true) {
+			int largest = i;
+			int left = 2 * i + 1;
+			int right = left + 1;
+			if (left < size && heapDistancesSq[left] > heapDistancesSq[largest]) largest = left;
+			if (right < size && heapDistancesSq[right] > heapDistancesSq[largest]) largest = right;
+			if (largest == i) break;
+			swap(heapIds, heapDistancesSq, i, largest);
+			i = largest;
+		}
+	}
+
+	private static void swap(int[] heapIds, double[] heapDistancesSq, int i, int j) {
+
+		int tempId = heapIds[i];
+		heapIds[i] = heapIds[j];
+		heapIds[j] = tempId;
+
+		double tempDistanceSq = heapDistancesSq[i];
+		heapDistancesSq[i] = heapDistancesSq[j];
+		heapDistancesSq[j] = tempDistanceSq;
+
+	}
+
+}
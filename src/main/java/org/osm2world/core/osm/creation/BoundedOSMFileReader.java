@@ -0,0 +1,262 @@
+package org.osm2world.core.osm.creation;
+
+import static de.topobyte.osm4j.core.model.util.OsmModelUtil.getTagsAsMap;
+import static java.util.Collections.singletonList;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+import org.osm2world.core.map_data.creation.LatLonBounds;
+import org.osm2world.core.osm.data.OSMData;
+
+import de.topobyte.osm4j.core.access.OsmIterator;
+import de.topobyte.osm4j.core.model.iface.EntityContainer;
+import de.topobyte.osm4j.core.model.iface.EntityType;
+import de.topobyte.osm4j.core.model.iface.OsmBounds;
+import de.topobyte.osm4j.core.model.iface.OsmNode;
+import de.topobyte.osm4j.core.model.iface.OsmRelation;
+import de.topobyte.osm4j.core.model.iface.OsmRelationMember;
+import de.topobyte.osm4j.core.model.iface.OsmWay;
+import de.topobyte.osm4j.core.model.impl.Bounds;
+import de.topobyte.osm4j.pbf.seq.PbfIterator;
+import de.topobyte.osm4j.xml.dynsax.OsmXmlIterator;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
+
+/**
+ * DataSource providing the part of a .osm or .osm.pbf file within a bounding box.
+ * Unlike the other readers, this never holds the entire file in memory.
+ * Instead, the file is streamed several times to find the entities within the bounding box.
+ *
+ * The result contains all nodes within the bounding box, all ways with at least one of
+ * these nodes, and all relations with at least one of these nodes or ways as members.
+ * Ways are complete, i.e. their nodes outside the bounding box are included as well.
+ * For multipolygon relations, all member ways are included, so their areas can be built.
+ *
+ * The file has to be sorted by entity type (nodes, then ways, then relations),
+ * which is the case for files from all common sources.
+ * Gzip-compressed .osm.gz files are supported as well.
+ */
+public class BoundedOSMFileReader implements OSMDataReader {
+
+	private final File file;
+	private final LatLonBounds bounds;
+
+	public BoundedOSMFileReader(File file, LatLonBounds bounds) throws FileNotFoundException {
+		this.file = file;
+		this.bounds = bounds;
+		if (!file.exists()) {
+			throw new FileNotFoundException(file.toString());
+		}
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	@Override
+	public OSMData getData() throws IOException {
+
+		/* first pass: find the nodes within the bounds and the ways and relations using them */
+
+		TLongSet nodeIds = new TLongHashSet();
+		TLongSet wayIds = new TLongHashSet();
+		TLongSet relationIds = new TLongHashSet();
+
+		TLongSet missingWayIds = new TLongHashSet();
+
+		iterate(file, container -> {
+
+			switch (container.getType()) {
+
+			case Node:
+				OsmNode node = (OsmNode) container.getEntity();
+				if (contains(bounds, node)) {
+					nodeIds.add(node.getId());
+				}
+				break;
+
+			case Way:
+				OsmWay way = (OsmWay) container.getEntity();
+				for (int i = 0; i < way.getNumberOfNodes(); i++) {
+					if (nodeIds.contains(way.getNodeId(i))) {
+						wayIds.add(way.getId());
+						break;
+					}
+				}
+				break;
+
+			case Relation:
+				OsmRelation relation = (OsmRelation) container.getEntity();
+				if (hasIncludedMember(relation, nodeIds, wayIds)) {
+					relationIds.add(relation.getId());
+					if ("multipolygon".equals(getTagsAsMap(relation).get("type"))) {
+						for (int i = 0; i < relation.getNumberOfMembers(); i++) {
+							OsmRelationMember member = relation.getMember(i);
+							if (member.getType() == EntityType.Way && !wayIds.contains(member.getId())) {
+								missingWayIds.add(member.getId());
+							}
+						}
+					}
+				}
+				break;
+
+			}
+
+		});
+
+		wayIds.addAll(missingWayIds);
+
+		/* second pass: find the nodes of the included ways */
+
+		TLongSet wayNodeIds = new TLongHashSet();
+
+		iterate(file, container -> {
+			if (container.getType() == EntityType.Way) {
+				OsmWay way = (OsmWay) container.getEntity();
+				if (wayIds.contains(way.getId())) {
+					for (int i = 0; i < way.getNumberOfNodes(); i++) {
+						wayNodeIds.add(way.getNodeId(i));
+					}
+				}
+			}
+		});
+
+		nodeIds.addAll(wayNodeIds);
+
+		/* third pass: collect the entities */
+
+		List<OsmNode> nodes = new ArrayList<OsmNode>(nodeIds.size());
+		List<OsmWay> ways = new ArrayList<OsmWay>(wayIds.size());
+		List<OsmRelation> relations = new ArrayList<OsmRelation>(relationIds.size());
+
+		iterate(file, container -> {
+
+			long id = container.getEntity().getId();
+
+			switch (container.getType()) {
+			case Node:
+				if (nodeIds.contains(id)) nodes.add((OsmNode) container.getEntity());
+				break;
+			case Way:
+				if (wayIds.contains(id)) ways.add((OsmWay) container.getEntity());
+				break;
+			case Relation:
+				if (relationIds.contains(id)) relations.add((OsmRelation) container.getEntity());
+				break;
+			}
+
+		});
+
+		OsmBounds osmBounds = new Bounds(bounds.minlon, bounds.maxlon, bounds.maxlat, bounds.minlat);
+
+		return new OSMData(singletonList(osmBounds), nodes, ways, relations);
+
+	}
+
+	/**
+	 * returns the bounds of a file. Uses the bounds stored in the file if available,
+	 * otherwise streams the file to find the extent of its nodes.
+	 *
+	 * @return  the file's bounds, null if it contains neither bounds nor nodes
+	 */
+	public static LatLonBounds readBounds(File file) throws IOException {
+
+		try (InputStream is = openStream(file)) {
+			OsmIterator iterator = createIterator(file, is);
+			if (iterator.hasBounds()) {
+				OsmBounds b = iterator.getBounds();
+				return new LatLonBounds(b.getBottom(), b.getLeft(), b.getTop(), b.getRight());
+			}
+		}
+
+		double[] extent = {
+				Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+				Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+
+		iterate(file, container -> {
+			if (container.getType() == EntityType.Node) {
+				OsmNode node = (OsmNode) container.getEntity();
+				extent[0] = Math.min(extent[0], node.getLatitude());
+				extent[1] = Math.min(extent[1], node.getLongitude());
+				extent[2] = Math.max(extent[2], node.getLatitude());
+				extent[3] = Math.max(extent[3], node.getLongitude());
+			}
+		});
+
+		if (extent[0] > extent[2]) {
+			return null;
+		} else {
+			return new LatLonBounds(extent[0], extent[1], extent[2], extent[3]);
+		}
+
+	}
+
+	/**
+	 * streams the nodes of a file without keeping them in memory,
+	 * e.g. to estimate the amount of data within a region before reading it
+	 */
+	public static void forEachNode(File file, Consumer<OsmNode> action) throws IOException {
+		iterate(file, container -> {
+			if (container.getType() == EntityType.Node) {
+				action.accept((OsmNode) container.getEntity());
+			}
+		});
+	}
+
+	private static boolean contains(LatLonBounds bounds, OsmNode node) {
+		return node.getLatitude() >= bounds.minlat && node.getLatitude() <= bounds.maxlat
+				&& node.getLongitude() >= bounds.minlon && node.getLongitude() <= bounds.maxlon;
+	}
+
+	private static boolean hasIncludedMember(OsmRelation relation, TLongSet nodeIds, TLongSet wayIds) {
+
+		for (int i = 0; i < relation.getNumberOfMembers(); i++) {
+
+			OsmRelationMember member = relation.getMember(i);
+
+			if ((member.getType() == EntityType.Node && nodeIds.contains(member.getId()))
+					|| (member.getType() == EntityType.Way && wayIds.contains(member.getId()))) {
+				return true;
+			}
+
+		}
+
+		return false;
+
+	}
+
+	/** streams all entities of a file */
+	private static void iterate(File file, Consumer<EntityContainer> action) throws IOException {
+		try (InputStream is = openStream(file)) {
+			OsmIterator iterator = createIterator(file, is);
+			while (iterator.hasNext()) {
+				action.accept(iterator.next());
+			}
+		}
+	}
+
+	private static InputStream openStream(File file) throws IOException {
+		if (file.getName().endsWith(".gz")) {
+			return new GZIPInputStream(new FileInputStream(file));
+		} else {
+			return new FileInputStream(file);
+		}
+	}
+
+	private static OsmIterator createIterator(File file, InputStream is) throws IOException {
+		if (file.getName().endsWith(".pbf")) {
+			return new PbfIterator(is, false);
+		} else {
+			return new OsmXmlIterator(is, false);
+		}
+	}
+
+}
@@ -2,131 +2,236 @@ package org.osm2world.core.osm.creation;
 
 import static java.lang.Double.parseDouble;
 import static java.lang.Math.*;
+import static java.util.Collections.*;
 
+import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileOutputStream;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.osm2world.core.osm.data.OSMData;
+
+import com.slimjars.dist.gnu.trove.list.array.TLongArrayList;
+
+import de.topobyte.osm4j.core.model.iface.EntityType;
+import de.topobyte.osm4j.core.model.iface.OsmBounds;
+import de.topobyte.osm4j.core.model.iface.OsmNode;
+import de.topobyte.osm4j.core.model.iface.OsmRelation;
+import de.topobyte.osm4j.core.model.iface.OsmRelationMember;
+import de.topobyte.osm4j.core.model.iface.OsmTag;
+import de.topobyte.osm4j.core.model.iface.OsmWay;
+import de.topobyte.osm4j.core.model.impl.Bounds;
+import de.topobyte.osm4j.core.model.impl.Node;
+import de.topobyte.osm4j.core.model.impl.Relation;
+import de.topobyte.osm4j.core.model.impl.RelationMember;
+import de.topobyte.osm4j.core.model.impl.Tag;
+import de.topobyte.osm4j.core.model.impl.Way;
 
 /**
  * variant of {@link StrictOSMFileReader} with the necessary robustness to
  * ignore small standard incompabilities in .osm files written by JOSM.
+ *
+ * The file is read in a single streaming pass. Elements marked with action='delete'
+ * are skipped, missing versions and other metadata are ignored,
+ * and multiple bounds elements are merged.
  */
-public class JOSMFileReader extends StrictOSMFileReader {
+public class JOSMFileReader implements OSMDataReader {
 
-	public JOSMFileReader(File file) throws IOException,
-			ParserConfigurationException, SAXException,
-			TransformerException {
-		super(createTempOSMFile(file));
+	private final File file;
+
+	public JOSMFileReader(File file) throws FileNotFoundException {
+		this.file = file;
+		if (!file.exists()) {
+			throw new FileNotFoundException(file.toString());
+		}
 	}
 
-	/**
-	 * creates a temporary file in the .osm format. This removes some
-	 * JOSM-specific attributes present in the original file,
-	 * sets fake versions for unversioned elements,
-	 * and merges multiple bound elements.
-	 *
-	 * The generated file should <em>not</em> be used for anything except
-	 * feeding it to OSM2World.
-	 */
-	private static final File createTempOSMFile(File josmFile) throws
-			IOException, ParserConfigurationException, SAXException,
-			TransformerException {
-
-		/* parse original file */
-
-		DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-		DocumentBuilder db = dbf.newDocumentBuilder();
-		Document doc = db.parse(josmFile);
-
-		/* modify DOM */
-
-		NodeList nodes = doc.getDocumentElement().getChildNodes();
-		List<Node> nodesToDelete = new ArrayList<Node>();
-		List<Element> boundsElements = new ArrayList<Element>();
-
-		for (int i = 0; i < nodes.getLength(); i++) {
-			if (nodes.item(i) instanceof Element) {
-				Element element = (Element) nodes.item(i);
-				if ("node".equals(element.getNodeName())
-						|| "way".equals(element.getNodeName())
-						|| "relation".equals(element.getNodeName())) {
-					if ("delete".equals(element.getAttribute("action"))) {
-						nodesToDelete.add(element);
-					} else if (!element.hasAttribute("version")) {
-						element.setAttribute("version", "424242");
-					}
-				} else if ("bounds".equals(element.getNodeName())) {
-					boundsElements.add(element);
-				}
+	public File getFile() {
+		return file;
+	}
+
+	@Override
+	public OSMData getData() throws IOException {
+
+		try (InputStream is = new BufferedInputStream(new FileInputStream(file))) {
+
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+			factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+			XMLStreamReader reader = factory.createXMLStreamReader(is);
+
+			try {
+				return read(reader);
+			} finally {
+				reader.close();
 			}
+
+		} catch (XMLStreamException | IllegalArgumentException e) {
+			throw new IOException("could not read OSM file " + file, e);
 		}
 
-		if (boundsElements.size() > 1) {
+	}
 
-			double minLat = Double.POSITIVE_INFINITY;
-			double minLon = Double.POSITIVE_INFINITY;
-			double maxLat = Double.NEGATIVE_INFINITY;
-			double maxLon = Double.NEGATIVE_INFINITY;
+	private static OSMData read(XMLStreamReader reader) throws XMLStreamException {
 
-			for (Element bounds : boundsElements) {
-				minLat = min(minLat, parseDouble(bounds.getAttribute("minlat")));
-				minLon = min(minLon, parseDouble(bounds.getAttribute("minlon")));
-				maxLat = max(maxLat, parseDouble(bounds.getAttribute("maxlat")));
-				maxLon = max(maxLon, parseDouble(bounds.getAttribute("maxlon")));
-			}
+		List<OsmBounds> bounds = new ArrayList<OsmBounds>();
+		List<OsmNode> nodes = new ArrayList<OsmNode>();
+		List<OsmWay> ways = new ArrayList<OsmWay>();
+		List<OsmRelation> relations = new ArrayList<OsmRelation>();
 
-			Element firstBounds = boundsElements.remove(0);
-			firstBounds.setAttribute("minlat", Double.toString(minLat));
-			firstBounds.setAttribute("minlon", Double.toString(minLon));
-			firstBounds.setAttribute("maxlat", Double.toString(maxLat));
-			firstBounds.setAttribute("maxlon", Double.toString(maxLon));
+		/* state of the current element */
 
-			nodesToDelete.addAll(boundsElements);
+		String elementType = null;
+		long id = 0;
+		double lat = 0, lon = 0;
+		boolean deleted = false;
+		List<OsmTag> tags = null;
+		TLongArrayList nodeIds = null;
+		List<OsmRelationMember> members = null;
 
-			System.out.println("WARNING: input file contains multiple <bounds>." +
-					" This can lead to wrong coastlines and other issues."); //TODO proper logging
+		while (reader.hasNext()) {
 
-		}
+			int event = reader.next();
+
+			if (event == XMLStreamConstants.START_ELEMENT) {
+
+				String name = reader.getLocalName();
+
+				switch (name) {
+
+				case "node":
+				case "way":
+				case "relation":
+					elementType = name;
+					id = Long.parseLong(reader.getAttributeValue(null, "id"));
+					deleted = "delete".equals(reader.getAttributeValue(null, "action"));
+					tags = new ArrayList<OsmTag>();
+					if ("node".equals(name)) {
+						lat = parseDouble(reader.getAttributeValue(null, "lat"));
+						lon = parseDouble(reader.getAttributeValue(null, "lon"));
+					} else if ("way".equals(name)) {
+						nodeIds = new TLongArrayList();
+					} else {
+						members = new ArrayList<OsmRelationMember>();
+					}
+					break;
+
+				case "tag":
+					if (tags != null) {
+						tags.add(new Tag(reader.getAttributeValue(null, "k"),
+								reader.getAttributeValue(null, "v")));
+					}
+					break;
+
+				case "nd":
+					if (nodeIds != null) {
+						nodeIds.add(Long.parseLong(reader.getAttributeValue(null, "ref")));
+					}
+					break;
+
+				case "member":
+					if (members != null) {
+						members.add(new RelationMember(
+								Long.parseLong(reader.getAttributeValue(null, "ref")),
+								parseEntityType(reader.getAttributeValue(null, "type")),
+								reader.getAttributeValue(null, "role")));
+					}
+					break;
+
+				case "bounds":
+					bounds.add(new Bounds(
+							parseDouble(reader.getAttributeValue(null, "minlon")),
+							parseDouble(reader.getAttributeValue(null, "maxlon")),
+							parseDouble(reader.getAttributeValue(null, "maxlat")),
+							parseDouble(reader.getAttributeValue(null, "minlat"))));
+					break;
+
+				case "bound":
+					// osmosis-style bounds: box="minlat,minlon,maxlat,maxlon"
+					String[] box = reader.getAttributeValue(null, "box").split(",");
+					bounds.add(new Bounds(parseDouble(box[1]), parseDouble(box[3]),
+							parseDouble(box[2]), parseDouble(box[0])));
+					break;
+
+				}
+
+			} else if (event == XMLStreamConstants.END_ELEMENT
+					&& reader.getLocalName().equals(elementType)) {
+
+				if (!deleted) {
+					switch (elementType) {
+					case "node":
+						Node node = new Node(id, lon, lat);
+						node.setTags(tags);
+						nodes.add(node);
+						break;
+					case "way":
+						ways.add(new Way(id, nodeIds, tags));
+						break;
+					case "relation":
+						relations.add(new Relation(id, members, tags));
+						break;
+					}
+				}
+
+				elementType = null;
+				tags = null;
+				nodeIds = null;
+				members = null;
+
+			}
 
-		for (Node node : nodesToDelete) {
-			doc.getDocumentElement().removeChild(node);
 		}
 
-		/* write result */
+		return new OSMData(mergeBounds(bounds), nodes, ways, relations);
 
-		File tempFile = File.createTempFile("workaround", ".osm", null);
-		tempFile.deleteOnExit();
+	}
 
-		try (FileOutputStream outputStream = new FileOutputStream(tempFile)) {
+	private static EntityType parseEntityType(String type) {
+		switch (type) {
+		case "node": return EntityType.Node;
+		case "way": return EntityType.Way;
+		case "relation": return EntityType.Relation;
+		default: throw new IllegalArgumentException("unknown member type: " + type);
+		}
+	}
 
-			TransformerFactory tFactory = TransformerFactory.newInstance();
-			Transformer transformer = tFactory.newTransformer();
+	/**
+	 * merges multiple bounds into a single one
+	 */
+	private static List<OsmBounds> mergeBounds(List<OsmBounds> bounds) {
 
-			StreamResult result = new StreamResult(outputStream);
-			DOMSource source = new DOMSource(doc);
-			transformer.transform(source, result);
+		if (bounds.size() <= 1) {
+			return bounds;
+		}
 
-			return tempFile;
+		double left = Double.POSITIVE_INFINITY;
+		double right = Double.NEGATIVE_INFINITY;
+		double top = Double.NEGATIVE_INFINITY;
+		double bottom = Double.POSITIVE_INFINITY;
 
+		for (OsmBounds b : bounds) {
+			left = min(left, b.getLeft());
+			right = max(right, b.getRight());
+			top = max(top, b.getTop());
+			bottom = min(bottom, b.getBottom());
 		}
 
+		System.out.println("WARNING: input file contains multiple <bounds>." +
+				" This can lead to wrong coastlines and other issues."); //TODO proper logging
+
+		return singletonList(new Bounds(left, right, top, bottom));
+
 	}
 
-}
\ No newline at end of file
+}
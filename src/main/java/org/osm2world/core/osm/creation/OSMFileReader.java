@@ -57,13 +57,13 @@ public class OSMFileReader implements OSMDataReader {
 
 		}
 
-		/* try reading the file while taking into account JOSM-specific extensions */
+		/* read the file in a single pass while taking into account JOSM-specific extensions */
 
 		if (useJOSMReader) {
 
 			try {
 				osmData = new JOSMFileReader(file).getData();
-			} catch (Exception e2) {
+			} catch (IOException e2) {
 				throw new IOException("could not read OSM file" +
 						" (not even with workaround for JOSM files)", e2);
 			}
@@ -0,0 +1,269 @@
+package org.osm2world.core.osm.creation;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Comparator.comparingLong;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * disk-backed cache for Overpass API responses.
+ * Entries are keyed by API URL and query, and each response is stored as a gzip-compressed .osm.gz file,
+ * so repeated requests for the same data skip the network entirely.
+ *
+ * Entries older than the time to live are revalidated with a conditional request
+ * (using the ETag and Last-Modified headers of the original response) and are only downloaded again
+ * if they have changed. If the cache grows beyond its maximum size, the least recently used entries are deleted.
+ *
+ * This class is thread-safe, but the cache directory should not be shared by several processes at once.
+ */
+public class OverpassCache {
+
+	public static final long DEFAULT_TTL_MILLIS = 24 * 60 * 60 * 1000L;
+	public static final long DEFAULT_MAX_SIZE_BYTES = 1024 * 1024 * 1024L;
+
+	static final String DATA_SUFFIX = ".osm.gz";
+	static final String META_SUFFIX = ".properties";
+
+	private static final String FETCH_TIME_KEY = "fetchTime";
+	private static final String ETAG_KEY = "etag";
+	private static final String LAST_MODIFIED_KEY = "lastModified";
+
+	private final File directory;
+	private final long ttlMillis;
+	private final long maxSizeBytes;
+
+	public OverpassCache(File directory) {
+		this(directory, DEFAULT_TTL_MILLIS, DEFAULT_MAX_SIZE_BYTES);
+	}
+
+	/**
+	 * @param directory     directory for the cached responses, will be created if it does not exist
+	 * @param ttlMillis     time after which an entry is revalidated with the server, in milliseconds
+	 * @param maxSizeBytes  maximum total size of the cached responses, in bytes
+	 */
+	public OverpassCache(File directory, long ttlMillis, long maxSizeBytes) {
+
+		if (ttlMillis < 0 || maxSizeBytes < 0) {
+			throw new IllegalArgumentException("invalid cache limits: ttl " + ttlMillis + ", size " + maxSizeBytes);
+		}
+
+		this.directory = directory;
+		this.ttlMillis = ttlMillis;
+		this.maxSizeBytes = maxSizeBytes;
+
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * returns a gzip-compressed file with the response to a query.
+	 * Sends a request to the server only if there is no fresh cache entry.
+	 * If the server cannot be reached, an outdated entry is used if there is one.
+	 *
+	 * @throws IOException  if the response is neither cached nor available from the server
+	 */
+	public synchronized File getResponse(String apiURL, String queryString) throws IOException {
+
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("cannot create cache directory " + directory);
+		}
+
+		String key = getKey(apiURL, queryString);
+		File dataFile = new File(directory, key + DATA_SUFFIX);
+		File metaFile = new File(directory, key + META_SUFFIX);
+
+		Properties meta = dataFile.isFile() ? readMeta(metaFile) : null;
+
+		if (meta != null) {
+
+			long fetchTime = Long.parseLong(meta.getProperty(FETCH_TIME_KEY, "0"));
+
+			if (System.currentTimeMillis() - fetchTime < ttlMillis) {
+				dataFile.setLastModified(System.currentTimeMillis());
+				return dataFile;
+			}
+
+		}
+
+		/* send a request, made conditional if an outdated entry exists */
+
+		Map<String, String> requestProperties = new HashMap<>();
+
+		if (meta != null) {
+			if (meta.containsKey(ETAG_KEY)) {
+				requestProperties.put("If-None-Match", meta.getProperty(ETAG_KEY));
+			}
+			if (meta.containsKey(LAST_MODIFIED_KEY)) {
+				requestProperties.put("If-Modified-Since", meta.getProperty(LAST_MODIFIED_KEY));
+			}
+		}
+
+		try {
+
+			HttpURLConnection connection = OverpassReader.sendQuery(apiURL, queryString, requestProperties);
+
+			try {
+
+				int responseCode = connection.getResponseCode();
+
+				if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && meta != null) {
+
+					meta.setProperty(FETCH_TIME_KEY, Long.toString(System.currentTimeMillis()));
+					writeMeta(metaFile, meta);
+
+				} else if (responseCode == HttpURLConnection.HTTP_OK) {
+
+					File tempFile = new File(directory, key + ".tmp");
+
+					try {
+
+						try (InputStream is = connection.getInputStream();
+								OutputStream os = new GZIPOutputStream(new FileOutputStream(tempFile))) {
+							copy(is, os);
+						}
+
+						Files.move(tempFile.toPath(), dataFile.toPath(), REPLACE_EXISTING);
+
+					} finally {
+						tempFile.delete(); // only still exists if the download failed
+					}
+
+					meta = new Properties();
+					meta.setProperty(FETCH_TIME_KEY, Long.toString(System.currentTimeMillis()));
+					if (connection.getHeaderField("ETag") != null) {
+						meta.setProperty(ETAG_KEY, connection.getHeaderField("ETag"));
+					}
+					if (connection.getHeaderField("Last-Modified") != null) {
+						meta.setProperty(LAST_MODIFIED_KEY, connection.getHeaderField("Last-Modified"));
+					}
+					writeMeta(metaFile, meta);
+
+				} else {
+					throw new IOException("unexpected response from " + apiURL + ": "
+							+ responseCode + " " + connection.getResponseMessage());
+				}
+
+			} finally {
+				connection.disconnect();
+			}
+
+		} catch (IOException e) {
+
+			if (meta == null) throw e;
+
+			System.err.println("could not revalidate cached Overpass response, using outdated data: " + e);
+
+		}
+
+		dataFile.setLastModified(System.currentTimeMillis());
+
+		evict(dataFile);
+
+		return dataFile;
+
+	}
+
+	/**
+	 * deletes the least recently used entries until the cache is no larger than the maximum size.
+	 * The entry which has just been requested is never deleted.
+	 */
+	private void evict(File currentDataFile) {
+
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(DATA_SUFFIX));
+		if (files == null) return;
+
+		List<File> dataFiles = new ArrayList<>();
+		long totalSize = 0;
+
+		for (File file : files) {
+			dataFiles.add(file);
+			totalSize += file.length();
+		}
+
+		dataFiles.sort(comparingLong(File::lastModified));
+
+		for (File file : dataFiles) {
+
+			if (totalSize <= maxSizeBytes) break;
+			if (file.equals(currentDataFile)) continue;
+
+			totalSize -= file.length();
+
+			String key = file.getName().substring(0, file.getName().length() - DATA_SUFFIX.length());
+			file.delete();
+			new File(directory, key + META_SUFFIX).delete();
+
+		}
+
+	}
+
+	/**
+	 * returns the name of the cache entry for a request
+	 */
+	static String getKey(String apiURL, String queryString) {
+
+		try {
+
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			byte[] hash = digest.digest((apiURL + "\n" + queryString).getBytes(UTF_8));
+
+			StringBuilder result = new StringBuilder();
+			for (byte b : hash) {
+				result.append(String.format("%02x", b));
+			}
+			return result.toString();
+
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+
+	}
+
+	/** @return  the entry's metadata, null if it is missing or unreadable */
+	private static Properties readMeta(File metaFile) {
+
+		if (!metaFile.isFile()) return null;
+
+		try (InputStream is = new FileInputStream(metaFile)) {
+			Properties meta = new Properties();
+			meta.load(is);
+			return meta;
+		} catch (IOException e) {
+			return null;
+		}
+
+	}
+
+	private static void writeMeta(File metaFile, Properties meta) throws IOException {
+		try (OutputStream os = new FileOutputStream(metaFile)) {
+			meta.store(os, null);
+		}
+	}
+
+	private static void copy(InputStream is, OutputStream os) throws IOException {
+		byte[] buffer = new byte[65536];
+		int length;
+		while ((length = is.read(buffer)) != -1) {
+			os.write(buffer, 0, length);
+		}
+	}
+
+}
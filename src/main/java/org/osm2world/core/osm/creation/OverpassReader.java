@@ -1,25 +1,46 @@
 package org.osm2world.core.osm.creation;
 
 import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 import org.osm2world.core.map_data.creation.LatLon;
+import org.osm2world.core.map_data.creation.LatLonBounds;
 import org.osm2world.core.osm.data.OSMData;
 
-import de.topobyte.osm4j.core.dataset.InMemoryMapDataSet;
-import de.topobyte.osm4j.core.dataset.MapDataSetLoader;
+import de.topobyte.osm4j.core.model.iface.EntityContainer;
+import de.topobyte.osm4j.core.model.iface.OsmBounds;
+import de.topobyte.osm4j.core.model.iface.OsmNode;
+import de.topobyte.osm4j.core.model.iface.OsmRelation;
+import de.topobyte.osm4j.core.model.iface.OsmWay;
 import de.topobyte.osm4j.xml.dynsax.OsmXmlIterator;
 
+/**
+ * DataSource fetching data from Overpass API.
+ * If an {@link OverpassCache} is used, responses are stored on disk and reused by later requests.
+ */
 public class OverpassReader implements OSMDataReader {
 
 	public static final String DEFAULT_API_URL = "http://www.overpass-api.de/api/interpreter";
 	private String apiURL;
 	private String queryString;
 
+	/** the bounding box of the query, null for arbitrary queries */
+	private LatLonBounds bounds;
+
+	/** the cache for responses, can be null */
+	private OverpassCache cache;
+
 	/** fetches data within a bounding box from Overpass API */
 	public OverpassReader(LatLon min, LatLon max) {
 		this(DEFAULT_API_URL, min, max);
@@ -27,7 +48,17 @@ public class OverpassReader implements OSMDataReader {
 
 	/** fetches data within a bounding box from any Overpass API instance */
 	public OverpassReader(String apiURL, LatLon min, LatLon max) {
-		this(apiURL, "[bbox:"+min.lat+","+min.lon+","+max.lat+","+max.lon+"];(node;rel(bn)->.x;way;node(w)->.x;rel(bw););out meta;");
+		this(apiURL, min, max, null);
+	}
+
+	/**
+	 * fetches data within a bounding box from any Overpass API instance
+	 *
+	 * @param cache  cache for the response, can be null
+	 */
+	public OverpassReader(String apiURL, LatLon min, LatLon max, OverpassCache cache) {
+		this(apiURL, "[bbox:"+min.lat+","+min.lon+","+max.lat+","+max.lon+"];(node;rel(bn)->.x;way;node(w)->.x;rel(bw););out meta;", cache);
+		this.bounds = new LatLonBounds(min, max);
 	}
 
 	/** fetches data from Overpass API according to an arbitrary query */
@@ -37,50 +68,134 @@ public class OverpassReader implements OSMDataReader {
 
 	/** fetches data from any Overpass API instance according to an arbitrary query. */
 	public OverpassReader(String apiURL, String queryString) {
+		this(apiURL, queryString, null);
+	}
+
+	/**
+	 * fetches data from any Overpass API instance according to an arbitrary query.
+	 *
+	 * @param cache  cache for the response, can be null
+	 */
+	public OverpassReader(String apiURL, String queryString, OverpassCache cache) {
 		this.apiURL = apiURL;
 		this.queryString = queryString;
+		this.cache = cache;
 	}
 
+	/**
+	 * fetches the data, using the cache if there is one.
+	 *
+	 * Without a cache, the response is read while it is being received. It is not filtered
+	 * by the {@link BoundedOSMFileReader} because that needs several passes over a file.
+	 * For bounding box queries, this makes no difference for the memory use,
+	 * as the server only returns the data within the bounding box anyway.
+	 *
+	 * @throws IOException  if the data could not be fetched from the server or the cache
+	 */
+	@Override
 	public OSMData getData() throws IOException {
 
 		try {
 
-			URL url = new URL(apiURL);
+			if (cache != null) {
+
+				File file = cache.getResponse(apiURL, queryString);
+
+				if (bounds != null) {
+					return new BoundedOSMFileReader(file, bounds).getData();
+				} else {
+					try (InputStream inputStream = new GZIPInputStream(new FileInputStream(file))) {
+						return readResponse(inputStream);
+					}
+				}
 
-			HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-			connection.setDoInput(true);
-			connection.setDoOutput(true);
-			connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+			} else {
 
-			try (DataOutputStream printout = new DataOutputStream(connection.getOutputStream())) {
+				HttpURLConnection connection = sendQuery(apiURL, queryString, Collections.emptyMap());
 
-				printout.writeBytes("data=" + URLEncoder.encode(queryString, "utf-8"));
-				printout.flush();
+				try (InputStream inputStream = connection.getInputStream()) {
+					return readResponse(inputStream);
+				} finally {
+					connection.disconnect();
+				}
 
 			}
 
-			try (InputStream inputStream = connection.getInputStream()) {
+		} catch (IOException e) {
+			throw new IOException("could not get input data from Overpass API."
+					+ "\nQuery: " + queryString, e);
+		}
 
-				OsmXmlIterator iterator = new OsmXmlIterator(inputStream, false);
+	}
 
-				InMemoryMapDataSet data = MapDataSetLoader.read(iterator, true, true, true);
-				return new OSMData(data);
+	/**
+	 * sends a query to an Overpass API instance
+	 *
+	 * @param requestProperties  additional request headers, such as those for conditional requests
+	 * @return  the connection, with the request already sent
+	 */
+	static HttpURLConnection sendQuery(String apiURL, String queryString,
+			Map<String, String> requestProperties) throws IOException {
 
-			}
+		URL url = new URL(apiURL);
 
-		} catch (IOException e) {
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		connection.setDoInput(true);
+		connection.setDoOutput(true);
+		connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
 
-			System.err.println("could not get input data from Overpass API."
-					+ "\nQuery: " + queryString
-					+ "\nCause: ");
+		for (Map.Entry<String, String> property : requestProperties.entrySet()) {
+			connection.setRequestProperty(property.getKey(), property.getValue());
+		}
 
-			e.printStackTrace();
+		try (DataOutputStream printout = new DataOutputStream(connection.getOutputStream())) {
 
-			InMemoryMapDataSet dataSet = new InMemoryMapDataSet();
-			return new OSMData(dataSet);
+			printout.writeBytes("data=" + URLEncoder.encode(queryString, "utf-8"));
+			printout.flush();
 
 		}
 
+		return connection;
+
+	}
+
+	/**
+	 * reads the entities of a response while it is being received,
+	 * without building an intermediate data set
+	 */
+	private static OSMData readResponse(InputStream inputStream) throws IOException {
+
+		OsmXmlIterator iterator = new OsmXmlIterator(inputStream, false);
+
+		List<OsmBounds> bounds = new ArrayList<OsmBounds>();
+		List<OsmNode> nodes = new ArrayList<OsmNode>();
+		List<OsmWay> ways = new ArrayList<OsmWay>();
+		List<OsmRelation> relations = new ArrayList<OsmRelation>();
+
+		if (iterator.hasBounds()) {
+			bounds.add(iterator.getBounds());
+		}
+
+		while (iterator.hasNext()) {
+
+			EntityContainer container = iterator.next();
+
+			switch (container.getType()) {
+			case Node:
+				nodes.add((OsmNode) container.getEntity());
+				break;
+			case Way:
+				ways.add((OsmWay) container.getEntity());
+				break;
+			case Relation:
+				relations.add((OsmRelation) container.getEntity());
+				break;
+			}
+
+		}
+
+		return new OSMData(bounds, nodes, ways, relations);
+
 	}
 
-}
\ No newline at end of file
+}
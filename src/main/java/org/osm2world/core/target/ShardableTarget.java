@@ -0,0 +1,27 @@
+package org.osm2world.core.target;
+
+/**
+ * a target which can be split into independent shards.
+ * This allows world objects to be rendered in parallel, see
+ * {@link TargetUtil#renderWorldObjects(Target, org.osm2world.core.map_data.data.MapData, boolean, int)}.
+ *
+ * Each shard is filled by a single thread with a contiguous slice of the world objects.
+ * The shards are then merged back into the original target in the order of their slices,
+ * so the result is the same as if all objects had been rendered to the target directly.
+ */
+public interface ShardableTarget<R extends Renderable> extends Target<R> {
+
+	/**
+	 * creates a new, empty target of the same kind and with the same configuration.
+	 * The shard is only accessed by a single thread at a time.
+	 */
+	public ShardableTarget<R> createShard();
+
+	/**
+	 * appends the content of a shard to this target.
+	 *
+	 * @param shard  a shard previously created by {@link #createShard()} of this target
+	 */
+	public void mergeShard(ShardableTarget<R> shard);
+
+}
@@ -13,6 +13,7 @@ import org.osm2world.core.math.VectorXZ;
 import org.osm2world.core.math.shapes.ShapeXZ;
 import org.osm2world.core.math.shapes.SimpleClosedShapeXZ;
 import org.osm2world.core.target.common.ExtrudeOption;
+import org.osm2world.core.target.common.LevelOfDetail;
 import org.osm2world.core.target.common.material.Material;
 import org.osm2world.core.world.data.WorldObject;
 
@@ -31,6 +32,11 @@ public interface Target<R extends Renderable> {
 
 	void setConfiguration(Configuration config);
 
+	/**
+	 * returns the level of detail which renderables should use for this target
+	 */
+	LevelOfDetail getLevelOfDetail();
+
 	/**
 	 * renders a renderable object to this target.
 	 * Usually, this means calling a "renderTo" method on that renderable,
@@ -65,6 +71,22 @@ public interface Target<R extends Renderable> {
 			Collection<? extends TriangleXYZWithNormals> triangles,
 			List<List<VectorXZ>> texCoordLists);
 
+	/**
+	 * draws an indexed triangle mesh stored in packed arrays.
+	 * Unlike the other draw methods, this does not require objects for each vertex,
+	 * so it should be preferred for large amounts of geometry.
+	 *
+	 * @param positions  x, y and z coordinate of each vertex; != null
+	 * @param normals    normal vector of each vertex, same layout as positions.
+	 *                   Can be null, in which case the normals are calculated by the target.
+	 * @param texCoords  one array per texture layer, each containing two coordinates per vertex.
+	 *                   Can be null if no texturing information is available.
+	 * @param indices    three vertex indices per counterclockwise triangle.
+	 *                   Can be null if each three consecutive vertices form a triangle.
+	 */
+	void drawMesh(Material material, double[] positions, double[] normals,
+			double[][] texCoords, int[] indices);
+
 	/**
 	 * draws a triangle strip.
 	 *
@@ -1,16 +1,31 @@
 package org.osm2world.core.target;
 
+import static com.google.common.collect.Lists.newArrayList;
+import static java.lang.Math.min;
 import static org.osm2world.core.target.statistics.StatisticsTarget.Stat.PRIMITIVE_COUNT;
 import static org.osm2world.core.util.FaultTolerantIterationUtil.iterate;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 import org.osm2world.core.map_data.data.MapData;
 import org.osm2world.core.map_data.data.MapElement;
 import org.osm2world.core.map_elevation.data.GroundState;
+import org.osm2world.core.target.common.RecordingTarget;
 import org.osm2world.core.target.common.RenderableToPrimitiveTarget;
+import org.osm2world.core.target.frontend_pbf.ModelTarget;
+import org.osm2world.core.target.frontend_pbf.RenderableToModelTarget;
 import org.osm2world.core.target.statistics.StatisticsTarget;
+import org.osm2world.core.util.Metrics;
+import org.osm2world.core.util.ProgressTracker;
 import org.osm2world.core.world.data.WorldObject;
 
 public final class TargetUtil {
@@ -24,24 +39,179 @@ public final class TargetUtil {
 	public static <R extends Renderable> void renderWorldObjects(
 			final Target<R> target, final MapData mapData,
 			final boolean renderUnderground) {
+		renderWorldObjects(target, mapData, renderUnderground, 1, ProgressTracker.NONE);
+	}
+
+	/**
+	 * variant of {@link #renderWorldObjects(Target, MapData, boolean)} which uses several threads
+	 * if the target is a {@link ShardableTarget}. Other targets are rendered by the calling thread.
+	 *
+	 * The map elements are split into contiguous slices, each of which is rendered to a shard
+	 * of the target. The shards are merged in the original order of the map elements.
+	 * This requires the rendering code of the world objects to be thread safe.
+	 *
+	 * @param threadCount  maximum number of threads to use
+	 */
+	public static <R extends Renderable> void renderWorldObjects(
+			final Target<R> target, final MapData mapData,
+			final boolean renderUnderground, int threadCount) {
+		renderWorldObjects(target, mapData, renderUnderground, threadCount, ProgressTracker.NONE);
+	}
+
+	/**
+	 * variant of {@link #renderWorldObjects(Target, MapData, boolean, int)}
+	 * which reports the progress after each map element
+	 */
+	public static <R extends Renderable> void renderWorldObjects(
+			final Target<R> target, final MapData mapData,
+			final boolean renderUnderground, int threadCount,
+			final ProgressTracker progress) {
+
+		try (Metrics.Timer timer = Metrics.startTimer("render " + target.getClass().getSimpleName())) {
+
+			if (threadCount <= 1 || !(target instanceof ShardableTarget<?>)) {
+
+				int elementCount = mapData.getMapElementCount();
+				int completedCount = 0;
+
+				for (MapElement mapElement : mapData.getMapElements()) {
+					renderMapElement(target, mapElement, renderUnderground);
+					progress.updateProgress(++completedCount, elementCount);
+				}
+
+			} else {
+
+				@SuppressWarnings("unchecked")
+				ShardableTarget<R> shardableTarget = (ShardableTarget<R>) target;
+
+				renderWorldObjectsToShards(shardableTarget, mapData, renderUnderground,
+						threadCount, progress);
 
-		for (MapElement mapElement : mapData.getMapElements()) {
-			for (WorldObject r : mapElement.getRepresentations()) {
-				if (renderUnderground || r.getGroundState() != GroundState.BELOW) {
-
-					try {
-						renderObject(target, r);
-					} catch (Exception e) {
-						System.err.println("ignored exception:");
-						//TODO proper logging
-						e.printStackTrace();
-						System.err.println("this exception occurred for the following input:\n"
-								+ mapElement);
+			}
+
+		}
+
+	}
+
+	private static <R extends Renderable> void renderWorldObjectsToShards(
+			final ShardableTarget<R> shardableTarget, final MapData mapData,
+			final boolean renderUnderground, int threadCount,
+			final ProgressTracker progress) {
+
+		/* use more slices than threads, so the work stays balanced
+		 * even if some parts of the map are much more expensive than others */
+
+		List<MapElement> mapElements = newArrayList(mapData.getMapElements());
+
+		int sliceCount = min(mapElements.size(), SLICES_PER_THREAD * threadCount);
+
+		AtomicInteger completedCount = new AtomicInteger();
+
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+
+		try {
+
+			List<Future<ShardableTarget<R>>> shards = new ArrayList<Future<ShardableTarget<R>>>();
+
+			for (int slice = 0; slice < sliceCount; slice++) {
+
+				List<MapElement> sliceElements = mapElements.subList(
+						(int) ((long) slice * mapElements.size() / sliceCount),
+						(int) ((long) (slice + 1) * mapElements.size() / sliceCount));
+
+				ShardableTarget<R> shard = shardableTarget.createShard();
+
+				shards.add(executor.submit(() -> {
+					for (MapElement mapElement : sliceElements) {
+						renderMapElement(shard, mapElement, renderUnderground);
+						progress.updateProgress(completedCount.incrementAndGet(), mapElements.size());
 					}
+					return shard;
+				}));
 
+			}
+
+			for (Future<ShardableTarget<R>> shard : shards) {
+				shardableTarget.mergeShard(shard.get());
+			}
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof CancellationException) {
+				throw (CancellationException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+
+	}
+
+	private static final int SLICES_PER_THREAD = 8;
+
+	/**
+	 * renders the world objects of a single map element,
+	 * ignoring (and logging) any exceptions
+	 */
+	private static <R extends Renderable> void renderMapElement(
+			final Target<R> target, final MapElement mapElement,
+			final boolean renderUnderground) {
+
+		long start = Metrics.isEnabled() ? System.nanoTime() : 0;
+
+		for (WorldObject r : mapElement.getRepresentations()) {
+			if (renderUnderground || r.getGroundState() != GroundState.BELOW) {
+
+				try {
+					renderObject(target, r);
+				} catch (Exception e) {
+					Metrics.increment("exceptions ignored");
+					System.err.println("ignored exception:");
+					//TODO proper logging
+					e.printStackTrace();
+					System.err.println("this exception occurred for the following input:\n"
+							+ mapElement);
 				}
+
 			}
 		}
+
+		if (Metrics.isEnabled()) {
+			Metrics.recordElementTime(mapElement, System.nanoTime() - start);
+			Metrics.increment("elements rendered");
+		}
+
+	}
+
+	/**
+	 * variant of {@link #renderWorldObjects(Target, MapData, boolean)}
+	 * which replays a previously created recording instead of rendering the objects again.
+	 *
+	 * @param recording  recording of the world objects in mapData, can be null
+	 */
+	public static <R extends Renderable> void renderWorldObjects(
+			final Target<R> target, final MapData mapData,
+			final RecordingTarget recording, final boolean renderUnderground) {
+		renderWorldObjects(target, mapData, recording, renderUnderground, ProgressTracker.NONE);
+	}
+
+	/**
+	 * variant of {@link #renderWorldObjects(Target, MapData, RecordingTarget, boolean)}
+	 * which reports the progress after each map element
+	 */
+	public static <R extends Renderable> void renderWorldObjects(
+			final Target<R> target, final MapData mapData,
+			final RecordingTarget recording, final boolean renderUnderground,
+			final ProgressTracker progress) {
+
+		if (recording != null) {
+			recording.replayTo(target, mapData, renderUnderground, progress);
+		} else {
+			renderWorldObjects(target, mapData, renderUnderground, 1, progress);
+		}
+
 	}
 
 	/**
@@ -84,6 +254,7 @@ public final class TargetUtil {
 	/**
 	 * renders any object to a target instance
 	 * if it is a renderable compatible with that target type.
+	 * Objects which support instanced models are rendered as such for all {@link ModelTarget}s.
 	 * Also sends {@link Target#beginObject(WorldObject)} calls.
 	 */
 	public static final <R extends Renderable> void renderObject(
@@ -101,6 +272,16 @@ public final class TargetUtil {
 
 			target.render(renderableType.cast(object));
 
+		} else if (object instanceof RenderableToModelTarget && target instanceof ModelTarget<?>) {
+
+			if (object instanceof WorldObject) {
+				target.beginObject((WorldObject)object);
+			} else {
+				target.beginObject(null);
+			}
+
+			((RenderableToModelTarget)object).renderTo((ModelTarget<?>)target);
+
 		} else if (object instanceof RenderableToAllTargets) {
 
 			if (object instanceof WorldObject) {
@@ -1,21 +1,23 @@
 package org.osm2world.core.target.common;
 
 import static com.google.common.collect.Lists.reverse;
-import static java.util.Arrays.asList;
+import static java.util.Arrays.*;
 import static java.util.Collections.*;
 import static org.osm2world.core.math.GeometryUtil.*;
 import static org.osm2world.core.math.VectorXYZ.*;
 import static org.osm2world.core.target.common.ExtrudeOption.*;
 import static org.osm2world.core.target.common.material.NamedTexCoordFunction.*;
-import static org.osm2world.core.target.common.material.TexCoordUtil.texCoordLists;
-import static org.osm2world.core.world.modules.common.WorldModuleGeometryUtil.transformShape;
+import static org.osm2world.core.target.common.material.TexCoordUtil.texCoordArrays;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.EnumSet;
 import java.util.List;
 
 import org.apache.commons.configuration.Configuration;
 import org.osm2world.core.math.SimplePolygonXZ;
+import org.osm2world.core.math.TriangleXYZ;
+import org.osm2world.core.math.TriangleXYZWithNormals;
 import org.osm2world.core.math.TriangleXZ;
 import org.osm2world.core.math.VectorXYZ;
 import org.osm2world.core.math.VectorXZ;
@@ -37,43 +39,70 @@ public abstract class AbstractTarget<R extends Renderable>
 
 	protected Configuration config;
 
+	private LevelOfDetail levelOfDetail = LevelOfDetail.HIGH;
+
 	@Override
 	public void setConfiguration(Configuration config) {
 		this.config = config;
 	}
 
+	@Override
+	public LevelOfDetail getLevelOfDetail() {
+		return levelOfDetail;
+	}
+
+	public void setLevelOfDetail(LevelOfDetail levelOfDetail) {
+		this.levelOfDetail = levelOfDetail;
+	}
+
 	@Override
 	public void beginObject(WorldObject object) {}
 
+	/**
+	 * draws the triangulation of a shape as a single mesh.
+	 * The shape is planar, so all triangles have the same normal
+	 * regardless of whether they are drawn together or separately.
+	 */
 	@Override
 	public void drawShape(Material material, SimpleClosedShapeXZ shape, VectorXYZ point,
 			VectorXYZ frontVector, VectorXYZ upVector, double scaleFactor) {
 
-		for (TriangleXZ triangle : shape.getTriangulation()) {
+		Collection<TriangleXZ> triangulation = shape.getTriangulation();
 
-			List<VectorXYZ> triangleVertices = new ArrayList<VectorXYZ>();
+		VectorXYZ rightVector = upVector.cross(frontVector).normalize();
 
-			for (VectorXZ v : triangle.getVertexList()) {
-				triangleVertices.add(new VectorXYZ(-v.x, v.z, 0));
-			}
+		double[] positions = new double[9 * triangulation.size()];
+		double[][] texCoords = new double[material.getTextureDataList().size()][6 * triangulation.size()];
 
-			if (scaleFactor != 1.0) {
-				triangleVertices = scaleShapeVectors(triangleVertices, scaleFactor);
-			}
+		int vertex = 0;
+
+		for (TriangleXZ triangle : triangulation) {
 
-			triangleVertices = transformShape(
-					triangleVertices, point, frontVector, upVector);
+			putShapeVertex(positions, vertex, triangle.v1, scaleFactor, point, rightVector, upVector);
+			putShapeVertex(positions, vertex + 1, triangle.v2, scaleFactor, point, rightVector, upVector);
+			putShapeVertex(positions, vertex + 2, triangle.v3, scaleFactor, point, rightVector, upVector);
 
 			//TODO better default texture coordinate function
-			drawTriangleStrip(material, triangleVertices.subList(0, 3),
-					texCoordLists(triangleVertices.subList(0, 3), material, GLOBAL_X_Y));
+			double[][] triangleTexCoords = texCoordArrays(
+					copyOfRange(positions, 3 * vertex, 3 * vertex + 9), material, GLOBAL_X_Y);
 
+			for (int layer = 0; layer < texCoords.length; layer++) {
+				System.arraycopy(triangleTexCoords[layer], 0, texCoords[layer], 2 * vertex, 6);
+			}
+
+			vertex += 3;
+
+		}
+
+		if (vertex > 0) {
+			drawMesh(material, positions, null, texCoords, null);
 		}
 
 	}
 
 	/**
-	 * draws an extruded shape using {@link #drawTriangleStrip(Material, List, List)} calls.
+	 * draws an extruded shape as a single {@link #drawMesh(Material, double[], double[], double[][], int[])}
+	 * call, plus the caps.
 	 * See {@link Target#drawExtrudedShape(Material, ShapeXZ, List, List, List, List, EnumSet)}
 	 * for documentation of the implemented interface method.
 	 */
@@ -114,14 +143,6 @@ public abstract class AbstractTarget<R extends Renderable>
 			options = DEFAULT_EXTRUDE_OPTIONS;
 		}
 
-		/* obtain the shape's vertices */
-
-		List<VectorXYZ> shapeVertices = new ArrayList<VectorXYZ>();
-
-		for (VectorXZ v : shape.getVertexList()) {
-			shapeVertices.add(new VectorXYZ(-v.x, v.z, 0));
-		}
-
 		/* calculate the forward direction of the shape from the path.
 		 * Special handling for the first and last point,
 		 * where the calculation of the "forward" vector is different. */
@@ -142,61 +163,67 @@ public abstract class AbstractTarget<R extends Renderable>
 
 		/* create an instance of the shape at each point of the path. */
 
-		@SuppressWarnings("unchecked")
-		List<VectorXYZ>[] shapeVectors = new List[path.size()];
+		List<VectorXZ> shapeVertices = shape.getVertexList();
+		int shapeSize = shapeVertices.size();
 
-		for (int pathI = 0; pathI < path.size(); pathI ++) {
+		double[] shapeInstances = new double[3 * path.size() * shapeSize];
 
-			shapeVectors[pathI] = transformShape(
-					scaleShapeVectors(shapeVertices, scaleFactors.get(pathI)),
-					path.get(pathI),
-					forwardVectors.get(pathI),
-					upVectors.get(pathI));
+		for (int pathI = 0; pathI < path.size(); pathI ++) {
 
-		}
+			VectorXYZ rightVector = upVectors.get(pathI).cross(forwardVectors.get(pathI)).normalize();
 
-		/* draw triangle strips */
+			for (int i = 0; i < shapeSize; i++) {
+				putShapeVertex(shapeInstances, pathI * shapeSize + i, shapeVertices.get(i),
+						scaleFactors.get(pathI), path.get(pathI), rightVector, upVectors.get(pathI));
+			}
 
-		for (int i = 0; i+1 < shapeVertices.size(); i++) {
+		}
 
-			VectorXYZ[] triangleStripVectors = new VectorXYZ[2*shapeVectors.length];
+		/* create a triangle strip between each pair of neighboring shape vertices.
+		 * Each strip is drawn as a separate mesh, because targets calculate smooth normals
+		 * within each draw call, and vertices should not be shared between the strips. */
 
-			List<List<VectorXZ>> stripTexCoords = null;
+		int stripSize = 2 * path.size();
 
-			if (texCoordLists != null) {
+		int texLayers = (texCoordLists != null)
+				? texCoordLists.size()
+				: material.getTextureDataList().size();
 
-				stripTexCoords = new ArrayList<List<VectorXZ>>();
+		int[] indices = new int[3 * (stripSize - 2)];
+		putTriangleStripIndices(indices, 0, 0, stripSize);
 
-				for (int texLayer = 0; texLayer < texCoordLists.size(); texLayer ++) {
-					stripTexCoords.add(new ArrayList<VectorXZ>());
-				}
+		for (int i = 0; i + 1 < shapeSize; i++) {
 
-			}
+			double[] positions = new double[3 * stripSize];
+			double[][] texCoords = new double[texLayers][2 * stripSize];
 
-			for (int j = 0; j < shapeVectors.length; j++) {
+			for (int j = 0; j < path.size(); j++) {
 
-				triangleStripVectors[j*2+0] = shapeVectors[j].get(i);
-				triangleStripVectors[j*2+1] = shapeVectors[j].get(i+1);
+				System.arraycopy(shapeInstances, 3 * (j * shapeSize + i),
+						positions, 3 * (2 * j), 6);
 
 				if (texCoordLists != null) {
 
-					int index = j * shapeVectors[0].size() + i;
+					int index = j * shapeSize + i;
 
-					for (int texLayer = 0; texLayer < texCoordLists.size(); texLayer ++) {
-						stripTexCoords.get(texLayer).add(texCoordLists.get(texLayer).get(index));
-						stripTexCoords.get(texLayer).add(texCoordLists.get(texLayer).get(index + 1));
+					for (int texLayer = 0; texLayer < texLayers; texLayer ++) {
+						VectorXZ t1 = texCoordLists.get(texLayer).get(index);
+						VectorXZ t2 = texCoordLists.get(texLayer).get(index + 1);
+						texCoords[texLayer][2 * (2 * j)] = t1.x;
+						texCoords[texLayer][2 * (2 * j) + 1] = t1.z;
+						texCoords[texLayer][2 * (2 * j) + 2] = t2.x;
+						texCoords[texLayer][2 * (2 * j) + 3] = t2.z;
 					}
+
 				}
 
 			}
 
-			List<VectorXYZ> strip = asList(triangleStripVectors);
-
-			if (stripTexCoords == null) {
-				stripTexCoords = texCoordLists(strip, material, STRIP_WALL);
+			if (texCoordLists == null) {
+				texCoords = texCoordArrays(positions, material, STRIP_WALL);
 			}
 
-			drawTriangleStrip(material, strip, stripTexCoords);
+			drawMesh(material, positions, null, texCoords, indices);
 
 		}
 
@@ -222,25 +249,51 @@ public abstract class AbstractTarget<R extends Renderable>
 
 	private static final EnumSet<ExtrudeOption> DEFAULT_EXTRUDE_OPTIONS = EnumSet.noneOf(ExtrudeOption.class);
 
-	private static final List<VectorXYZ> scaleShapeVectors(List<VectorXYZ> vs, double scale) {
+	/**
+	 * writes a vertex of a 2d shape to a packed position array after scaling,
+	 * rotating and moving it (like
+	 * {@link org.osm2world.core.world.modules.common.WorldModuleGeometryUtil#transformShape}).
+	 * The shape's x axis is mirrored to become the negative "right" direction,
+	 * its z axis becomes the "up" direction.
+	 */
+	private static final void putShapeVertex(double[] positions, int vertex, VectorXZ v,
+			double scale, VectorXYZ center, VectorXYZ rightVector, VectorXYZ upVector) {
 
-		if (scale == 1) {
+		double x = -v.x;
+		double y = v.z;
 
-			return vs;
+		if (scale != 1) {
+			x *= scale;
+			y *= scale;
+		}
 
-		} else if (scale == 0) {
+		positions[3 * vertex] = rightVector.x * x + upVector.x * y + center.x;
+		positions[3 * vertex + 1] = rightVector.y * x + upVector.y * y + center.y;
+		positions[3 * vertex + 2] = rightVector.z * x + upVector.z * y + center.z;
 
-			return nCopies(vs.size(), NULL_VECTOR);
+	}
 
-		} else {
+	/**
+	 * writes the indices for the triangles of a triangle strip,
+	 * using the same vertex order as {@link #drawTriangleStrip(Material, List, List)}
+	 */
+	private static final void putTriangleStripIndices(int[] indices, int offset,
+			int firstVertex, int vertexCount) {
 
-			List<VectorXYZ> result = new ArrayList<VectorXYZ>(vs.size());
+		for (int triangle = 0; triangle + 2 < vertexCount; triangle++) {
 
-			for (VectorXYZ v : vs) {
-				result.add(v.mult(scale));
-			}
+			int i = offset + 3 * triangle;
+			int v = firstVertex + triangle;
+
+			indices[i] = v;
 
-			return result;
+			if (triangle % 2 == 0) {
+				indices[i + 1] = v + 1;
+				indices[i + 2] = v + 2;
+			} else {
+				indices[i + 1] = v + 2;
+				indices[i + 2] = v + 1;
+			}
 
 		}
 
@@ -282,15 +335,42 @@ public abstract class AbstractTarget<R extends Renderable>
 				frontUpperLeft, frontLowerLeft
 		);
 
-		List<List<VectorXZ>> texCoords1 = null, texCoords2 = null;
+		/* the strips are separate meshes, so normals are calculated for each strip separately */
+
+		drawBoxStrip(material, vsStrip1, BOX_TEX_COORDS_1);
+		drawBoxStrip(material, vsStrip2, BOX_TEX_COORDS_2);
+
+	}
+
+	private void drawBoxStrip(Material material, List<VectorXYZ> vs, List<VectorXZ> boxTexCoords) {
+
+		double[] positions = new double[3 * vs.size()];
+
+		for (int i = 0; i < vs.size(); i++) {
+			positions[3 * i] = vs.get(i).x;
+			positions[3 * i + 1] = vs.get(i).y;
+			positions[3 * i + 2] = vs.get(i).z;
+		}
+
+		int[] indices = new int[3 * (vs.size() - 2)];
+		putTriangleStripIndices(indices, 0, 0, vs.size());
+
+		double[][] texCoords = new double[0][];
 
 		if (material.getTextureDataList() != null) {
-			texCoords1 = nCopies(material.getTextureDataList().size(), BOX_TEX_COORDS_1);
-			texCoords2 = nCopies(material.getTextureDataList().size(), BOX_TEX_COORDS_2);
+
+			texCoords = new double[material.getTextureDataList().size()][2 * vs.size()];
+
+			for (double[] texCoordArray : texCoords) {
+				for (int i = 0; i < vs.size(); i++) {
+					texCoordArray[2 * i] = boxTexCoords.get(i).x;
+					texCoordArray[2 * i + 1] = boxTexCoords.get(i).z;
+				}
+			}
+
 		}
 
-		drawTriangleStrip(material, vsStrip1, texCoords1);
-		drawTriangleStrip(material, vsStrip2, texCoords2);
+		drawMesh(material, positions, null, texCoords, indices);
 
 	}
 
@@ -341,6 +421,87 @@ public abstract class AbstractTarget<R extends Renderable>
 
 	}
 
+	/**
+	 * draws a mesh using {@link #drawTriangles(Material, Collection, List)} or
+	 * {@link #drawTrianglesWithNormals(Material, Collection, List)}.
+	 * Targets which are able to use the packed arrays directly should override this.
+	 */
+	@Override
+	public void drawMesh(Material material, double[] positions, double[] normals,
+			double[][] texCoords, int[] indices) {
+
+		int cornerCount = (indices != null) ? indices.length : positions.length / 3;
+
+		VectorXYZ[] vertices = toVectorArray(positions);
+
+		List<List<VectorXZ>> texCoordLists = emptyList();
+
+		if (texCoords != null && texCoords.length > 0) {
+
+			texCoordLists = new ArrayList<List<VectorXZ>>(texCoords.length);
+
+			for (double[] texCoordArray : texCoords) {
+				List<VectorXZ> texCoordList = new ArrayList<VectorXZ>(cornerCount);
+				for (int corner = 0; corner < cornerCount; corner++) {
+					int v = (indices != null) ? indices[corner] : corner;
+					texCoordList.add(new VectorXZ(texCoordArray[2 * v], texCoordArray[2 * v + 1]));
+				}
+				texCoordLists.add(texCoordList);
+			}
+
+		}
+
+		if (normals == null) {
+
+			List<TriangleXYZ> triangles = new ArrayList<TriangleXYZ>(cornerCount / 3);
+
+			for (int corner = 0; corner + 2 < cornerCount; corner += 3) {
+				if (indices != null) {
+					triangles.add(new TriangleXYZ(vertices[indices[corner]],
+							vertices[indices[corner + 1]], vertices[indices[corner + 2]]));
+				} else {
+					triangles.add(new TriangleXYZ(vertices[corner],
+							vertices[corner + 1], vertices[corner + 2]));
+				}
+			}
+
+			drawTriangles(material, triangles, texCoordLists);
+
+		} else {
+
+			VectorXYZ[] vertexNormals = toVectorArray(normals);
+
+			List<TriangleXYZWithNormals> triangles =
+					new ArrayList<TriangleXYZWithNormals>(cornerCount / 3);
+
+			for (int corner = 0; corner + 2 < cornerCount; corner += 3) {
+				int v1 = (indices != null) ? indices[corner] : corner;
+				int v2 = (indices != null) ? indices[corner + 1] : corner + 1;
+				int v3 = (indices != null) ? indices[corner + 2] : corner + 2;
+				triangles.add(new TriangleXYZWithNormals(
+						vertices[v1], vertices[v2], vertices[v3],
+						vertexNormals[v1], vertexNormals[v2], vertexNormals[v3]));
+			}
+
+			drawTrianglesWithNormals(material, triangles, texCoordLists);
+
+		}
+
+	}
+
+	private static final VectorXYZ[] toVectorArray(double[] packedVectors) {
+
+		VectorXYZ[] result = new VectorXYZ[packedVectors.length / 3];
+
+		for (int i = 0; i < result.length; i++) {
+			result[i] = new VectorXYZ(packedVectors[3 * i],
+					packedVectors[3 * i + 1], packedVectors[3 * i + 2]);
+		}
+
+		return result;
+
+	}
+
 	@Override
 	public void drawTriangleStrip(Material material, List<VectorXYZ> vs,
 			List<List<VectorXZ>> texCoordLists) {
@@ -1,11 +1,14 @@
 package org.osm2world.core.target.common;
 
 import static java.lang.Math.abs;
+import static java.util.Arrays.asList;
 import static java.util.Collections.nCopies;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.LinkedList;
+import java.util.Deque;
 import java.util.List;
 
 import org.osm2world.core.math.TriangleXYZ;
@@ -14,8 +17,10 @@ import org.osm2world.core.math.VectorXYZ;
 import org.osm2world.core.math.VectorXZ;
 import org.osm2world.core.target.Renderable;
 import org.osm2world.core.target.common.material.Material;
+import org.osm2world.core.util.Metrics;
 import org.osm2world.core.world.data.WorldObject;
 
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 
@@ -53,7 +58,7 @@ public abstract class FaceTarget<R extends Renderable>
 	}
 
 	/**
-	 * mutable representation of a face
+	 * representation of a face
 	 */
 	protected final static class Face {
 
@@ -70,134 +75,6 @@ public abstract class FaceTarget<R extends Renderable>
 
 		}
 
-		/**
-		 * @return  true if the triangle has been successfully inserted
-		 */
-		public boolean tryInsert(IsolatedTriangle t) {
-
-			for (int i = 0; i < vs.size(); i++) {
-				int j = (i+1) % vs.size();
-				int k = (i+2) % vs.size();
-
-				if (vs.get(i).equals(t.triangle.v3)
-						&& vs.get(j).equals(t.triangle.v2)) { /* TODO tex coords equal */
-
-					if (vs.get(k).equals(t.triangle.v1)) {
-
-						removeVertex(j);
-
-					} else {
-
-						insertVertex(j, t.triangle.v1,
-								texCoordLists, t.texCoordOffset + 0);
-
-					}
-
-					return true;
-
-				}
-
-				if (vs.get(i).equals(t.triangle.v1)
-						&& vs.get(j).equals(t.triangle.v3)) { /* TODO tex coords equal */
-
-					if (vs.get(k).equals(t.triangle.v2)) {
-
-						removeVertex(j);
-
-					} else {
-
-						insertVertex(j, t.triangle.v2,
-								texCoordLists, t.texCoordOffset + 1);
-
-					}
-
-					return true;
-
-				}
-
-				if (vs.get(i).equals(t.triangle.v2)
-						&& vs.get(j).equals(t.triangle.v1)) { /* TODO tex coords equal */
-
-					if (vs.get(k).equals(t.triangle.v3)) {
-
-						removeVertex(j);
-
-					} else {
-
-						insertVertex(j, t.triangle.v3,
-								texCoordLists, t.texCoordOffset + 2);
-
-					}
-
-					return true;
-
-				}
-
-			}
-
-			return false;
-
-		}
-
-		public void removeDuplicateEdges() {
-
-			boolean repeat = true;
-
-			while (repeat) {
-
-				repeat = false;
-
-				assert vs.size() >= 3;
-
-				for (int i = 0; i < vs.size(); i++) {
-					int j = (i+1) % vs.size();
-					int k = (i+2) % vs.size();
-
-					//TODO: what about tex coords?
-					if (vs.get(i).equals(vs.get(k))) {
-
-						if (k > j) {
-							removeVertex(k);
-							removeVertex(j);
-						} else {
-							removeVertex(j);
-							removeVertex(k);
-						}
-
-						repeat = true;
-						break;
-
-					}
-
-				}
-
-			}
-
-		}
-
-		private void insertVertex(int i, VectorXYZ vertex,
-				List<List<VectorXZ>> insTexCoordLists, int texCoordPos) {
-
-			this.vs.add(i, vertex);
-
-			for (int list = 0; list < texCoordLists.size(); list++) {
-
-				this.texCoordLists.get(list).add(i,
-						insTexCoordLists.get(list).get(texCoordPos));
-			}
-
-		}
-
-		private void removeVertex(int i) {
-
-			this.vs.remove(i);
-
-			for (int list = 0; list < texCoordLists.size(); list++) {
-				this.texCoordLists.get(list).remove(i);
-			}
-
-		}
-
 		@Override
 		public String toString() {
 			return vs.toString();
@@ -237,6 +114,8 @@ public abstract class FaceTarget<R extends Renderable>
 			Collection<? extends TriangleXYZ> triangles,
 			List<List<VectorXZ>> texCoordLists) {
 
+		Metrics.add("triangles", triangles.size());
+
 		int i = 0;
 
 		for (TriangleXYZ triangle : triangles) {
@@ -328,59 +207,131 @@ public abstract class FaceTarget<R extends Renderable>
 	}
 
 	/**
+	 * merges triangles into faces. Triangles are merged if they share an edge
+	 * (with the same texture coordinates on both sides) and have almost the same normal.
+	 *
+	 * Each face is grown from a single triangle by looking up the triangles
+	 * adjacent to its boundary edges in a hash map of directed edges,
+	 * so the running time is roughly linear in the number of triangles.
+	 *
 	 * @param isolatedTriangles  non-empty collection of triangles
 	 */
 	protected static Collection<Face> combineTrianglesToFaces(
 			Collection<IsolatedTriangle> isolatedTriangles) {
 
-		List<IsolatedTriangle> triangles =
-				new LinkedList<IsolatedTriangle>(isolatedTriangles);
+		List<IsolatedTriangle> triangles = new ArrayList<IsolatedTriangle>(isolatedTriangles);
+
+		/* index the triangles by their directed edges */
+
+		Multimap<DirectedEdge, Integer> trianglesByEdge = ArrayListMultimap.create();
+
+		for (int i = 0; i < triangles.size(); i++) {
+			TriangleXYZ t = triangles.get(i).triangle;
+			trianglesByEdge.put(new DirectedEdge(t.v1, t.v2), i);
+			trianglesByEdge.put(new DirectedEdge(t.v2, t.v3), i);
+			trianglesByEdge.put(new DirectedEdge(t.v3, t.v1), i);
+		}
+
+		/* grow a face from each triangle that isn't part of a face yet */
+
+		boolean[] used = new boolean[triangles.size()];
 
 		Collection<Face> faces = new ArrayList<Face>();
 
-		/* turn one triangle into a face */
+		for (int i = 0; i < triangles.size(); i++) {
+			if (!used[i]) {
+				used[i] = true;
+				faces.add(growFace(triangles.get(i), triangles, trianglesByEdge, used));
+			}
+		}
+
+		return faces;
+
+	}
 
-		faces.add(createFaceFromTriangle(triangles.remove(0)));
+	/**
+	 * creates a face from a triangle and adds all suitable neighboring triangles to it
+	 */
+	private static Face growFace(IsolatedTriangle seedTriangle, List<IsolatedTriangle> triangles,
+			Multimap<DirectedEdge, Integer> trianglesByEdge, boolean[] used) {
 
-		/* turn remaining triangles into faces or insert them into existing ones */
+		FaceBoundary boundary = new FaceBoundary(seedTriangle);
 
-		trianglesToFacesLoop: while (!triangles.isEmpty()) {
+		Deque<BoundaryVertex> unprocessedEdges = new ArrayDeque<BoundaryVertex>(boundary.getVertices());
 
-			/* try to insert triangles into existing faces */
+		while (!unprocessedEdges.isEmpty()) {
 
-			for (IsolatedTriangle triangle : triangles) {
-				for (Face face : faces) {
+			/* look for a triangle on the other side of the boundary edge from a to b */
 
-					if (normalAlmostEquals(face.normal, triangle.normal)) {
+			BoundaryVertex a = unprocessedEdges.poll();
 
-						boolean inserted = face.tryInsert(triangle);
+			if (a.removed) continue;
 
-						if (inserted) {
-							triangles.remove(triangle);
-							continue trianglesToFacesLoop;
-						}
+			BoundaryVertex b = a.next;
 
-					}
+			for (int i : trianglesByEdge.get(new DirectedEdge(b.vertex, a.vertex))) {
+
+				IsolatedTriangle t = triangles.get(i);
+
+				if (used[i] || !normalAlmostEquals(seedTriangle.normal, t.normal)) continue;
+
+				int cornerB = edgeStart(t.triangle, b.vertex, a.vertex);
+				int cornerA = (cornerB + 1) % 3;
+				int cornerC = (cornerB + 2) % 3;
+
+				if (!texCoordsEqual(b, t, cornerB) || !texCoordsEqual(a, t, cornerA)) continue;
+
+				/* add the triangle's third vertex between a and b */
+
+				used[i] = true;
+
+				BoundaryVertex c = boundary.insertAfter(a,
+						t.triangle.getVertices().get(cornerC), texCoords(t, cornerC));
+
+				unprocessedEdges.add(a);
+				unprocessedEdges.add(c);
+
+				boundary.removeSpikes(asList(a, b), unprocessedEdges);
+
+				break;
 
-				}
 			}
 
-			/* could not extend existing faces, start a new face instead */
+		}
 
-			faces.add(createFaceFromTriangle(triangles.remove(0)));
+		return boundary.toFace(seedTriangle.normal);
 
+	}
+
+	/**
+	 * returns the index (0 to 2) of the corner where a directed edge of the triangle starts
+	 */
+	private static int edgeStart(TriangleXYZ t, VectorXYZ from, VectorXYZ to) {
+		if (t.v1.equals(from) && t.v2.equals(to)) {
+			return 0;
+		} else if (t.v2.equals(from) && t.v3.equals(to)) {
+			return 1;
+		} else {
+			return 2;
 		}
+	}
+
+	private static VectorXZ[] texCoords(IsolatedTriangle t, int corner) {
 
-		/* eliminate duplicate edges */
+		VectorXZ[] result = new VectorXZ[t.texCoordLists.size()];
 
-		for (Face face : faces) {
-			face.removeDuplicateEdges();
+		for (int layer = 0; layer < result.length; layer++) {
+			result[layer] = t.texCoordLists.get(layer).get(t.texCoordOffset + corner);
 		}
 
-		return faces;
+		return result;
 
 	}
 
+	private static boolean texCoordsEqual(BoundaryVertex v, IsolatedTriangle t, int corner) {
+		return Arrays.equals(v.texCoords, texCoords(t, corner));
+	}
+
 	protected static boolean normalAlmostEquals(VectorXYZ n1, VectorXYZ n2) {
 
 		return abs(n1.x - n2.x) <= 0.01
@@ -389,20 +340,172 @@ public abstract class FaceTarget<R extends Renderable>
 
 	}
 
-	protected static Face createFaceFromTriangle(IsolatedTriangle t) {
+	/** key for looking up triangles by one of their edges */
+	private static final class DirectedEdge {
+
+		private final VectorXYZ from, to;
+
+		public DirectedEdge(VectorXYZ from, VectorXYZ to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof DirectedEdge)) {
+				return false;
+			}
+			DirectedEdge other = (DirectedEdge) obj;
+			return from.equals(other.from) && to.equals(other.to);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * from.hashCode() + to.hashCode();
+		}
+
+	}
+
+	/** a vertex in the doubly linked boundary of a {@link FaceBoundary} */
+	private static final class BoundaryVertex {
+
+		final VectorXYZ vertex;
+		final VectorXZ[] texCoords;
+
+		BoundaryVertex prev, next;
+		boolean removed = false;
+
+		BoundaryVertex(VectorXYZ vertex, VectorXZ[] texCoords) {
+			this.vertex = vertex;
+			this.texCoords = texCoords;
+		}
+
+	}
+
+	/**
+	 * the boundary of a face while it is being assembled,
+	 * stored as a circular doubly linked list to allow insertions and removals in constant time
+	 */
+	private static final class FaceBoundary {
+
+		private BoundaryVertex head;
+		private int size = 0;
+
+		public FaceBoundary(IsolatedTriangle t) {
+
+			head = new BoundaryVertex(t.triangle.v1, texCoords(t, 0));
+			head.prev = head;
+			head.next = head;
+			size = 1;
+
+			insertAfter(insertAfter(head, t.triangle.v2, texCoords(t, 1)),
+					t.triangle.v3, texCoords(t, 2));
+
+		}
+
+		public List<BoundaryVertex> getVertices() {
+
+			List<BoundaryVertex> result = new ArrayList<BoundaryVertex>(size);
+
+			BoundaryVertex v = head;
+
+			do {
+				result.add(v);
+				v = v.next;
+			} while (v != head);
+
+			return result;
+
+		}
+
+		public BoundaryVertex insertAfter(BoundaryVertex v, VectorXYZ vertex, VectorXZ[] texCoords) {
+
+			BoundaryVertex newVertex = new BoundaryVertex(vertex, texCoords);
+
+			newVertex.prev = v;
+			newVertex.next = v.next;
+			v.next.prev = newVertex;
+			v.next = newVertex;
+
+			size ++;
+
+			return newVertex;
+
+		}
+
+		private void remove(BoundaryVertex v) {
+
+			if (v == head) {
+				head = v.next;
+			}
+
+			v.prev.next = v.next;
+			v.next.prev = v.prev;
+			v.removed = true;
+
+			size --;
+
+		}
+
+		/**
+		 * eliminates duplicate edges, i.e. sequences x, y, x on the boundary, which are replaced with x.
+		 * These appear when a triangle is inserted into a concave corner of the face.
+		 * Sequences where the two occurrences of x have different tex coords are kept,
+		 * otherwise one set of tex coords would be lost.
+		 *
+		 * @param candidates        vertices which may be the middle of such a sequence
+		 * @param unprocessedEdges  collection of edges which will be used to look for more triangles,
+		 *                          changed edges are added to it
+		 */
+		public void removeSpikes(Collection<BoundaryVertex> candidates,
+				Collection<BoundaryVertex> unprocessedEdges) {
+
+			Deque<BoundaryVertex> queue = new ArrayDeque<BoundaryVertex>(candidates);
+
+			while (!queue.isEmpty() && size > 4) {
+
+				BoundaryVertex v = queue.poll();
+
+				if (!v.removed && v.prev.vertex.equals(v.next.vertex)
+						&& Arrays.equals(v.prev.texCoords, v.next.texCoords)) {
 
-		List<VectorXYZ> newFaceVs =
-				new ArrayList<VectorXYZ>(t.triangle.getVertices());
+					BoundaryVertex kept = v.prev;
+
+					remove(v.next);
+					remove(v);
+
+					unprocessedEdges.add(kept);
+
+					queue.add(kept);
+					queue.add(kept.next);
+
+				}
 
-		List<List<VectorXZ>> newFaceTCLists = new ArrayList<List<VectorXZ>>();
+			}
 
-		for (int list = 0; list < t.texCoordLists.size(); list++) {
-			newFaceTCLists.add(new ArrayList<VectorXZ>(
-					t.texCoordLists.get(list).subList(
-							t.texCoordOffset, t.texCoordOffset + 3)));
 		}
 
-		return new Face(newFaceVs,	newFaceTCLists, t.normal);
+		public Face toFace(VectorXYZ normal) {
+
+			List<BoundaryVertex> vertices = getVertices();
+
+			List<VectorXYZ> vs = new ArrayList<VectorXYZ>(vertices.size());
+			List<List<VectorXZ>> texCoordLists = new ArrayList<List<VectorXZ>>();
+
+			for (int layer = 0; layer < head.texCoords.length; layer++) {
+				texCoordLists.add(new ArrayList<VectorXZ>(vertices.size()));
+			}
+
+			for (BoundaryVertex v : vertices) {
+				vs.add(v.vertex);
+				for (int layer = 0; layer < v.texCoords.length; layer++) {
+					texCoordLists.get(layer).add(v.texCoords[layer]);
+				}
+			}
+
+			return new Face(vs, texCoordLists, normal);
+
+		}
 
 	}
 
@@ -1,14 +1,12 @@
 package org.osm2world.core.target.common;
 
+import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.OutputStream;
 
 import org.apache.batik.transcoder.TranscoderException;
 import org.apache.batik.transcoder.TranscoderInput;
 import org.apache.batik.transcoder.TranscoderOutput;
-import org.apache.batik.transcoder.image.PNGTranscoder;
+import org.apache.batik.transcoder.image.ImageTranscoder;
 import org.osm2world.core.target.common.material.TexCoordFunction;
 
 public class ImageTextureData extends TextureData {
@@ -16,80 +14,86 @@ public class ImageTextureData extends TextureData {
 	/**
 	 * Path to the texture file.
 	 * Represents a permanent, already saved
-	 * image file in contrast to the file
-	 * field in {@link TextTextureData}
+	 * image file in contrast to the generated
+	 * images of {@link TextTextureData}
 	 */
 	private final File file;
 
-	private File convertedToPng;
-
 	public ImageTextureData(File file, double width, double height, Wrap wrap, TexCoordFunction texCoordFunction,
 			boolean colorable, boolean isBumpMap) {
 
 		super(width, height, wrap, texCoordFunction, colorable, isBumpMap);
 
 		this.file = file;
-		this.convertedToPng = null;
+	}
+
+	/**
+	 * returns true if the texture is loaded from an SVG file,
+	 * which needs to be rasterized before use
+	 */
+	public boolean isSVG() {
+		return file.getName().endsWith(".svg");
 	}
 
 	@Override
 	public File getFile() {
 
-		if(this.file.getName().endsWith(".svg")) {
+		if (isSVG()) {
+			String prefix = file.getName().substring(0, file.getName().indexOf('.')) + "osm2World";
+			return TextureImageCache.getFile(file, prefix, () -> SVG2Image(file));
+		}
 
-			if(this.convertedToPng==null) {
+		return this.file;
 
-				convertedToPng = SVG2PNG(this.file);
-			}
+	}
+
+	@Override
+	public BufferedImage getBufferedImage() {
 
-			return convertedToPng;
+		if (isSVG()) {
+			return TextureImageCache.getImage(file, () -> SVG2Image(file));
 		}
 
-		return this.file;
+		return super.getBufferedImage();
 
 	}
 
-
 	/**
-	 * Converts an .svg image file into a (temporary) .png
+	 * Rasterizes an .svg image file in memory
 	 *
 	 * @param svg The svg file to be converted
-	 * @return a File object representation of the generated png
+	 * @return the rasterized image
 	 */
-	private File SVG2PNG(File svg) {
-
-		String prefix = svg.getName().substring(0, svg.getName().indexOf('.')) + "osm2World";
-
-		PNGTranscoder t = new PNGTranscoder();
+	private static BufferedImage SVG2Image(File svg) {
 
-		//create the transcoder input
-		String svgURI = svg.toURI().toString();
-		TranscoderInput input = new TranscoderInput(svgURI);
-
-		try {
-
-			File outputFile = null;
-
-			//create a temporary file in the default temporary-file directory
-			outputFile = File.createTempFile(prefix, ".png");
-			outputFile.deleteOnExit();
-
-			try(OutputStream ostream = new FileOutputStream(outputFile)) {
+		final BufferedImage[] result = new BufferedImage[1];
 
-				TranscoderOutput output = new TranscoderOutput(ostream);
+		ImageTranscoder t = new ImageTranscoder() {
 
-				//save the image.
-				t.transcode(input, output);
+			@Override
+			public BufferedImage createImage(int width, int height) {
+				return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+			}
 
-				ostream.flush();
+			@Override
+			public void writeImage(BufferedImage image, TranscoderOutput output) {
+				result[0] = image;
 			}
 
-			return outputFile;
+		};
 
-		} catch (IOException | TranscoderException e) {
+		//create the transcoder input
+		String svgURI = svg.toURI().toString();
+		TranscoderInput input = new TranscoderInput(svgURI);
 
+		try {
+			t.transcode(input, new TranscoderOutput());
+		} catch (TranscoderException e) {
 			throw new RuntimeException(e);
 		}
+
+		return result[0];
+
 	}
 
 	@Override
@@ -0,0 +1,41 @@
+package org.osm2world.core.target.common;
+
+import org.osm2world.core.target.Target;
+
+/**
+ * level of detail of the geometry rendered to a {@link Target}.
+ * Lower levels are intended for geometry which is only seen from far away, e.g. in low-zoom tiles.
+ * World objects supporting this simplify their geometry at lower levels, all others ignore it.
+ */
+public enum LevelOfDetail {
+
+	/** buildings as extruded footprints with flat roofs, forests as canopy patches, coarse terrain */
+	LOW(5),
+
+	/** buildings without windows, trees as billboards, reduced terrain */
+	MEDIUM(2),
+
+	/** full detail */
+	HIGH(1);
+
+	/** number of terrain grid cells which are merged into one along each axis */
+	public final int terrainGridStep;
+
+	private LevelOfDetail(int terrainGridStep) {
+		this.terrainGridStep = terrainGridStep;
+	}
+
+	/**
+	 * returns the appropriate level of detail for a tile's zoom level
+	 */
+	public static LevelOfDetail forTileZoom(int zoom) {
+		if (zoom >= 13) {
+			return HIGH;
+		} else if (zoom >= 11) {
+			return MEDIUM;
+		} else {
+			return LOW;
+		}
+	}
+
+}
@@ -1,5 +1,7 @@
 package org.osm2world.core.target.common;
 
+import static java.lang.Math.sqrt;
+import static java.util.Collections.emptyList;
 import static org.osm2world.core.math.algorithms.NormalCalculationUtil.*;
 import static org.osm2world.core.target.common.Primitive.Type.*;
 
@@ -14,6 +16,7 @@ import org.osm2world.core.math.VectorXZ;
 import org.osm2world.core.target.Renderable;
 import org.osm2world.core.target.common.material.Material;
 import org.osm2world.core.target.common.material.Material.Interpolation;
+import org.osm2world.core.util.Metrics;
 
 /**
  * superclass for targets that are based on OpenGL primitives.
@@ -37,6 +40,7 @@ public abstract class PrimitiveTarget<R extends Renderable>
 	@Override
 	public void drawTriangleStrip(Material material, List<VectorXYZ> vs,
 			List<List<VectorXZ>> texCoordLists) {
+		Metrics.add("triangles", vs.size() - 2);
 		boolean smooth = (material.getInterpolation() == Interpolation.SMOOTH);
 		drawPrimitive(TRIANGLE_STRIP, material, vs,
 				calculateTriangleStripNormals(vs, smooth),
@@ -46,6 +50,7 @@ public abstract class PrimitiveTarget<R extends Renderable>
 	@Override
 	public void drawTriangleFan(Material material, List<VectorXYZ> vs,
 			List<List<VectorXZ>> texCoordLists) {
+		Metrics.add("triangles", vs.size() - 2);
 		boolean smooth = (material.getInterpolation() == Interpolation.SMOOTH);
 		drawPrimitive(TRIANGLE_FAN, material, vs,
 				calculateTriangleFanNormals(vs, smooth),
@@ -57,6 +62,8 @@ public abstract class PrimitiveTarget<R extends Renderable>
 			Collection<? extends TriangleXYZ> triangles,
 			List<List<VectorXZ>> texCoordLists) {
 
+		Metrics.add("triangles", triangles.size());
+
 		List<VectorXYZ> vectors = new ArrayList<VectorXYZ>(triangles.size()*3);
 
 		for (TriangleXYZ triangle : triangles) {
@@ -77,6 +84,8 @@ public abstract class PrimitiveTarget<R extends Renderable>
 			Collection<? extends TriangleXYZWithNormals> triangles,
 			List<List<VectorXZ>> texCoordLists) {
 
+		Metrics.add("triangles", triangles.size());
+
 		List<VectorXYZ> vectors = new ArrayList<VectorXYZ>(triangles.size()*3);
 		List<VectorXYZ> normals = new ArrayList<VectorXYZ>(triangles.size()*3);
 
@@ -93,4 +102,98 @@ public abstract class PrimitiveTarget<R extends Renderable>
 
 	}
 
+	/**
+	 * draws the mesh as a single {@link Primitive.Type#TRIANGLES} primitive.
+	 * Vertices, normals and texture coordinates are read from the packed arrays directly,
+	 * each array entry is turned into a vector at most once even if it is shared by several triangles.
+	 * Missing normals are calculated per triangle, like in {@link #drawTriangles(Material, Collection, List)}.
+	 */
+	@Override
+	public void drawMesh(Material material, double[] positions, double[] normals,
+			double[][] texCoords, int[] indices) {
+
+		int cornerCount = (indices != null) ? indices.length : positions.length / 3;
+		cornerCount -= cornerCount % 3;
+
+		Metrics.add("triangles", cornerCount / 3);
+
+		VectorXYZ[] vertexCache = new VectorXYZ[positions.length / 3];
+		VectorXYZ[] normalCache = (normals != null) ? new VectorXYZ[normals.length / 3] : null;
+
+		List<VectorXYZ> vertexList = new ArrayList<VectorXYZ>(cornerCount);
+		List<VectorXYZ> normalList = new ArrayList<VectorXYZ>(cornerCount);
+
+		for (int corner = 0; corner < cornerCount; corner++) {
+			int v = (indices != null) ? indices[corner] : corner;
+			vertexList.add(vectorAt(positions, v, vertexCache));
+			if (normals != null) {
+				normalList.add(vectorAt(normals, v, normalCache));
+			}
+		}
+
+		if (normals == null) {
+
+			/* flat normals, calculated in the same way as calculateTriangleNormals */
+
+			for (int corner = 0; corner < cornerCount; corner += 3) {
+
+				VectorXYZ vBefore = vertexList.get(corner);
+				VectorXYZ vAt = vertexList.get(corner + 1);
+				VectorXYZ vAfter = vertexList.get(corner + 2);
+
+				double bx = vBefore.x - vAt.x, by = vBefore.y - vAt.y, bz = vBefore.z - vAt.z;
+				double ax = vAfter.x - vAt.x, ay = vAfter.y - vAt.y, az = vAfter.z - vAt.z;
+
+				double x = by * az - bz * ay;
+				double y = bz * ax - bx * az;
+				double z = bx * ay - by * ax;
+
+				double length = sqrt(x*x + y*y + z*z);
+				VectorXYZ normal = new VectorXYZ(x / length, y / length, z / length);
+
+				normalList.add(normal);
+				normalList.add(normal);
+				normalList.add(normal);
+
+			}
+
+		}
+
+		List<List<VectorXZ>> texCoordLists = emptyList();
+
+		if (texCoords != null && texCoords.length > 0) {
+
+			texCoordLists = new ArrayList<List<VectorXZ>>(texCoords.length);
+
+			for (double[] texCoordArray : texCoords) {
+
+				VectorXZ[] texCoordCache = new VectorXZ[texCoordArray.length / 2];
+				List<VectorXZ> texCoordList = new ArrayList<VectorXZ>(cornerCount);
+
+				for (int corner = 0; corner < cornerCount; corner++) {
+					int v = (indices != null) ? indices[corner] : corner;
+					if (texCoordCache[v] == null) {
+						texCoordCache[v] = new VectorXZ(texCoordArray[2 * v], texCoordArray[2 * v + 1]);
+					}
+					texCoordList.add(texCoordCache[v]);
+				}
+
+				texCoordLists.add(texCoordList);
+
+			}
+
+		}
+
+		drawPrimitive(TRIANGLES, material, vertexList, normalList, texCoordLists);
+
+	}
+
+	private static final VectorXYZ vectorAt(double[] packedVectors, int index, VectorXYZ[] cache) {
+		if (cache[index] == null) {
+			cache[index] = new VectorXYZ(packedVectors[3 * index],
+					packedVectors[3 * index + 1], packedVectors[3 * index + 2]);
+		}
+		return cache[index];
+	}
+
 }
@@ -0,0 +1,545 @@
+package org.osm2world.core.target.common;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.osm2world.core.map_data.data.MapData;
+import org.osm2world.core.map_data.data.MapElement;
+import org.osm2world.core.map_elevation.data.GroundState;
+import org.osm2world.core.math.TriangleXYZ;
+import org.osm2world.core.math.TriangleXYZWithNormals;
+import org.osm2world.core.math.VectorXYZ;
+import org.osm2world.core.math.VectorXZ;
+import org.osm2world.core.target.RenderableToAllTargets;
+import org.osm2world.core.target.ShardableTarget;
+import org.osm2world.core.target.Target;
+import org.osm2world.core.target.TargetUtil;
+import org.osm2world.core.target.common.material.Material;
+import org.osm2world.core.target.frontend_pbf.ModelTarget;
+import org.osm2world.core.util.Metrics;
+import org.osm2world.core.util.ProgressTracker;
+import org.osm2world.core.world.data.WorldObject;
+
+import com.slimjars.dist.gnu.trove.list.array.TDoubleArrayList;
+import com.slimjars.dist.gnu.trove.list.array.TIntArrayList;
+
+/**
+ * target which records the draw calls of {@link WorldObject}s, so they can later be replayed
+ * to any number of other targets. This avoids running the (potentially expensive)
+ * rendering code of each world object again for every output.
+ *
+ * Geometry is stored in primitive arrays and remains grouped by world object.
+ * Once recording has been completed with {@link #finish()}, the recording is no longer modified
+ * and can be replayed to several independent targets in parallel.
+ *
+ * Objects which provide specialized rendering code for a target's renderable type
+ * (and all objects for {@link ModelTarget}s and targets with a different {@link LevelOfDetail})
+ * are rendered directly during replay instead. For targets where none of the recorded calls
+ * can be used, see {@link #canReplayTo(Target)}, creating a recording is therefore pointless.
+ *
+ * Recordings can be split into shards, which allows world objects to be rendered
+ * in parallel even for targets which are not shardable themselves.
+ */
+public class RecordingTarget extends AbstractTarget<RenderableToAllTargets>
+		implements ShardableTarget<RenderableToAllTargets> {
+
+	private static final int TRIANGLES = 0;
+	private static final int TRIANGLES_WITH_NORMALS = 1;
+	private static final int TRIANGLE_STRIP = 2;
+	private static final int TRIANGLE_FAN = 3;
+	private static final int CONVEX_POLYGON = 4;
+	private static final int COLUMN = 5;
+
+	/**
+	 * number of ints per draw call in {@link #calls}: type, material index,
+	 * vertex count (or corner count for columns), texture layer count (or cap flags for columns),
+	 * offset in {@link #coords} and offset in {@link #texCoords}
+	 */
+	private static final int CALL_SIZE = 6;
+
+	/** the level of detail used by {@link #record(MapData)} */
+	private static final LevelOfDetail RECORDING_LEVEL_OF_DETAIL = LevelOfDetail.HIGH;
+
+	private final List<Material> materials = new ArrayList<Material>();
+	private final Map<Material, Integer> materialIndices = new IdentityHashMap<Material, Integer>();
+
+	private final TIntArrayList calls = new TIntArrayList();
+	private final TDoubleArrayList coords = new TDoubleArrayList();
+	private final TDoubleArrayList texCoords = new TDoubleArrayList();
+
+	/** index of the first call for each object, in the order of the {@link #beginObject(WorldObject)} calls */
+	private final TIntArrayList objectCallStarts = new TIntArrayList();
+	private final Map<WorldObject, Integer> objectIndices = new IdentityHashMap<WorldObject, Integer>();
+
+	private boolean finished = false;
+
+	/**
+	 * creates a recording of all world objects in the map data.
+	 * Objects below the ground are included, so the recording can be used
+	 * regardless of a target's "renderUnderground" setting.
+	 */
+	public static RecordingTarget record(MapData mapData) {
+		return record(mapData, 1);
+	}
+
+	/**
+	 * variant of {@link #record(MapData)} which renders the world objects using several threads
+	 *
+	 * @param threadCount  maximum number of threads to use
+	 */
+	public static RecordingTarget record(MapData mapData, int threadCount) {
+		return record(mapData, threadCount, ProgressTracker.NONE);
+	}
+
+	/**
+	 * variant of {@link #record(MapData, int)} which reports the progress after each map element
+	 */
+	public static RecordingTarget record(MapData mapData, int threadCount, ProgressTracker progress) {
+		RecordingTarget recording = new RecordingTarget();
+		recording.setLevelOfDetail(RECORDING_LEVEL_OF_DETAIL);
+		TargetUtil.renderWorldObjects(recording, mapData, true, threadCount, progress);
+		recording.finish();
+		return recording;
+	}
+
+	/**
+	 * returns whether the calls in recordings created by {@link #record(MapData)} can be replayed to a target.
+	 * This is not the case for {@link ModelTarget}s, because some world objects only draw models
+	 * (rather than the models' geometry) when rendering to such a target directly.
+	 * It is also not the case for targets with a different {@link LevelOfDetail}.
+	 */
+	public static boolean canReplayTo(Target<?> target) {
+		return !(target instanceof ModelTarget<?>)
+				&& target.getLevelOfDetail() == RECORDING_LEVEL_OF_DETAIL;
+	}
+
+	@Override
+	public Class<RenderableToAllTargets> getRenderableType() {
+		return RenderableToAllTargets.class;
+	}
+
+	@Override
+	public void render(RenderableToAllTargets renderable) {
+		renderable.renderTo(this);
+	}
+
+	@Override
+	public void beginObject(WorldObject object) {
+		checkNotFinished();
+		if (object != null) {
+			objectIndices.put(object, objectCallStarts.size());
+		}
+		objectCallStarts.add(calls.size() / CALL_SIZE);
+	}
+
+	@Override
+	public void drawTriangles(Material material,
+			Collection<? extends TriangleXYZ> triangles,
+			List<List<VectorXZ>> texCoordLists) {
+
+		List<VectorXYZ> vs = new ArrayList<VectorXYZ>(3 * triangles.size());
+
+		for (TriangleXYZ t : triangles) {
+			vs.add(t.v1);
+			vs.add(t.v2);
+			vs.add(t.v3);
+		}
+
+		addCall(TRIANGLES, material, vs, texCoordLists);
+
+	}
+
+	@Override
+	public void drawTrianglesWithNormals(Material material,
+			Collection<? extends TriangleXYZWithNormals> triangles,
+			List<List<VectorXZ>> texCoordLists) {
+
+		List<VectorXYZ> vs = new ArrayList<VectorXYZ>(3 * triangles.size());
+
+		for (TriangleXYZWithNormals t : triangles) {
+			vs.add(t.v1);
+			vs.add(t.v2);
+			vs.add(t.v3);
+		}
+
+		addCall(TRIANGLES_WITH_NORMALS, material, vs, texCoordLists);
+
+		for (TriangleXYZWithNormals t : triangles) {
+			addCoords(t.n1);
+			addCoords(t.n2);
+			addCoords(t.n3);
+		}
+
+	}
+
+	@Override
+	public void drawTriangleStrip(Material material, List<VectorXYZ> vs,
+			List<List<VectorXZ>> texCoordLists) {
+		addCall(TRIANGLE_STRIP, material, vs, texCoordLists);
+	}
+
+	@Override
+	public void drawTriangleFan(Material material, List<VectorXYZ> vs,
+			List<List<VectorXZ>> texCoordLists) {
+		addCall(TRIANGLE_FAN, material, vs, texCoordLists);
+	}
+
+	@Override
+	public void drawConvexPolygon(Material material, List<VectorXYZ> vs,
+			List<List<VectorXZ>> texCoordLists) {
+		addCall(CONVEX_POLYGON, material, vs, texCoordLists);
+	}
+
+	/**
+	 * records meshes without creating objects for the vertices.
+	 * They are replayed as a {@link #drawTriangles(Material, Collection, List)}
+	 * or {@link #drawTrianglesWithNormals(Material, Collection, List)} call.
+	 */
+	@Override
+	public void drawMesh(Material material, double[] positions, double[] normals,
+			double[][] meshTexCoords, int[] indices) {
+
+		checkNotFinished();
+
+		int cornerCount = (indices != null) ? indices.length : positions.length / 3;
+		int texLayers = (meshTexCoords != null) ? meshTexCoords.length : 0;
+
+		calls.add(normals == null ? TRIANGLES : TRIANGLES_WITH_NORMALS);
+		calls.add(materialIndex(material));
+		calls.add(cornerCount);
+		calls.add(texLayers);
+		calls.add(coords.size());
+		calls.add(texCoords.size());
+
+		for (int corner = 0; corner < cornerCount; corner++) {
+			int v = (indices != null) ? indices[corner] : corner;
+			coords.add(positions, 3 * v, 3);
+		}
+
+		if (normals != null) {
+			for (int corner = 0; corner < cornerCount; corner++) {
+				int v = (indices != null) ? indices[corner] : corner;
+				coords.add(normals, 3 * v, 3);
+			}
+		}
+
+		for (int layer = 0; layer < texLayers; layer++) {
+			for (int corner = 0; corner < cornerCount; corner++) {
+				int v = (indices != null) ? indices[corner] : corner;
+				texCoords.add(meshTexCoords[layer], 2 * v, 2);
+			}
+		}
+
+	}
+
+	/**
+	 * records columns as a single call, because some targets (such as POV-Ray)
+	 * have a specialized implementation for them
+	 */
+	@Override
+	public void drawColumn(Material material, Integer corners,
+			VectorXYZ base, double height, double radiusBottom,
+			double radiusTop, boolean drawBottom, boolean drawTop) {
+
+		checkNotFinished();
+
+		calls.add(COLUMN);
+		calls.add(materialIndex(material));
+		calls.add(corners == null ? -1 : corners);
+		calls.add((drawBottom ? 1 : 0) | (drawTop ? 2 : 0));
+		calls.add(coords.size());
+		calls.add(texCoords.size());
+
+		addCoords(base);
+		coords.add(height);
+		coords.add(radiusBottom);
+		coords.add(radiusTop);
+
+	}
+
+	@Override
+	public RecordingTarget createShard() {
+		RecordingTarget shard = new RecordingTarget();
+		shard.setConfiguration(config);
+		shard.setLevelOfDetail(getLevelOfDetail());
+		return shard;
+	}
+
+	/**
+	 * appends the calls and objects of a shard to this recording
+	 */
+	@Override
+	public void mergeShard(ShardableTarget<RenderableToAllTargets> shard) {
+
+		checkNotFinished();
+
+		RecordingTarget other = (RecordingTarget) shard;
+
+		int callOffset = getCallCount();
+		int objectOffset = objectCallStarts.size();
+		int coordOffset = coords.size();
+		int texCoordOffset = texCoords.size();
+
+		for (int i = 0; i < other.calls.size(); i += CALL_SIZE) {
+			calls.add(other.calls.get(i));
+			calls.add(materialIndex(other.materials.get(other.calls.get(i + 1))));
+			calls.add(other.calls.get(i + 2));
+			calls.add(other.calls.get(i + 3));
+			calls.add(other.calls.get(i + 4) + coordOffset);
+			calls.add(other.calls.get(i + 5) + texCoordOffset);
+		}
+
+		coords.addAll(other.coords);
+		texCoords.addAll(other.texCoords);
+
+		for (int i = 0; i < other.objectCallStarts.size(); i++) {
+			objectCallStarts.add(other.objectCallStarts.get(i) + callOffset);
+		}
+
+		for (Map.Entry<WorldObject, Integer> entry : other.objectIndices.entrySet()) {
+			objectIndices.put(entry.getKey(), entry.getValue() + objectOffset);
+		}
+
+	}
+
+	@Override
+	public void finish() {
+		finished = true;
+	}
+
+	/** returns the number of recorded draw calls */
+	public int getCallCount() {
+		return calls.size() / CALL_SIZE;
+	}
+
+	/**
+	 * replays the recording to a target, producing the same result as
+	 * {@link TargetUtil#renderWorldObjects(Target, MapData, boolean)}.
+	 * Does not call {@link Target#finish()}.
+	 *
+	 * @param mapData  the map data which has been recorded; != null
+	 */
+	public void replayTo(Target<?> target, MapData mapData, boolean renderUnderground) {
+		replayTo(target, mapData, renderUnderground, ProgressTracker.NONE);
+	}
+
+	/**
+	 * variant of {@link #replayTo(Target, MapData, boolean)} which reports the progress
+	 * after each map element
+	 */
+	public void replayTo(Target<?> target, MapData mapData, boolean renderUnderground,
+			ProgressTracker progress) {
+
+		if (!finished) {
+			throw new IllegalStateException("recording has not been finished");
+		}
+
+		boolean replayPossible = !(target instanceof ModelTarget<?>)
+				&& target.getLevelOfDetail() == getLevelOfDetail();
+
+		int elementCount = mapData.getMapElementCount();
+		int completedCount = 0;
+
+		try (Metrics.Timer timer = Metrics.startTimer("replay " + target.getClass().getSimpleName())) {
+
+			for (MapElement mapElement : mapData.getMapElements()) {
+				for (WorldObject r : mapElement.getRepresentations()) {
+					if (renderUnderground || r.getGroundState() != GroundState.BELOW) {
+
+						try {
+
+							Integer objectIndex = objectIndices.get(r);
+
+							if (replayPossible && objectIndex != null
+									&& !target.getRenderableType().isInstance(r)) {
+								target.beginObject(r);
+								replayCalls(target, objectIndex);
+							} else {
+								TargetUtil.renderObject(target, r);
+							}
+
+						} catch (Exception e) {
+							Metrics.increment("exceptions ignored");
+							System.err.println("ignored exception:");
+							//TODO proper logging
+							e.printStackTrace();
+							System.err.println("this exception occurred for the following input:\n"
+									+ mapElement);
+						}
+
+					}
+				}
+				progress.updateProgress(++completedCount, elementCount);
+			}
+
+		}
+
+	}
+
+	private void replayCalls(Target<?> target, int objectIndex) {
+
+		int firstCall = objectCallStarts.get(objectIndex);
+		int lastCall = (objectIndex + 1 < objectCallStarts.size())
+				? objectCallStarts.get(objectIndex + 1)
+				: getCallCount();
+
+		for (int call = firstCall; call < lastCall; call++) {
+
+			int i = call * CALL_SIZE;
+
+			int type = calls.get(i);
+			Material material = materials.get(calls.get(i + 1));
+			int count = calls.get(i + 2);
+			int texLayers = calls.get(i + 3);
+			int coordOffset = calls.get(i + 4);
+			int texCoordOffset = calls.get(i + 5);
+
+			if (type == COLUMN) {
+				target.drawColumn(material, count < 0 ? null : count,
+						getVector(coordOffset), coords.get(coordOffset + 3),
+						coords.get(coordOffset + 4), coords.get(coordOffset + 5),
+						(texLayers & 1) != 0, (texLayers & 2) != 0);
+				continue;
+			}
+
+			List<VectorXYZ> vs = getVectors(coordOffset, count);
+			List<List<VectorXZ>> texCoordLists = getTexCoordLists(texCoordOffset, count, texLayers);
+
+			switch (type) {
+
+			case TRIANGLES:
+				target.drawTriangles(material, getTriangles(vs), texCoordLists);
+				break;
+
+			case TRIANGLES_WITH_NORMALS:
+				List<VectorXYZ> normals = getVectors(coordOffset + 3 * count, count);
+				List<TriangleXYZWithNormals> triangles = new ArrayList<TriangleXYZWithNormals>(count / 3);
+				for (int v = 0; v + 2 < count; v += 3) {
+					triangles.add(new TriangleXYZWithNormals(
+							vs.get(v), vs.get(v + 1), vs.get(v + 2),
+							normals.get(v), normals.get(v + 1), normals.get(v + 2)));
+				}
+				target.drawTrianglesWithNormals(material, triangles, texCoordLists);
+				break;
+
+			case TRIANGLE_STRIP:
+				target.drawTriangleStrip(material, vs, texCoordLists);
+				break;
+
+			case TRIANGLE_FAN:
+				target.drawTriangleFan(material, vs, texCoordLists);
+				break;
+
+			case CONVEX_POLYGON:
+				target.drawConvexPolygon(material, vs, texCoordLists);
+				break;
+
+			default:
+				throw new IllegalStateException("unknown call type " + type);
+
+			}
+
+		}
+
+	}
+
+	private void addCall(int type, Material material, List<VectorXYZ> vs,
+			List<List<VectorXZ>> texCoordLists) {
+
+		checkNotFinished();
+
+		if (texCoordLists != null) {
+			for (List<VectorXZ> texCoordList : texCoordLists) {
+				if (texCoordList.size() != vs.size()) {
+					throw new IllegalArgumentException("incorrect number of texture coordinates");
+				}
+			}
+		}
+
+		calls.add(type);
+		calls.add(materialIndex(material));
+		calls.add(vs.size());
+		calls.add(texCoordLists == null ? -1 : texCoordLists.size());
+		calls.add(coords.size());
+		calls.add(texCoords.size());
+
+		for (VectorXYZ v : vs) {
+			addCoords(v);
+		}
+
+		if (texCoordLists != null) {
+			for (List<VectorXZ> texCoordList : texCoordLists) {
+				for (VectorXZ t : texCoordList) {
+					texCoords.add(t.x);
+					texCoords.add(t.z);
+				}
+			}
+		}
+
+	}
+
+	private void addCoords(VectorXYZ v) {
+		coords.add(v.x);
+		coords.add(v.y);
+		coords.add(v.z);
+	}
+
+	private int materialIndex(Material material) {
+		Integer index = materialIndices.get(material);
+		if (index == null) {
+			index = materials.size();
+			materials.add(material);
+			materialIndices.put(material, index);
+		}
+		return index;
+	}
+
+	private VectorXYZ getVector(int offset) {
+		return new VectorXYZ(coords.get(offset), coords.get(offset + 1), coords.get(offset + 2));
+	}
+
+	private List<VectorXYZ> getVectors(int offset, int count) {
+		List<VectorXYZ> result = new ArrayList<VectorXYZ>(count);
+		for (int v = 0; v < count; v++) {
+			result.add(getVector(offset + 3 * v));
+		}
+		return result;
+	}
+
+	private static List<TriangleXYZ> getTriangles(List<VectorXYZ> vs) {
+		List<TriangleXYZ> result = new ArrayList<TriangleXYZ>(vs.size() / 3);
+		for (int v = 0; v + 2 < vs.size(); v += 3) {
+			result.add(new TriangleXYZ(vs.get(v), vs.get(v + 1), vs.get(v + 2)));
+		}
+		return result;
+	}
+
+	private List<List<VectorXZ>> getTexCoordLists(int offset, int count, int layers) {
+
+		if (layers < 0) return null;
+
+		List<List<VectorXZ>> result = new ArrayList<List<VectorXZ>>(layers);
+
+		for (int layer = 0; layer < layers; layer++) {
+			List<VectorXZ> texCoordList = new ArrayList<VectorXZ>(count);
+			for (int v = 0; v < count; v++) {
+				int i = offset + 2 * (layer * count + v);
+				texCoordList.add(new VectorXZ(texCoords.get(i), texCoords.get(i + 1)));
+			}
+			result.add(texCoordList);
+		}
+
+		return result;
+
+	}
+
+	private void checkNotFinished() {
+		if (finished) {
+			throw new IllegalStateException("recording has already been finished");
+		}
+	}
+
+}
@@ -1,27 +1,20 @@
 package org.osm2world.core.target.common;
 
+import static java.util.Arrays.asList;
+
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
-import javax.imageio.ImageIO;
-
 import org.osm2world.core.target.common.material.TexCoordFunction;
 
 public class TextTextureData extends TextureData {
 
-	/**
-	 * File generated based on {@link #text}
-	 * and temporarily saved until application termination
-	 */
-	private File file;
-
 	public final String text;
 	public Font font;
 	public final double topOffset;
@@ -45,82 +38,74 @@ public class TextTextureData extends TextureData {
 		this.leftOffset = leftOffset;
 		this.textColor = textColor;
 		this.relativeFontSize = relativeFontSize;
-		this.file = null;
 	}
 
 	@Override
 	public File getFile() {
+		return TextureImageCache.getFile(getImageKey(), getFilePrefix(), this::renderImage);
+	}
 
-		if(file == null) {
-
-			if(!(text.equals(""))) {
-
-				//temporary BufferedImage to extract font metrics
-				BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
-				Graphics2D g2d = image.createGraphics();
-
-				Font font = this.font == null ? new Font("Interstate", Font.BOLD, 100) : this.font ;
-
-				//extract font metrics
-				FontMetrics fm = g2d.getFontMetrics(font);
-				int stringWidth = fm.stringWidth(this.text);
-				int stringHeight = fm.getHeight();
-				g2d.dispose();
+	@Override
+	public BufferedImage getBufferedImage() {
+		return TextureImageCache.getImage(getImageKey(), this::renderImage);
+	}
 
-				//image with actual size and text
-				int imageHeight = (int) (stringHeight/(relativeFontSize/100));
+	/**
+	 * returns a key describing the rendered image's content.
+	 * Text textures with the same key share a single image.
+	 */
+	private Object getImageKey() {
+		return asList(text, font, width / height, topOffset, leftOffset, textColor, relativeFontSize);
+	}
 
-				double signAspectRatio = this.width/this.height;
-				int imageWidth = (int) (imageHeight*signAspectRatio);
+	private String getFilePrefix() {
+		return text.replaceAll("[^\\p{Alnum}]", "") + "osm2world";
+	}
 
-				image = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_ARGB);
-				g2d = image.createGraphics();
-				g2d.setFont(font);
-				g2d.setPaint(textColor);
+	private BufferedImage renderImage() {
 
-				//place text
-				int xCoord = (int)(imageWidth*leftOffset/100 - stringWidth/2);
-				int yCoord = (int)(imageHeight*topOffset/100 + stringHeight/3 );
+		if(!(text.equals(""))) {
 
-				g2d.drawString(this.text, xCoord, yCoord);
+			//temporary BufferedImage to extract font metrics
+			BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+			Graphics2D g2d = image.createGraphics();
 
-				g2d.dispose();
+			Font font = this.font == null ? new Font("Interstate", Font.BOLD, 100) : this.font ;
 
-				String prefix = text+"osm2world";
+			//extract font metrics
+			FontMetrics fm = g2d.getFontMetrics(font);
+			int stringWidth = fm.stringWidth(this.text);
+			int stringHeight = fm.getHeight();
+			g2d.dispose();
 
-				this.file = createPng(prefix, image);
-				return this.file;
+			//image with actual size and text
+			int imageHeight = (int) (stringHeight/(relativeFontSize/100));
 
-			} else {
+			double signAspectRatio = this.width/this.height;
+			int imageWidth = (int) (imageHeight*signAspectRatio);
 
-				//create blank texture
+			image = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_ARGB);
+			g2d = image.createGraphics();
+			g2d.setFont(font);
+			g2d.setPaint(textColor);
 
-				BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+			//place text
+			int xCoord = (int)(imageWidth*leftOffset/100 - stringWidth/2);
+			int yCoord = (int)(imageHeight*topOffset/100 + stringHeight/3 );
 
-				String prefix = "osm2world";
+			g2d.drawString(this.text, xCoord, yCoord);
 
-				this.file = createPng(prefix, image);
-				return this.file;
-			}
-		}
+			g2d.dispose();
 
-		return this.file;
-	}
+			return image;
 
-	private File createPng(String prefix, BufferedImage image) {
+		} else {
 
-		File outputFile = null;
+			//create blank texture
+			return new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
 
-		try {
-			outputFile = File.createTempFile(prefix, ".png");
-			outputFile.deleteOnExit();
-			ImageIO.write(image, "png", outputFile);
-		}catch(IOException e) {
-			System.err.println("Exception in createPng: "+prefix);
-			e.printStackTrace();
 		}
 
-		return outputFile;
 	}
 
 	public static enum FontStyle {
@@ -164,7 +149,7 @@ public class TextTextureData extends TextureData {
 	//auto-generated
 	@Override
 	public String toString() {
-		return "TextTextureData [text=" + text + ", file=" + file + ", font=" + font + ", topOffset=" + topOffset
+		return "TextTextureData [text=" + text + ", font=" + font + ", topOffset=" + topOffset
 				+ ", leftOffset=" + leftOffset + "]";
 	}
 
@@ -173,7 +158,6 @@ public class TextTextureData extends TextureData {
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + ((file == null) ? 0 : file.hashCode());
 		result = prime * result + ((font == null) ? 0 : font.hashCode());
 		long temp;
 		temp = Double.doubleToLongBits(leftOffset);
@@ -181,6 +165,13 @@ public class TextTextureData extends TextureData {
 		result = prime * result + ((text == null) ? 0 : text.hashCode());
 		temp = Double.doubleToLongBits(topOffset);
 		result = prime * result + (int) (temp ^ (temp >>> 32));
+		result = prime * result + ((textColor == null) ? 0 : textColor.hashCode());
+		temp = Double.doubleToLongBits(relativeFontSize);
+		result = prime * result + (int) (temp ^ (temp >>> 32));
+		temp = Double.doubleToLongBits(width);
+		result = prime * result + (int) (temp ^ (temp >>> 32));
+		temp = Double.doubleToLongBits(height);
+		result = prime * result + (int) (temp ^ (temp >>> 32));
 		return result;
 	}
 
@@ -194,11 +185,6 @@ public class TextTextureData extends TextureData {
 		if (getClass() != obj.getClass())
 			return false;
 		TextTextureData other = (TextTextureData) obj;
-		if (file == null) {
-			if (other.file != null)
-				return false;
-		} else if (!file.equals(other.file))
-			return false;
 		if (font == null) {
 			if (other.font != null)
 				return false;
@@ -213,6 +199,17 @@ public class TextTextureData extends TextureData {
 			return false;
 		if (Double.doubleToLongBits(topOffset) != Double.doubleToLongBits(other.topOffset))
 			return false;
+		if (textColor == null) {
+			if (other.textColor != null)
+				return false;
+		} else if (!textColor.equals(other.textColor))
+			return false;
+		if (Double.doubleToLongBits(relativeFontSize) != Double.doubleToLongBits(other.relativeFontSize))
+			return false;
+		if (Double.doubleToLongBits(width) != Double.doubleToLongBits(other.width))
+			return false;
+		if (Double.doubleToLongBits(height) != Double.doubleToLongBits(other.height))
+			return false;
 		return true;
 	}
 
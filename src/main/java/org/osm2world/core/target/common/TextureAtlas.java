@@ -0,0 +1,409 @@
+package org.osm2world.core.target.common;
+
+import static java.lang.Math.*;
+import static java.util.Collections.unmodifiableList;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.osm2world.core.math.VectorXZ;
+import org.osm2world.core.target.common.material.ImmutableMaterial;
+import org.osm2world.core.target.common.material.Material;
+
+/**
+ * packs non-repeating textures (such as sign texts or clamped facade textures) into shared atlas images.
+ * Materials which only use such textures are replaced with materials using the atlas images,
+ * and their texture coordinates are rewritten to point to the texture's area within the atlas.
+ * Materials which only differed in their textures become identical this way,
+ * so targets need fewer materials, draw calls and texture files.
+ *
+ * Textures are placed when they are first used. An atlas image is created when it is first requested
+ * (e.g. when a target loads or writes it), and no further textures are added to it after that point.
+ * Textures which are used later are placed in a new atlas image instead.
+ *
+ * This class is thread-safe.
+ */
+public class TextureAtlas {
+
+	/** width and height of each atlas image, in pixels */
+	public static final int DEFAULT_PAGE_SIZE = 2048;
+
+	/** larger textures are scaled down to this width or height, in pixels */
+	public static final int DEFAULT_MAX_ENTRY_SIZE = 512;
+
+	/**
+	 * pixels around each texture which repeat the texture's edge pixels.
+	 * Prevents neighboring textures from bleeding in when filtering.
+	 */
+	static final int PADDING = 2;
+
+	/** texture coordinates this far outside the [0, 1] range are still accepted (and clamped) */
+	private static final double TEX_COORD_TOLERANCE = 1e-3;
+
+	private final int pageSize;
+	private final int maxEntrySize;
+
+	private final List<AtlasPage> pages = new ArrayList<AtlasPage>();
+	private final Map<TextureData, Entry> entries = new HashMap<TextureData, Entry>();
+
+	/** atlas variants of materials; contains null values for materials which cannot use the atlas */
+	private final Map<Material, Material> atlasMaterials = new HashMap<Material, Material>();
+
+	public TextureAtlas() {
+		this(DEFAULT_PAGE_SIZE, DEFAULT_MAX_ENTRY_SIZE);
+	}
+
+	public TextureAtlas(int pageSize, int maxEntrySize) {
+
+		if (maxEntrySize < 1 || pageSize < maxEntrySize + 2 * PADDING) {
+			throw new IllegalArgumentException("invalid atlas size " + pageSize + " for entry size " + maxEntrySize);
+		}
+
+		this.pageSize = pageSize;
+		this.maxEntrySize = maxEntrySize;
+
+	}
+
+	/**
+	 * result of {@link TextureAtlas#map(Material, List)}
+	 */
+	public static final class Mapping {
+
+		public final Material material;
+		public final List<List<VectorXZ>> texCoordLists;
+
+		private Mapping(Material material, List<List<VectorXZ>> texCoordLists) {
+			this.material = material;
+			this.texCoordLists = texCoordLists;
+		}
+
+	}
+
+	/**
+	 * returns whether a texture can be placed in an atlas.
+	 * This is the case for non-repeating textures which are not bump maps.
+	 */
+	public static boolean isAtlasCandidate(TextureData textureData) {
+		return textureData.wrap != TextureData.Wrap.REPEAT
+				&& !textureData.isBumpMap
+				&& !(textureData instanceof AtlasPage);
+	}
+
+	/**
+	 * maps the material and texture coordinates of a draw call to the atlas.
+	 * Geometry is only mapped if all of the material's texture layers can be placed in the atlas
+	 * and all texture coordinates are within the texture (i.e. between 0 and 1).
+	 * Otherwise, the material and texture coordinates are returned unchanged.
+	 *
+	 * @param texCoordLists  texture coordinates for each texture layer, can be null
+	 */
+	public synchronized Mapping map(Material material, List<List<VectorXZ>> texCoordLists) {
+
+		if (texCoordLists == null
+				|| material.getNumTextureLayers() == 0
+				|| texCoordLists.size() != material.getNumTextureLayers()
+				|| !isWithinTexture(texCoordLists)) {
+			return new Mapping(material, texCoordLists);
+		}
+
+		Material atlasMaterial = getAtlasMaterial(material);
+
+		if (atlasMaterial == null) {
+			return new Mapping(material, texCoordLists);
+		}
+
+		List<List<VectorXZ>> atlasTexCoordLists = new ArrayList<List<VectorXZ>>(texCoordLists.size());
+
+		for (int layer = 0; layer < texCoordLists.size(); layer++) {
+			Entry entry = entries.get(material.getTextureDataList().get(layer));
+			atlasTexCoordLists.add(entry.toAtlasTexCoords(texCoordLists.get(layer)));
+		}
+
+		return new Mapping(atlasMaterial, atlasTexCoordLists);
+
+	}
+
+	/**
+	 * returns the atlas images created so far.
+	 * Each of them is a {@link TextureData} which is used by the materials returned from {@link #map(Material, List)}.
+	 */
+	public synchronized List<TextureData> getPages() {
+		return unmodifiableList(new ArrayList<TextureData>(pages));
+	}
+
+	/**
+	 * returns the variant of a material which uses the atlas, or null if this is not possible
+	 */
+	private Material getAtlasMaterial(Material material) {
+
+		if (atlasMaterials.containsKey(material)) {
+			return atlasMaterials.get(material);
+		}
+
+		Material result = null;
+
+		if (material.getTextureDataList().stream().allMatch(TextureAtlas::isAtlasCandidate)) {
+
+			List<TextureData> atlasTextures = new ArrayList<TextureData>();
+
+			for (TextureData textureData : material.getTextureDataList()) {
+				atlasTextures.add(getEntry(textureData).page);
+			}
+
+			result = new ImmutableMaterial(material.getInterpolation(), material.getColor(),
+					material.getAmbientFactor(), material.getDiffuseFactor(),
+					material.getSpecularFactor(), material.getShininess(),
+					material.getTransparency(), material.getShadow(), material.getAmbientOcclusion(),
+					atlasTextures);
+
+		}
+
+		atlasMaterials.put(material, result);
+
+		return result;
+
+	}
+
+	/**
+	 * returns the atlas entry for a texture, placing the texture in the atlas if necessary
+	 */
+	private Entry getEntry(TextureData textureData) {
+
+		Entry entry = entries.get(textureData);
+
+		if (entry == null) {
+
+			BufferedImage image = textureData.getBufferedImage();
+
+			double scale = min(1.0, maxEntrySize / (double) max(image.getWidth(), image.getHeight()));
+			int width = max(1, (int) round(image.getWidth() * scale));
+			int height = max(1, (int) round(image.getHeight() * scale));
+
+			for (AtlasPage page : pages) {
+				if (page.colorable == textureData.colorable) {
+					entry = page.add(textureData, width, height);
+					if (entry != null) break;
+				}
+			}
+
+			if (entry == null) {
+				AtlasPage page = new AtlasPage(pageSize, textureData.colorable);
+				pages.add(page);
+				entry = page.add(textureData, width, height);
+			}
+
+			entries.put(textureData, entry);
+
+		}
+
+		return entry;
+
+	}
+
+	private static boolean isWithinTexture(List<List<VectorXZ>> texCoordLists) {
+
+		for (List<VectorXZ> texCoords : texCoordLists) {
+			for (VectorXZ t : texCoords) {
+				if (t.x < -TEX_COORD_TOLERANCE || t.x > 1 + TEX_COORD_TOLERANCE
+						|| t.z < -TEX_COORD_TOLERANCE || t.z > 1 + TEX_COORD_TOLERANCE) {
+					return false;
+				}
+			}
+		}
+
+		return true;
+
+	}
+
+	/**
+	 * the area of one texture within an atlas image
+	 */
+	private static final class Entry {
+
+		final AtlasPage page;
+		final TextureData textureData;
+
+		/** pixel coordinates of the texture within the atlas image, excluding the padding */
+		final int x, y, width, height;
+
+		Entry(AtlasPage page, TextureData textureData, int x, int y, int width, int height) {
+			this.page = page;
+			this.textureData = textureData;
+			this.x = x;
+			this.y = y;
+			this.width = width;
+			this.height = height;
+		}
+
+		/**
+		 * converts texture coordinates relative to the original texture into coordinates within the atlas.
+		 * The vertical texture coordinate starts at the bottom of the image, the pixel rows at the top.
+		 */
+		List<VectorXZ> toAtlasTexCoords(List<VectorXZ> texCoords) {
+
+			double minU = x / (double) page.size;
+			double minV = (page.size - y - height) / (double) page.size;
+			double sizeU = width / (double) page.size;
+			double sizeV = height / (double) page.size;
+
+			List<VectorXZ> result = new ArrayList<VectorXZ>(texCoords.size());
+
+			for (VectorXZ t : texCoords) {
+				double u = min(max(t.x, 0), 1);
+				double v = min(max(t.z, 0), 1);
+				result.add(new VectorXZ(minU + u * sizeU, minV + v * sizeV));
+			}
+
+			return result;
+
+		}
+
+	}
+
+	/**
+	 * a single atlas image. Textures are placed in rows ("shelves") from top to bottom.
+	 */
+	public static final class AtlasPage extends TextureData {
+
+		private final int size;
+		private final List<Entry> pageEntries = new ArrayList<Entry>();
+
+		private int shelfX = 0;
+		private int shelfY = 0;
+		private int shelfHeight = 0;
+
+		/** set once the image has been created, no entries can be added after that */
+		private boolean frozen = false;
+
+		/** the image file, null until it has been requested */
+		private File file = null;
+
+		private AtlasPage(int size, boolean colorable) {
+			super(1, 1, Wrap.CLAMP, null, colorable, false);
+			this.size = size;
+		}
+
+		/**
+		 * places a texture on this page
+		 *
+		 * @return  the new entry, or null if the texture does not fit on this page
+		 */
+		private synchronized Entry add(TextureData textureData, int width, int height) {
+
+			if (frozen) return null;
+
+			int paddedWidth = width + 2 * PADDING;
+			int paddedHeight = height + 2 * PADDING;
+
+			if (shelfX + paddedWidth > size) {
+				shelfY += shelfHeight;
+				shelfX = 0;
+				shelfHeight = 0;
+			}
+
+			if (shelfY + paddedHeight > size) return null;
+
+			Entry entry = new Entry(this, textureData, shelfX + PADDING, shelfY + PADDING, width, height);
+			pageEntries.add(entry);
+
+			shelfX += paddedWidth;
+			shelfHeight = max(shelfHeight, paddedHeight);
+
+			return entry;
+
+		}
+
+		private synchronized BufferedImage createImage() {
+
+			frozen = true;
+
+			BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+
+			Graphics2D g2d = image.createGraphics();
+			g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+
+			for (Entry entry : pageEntries) {
+				g2d.drawImage(entry.textureData.getBufferedImage(),
+						entry.x, entry.y, entry.width, entry.height, null);
+			}
+
+			g2d.dispose();
+
+			for (Entry entry : pageEntries) {
+				extendEdges(image, entry);
+			}
+
+			return image;
+
+		}
+
+		/**
+		 * fills an entry's padding with copies of the entry's edge pixels
+		 */
+		private static void extendEdges(BufferedImage image, Entry entry) {
+
+			for (int y = entry.y - PADDING; y < entry.y + entry.height + PADDING; y++) {
+				for (int x = entry.x - PADDING; x < entry.x + entry.width + PADDING; x++) {
+
+					int sourceX = min(max(x, entry.x), entry.x + entry.width - 1);
+					int sourceY = min(max(y, entry.y), entry.y + entry.height - 1);
+
+					if (sourceX != x || sourceY != y) {
+						image.setRGB(x, y, image.getRGB(sourceX, sourceY));
+					}
+
+				}
+			}
+
+		}
+
+		/**
+		 * returns the page's image file, which is written when this is first called.
+		 * The file is not kept in the {@link TextureImageCache}: pages are never shared between atlases,
+		 * so the cache would keep each page (and the textures on it) for the rest of the program's life.
+		 */
+		@Override
+		public synchronized File getFile() {
+
+			if (file == null) {
+				try {
+					file = TextureImageCache.writeTempFile("atlas", getBufferedImage());
+				} catch (IOException e) {
+					throw new RuntimeException("could not write texture image for " + this, e);
+				}
+			}
+
+			return file;
+
+		}
+
+		@Override
+		public BufferedImage getBufferedImage() {
+			return TextureImageCache.getImage(this, this::createImage);
+		}
+
+		@Override
+		public String toString() {
+			return "AtlasPage [size=" + size + ", entries=" + pageEntries.size() + ", colorable=" + colorable + "]";
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(this);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return this == obj;
+		}
+
+	}
+
+}
@@ -1,6 +1,10 @@
 package org.osm2world.core.target.common;
 
+import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
 
 import org.osm2world.core.target.common.material.TexCoordFunction;
 
@@ -45,8 +49,28 @@ public abstract class TextureData {
 
 	}
 
+	/**
+	 * returns a file containing the texture image.
+	 * For generated textures, this may require writing a temporary file,
+	 * so {@link #getBufferedImage()} should be preferred if the image is only used in memory.
+	 */
 	public abstract File getFile();
 
+	/**
+	 * returns the texture image.
+	 * The result may be shared with other users and must not be modified.
+	 */
+	public BufferedImage getBufferedImage() {
+		File file = getFile();
+		return TextureImageCache.getImage(file, () -> {
+			try {
+				return ImageIO.read(file);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		});
+	}
+
 	//auto-generated
 	@Override
 	public String toString() {
@@ -0,0 +1,93 @@
+package org.osm2world.core.target.common;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+import javax.imageio.ImageIO;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * keeps rasterized texture images (e.g. rendered text or transcoded SVG) in memory.
+ * Images are identified by a key describing their content,
+ * so each distinct image is only created once.
+ *
+ * The total size of the cached images is bounded, least recently used images are evicted
+ * and re-created if they are needed again. PNG files are only written for those images
+ * which are requested as a file, e.g. by output formats which reference texture files.
+ */
+public final class TextureImageCache {
+
+	/** maximum memory used by cached images, in bytes */
+	private static final long MAX_IMAGE_BYTES = 256L * 1024 * 1024;
+
+	private static final Cache<Object, BufferedImage> images = CacheBuilder.newBuilder()
+			.maximumWeight(MAX_IMAGE_BYTES)
+			.weigher((Object key, BufferedImage image) -> 4 * image.getWidth() * image.getHeight())
+			.build();
+
+	private static final Map<Object, File> files = new ConcurrentHashMap<Object, File>();
+
+	/** prevents instantiation */
+	private TextureImageCache() { }
+
+	/**
+	 * returns the image for a key, creating it if necessary.
+	 * The returned image is shared and must not be modified.
+	 *
+	 * @param key          describes the image content, needs to implement equals and hashCode; != null
+	 * @param imageSource  creates the image if it is not cached yet; != null
+	 */
+	public static BufferedImage getImage(Object key, Supplier<BufferedImage> imageSource) {
+		try {
+			return images.get(key, imageSource::get);
+		} catch (ExecutionException | UncheckedExecutionException e) {
+			throw new RuntimeException("could not create texture image for " + key, e.getCause());
+		}
+	}
+
+	/**
+	 * returns a (temporary) PNG file containing the image for a key.
+	 * The file is only written when this is first called for a key.
+	 *
+	 * @param key          describes the image content; != null
+	 * @param filePrefix   prefix for the file name, at least 3 characters long
+	 * @param imageSource  creates the image if it is not cached yet; != null
+	 */
+	public static File getFile(Object key, String filePrefix, Supplier<BufferedImage> imageSource) {
+
+		return files.computeIfAbsent(key, k -> {
+			try {
+				return writeTempFile(filePrefix, getImage(key, imageSource));
+			} catch (IOException e) {
+				throw new RuntimeException("could not write texture image for " + key, e);
+			}
+		});
+
+	}
+
+	/**
+	 * writes an image to a new temporary PNG file, which is deleted when the JVM exits.
+	 * Unlike {@link #getFile(Object, String, Supplier)}, the file is not remembered by this cache.
+	 *
+	 * @param filePrefix  prefix for the file name, at least 3 characters long
+	 */
+	static File writeTempFile(String filePrefix, BufferedImage image) throws IOException {
+
+		File file = File.createTempFile(filePrefix, ".png");
+		file.deleteOnExit();
+
+		ImageIO.write(image, "png", file);
+
+		return file;
+
+	}
+
+}
@@ -1,6 +1,6 @@
 package org.osm2world.core.target.common.material;
 
-import static java.lang.Math.abs;
+import static java.lang.Math.*;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -202,4 +202,88 @@ public enum NamedTexCoordFunction implements TexCoordFunction {
 
 	}
 
+	/**
+	 * calculates texture coordinates directly from the packed array where possible,
+	 * with the same results as {@link #apply(List, TextureData)}
+	 */
+	@Override
+	public double[] apply(double[] positions, TextureData textureData) {
+
+		int vertexCount = positions.length / 3;
+
+		double[] result = new double[2 * vertexCount];
+
+		switch (this) {
+
+		case GLOBAL_X_Z:
+		case GLOBAL_X_Y:
+
+			for (int i = 0; i < vertexCount; i++) {
+				result[2 * i] = positions[3 * i] / textureData.width;
+				result[2 * i + 1] = positions[3 * i + (this == GLOBAL_X_Y ? 1 : 2)] / textureData.height;
+			}
+
+			return result;
+
+		case STRIP_WALL:
+		case STRIP_FIT_HEIGHT:
+		case STRIP_FIT:
+
+			if (vertexCount % 2 == 1) {
+				throw new IllegalArgumentException("not a triangle strip wall");
+			}
+
+			double totalLength = 0;
+
+			if (this == STRIP_FIT) {
+				for (int i = 0; i+1 < vertexCount; i++) {
+					totalLength += distanceXZ(positions, i, i + 1);
+				}
+			}
+
+			double accumulatedLength = 0;
+
+			for (int i = 0; i < vertexCount; i++) {
+
+				if (i > 0 && i % 2 == 0) {
+					accumulatedLength += distanceXZ(positions, i, i - 2);
+				}
+
+				if (this != STRIP_FIT) {
+					result[2 * i] = accumulatedLength / textureData.width;
+				} else {
+					result[2 * i] = accumulatedLength / totalLength;
+				}
+
+				if (this == STRIP_WALL) {
+					result[2 * i + 1] = (i % 2 == 0) ? distance(positions, i, i + 1) / textureData.height : 0;
+				} else {
+					result[2 * i + 1] = (i % 2 == 0) ? 1 : 0;
+				}
+
+			}
+
+			return result;
+
+		default:
+
+			return TexCoordFunction.super.apply(positions, textureData);
+
+		}
+
+	}
+
+	private static double distanceXZ(double[] positions, int from, int to) {
+		double dx = positions[3 * to] - positions[3 * from];
+		double dz = positions[3 * to + 2] - positions[3 * from + 2];
+		return sqrt(dx*dx + dz*dz);
+	}
+
+	private static double distance(double[] positions, int from, int to) {
+		double dx = positions[3 * to] - positions[3 * from];
+		double dy = positions[3 * to + 1] - positions[3 * from + 1];
+		double dz = positions[3 * to + 2] - positions[3 * from + 2];
+		return sqrt(dx*dx + dy*dy + dz*dz);
+	}
+
 }
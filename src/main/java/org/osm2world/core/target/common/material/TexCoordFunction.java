@@ -1,5 +1,6 @@
 package org.osm2world.core.target.common.material;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.osm2world.core.math.VectorXYZ;
@@ -19,4 +20,32 @@ public interface TexCoordFunction {
 	public List<VectorXZ> apply(
 			List<VectorXYZ> vs, TextureData textureData);
 
+	/**
+	 * variant of {@link #apply(List, TextureData)} for vertices in a packed array.
+	 * Implementations should override this if they can avoid creating objects for each vertex.
+	 *
+	 * @param positions  x, y and z coordinate of each vertex
+	 * @return  two texture coordinates for each vertex
+	 */
+	public default double[] apply(double[] positions, TextureData textureData) {
+
+		List<VectorXYZ> vs = new ArrayList<VectorXYZ>(positions.length / 3);
+
+		for (int i = 0; i + 2 < positions.length; i += 3) {
+			vs.add(new VectorXYZ(positions[i], positions[i + 1], positions[i + 2]));
+		}
+
+		List<VectorXZ> texCoords = apply(vs, textureData);
+
+		double[] result = new double[2 * texCoords.size()];
+
+		for (int i = 0; i < texCoords.size(); i++) {
+			result[2 * i] = texCoords.get(i).x;
+			result[2 * i + 1] = texCoords.get(i).z;
+		}
+
+		return result;
+
+	}
+
 }
@@ -60,6 +60,35 @@ public final class TexCoordUtil {
 
 	}
 
+	/**
+	 * equivalent of {@link #texCoordLists(List, Material, TexCoordFunction)}
+	 * for vertices in a packed array.
+	 *
+	 * @param positions  x, y and z coordinate of each vertex
+	 * @return  one array per texture layer, each with two coordinates per vertex
+	 */
+	public static final double[][] texCoordArrays(
+			double[] positions, Material material,
+			TexCoordFunction defaultCoordFunction) {
+
+		List<TextureData> textureDataList = material.getTextureDataList();
+
+		double[][] result = new double[textureDataList.size()][];
+
+		for (int layer = 0; layer < textureDataList.size(); layer++) {
+
+			TextureData textureData = textureDataList.get(layer);
+			TexCoordFunction coordFunction = textureData.coordFunction;
+			if (coordFunction == null) { coordFunction = defaultCoordFunction; }
+
+			result[layer] = coordFunction.apply(positions, textureData);
+
+		}
+
+		return result;
+
+	}
+
 	/**
 	 * equivalent of {@link #texCoordLists(List, Material, TexCoordFunction)}
 	 * for a collection of triangle objects.
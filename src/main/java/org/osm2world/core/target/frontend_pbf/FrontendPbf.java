@@ -14910,6 +14910,48 @@ public final class FrontendPbf {
      */
     org.osm2world.core.target.frontend_pbf.FrontendPbf.WorldObjectOrBuilder getObjectsOrBuilder(
         int index);
+
+    /**
+     * <code>optional uint32 formatVersion = 8 [default = 1];</code>
+     *
+     * <pre>
+     * version of the encoding used for vectors and references. 
+     * 1: absolute coordinates and indices. 
+     * 2: vector blocks sorted along a space-filling curve and delta-encoded, 
+     * references in triangle geometries encoded using a vertex cache. 
+     * </pre>
+     */
+    boolean hasFormatVersion();
+    /**
+     * <code>optional uint32 formatVersion = 8 [default = 1];</code>
+     *
+     * <pre>
+     * version of the encoding used for vectors and references. 
+     * 1: absolute coordinates and indices. 
+     * 2: vector blocks sorted along a space-filling curve and delta-encoded, 
+     * references in triangle geometries encoded using a vertex cache. 
+     * </pre>
+     */
+    int getFormatVersion();
+
+    /**
+     * <code>optional uint32 quantizationStep = 9 [default = 1];</code>
+     *
+     * <pre>
+     * distance between two possible coordinate values in the vector3dBlock, in millimeters. 
+     * Values larger than 1 mean that the coordinates are quantized relative to the tile's bounds. 
+     * </pre>
+     */
+    boolean hasQuantizationStep();
+    /**
+     * <code>optional uint32 quantizationStep = 9 [default = 1];</code>
+     *
+     * <pre>
+     * distance between two possible coordinate values in the vector3dBlock, in millimeters. 
+     * Values larger than 1 mean that the coordinates are quantized relative to the tile's bounds. 
+     * </pre>
+     */
+    int getQuantizationStep();
   }
   /**
    * Protobuf type {@code frontend_pbf.Tile}
@@ -15053,6 +15095,16 @@ public final class FrontendPbf {
               objects_.add(input.readMessage(org.osm2world.core.target.frontend_pbf.FrontendPbf.WorldObject.PARSER, extensionRegistry));
               break;
             }
+            case 64: {
+              bitField0_ |= 0x00000040;
+              formatVersion_ = input.readUInt32();
+              break;
+            }
+            case 72: {
+              bitField0_ |= 0x00000080;
+              quantizationStep_ = input.readUInt32();
+              break;
+            }
           }
         }
       } catch (com.google.protobuf.InvalidProtocolBufferException e) {
@@ -15257,6 +15309,60 @@ public final class FrontendPbf {
       return objects_.get(index);
     }
 
+    public static final int FORMATVERSION_FIELD_NUMBER = 8;
+    private int formatVersion_;
+    /**
+     * <code>optional uint32 formatVersion = 8 [default = 1];</code>
+     *
+     * <pre>
+     * version of the encoding used for vectors and references. 
+     * 1: absolute coordinates and indices. 
+     * 2: vector blocks sorted along a space-filling curve and delta-encoded, 
+     * references in triangle geometries encoded using a vertex cache. 
+     * </pre>
+     */
+    public boolean hasFormatVersion() {
+      return ((bitField0_ & 0x00000040) == 0x00000040);
+    }
+    /**
+     * <code>optional uint32 formatVersion = 8 [default = 1];</code>
+     *
+     * <pre>
+     * version of the encoding used for vectors and references. 
+     * 1: absolute coordinates and indices. 
+     * 2: vector blocks sorted along a space-filling curve and delta-encoded, 
+     * references in triangle geometries encoded using a vertex cache. 
+     * </pre>
+     */
+    public int getFormatVersion() {
+      return formatVersion_;
+    }
+
+    public static final int QUANTIZATIONSTEP_FIELD_NUMBER = 9;
+    private int quantizationStep_;
+    /**
+     * <code>optional uint32 quantizationStep = 9 [default = 1];</code>
+     *
+     * <pre>
+     * distance between two possible coordinate values in the vector3dBlock, in millimeters. 
+     * Values larger than 1 mean that the coordinates are quantized relative to the tile's bounds. 
+     * </pre>
+     */
+    public boolean hasQuantizationStep() {
+      return ((bitField0_ & 0x00000080) == 0x00000080);
+    }
+    /**
+     * <code>optional uint32 quantizationStep = 9 [default = 1];</code>
+     *
+     * <pre>
+     * distance between two possible coordinate values in the vector3dBlock, in millimeters. 
+     * Values larger than 1 mean that the coordinates are quantized relative to the tile's bounds. 
+     * </pre>
+     */
+    public int getQuantizationStep() {
+      return quantizationStep_;
+    }
+
     private void initFields() {
       vector3DBlock_ = org.osm2world.core.target.frontend_pbf.FrontendPbf.Vector3dBlock.getDefaultInstance();
       vector2DBlock_ = org.osm2world.core.target.frontend_pbf.FrontendPbf.Vector2dBlock.getDefaultInstance();
@@ -15265,6 +15371,8 @@ public final class FrontendPbf {
       materialBlock_ = org.osm2world.core.target.frontend_pbf.FrontendPbf.MaterialBlock.getDefaultInstance();
       modelBlock_ = org.osm2world.core.target.frontend_pbf.FrontendPbf.ModelBlock.getDefaultInstance();
       objects_ = java.util.Collections.emptyList();
+      formatVersion_ = 1;
+      quantizationStep_ = 1;
     }
     private byte memoizedIsInitialized = -1;
     public final boolean isInitialized() {
@@ -15342,6 +15450,12 @@ public final class FrontendPbf {
       for (int i = 0; i < objects_.size(); i++) {
         output.writeMessage(7, objects_.get(i));
       }
+      if (((bitField0_ & 0x00000040) == 0x00000040)) {
+        output.writeUInt32(8, formatVersion_);
+      }
+      if (((bitField0_ & 0x00000080) == 0x00000080)) {
+        output.writeUInt32(9, quantizationStep_);
+      }
       getUnknownFields().writeTo(output);
     }
 
@@ -15379,6 +15493,14 @@ public final class FrontendPbf {
         size += com.google.protobuf.CodedOutputStream
           .computeMessageSize(7, objects_.get(i));
       }
+      if (((bitField0_ & 0x00000040) == 0x00000040)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt32Size(8, formatVersion_);
+      }
+      if (((bitField0_ & 0x00000080) == 0x00000080)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt32Size(9, quantizationStep_);
+      }
       size += getUnknownFields().getSerializedSize();
       memoizedSerializedSize = size;
       return size;
@@ -15549,6 +15671,10 @@ public final class FrontendPbf {
         } else {
           objectsBuilder_.clear();
         }
+        formatVersion_ = 1;
+        bitField0_ = (bitField0_ & ~0x00000080);
+        quantizationStep_ = 1;
+        bitField0_ = (bitField0_ & ~0x00000100);
         return this;
       }
 
@@ -15634,6 +15760,14 @@ public final class FrontendPbf {
         } else {
           result.objects_ = objectsBuilder_.build();
         }
+        if (((from_bitField0_ & 0x00000080) == 0x00000080)) {
+          to_bitField0_ |= 0x00000040;
+        }
+        result.formatVersion_ = formatVersion_;
+        if (((from_bitField0_ & 0x00000100) == 0x00000100)) {
+          to_bitField0_ |= 0x00000080;
+        }
+        result.quantizationStep_ = quantizationStep_;
         result.bitField0_ = to_bitField0_;
         onBuilt();
         return result;
@@ -15694,6 +15828,12 @@ public final class FrontendPbf {
             }
           }
         }
+        if (other.hasFormatVersion()) {
+          setFormatVersion(other.getFormatVersion());
+        }
+        if (other.hasQuantizationStep()) {
+          setQuantizationStep(other.getQuantizationStep());
+        }
         this.mergeUnknownFields(other.getUnknownFields());
         return this;
       }
@@ -16699,6 +16839,118 @@ public final class FrontendPbf {
         return objectsBuilder_;
       }
 
+      private int formatVersion_ = 1;
+      /**
+       * <code>optional uint32 formatVersion = 8 [default = 1];</code>
+       *
+       * <pre>
+       * version of the encoding used for vectors and references. 
+       * 1: absolute coordinates and indices. 
+       * 2: vector blocks sorted along a space-filling curve and delta-encoded, 
+       * references in triangle geometries encoded using a vertex cache. 
+       * </pre>
+       */
+      public boolean hasFormatVersion() {
+        return ((bitField0_ & 0x00000080) == 0x00000080);
+      }
+      /**
+       * <code>optional uint32 formatVersion = 8 [default = 1];</code>
+       *
+       * <pre>
+       * version of the encoding used for vectors and references. 
+       * 1: absolute coordinates and indices. 
+       * 2: vector blocks sorted along a space-filling curve and delta-encoded, 
+       * references in triangle geometries encoded using a vertex cache. 
+       * </pre>
+       */
+      public int getFormatVersion() {
+        return formatVersion_;
+      }
+      /**
+       * <code>optional uint32 formatVersion = 8 [default = 1];</code>
+       *
+       * <pre>
+       * version of the encoding used for vectors and references. 
+       * 1: absolute coordinates and indices. 
+       * 2: vector blocks sorted along a space-filling curve and delta-encoded, 
+       * references in triangle geometries encoded using a vertex cache. 
+       * </pre>
+       */
+      public Builder setFormatVersion(int value) {
+        bitField0_ |= 0x00000080;
+        formatVersion_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional uint32 formatVersion = 8 [default = 1];</code>
+       *
+       * <pre>
+       * version of the encoding used for vectors and references. 
+       * 1: absolute coordinates and indices. 
+       * 2: vector blocks sorted along a space-filling curve and delta-encoded, 
+       * references in triangle geometries encoded using a vertex cache. 
+       * </pre>
+       */
+      public Builder clearFormatVersion() {
+        bitField0_ = (bitField0_ & ~0x00000080);
+        formatVersion_ = 1;
+        onChanged();
+        return this;
+      }
+
+      private int quantizationStep_ = 1;
+      /**
+       * <code>optional uint32 quantizationStep = 9 [default = 1];</code>
+       *
+       * <pre>
+       * distance between two possible coordinate values in the vector3dBlock, in millimeters. 
+       * Values larger than 1 mean that the coordinates are quantized relative to the tile's bounds. 
+       * </pre>
+       */
+      public boolean hasQuantizationStep() {
+        return ((bitField0_ & 0x00000100) == 0x00000100);
+      }
+      /**
+       * <code>optional uint32 quantizationStep = 9 [default = 1];</code>
+       *
+       * <pre>
+       * distance between two possible coordinate values in the vector3dBlock, in millimeters. 
+       * Values larger than 1 mean that the coordinates are quantized relative to the tile's bounds. 
+       * </pre>
+       */
+      public int getQuantizationStep() {
+        return quantizationStep_;
+      }
+      /**
+       * <code>optional uint32 quantizationStep = 9 [default = 1];</code>
+       *
+       * <pre>
+       * distance between two possible coordinate values in the vector3dBlock, in millimeters. 
+       * Values larger than 1 mean that the coordinates are quantized relative to the tile's bounds. 
+       * </pre>
+       */
+      public Builder setQuantizationStep(int value) {
+        bitField0_ |= 0x00000100;
+        quantizationStep_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional uint32 quantizationStep = 9 [default = 1];</code>
+       *
+       * <pre>
+       * distance between two possible coordinate values in the vector3dBlock, in millimeters. 
+       * Values larger than 1 mean that the coordinates are quantized relative to the tile's bounds. 
+       * </pre>
+       */
+      public Builder clearQuantizationStep() {
+        bitField0_ = (bitField0_ & ~0x00000100);
+        quantizationStep_ = 1;
+        onChanged();
+        return this;
+      }
+
       // @@protoc_insertion_point(builder_scope:frontend_pbf.Tile)
     }
 
@@ -16846,7 +17098,7 @@ public final class FrontendPbf {
       "ntend_pbf.TriangleGeometry\022<\n\023extrusionG",
       "eometries\030\004 \003(\0132\037.frontend_pbf.Extrusion" +
       "Geometry\022:\n\022instanceGeometries\030\005 \003(\0132\036.f" +
-      "rontend_pbf.InstanceGeometry\"\332\002\n\004Tile\0222\n" +
+      "rontend_pbf.InstanceGeometry\"\221\003\n\004Tile\0222\n" +
       "\rvector3dBlock\030\001 \002(\0132\033.frontend_pbf.Vect" +
       "or3dBlock\0222\n\rvector2dBlock\030\002 \002(\0132\033.front" +
       "end_pbf.Vector2dBlock\022.\n\013stringBlock\030\003 \002" +
@@ -16855,7 +17107,9 @@ public final class FrontendPbf {
       "aterialBlock\030\005 \002(\0132\033.frontend_pbf.Materi" +
       "alBlock\022,\n\nmodelBlock\030\006 \002(\0132\030.frontend_p",
       "bf.ModelBlock\022*\n\007objects\030\007 \003(\0132\031.fronten" +
-      "d_pbf.WorldObjectB5\n&org.osm2world.core." +
+      "d_pbf.WorldObject\022\030\n\rformatVersion\030\010 \001(\r" +
+      ":\0011\022\033\n\020quantizationStep\030\t \001(\r:\0011B5\n&or" +
+      "g.osm2world.core." +
       "target.frontend_pbfB\013FrontendPbf"
     };
     com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner assigner =
@@ -16959,7 +17213,7 @@ public final class FrontendPbf {
     internal_static_frontend_pbf_Tile_fieldAccessorTable = new
       com.google.protobuf.GeneratedMessage.FieldAccessorTable(
         internal_static_frontend_pbf_Tile_descriptor,
-        new java.lang.String[] { "Vector3DBlock", "Vector2DBlock", "StringBlock", "ShapeBlock", "MaterialBlock", "ModelBlock", "Objects", });
+        new java.lang.String[] { "Vector3DBlock", "Vector2DBlock", "StringBlock", "ShapeBlock", "MaterialBlock", "ModelBlock", "Objects", "FormatVersion", "QuantizationStep", });
   }
 
   // @@protoc_insertion_point(outer_class_scope)
@@ -0,0 +1,545 @@
+package org.osm2world.core.target.frontend_pbf;
+
+import static java.lang.Math.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import org.osm2world.core.target.frontend_pbf.FrontendPbf.ExtrusionGeometry;
+import org.osm2world.core.target.frontend_pbf.FrontendPbf.ModelBlock;
+import org.osm2world.core.target.frontend_pbf.FrontendPbf.Shape;
+import org.osm2world.core.target.frontend_pbf.FrontendPbf.Shape.ShapeType;
+import org.osm2world.core.target.frontend_pbf.FrontendPbf.ShapeBlock;
+import org.osm2world.core.target.frontend_pbf.FrontendPbf.Tile;
+import org.osm2world.core.target.frontend_pbf.FrontendPbf.TriangleGeometry;
+import org.osm2world.core.target.frontend_pbf.FrontendPbf.Vector2dBlock;
+import org.osm2world.core.target.frontend_pbf.FrontendPbf.Vector3dBlock;
+import org.osm2world.core.target.frontend_pbf.FrontendPbf.WorldObject;
+
+import com.google.common.primitives.Longs;
+
+/**
+ * converts {@link Tile}s between the versions of the format. See frontend.proto for a description of each version.
+ * Version 2 is more compact than version 1: It orders vectors along a space-filling curve,
+ * stores coordinates as deltas, encodes triangle references using a vertex cache,
+ * and can optionally quantize coordinates. Quantization only applies to positions:
+ * Directions (the up vectors of extrusions) are kept exact, because they are much shorter than
+ * the distances within a tile and would lose most of their precision.
+ *
+ * {@link #decode(Tile)} is the reference implementation for reading version 2.
+ */
+public final class FrontendPbfFormat {
+
+	/** the highest format version supported by OSM2World */
+	public static final int LATEST_FORMAT_VERSION = 2;
+
+	/** number of recently used indices that can be referenced without repeating the index */
+	static final int VERTEX_CACHE_SIZE = 16;
+
+	/** prevents instantiation */
+	private FrontendPbfFormat() {}
+
+	/**
+	 * converts a version 1 tile into version 2
+	 *
+	 * @param quantizationBits  number of bits required to represent a coordinate of a position
+	 *                          in the vector3dBlock within the tile's bounds. 0 disables quantization.
+	 */
+	public static Tile encode(Tile tile, int quantizationBits) {
+
+		if (tile.getFormatVersion() != 1) {
+			throw new IllegalArgumentException("not a version 1 tile: " + tile.getFormatVersion());
+		} else if (quantizationBits < 0 || quantizationBits > 32) {
+			throw new IllegalArgumentException("invalid number of quantization bits: " + quantizationBits);
+		}
+
+		/* quantize (except for directions) and sort the vector blocks */
+
+		if (quantizationBits > 0) {
+			tile = separateDirections(tile);
+		}
+
+		long[] coords3d = Longs.toArray(tile.getVector3DBlock().getCoordsList());
+		long[] coords2d = Longs.toArray(tile.getVector2DBlock().getCoordsList());
+
+		BitSet directions = getDirectionIndices(tile);
+
+		long quantizationStep = quantizationBits == 0 ? 1
+				: getQuantizationStep(coords3d, directions, quantizationBits);
+
+		if (quantizationStep > 1) {
+			for (int i = 0; i < coords3d.length; i++) {
+				if (!directions.get(i / 3)) {
+					coords3d[i] = round(coords3d[i] / (double) quantizationStep);
+				}
+			}
+		}
+
+		int[] newIndices3d = sortAlongCurve(coords3d, 3);
+		int[] newIndices2d = sortAlongCurve(coords2d, 2);
+
+		/* build the tile */
+
+		Tile.Builder tileBuilder = tile.toBuilder();
+
+		tileBuilder.setVector3DBlock(Vector3dBlock.newBuilder()
+				.addAllCoords(Longs.asList(encodeDeltas(permute(coords3d, 3, newIndices3d), 3))));
+		tileBuilder.setVector2DBlock(Vector2dBlock.newBuilder()
+				.addAllCoords(Longs.asList(encodeDeltas(permute(coords2d, 2, newIndices2d), 2))));
+
+		ShapeBlock.Builder shapeBlockBuilder = ShapeBlock.newBuilder();
+		for (Shape shape : tile.getShapeBlock().getShapesList()) {
+			shapeBlockBuilder.addShapes(remapShape(shape, newIndices2d));
+		}
+		tileBuilder.setShapeBlock(shapeBlockBuilder);
+
+		List<WorldObject> models = new ArrayList<WorldObject>();
+		for (WorldObject model : tile.getModelBlock().getModelsList()) {
+			models.add(remapObject(model, newIndices3d, newIndices2d, true));
+		}
+		tileBuilder.setModelBlock(ModelBlock.newBuilder().addAllModels(models));
+
+		List<WorldObject> objects = new ArrayList<WorldObject>();
+		for (WorldObject object : tile.getObjectsList()) {
+			objects.add(remapObject(object, newIndices3d, newIndices2d, true));
+		}
+		tileBuilder.clearObjects().addAllObjects(objects);
+
+		tileBuilder.setFormatVersion(2);
+
+		if (quantizationStep > 1) {
+			tileBuilder.setQuantizationStep((int) quantizationStep);
+		}
+
+		return tileBuilder.build();
+
+	}
+
+	/**
+	 * converts a tile of any supported version into an equivalent version 1 tile.
+	 * Quantized coordinates are converted back to millimeters.
+	 */
+	public static Tile decode(Tile tile) {
+
+		if (tile.getFormatVersion() == 1) {
+			return tile;
+		} else if (tile.getFormatVersion() > LATEST_FORMAT_VERSION) {
+			throw new IllegalArgumentException("unsupported format version: " + tile.getFormatVersion());
+		}
+
+		long[] coords3d = decodeDeltas(Longs.toArray(tile.getVector3DBlock().getCoordsList()), 3);
+		long[] coords2d = decodeDeltas(Longs.toArray(tile.getVector2DBlock().getCoordsList()), 2);
+
+		if (tile.getQuantizationStep() > 1) {
+			BitSet directions = getDirectionIndices(tile);
+			for (int i = 0; i < coords3d.length; i++) {
+				if (!directions.get(i / 3)) {
+					coords3d[i] *= tile.getQuantizationStep();
+				}
+			}
+		}
+
+		Tile.Builder tileBuilder = tile.toBuilder();
+
+		tileBuilder.setVector3DBlock(Vector3dBlock.newBuilder().addAllCoords(Longs.asList(coords3d)));
+		tileBuilder.setVector2DBlock(Vector2dBlock.newBuilder().addAllCoords(Longs.asList(coords2d)));
+
+		List<WorldObject> models = new ArrayList<WorldObject>();
+		for (WorldObject model : tile.getModelBlock().getModelsList()) {
+			models.add(remapObject(model, null, null, false));
+		}
+		tileBuilder.setModelBlock(ModelBlock.newBuilder().addAllModels(models));
+
+		List<WorldObject> objects = new ArrayList<WorldObject>();
+		for (WorldObject object : tile.getObjectsList()) {
+			objects.add(remapObject(object, null, null, false));
+		}
+		tileBuilder.clearObjects().addAllObjects(objects);
+
+		tileBuilder.clearFormatVersion();
+		tileBuilder.clearQuantizationStep();
+
+		return tileBuilder.build();
+
+	}
+
+	/**
+	 * returns the quantization step (in millimeters) which allows all coordinates of positions
+	 * to be represented with the given number of bits
+	 *
+	 * @param directions  indices of the vectors which are directions, and therefore ignored
+	 */
+	static long getQuantizationStep(long[] coords3d, BitSet directions, int quantizationBits) {
+
+		long min = 0;
+		long max = 0;
+
+		for (int i = 0; i < coords3d.length; i++) {
+			if (!directions.get(i / 3)) {
+				min = min(min, coords3d[i]);
+				max = max(max, coords3d[i]);
+			}
+		}
+
+		long maxValue = (1L << quantizationBits) - 1;
+
+		return max(1, (max - min + maxValue - 1) / maxValue);
+
+	}
+
+	/**
+	 * returns the indices of all vectors in the vector3dBlock which are used as directions,
+	 * i.e. as up vectors of extrusions. The tile's references must not be encoded using a vertex cache.
+	 */
+	static BitSet getDirectionIndices(Tile tile) {
+
+		BitSet result = new BitSet();
+
+		for (WorldObject object : getAllObjects(tile)) {
+			for (ExtrusionGeometry geometry : object.getExtrusionGeometriesList()) {
+				for (long index : geometry.getUpVectorsList()) {
+					result.set((int) index);
+				}
+			}
+		}
+
+		return result;
+
+	}
+
+	/**
+	 * makes sure that no vector in the vector3dBlock of a version 1 tile is used both as a direction
+	 * (see {@link #getDirectionIndices(Tile)}) and as a position.
+	 * Vectors which are used as both are copied, and the copy is used for the directions.
+	 */
+	static Tile separateDirections(Tile tile) {
+
+		BitSet positions = new BitSet();
+
+		for (WorldObject object : getAllObjects(tile)) {
+			for (TriangleGeometry geometry : object.getTriangleGeometriesList()) {
+				for (long index : geometry.getVerticesList()) {
+					positions.set((int) index);
+				}
+			}
+			for (ExtrusionGeometry geometry : object.getExtrusionGeometriesList()) {
+				for (long index : geometry.getPathList()) {
+					positions.set((int) index);
+				}
+			}
+		}
+
+		BitSet shared = getDirectionIndices(tile);
+		shared.and(positions);
+
+		if (shared.isEmpty()) return tile;
+
+		/* append the copies */
+
+		List<Long> coords = new ArrayList<Long>(tile.getVector3DBlock().getCoordsList());
+
+		long[] copyIndices = new long[coords.size() / 3];
+
+		for (int i = shared.nextSetBit(0); i >= 0; i = shared.nextSetBit(i + 1)) {
+			copyIndices[i] = coords.size() / 3;
+			coords.addAll(new ArrayList<Long>(coords.subList(i * 3, i * 3 + 3)));
+		}
+
+		/* reference the copies from the up vectors */
+
+		Tile.Builder tileBuilder = tile.toBuilder();
+
+		tileBuilder.setVector3DBlock(Vector3dBlock.newBuilder().addAllCoords(coords));
+
+		List<WorldObject.Builder> objectBuilders = new ArrayList<WorldObject.Builder>();
+		objectBuilders.addAll(tileBuilder.getModelBlockBuilder().getModelsBuilderList());
+		objectBuilders.addAll(tileBuilder.getObjectsBuilderList());
+
+		for (WorldObject.Builder objectBuilder : objectBuilders) {
+			for (ExtrusionGeometry.Builder geometryBuilder : objectBuilder.getExtrusionGeometriesBuilderList()) {
+
+				List<Long> upVectors = new ArrayList<Long>(geometryBuilder.getUpVectorsCount());
+
+				for (long index : geometryBuilder.getUpVectorsList()) {
+					upVectors.add(shared.get((int) index) ? copyIndices[(int) index] : index);
+				}
+
+				geometryBuilder.clearUpVectors().addAllUpVectors(upVectors);
+
+			}
+		}
+
+		return tileBuilder.build();
+
+	}
+
+	/** returns the template models and the objects of a tile */
+	private static List<WorldObject> getAllObjects(Tile tile) {
+		List<WorldObject> result = new ArrayList<WorldObject>(tile.getModelBlock().getModelsList());
+		result.addAll(tile.getObjectsList());
+		return result;
+	}
+
+	/**
+	 * sorts vectors along a Z-order curve
+	 *
+	 * @param coords  the vectors' coordinates, with dimensions values per vector
+	 * @return  the new index for each of the vectors
+	 */
+	static int[] sortAlongCurve(long[] coords, int dimensions) {
+
+		int vectorCount = coords.length / dimensions;
+
+		/* determine the range of values, and how far values need to be shifted to fit into the code */
+
+		long[] min = new long[dimensions];
+		long[] max = new long[dimensions];
+		Arrays.fill(min, Long.MAX_VALUE);
+		Arrays.fill(max, Long.MIN_VALUE);
+
+		for (int i = 0; i < coords.length; i++) {
+			min[i % dimensions] = min(min[i % dimensions], coords[i]);
+			max[i % dimensions] = max(max[i % dimensions], coords[i]);
+		}
+
+		int bitsPerDimension = 64 / dimensions;
+		int shift = 0;
+
+		for (int d = 0; d < dimensions; d++) {
+			int bits = 64 - Long.numberOfLeadingZeros(max[d] - min[d]);
+			shift = max(shift, bits - bitsPerDimension);
+		}
+
+		/* calculate the codes and sort */
+
+		long[] codes = new long[vectorCount];
+
+		for (int i = 0; i < vectorCount; i++) {
+			for (int d = 0; d < dimensions; d++) {
+				long value = (coords[i * dimensions + d] - min[d]) >>> shift;
+				codes[i] |= (dimensions == 3 ? spreadBits3(value) : spreadBits2(value)) << d;
+			}
+		}
+
+		Integer[] order = new Integer[vectorCount];
+		for (int i = 0; i < vectorCount; i++) {
+			order[i] = i;
+		}
+
+		Arrays.sort(order, (a, b) -> Long.compareUnsigned(codes[a], codes[b]));
+
+		int[] newIndices = new int[vectorCount];
+		for (int i = 0; i < vectorCount; i++) {
+			newIndices[order[i]] = i;
+		}
+
+		return newIndices;
+
+	}
+
+	/** spreads the lowest 21 bits of a value so that there are two zero bits between each of them */
+	private static long spreadBits3(long v) {
+		v &= 0x1fffffL;
+		v = (v | v << 32) & 0x1f00000000ffffL;
+		v = (v | v << 16) & 0x1f0000ff0000ffL;
+		v = (v | v << 8) & 0x100f00f00f00f00fL;
+		v = (v | v << 4) & 0x10c30c30c30c30c3L;
+		v = (v | v << 2) & 0x1249249249249249L;
+		return v;
+	}
+
+	/** spreads the lowest 32 bits of a value so that there is one zero bit between each of them */
+	private static long spreadBits2(long v) {
+		v &= 0xffffffffL;
+		v = (v | v << 16) & 0x0000ffff0000ffffL;
+		v = (v | v << 8) & 0x00ff00ff00ff00ffL;
+		v = (v | v << 4) & 0x0f0f0f0f0f0f0f0fL;
+		v = (v | v << 2) & 0x3333333333333333L;
+		v = (v | v << 1) & 0x5555555555555555L;
+		return v;
+	}
+
+	/**
+	 * reorders vectors
+	 *
+	 * @param newIndices  the new index for each vector
+	 */
+	private static long[] permute(long[] coords, int dimensions, int[] newIndices) {
+		long[] result = new long[coords.length];
+		for (int i = 0; i < newIndices.length; i++) {
+			System.arraycopy(coords, i * dimensions, result, newIndices[i] * dimensions, dimensions);
+		}
+		return result;
+	}
+
+	/** replaces each coordinate with the difference to the same coordinate of the previous vector */
+	static long[] encodeDeltas(long[] coords, int dimensions) {
+		long[] result = new long[coords.length];
+		for (int i = 0; i < coords.length; i++) {
+			result[i] = i < dimensions ? coords[i] : coords[i] - coords[i - dimensions];
+		}
+		return result;
+	}
+
+	/** inverse of {@link #encodeDeltas(long[], int)} */
+	static long[] decodeDeltas(long[] deltas, int dimensions) {
+		long[] result = new long[deltas.length];
+		for (int i = 0; i < deltas.length; i++) {
+			result[i] = i < dimensions ? deltas[i] : result[i - dimensions] + deltas[i];
+		}
+		return result;
+	}
+
+	/**
+	 * encodes a list of references (indices) using a vertex cache.
+	 * See the formatVersion field in frontend.proto for details.
+	 */
+	static List<Long> encodeReferences(List<Long> references) {
+
+		long[] cache = new long[VERTEX_CACHE_SIZE];
+		int cacheCount = 0;
+		long nextNewReference = 0;
+
+		List<Long> result = new ArrayList<Long>(references.size());
+
+		for (long reference : references) {
+
+			int position = -1;
+
+			for (int i = 0; i < cacheCount; i++) {
+				if (cache[i] == reference) {
+					position = i;
+					break;
+				}
+			}
+
+			if (position >= 0) {
+				result.add((long) position);
+			} else {
+				result.add(VERTEX_CACHE_SIZE + zigZag(reference - nextNewReference));
+				nextNewReference = reference + 1;
+				cacheCount = min(cacheCount + 1, VERTEX_CACHE_SIZE);
+				position = cacheCount - 1;
+			}
+
+			System.arraycopy(cache, 0, cache, 1, position);
+			cache[0] = reference;
+
+		}
+
+		return result;
+
+	}
+
+	/** inverse of {@link #encodeReferences(List)} */
+	static List<Long> decodeReferences(List<Long> values) {
+
+		long[] cache = new long[VERTEX_CACHE_SIZE];
+		int cacheCount = 0;
+		long nextNewReference = 0;
+
+		List<Long> result = new ArrayList<Long>(values.size());
+
+		for (long value : values) {
+
+			long reference;
+			int position;
+
+			if (value < VERTEX_CACHE_SIZE) {
+				position = (int) value;
+				if (position >= cacheCount) {
+					throw new IllegalArgumentException("reference to an empty vertex cache position: " + value);
+				}
+				reference = cache[position];
+			} else {
+				reference = nextNewReference + unZigZag(value - VERTEX_CACHE_SIZE);
+				nextNewReference = reference + 1;
+				cacheCount = min(cacheCount + 1, VERTEX_CACHE_SIZE);
+				position = cacheCount - 1;
+			}
+
+			System.arraycopy(cache, 0, cache, 1, position);
+			cache[0] = reference;
+
+			result.add(reference);
+
+		}
+
+		return result;
+
+	}
+
+	private static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * replaces the references within an object's geometries
+	 *
+	 * @param newIndices3d  new index for each vector3dBlock index, null to keep the indices
+	 * @param newIndices2d  new index for each vector2dBlock index, null to keep the indices
+	 * @param encode  whether triangle references are encoded using a vertex cache (or decoded otherwise)
+	 */
+	private static WorldObject remapObject(WorldObject object,
+			int[] newIndices3d, int[] newIndices2d, boolean encode) {
+
+		WorldObject.Builder objectBuilder = object.toBuilder();
+
+		for (int i = 0; i < object.getTriangleGeometriesCount(); i++) {
+
+			TriangleGeometry.Builder geometryBuilder = objectBuilder.getTriangleGeometriesBuilder(i);
+
+			List<Long> vertices = remap(geometryBuilder.getVerticesList(), newIndices3d);
+			List<Long> texCoords = remap(geometryBuilder.getTexCoordsList(), newIndices2d);
+
+			geometryBuilder.clearVertices().addAllVertices(
+					encode ? encodeReferences(vertices) : decodeReferences(vertices));
+			geometryBuilder.clearTexCoords().addAllTexCoords(
+					encode ? encodeReferences(texCoords) : decodeReferences(texCoords));
+
+		}
+
+		for (int i = 0; i < object.getExtrusionGeometriesCount(); i++) {
+
+			ExtrusionGeometry.Builder geometryBuilder = objectBuilder.getExtrusionGeometriesBuilder(i);
+
+			List<Long> path = remap(geometryBuilder.getPathList(), newIndices3d);
+			List<Long> upVectors = remap(geometryBuilder.getUpVectorsList(), newIndices3d);
+
+			geometryBuilder.clearPath().addAllPath(path);
+			geometryBuilder.clearUpVectors().addAllUpVectors(upVectors);
+
+		}
+
+		return objectBuilder.build();
+
+	}
+
+	private static Shape remapShape(Shape shape, int[] newIndices2d) {
+		if (shape.getType() == ShapeType.CIRCLE) {
+			// the first parameter of a circle is the center, referencing the vector2dBlock
+			return shape.toBuilder().setParameters(0, newIndices2d[(int) shape.getParameters(0)]).build();
+		} else {
+			return shape;
+		}
+	}
+
+	private static List<Long> remap(List<Long> references, int[] newIndices) {
+		if (newIndices == null) {
+			return references;
+		} else {
+			List<Long> result = new ArrayList<Long>(references.size());
+			for (long reference : references) {
+				result.add((long) newIndices[(int) reference]);
+			}
+			return result;
+		}
+	}
+
+}
@@ -15,6 +15,8 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EnumSet;
@@ -22,6 +24,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
 import org.locationtech.jts.geom.TopologyException;
 import org.locationtech.jts.triangulate.ConstraintEnforcementException;
 import org.openstreetmap.josm.plugins.graphview.core.data.Tag;
@@ -51,6 +55,9 @@ import org.osm2world.core.target.TargetUtil;
 import org.osm2world.core.target.common.AbstractTarget;
 import org.osm2world.core.target.common.ExtrudeOption;
 import org.osm2world.core.target.common.ImageTextureData;
+import org.osm2world.core.target.common.LevelOfDetail;
+import org.osm2world.core.target.common.TextureAtlas;
+import org.osm2world.core.target.common.TextureAtlas.AtlasPage;
 import org.osm2world.core.target.common.TextureData;
 import org.osm2world.core.target.common.material.Material;
 import org.osm2world.core.target.common.material.Material.Shadow;
@@ -276,6 +283,11 @@ public class FrontendPbfTarget extends AbstractTarget<RenderableToModelTarget>
 			this.worldObject = worldObject;
 		}
 
+		@Override
+		public LevelOfDetail getLevelOfDetail() {
+			return FrontendPbfTarget.this.getLevelOfDetail();
+		}
+
 		@Override
 		public Class<RenderableToModelTarget> getRenderableType() {
 			return RenderableToModelTarget.class;
@@ -592,6 +604,9 @@ public class FrontendPbfTarget extends AbstractTarget<RenderableToModelTarget>
 
 	private WorldObjectBuilder currentObjectBuilder = new WorldObjectBuilder(null);
 
+	/** atlas for small non-repeating textures, null if disabled */
+	private TextureAtlas textureAtlas = null;
+
 	/**
 	 *
 	 * @param outputStream
@@ -626,6 +641,37 @@ public class FrontendPbfTarget extends AbstractTarget<RenderableToModelTarget>
 		renderable.renderTo(this);
 	}
 
+	@Override
+	public void setConfiguration(Configuration config) {
+		super.setConfiguration(config);
+		textureAtlas = config.getBoolean("useTextureAtlas", false) ? new TextureAtlas() : null;
+	}
+
+	/**
+	 * returns the version of the format which is written, see {@link FrontendPbfFormat}.
+	 * Version 1 is the default because it is understood by all existing clients.
+	 */
+	private int getFormatVersion() {
+		return config == null ? 1 : config.getInt("frontendPbfFormatVersion", 1);
+	}
+
+	/**
+	 * returns the number of bits for each quantized coordinate, or 0 if coordinates are not quantized.
+	 * Only used with format version 2 or higher.
+	 */
+	private int getQuantizationBits() {
+		return config == null ? 0 : config.getInt("frontendPbfQuantizationBits", 0);
+	}
+
+	/**
+	 * returns the images of the texture atlas. Materials in the output reference these images,
+	 * so they need to be made available along with the output.
+	 * Empty if the texture atlas is disabled.
+	 */
+	public List<TextureData> getTextureAtlasPages() {
+		return textureAtlas == null ? emptyList() : textureAtlas.getPages();
+	}
+
 	@Override
 	public void beginObject(WorldObject object) {
 
@@ -640,12 +686,22 @@ public class FrontendPbfTarget extends AbstractTarget<RenderableToModelTarget>
 	@Override
 	public void drawTriangles(Material material, Collection<? extends TriangleXYZ> triangles,
 			List<List<VectorXZ>> texCoordLists) {
+		if (textureAtlas != null) {
+			TextureAtlas.Mapping mapping = textureAtlas.map(material, texCoordLists);
+			material = mapping.material;
+			texCoordLists = mapping.texCoordLists;
+		}
 		currentObjectBuilder.drawTriangles(material, triangles, texCoordLists);
 	}
 
 	@Override
 	public void drawTrianglesWithNormals(Material material, Collection<? extends TriangleXYZWithNormals> triangles,
 			List<List<VectorXZ>> texCoordLists) {
+		if (textureAtlas != null) {
+			TextureAtlas.Mapping mapping = textureAtlas.map(material, texCoordLists);
+			material = mapping.material;
+			texCoordLists = mapping.texCoordLists;
+		}
 		currentObjectBuilder.drawTrianglesWithNormals(material, triangles, texCoordLists);
 	}
 
@@ -731,8 +787,8 @@ public class FrontendPbfTarget extends AbstractTarget<RenderableToModelTarget>
 		}
 
 		for (TextureData textureData : material.getTextureDataList()) {
-			if (textureData instanceof ImageTextureData) {
-				materialBuilder.addTextureLayer(convertTextureLayer((ImageTextureData)textureData));
+			if (textureData instanceof ImageTextureData || textureData instanceof AtlasPage) {
+				materialBuilder.addTextureLayer(convertTextureLayer(textureData));
 			}
 		}
 
@@ -740,7 +796,7 @@ public class FrontendPbfTarget extends AbstractTarget<RenderableToModelTarget>
 
 	}
 
-	private TextureLayer convertTextureLayer(ImageTextureData textureData) {
+	private TextureLayer convertTextureLayer(TextureData textureData) {
 
 		TextureLayer.Builder layerBuilder = TextureLayer.newBuilder();
 
@@ -954,10 +1010,16 @@ public class FrontendPbfTarget extends AbstractTarget<RenderableToModelTarget>
 
 		tileBuilder.addAllObjects(objects);
 
+		Tile tile = tileBuilder.build();
+
+		if (getFormatVersion() >= 2) {
+			tile = FrontendPbfFormat.encode(tile, getQuantizationBits());
+		}
+
 		/* write the protobuf */
 
 		try {
-			tileBuilder.build().writeTo(outputStream);
+			tile.writeTo(outputStream);
 		} catch (IOException e) {
 			//TODO proper error handling
 			throw new Error(e);
@@ -967,14 +1029,26 @@ public class FrontendPbfTarget extends AbstractTarget<RenderableToModelTarget>
 
 	public static void writePbfFile(File outputFile, MapData mapData,
 			AxisAlignedBoundingBoxXZ bbox, MapProjection projection) throws IOException {
+		writePbfFile(outputFile, mapData, bbox, projection, new BaseConfiguration(), LevelOfDetail.HIGH);
+	}
+
+	/**
+	 * variant of {@link #writePbfFile(File, MapData, AxisAlignedBoundingBoxXZ, MapProjection)}
+	 * which renders the world objects with a given configuration and level of detail.
+	 * If a texture atlas is used, its images are written to the texture directory next to the output file.
+	 */
+	public static void writePbfFile(File outputFile, MapData mapData,
+			AxisAlignedBoundingBoxXZ bbox, MapProjection projection,
+			Configuration config, LevelOfDetail levelOfDetail) throws IOException {
 
 		FileOutputStream output = null;
+		FrontendPbfTarget target;
 
 		try {
 
 			output = new FileOutputStream(outputFile);
 
-			writePbfStream(output, mapData, bbox, projection);
+			target = writePbfStreamWithTarget(output, mapData, bbox, projection, config, levelOfDetail);
 
 		} finally {
 			if (output != null) {
@@ -982,21 +1056,92 @@ public class FrontendPbfTarget extends AbstractTarget<RenderableToModelTarget>
 			}
 		}
 
+		List<TextureData> atlasPages = target.getTextureAtlasPages();
+
+		if (!atlasPages.isEmpty()) {
+
+			File textureDir = new File(outputFile.getAbsoluteFile().getParentFile(), TEXTURE_BASE_URL);
+			textureDir.mkdirs();
+
+			for (TextureData page : atlasPages) {
+				File pageFile = page.getFile();
+				Files.copy(pageFile.toPath(), new File(textureDir, pageFile.getName()).toPath(),
+						StandardCopyOption.REPLACE_EXISTING);
+			}
+
+		}
+
+	}
+
+	/**
+	 * writes one file for each of several levels of detail.
+	 * The level of detail is appended to the name of each file, see {@link #getFileForLevelOfDetail(File, LevelOfDetail)}.
+	 */
+	public static void writePbfFiles(File outputFile, MapData mapData,
+			AxisAlignedBoundingBoxXZ bbox, MapProjection projection,
+			Configuration config, Collection<LevelOfDetail> levelsOfDetail) throws IOException {
+
+		for (LevelOfDetail levelOfDetail : levelsOfDetail) {
+			writePbfFile(getFileForLevelOfDetail(outputFile, levelOfDetail),
+					mapData, bbox, projection, config, levelOfDetail);
+		}
+
+	}
+
+	/**
+	 * returns the name of the file for one level of detail, e.g. "tile_low.o2w.pbf" for "tile.o2w.pbf"
+	 */
+	public static File getFileForLevelOfDetail(File outputFile, LevelOfDetail levelOfDetail) {
+
+		String name = outputFile.getName();
+		String suffix = name.toLowerCase().endsWith(".o2w.pbf")
+				? name.substring(name.length() - ".o2w.pbf".length())
+				: "";
+
+		String baseName = name.substring(0, name.length() - suffix.length());
+
+		return new File(outputFile.getParentFile(),
+				baseName + "_" + levelOfDetail.name().toLowerCase() + suffix);
+
 	}
 
 	public static void writePbfStream(OutputStream output, MapData mapData,
 			AxisAlignedBoundingBoxXZ bbox, MapProjection projection) throws IOException {
+		writePbfStream(output, mapData, bbox, projection, new BaseConfiguration(), LevelOfDetail.HIGH);
+	}
+
+	/**
+	 * variant of {@link #writePbfStream(OutputStream, MapData, AxisAlignedBoundingBoxXZ, MapProjection)}
+	 * which renders the world objects with a given configuration and level of detail
+	 */
+	public static void writePbfStream(OutputStream output, MapData mapData,
+			AxisAlignedBoundingBoxXZ bbox, MapProjection projection,
+			Configuration config, LevelOfDetail levelOfDetail) throws IOException {
+		writePbfStreamWithTarget(output, mapData, bbox, projection, config, levelOfDetail);
+	}
+
+	/**
+	 * implementation of {@link #writePbfStream(OutputStream, MapData, AxisAlignedBoundingBoxXZ, MapProjection,
+	 * Configuration, LevelOfDetail)} which returns the finished target
+	 */
+	private static FrontendPbfTarget writePbfStreamWithTarget(OutputStream output, MapData mapData,
+			AxisAlignedBoundingBoxXZ bbox, MapProjection projection,
+			Configuration config, LevelOfDetail levelOfDetail) throws IOException {
 
 		if (bbox == null) {
 			bbox = mapData.getBoundary();
 		}
 
 		FrontendPbfTarget target = new FrontendPbfTarget(output, bbox, projection);
+		target.setConfiguration(config);
+		target.setLevelOfDetail(levelOfDetail);
 
 		TargetUtil.renderWorldObjects(target, mapData, false);
 
 		target.finish();
 
+		return target;
+
 	}
 
 }
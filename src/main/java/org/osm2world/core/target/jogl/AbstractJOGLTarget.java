@@ -17,6 +17,7 @@ import org.osm2world.core.math.VectorXZ;
 import org.osm2world.core.target.common.Primitive;
 import org.osm2world.core.target.common.Primitive.Type;
 import org.osm2world.core.target.common.PrimitiveTarget;
+import org.osm2world.core.target.common.TextureAtlas;
 import org.osm2world.core.target.common.TextureData;
 import org.osm2world.core.target.common.lighting.GlobalLightingParameters;
 import org.osm2world.core.target.common.material.Material;
@@ -34,6 +35,9 @@ public abstract class AbstractJOGLTarget extends PrimitiveTarget<RenderableToJOG
 	protected JOGLRenderingParameters renderingParameters;
 	protected GlobalLightingParameters globalLightingParameters;
 
+	/** atlas for small non-repeating textures, null if not (yet) used. See {@link #useTextureAtlas()} */
+	private TextureAtlas textureAtlas = null;
+
 	public AbstractJOGLTarget(GL gl, JOGLRenderingParameters renderingParameters,
 			GlobalLightingParameters globalLightingParameters) {
 		this.textureManager = new JOGLTextureManager(gl);
@@ -61,18 +65,53 @@ public abstract class AbstractJOGLTarget extends PrimitiveTarget<RenderableToJOG
 			List<VectorXYZ> vertices, List<VectorXYZ> normals,
 			List<List<VectorXZ>> texCoordLists) {
 
+		if (useTextureAtlas()) {
+
+			if (textureAtlas == null) {
+				textureAtlas = new TextureAtlas();
+			}
+
+			TextureAtlas.Mapping mapping = textureAtlas.map(material, texCoordLists);
+			material = mapping.material;
+			texCoordLists = mapping.texCoordLists;
+
+		}
+
 		primitiveBuffer.drawPrimitive(type, material, vertices, normals, texCoordLists);
 
 		// cache textures. they should not be loaded in the render function (see https://www.opengl.org/wiki/Common_Mistakes#glGenTextures_in_render_function)
 		// in some situations even errors were encountered
+		// atlas images are still growing at this point, they are cached in loadTextureAtlas instead
 		if (material.getNumTextureLayers() > 0) {
 			for (TextureData t : material.getTextureDataList()) {
-				textureManager.getTextureForTextureData(t);
+				if (!(t instanceof TextureAtlas.AtlasPage)) {
+					textureManager.getTextureForTextureData(t);
+				}
 			}
 		}
 
 	}
 
+	/**
+	 * whether small non-repeating textures are combined into a {@link TextureAtlas}.
+	 * This reduces the number of materials, and therefore the number of draw calls.
+	 */
+	protected boolean useTextureAtlas() {
+		return config != null && config.getBoolean("useTextureAtlas", false);
+	}
+
+	/**
+	 * caches the textures of the texture atlas, if any. Needs to be called by implementations
+	 * at the beginning of {@link #finish()}, after all primitives have been drawn.
+	 */
+	protected void loadTextureAtlas() {
+		if (textureAtlas != null) {
+			for (TextureData page : textureAtlas.getPages()) {
+				textureManager.getTextureForTextureData(page);
+			}
+		}
+	}
+
 	private void drawNonAreaPrimitive(NonAreaPrimitive.Type type,
 			Color color, int width, List<VectorXYZ> vs) {
 
@@ -129,6 +168,7 @@ public abstract class AbstractJOGLTarget extends PrimitiveTarget<RenderableToJOG
 	public void reset() {
 		this.primitiveBuffer = new PrimitiveBuffer();
 		this.nonAreaPrimitives = new ArrayList<NonAreaPrimitive>();
+		this.textureAtlas = null;
 
 		if (renderer != null) {
 			renderer.freeResources();
@@ -85,6 +85,35 @@ public abstract class AbstractPrimitiveShader extends AbstractShader {
 	 */
 	public abstract int getVertexTangentID();
 
+	/**
+	 * Returns the id to use by {@link JOGLRendererVBOShader} to bind the instance position attribute.
+	 * May be -1 if the attribute is unused.
+	 */
+	public abstract int getInstancePositionID();
+
+	/**
+	 * Returns the id to use by {@link JOGLRendererVBOShader} to bind the instance direction attribute.
+	 * May be -1 if the attribute is unused.
+	 */
+	public abstract int getInstanceDirectionID();
+
+	/**
+	 * Returns the id to use by {@link JOGLRendererVBOShader} to bind the instance scale attribute.
+	 * May be -1 if the attribute is unused.
+	 */
+	public abstract int getInstanceScaleID();
+
+	/**
+	 * Sets whether the following draw calls use instanced rendering,
+	 * i.e. whether the instance attributes are applied to each vertex.
+	 */
+	public void setInstancing(boolean useInstancing) {
+		int location = gl.glGetUniformLocation(shaderProgram, "useInstancing");
+		if (location != -1) {
+			gl.glUniform1i(location, useInstancing ? 1 : 0);
+		}
+	}
+
 	/**
 	 * Enable a vertex attribute. Attributes with -1 are ignored.
 	 * @param index the index of the attribute. Can safely be -1
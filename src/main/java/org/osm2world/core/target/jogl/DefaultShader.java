@@ -72,6 +72,9 @@ public class DefaultShader extends AbstractPrimitiveShader {
 	private int[] vertexTexCoordID = new int[MAX_TEXTURE_LAYERS];
 	private int vertexBumpMapCoordID;
 	private int vertexTangentID;
+	private int instancePositionID;
+	private int instanceDirectionID;
+	private int instanceScaleID;
 
 	public DefaultShader(GL3 gl) {
 		super(gl, "/shaders/default");
@@ -83,6 +86,9 @@ public class DefaultShader extends AbstractPrimitiveShader {
 			vertexTexCoordID[i] = gl.glGetAttribLocation(shaderProgram, "VertexTexCoord"+i+"");
 		vertexBumpMapCoordID = gl.glGetAttribLocation(shaderProgram, "VertexBumpMapCoord");
 		vertexTangentID = gl.glGetAttribLocation(shaderProgram, "VertexTangent");
+		instancePositionID = gl.glGetAttribLocation(shaderProgram, "InstancePosition");
+		instanceDirectionID = gl.glGetAttribLocation(shaderProgram, "InstanceDirection");
+		instanceScaleID = gl.glGetAttribLocation(shaderProgram, "InstanceScale");
 
 		// get indices of uniform variables
 		projectionMatrixID = gl.glGetUniformLocation(shaderProgram, "ProjectionMatrix");
@@ -132,6 +138,7 @@ public class DefaultShader extends AbstractPrimitiveShader {
 		// reset optional parts
 		gl.glUniform1i(gl.glGetUniformLocation(shaderProgram, "useShadowMap"), 0);
 		gl.glUniform1i(gl.glGetUniformLocation(shaderProgram, "useSSAO"), 0);
+		gl.glUniform1i(gl.glGetUniformLocation(shaderProgram, "useInstancing"), 0);
 	}
 
 	/**
@@ -212,7 +219,7 @@ public class DefaultShader extends AbstractPrimitiveShader {
 				gl.glActiveTexture(getGLTextureConstant(i));
 				TextureData textureData = material.getTextureDataList().get(i);
 				
-				Texture texture = textureManager.getTextureForFile(textureData.getFile());
+				Texture texture = textureManager.getTextureForTextureData(textureData);
 
 				texture.bind(gl);
 
@@ -460,6 +467,21 @@ public class DefaultShader extends AbstractPrimitiveShader {
 		return vertexTangentID;
 	}
 
+	@Override
+	public int getInstancePositionID() {
+		return instancePositionID;
+	}
+
+	@Override
+	public int getInstanceDirectionID() {
+		return instanceDirectionID;
+	}
+
+	@Override
+	public int getInstanceScaleID() {
+		return instanceScaleID;
+	}
+
 	/**
 	 * Sets the PMVMatrix that was used to render the shadow map set with {@link #bindShadowMap(int)}.
 	 * This is needed to correctly compare the shadow map depth values with the fragment depth value.
@@ -33,6 +33,9 @@ public class DepthBufferShader extends AbstractPrimitiveShader {
 	private int modelViewProjectionMatrixID;
 	private int vertexPositionID;
 	private int[] vertexTexCoordID = new int[DefaultShader.MAX_TEXTURE_LAYERS];
+	private int instancePositionID;
+	private int instanceDirectionID;
+	private int instanceScaleID;
 
 	public DepthBufferShader(GL3 gl) {
 		super(gl, "/shaders/shadowmap");
@@ -41,6 +44,9 @@ public class DepthBufferShader extends AbstractPrimitiveShader {
 		vertexPositionID = gl.glGetAttribLocation(shaderProgram, "VertexPosition");
 		for (int i=0; i<DefaultShader.MAX_TEXTURE_LAYERS; i++)
 			vertexTexCoordID[i] = gl.glGetAttribLocation(shaderProgram, "VertexTexCoord"+i+"");
+		instancePositionID = gl.glGetAttribLocation(shaderProgram, "InstancePosition");
+		instanceDirectionID = gl.glGetAttribLocation(shaderProgram, "InstanceDirection");
+		instanceScaleID = gl.glGetAttribLocation(shaderProgram, "InstanceScale");
 
 		// get indices of uniform variables
 		modelViewProjectionMatrixID = gl.glGetUniformLocation(shaderProgram, "ModelViewProjectionMatrix");
@@ -102,7 +108,7 @@ public class DepthBufferShader extends AbstractPrimitiveShader {
 		    		gl.glUniform1i(gl.glGetUniformLocation(shaderProgram, "useTexture["+i+"]"), 1);
 				}
 				
- 				Texture texture = textureManager.getTextureForFile(textureData.getFile());
+ 				Texture texture = textureManager.getTextureForTextureData(textureData);
 
 				texture.bind(gl);
 
@@ -176,4 +182,19 @@ public class DepthBufferShader extends AbstractPrimitiveShader {
 	public int getVertexTangentID() {
 		return -1; // unused
 	}
+
+	@Override
+	public int getInstancePositionID() {
+		return instancePositionID;
+	}
+
+	@Override
+	public int getInstanceDirectionID() {
+		return instanceDirectionID;
+	}
+
+	@Override
+	public int getInstanceScaleID() {
+		return instanceScaleID;
+	}
 }
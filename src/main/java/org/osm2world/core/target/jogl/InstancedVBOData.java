@@ -0,0 +1,123 @@
+package org.osm2world.core.target.jogl;
+
+import static javax.media.opengl.GL.*;
+
+import java.nio.FloatBuffer;
+import java.util.List;
+
+import javax.media.opengl.GL3;
+
+import org.osm2world.core.target.common.model.InstanceParameters;
+import org.osm2world.core.target.common.model.Model;
+
+import com.jogamp.common.nio.Buffers;
+
+/**
+ * keeps the VBOs with the geometry of a {@link Model} along with a VBO containing the attributes
+ * (position, direction and scale) of each instance of that model.
+ * All instances are drawn with one instanced draw call per material of the model.
+ */
+class InstancedVBOData {
+
+	/** number of values per instance: position (3 values), direction and scale */
+	static final int VALUES_PER_INSTANCE = 5;
+
+	private GL3 gl;
+
+	/** VBOs with the model's geometry, one per material */
+	private final List<VBODataShader<?>> modelVBOs;
+
+	/** array with one element containing the id of the VBO with the instance attributes */
+	private final int[] instanceId = new int[1];
+
+	private final int instanceCount;
+
+	/**
+	 * creates the instance VBO and uploads it to graphics memory
+	 *
+	 * @param modelVBOs  VBOs with the model's geometry at the origin, with direction 0 and a height of 1
+	 */
+	public InstancedVBOData(GL3 gl, List<VBODataShader<?>> modelVBOs, List<InstanceParameters> instances) {
+
+		this.gl = gl;
+		this.modelVBOs = modelVBOs;
+		this.instanceCount = instances.size();
+
+		FloatBuffer valueBuffer = Buffers.newDirectFloatBuffer(instanceCount * VALUES_PER_INSTANCE);
+
+		for (InstanceParameters instance : instances) {
+			valueBuffer.put((float) instance.position.x);
+			valueBuffer.put((float) instance.position.y);
+			valueBuffer.put((float) -instance.position.z);
+			valueBuffer.put((float) instance.direction);
+			valueBuffer.put((float) (instance.height == null ? 1 : instance.height));
+		}
+
+		valueBuffer.rewind();
+
+		gl.glGenBuffers(1, instanceId, 0);
+		gl.glBindBuffer(GL_ARRAY_BUFFER, instanceId[0]);
+
+		gl.glBufferData(
+				GL_ARRAY_BUFFER,
+				valueBuffer.capacity() * Buffers.SIZEOF_FLOAT,
+				valueBuffer,
+				GL_STATIC_DRAW);
+
+	}
+
+	/**
+	 * renders all instances with the given shader
+	 */
+	public void render(AbstractPrimitiveShader shader) {
+
+		gl.glBindBuffer(GL_ARRAY_BUFFER, instanceId[0]);
+
+		int stride = VALUES_PER_INSTANCE * Buffers.SIZEOF_FLOAT;
+
+		enableInstanceAttribute(shader.getInstancePositionID(), 3, stride, 0);
+		enableInstanceAttribute(shader.getInstanceDirectionID(), 1, stride, 3 * Buffers.SIZEOF_FLOAT);
+		enableInstanceAttribute(shader.getInstanceScaleID(), 1, stride, 4 * Buffers.SIZEOF_FLOAT);
+
+		shader.setInstancing(true);
+
+		for (VBODataShader<?> vbo : modelVBOs) {
+			vbo.setShader(shader);
+			vbo.renderInstanced(instanceCount);
+		}
+
+		shader.setInstancing(false);
+
+		disableInstanceAttribute(shader.getInstancePositionID());
+		disableInstanceAttribute(shader.getInstanceDirectionID());
+		disableInstanceAttribute(shader.getInstanceScaleID());
+
+	}
+
+	private void enableInstanceAttribute(int index, int size, int stride, long offset) {
+		if (index != -1) {
+			gl.glEnableVertexAttribArray(index);
+			gl.glVertexAttribPointer(index, size, GL_FLOAT, false, stride, offset);
+			gl.glVertexAttribDivisor(index, 1);
+		}
+	}
+
+	private void disableInstanceAttribute(int index) {
+		if (index != -1) {
+			gl.glVertexAttribDivisor(index, 0);
+			gl.glDisableVertexAttribArray(index);
+		}
+	}
+
+	/**
+	 * Delete the vertex buffer objects from graphics memory.
+	 */
+	public void delete() {
+		for (VBODataShader<?> vbo : modelVBOs) {
+			vbo.delete();
+		}
+		gl.glDeleteBuffers(instanceId.length, instanceId, 0);
+		gl = null;
+	}
+
+}
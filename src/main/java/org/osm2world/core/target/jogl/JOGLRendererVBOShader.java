@@ -7,6 +7,8 @@ import java.nio.DoubleBuffer;
 import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 import javax.media.opengl.GL3;
 
@@ -17,6 +19,7 @@ import org.osm2world.core.math.VectorXYZW;
 import org.osm2world.core.math.VectorXZ;
 import org.osm2world.core.target.common.Primitive;
 import org.osm2world.core.target.common.material.Material;
+import org.osm2world.core.target.common.model.InstanceParameters;
 import org.osm2world.core.target.common.rendering.Camera;
 import org.osm2world.core.target.common.rendering.Projection;
 
@@ -35,6 +38,9 @@ public class JOGLRendererVBOShader extends JOGLRendererVBO {
 	protected AbstractPrimitiveShader shader;
 	protected AxisAlignedBoundingBoxXYZ boundingBox = null;
 
+	/** instanced models, drawn after the static geometry */
+	protected List<InstancedVBOData> instancedVBOs = new ArrayList<InstancedVBOData>();
+
 	private final class VBODataDouble extends VBODataShader<DoubleBuffer> {
 
 		public VBODataDouble(GL3 gl, JOGLTextureManager textureManager, Material material, Collection<Primitive> primitives) {
@@ -126,10 +132,13 @@ public class JOGLRendererVBOShader extends JOGLRendererVBO {
 	/**
 	 * Creates vertex buffer objects for all primitives and computes a bounding box around them.
 	 * @param primitiveBuffer the primitives to create the VBOs for
+	 * @param modelInstances the geometry of each instanced model (at the origin, with direction 0 and a height of 1)
+	 *        along with its instances. The geometry must not contain semi-transparent materials.
 	 * @param xzBoundary the boundary of the OSM file. Used to tighten the bounding box to only primitives within these bounds.
 	 */
 	JOGLRendererVBOShader(GL3 gl, JOGLTextureManager textureManager,
-			PrimitiveBuffer primitiveBuffer, AxisAlignedBoundingBoxXZ xzBoundary) {
+			PrimitiveBuffer primitiveBuffer, Map<PrimitiveBuffer, List<InstanceParameters>> modelInstances,
+			AxisAlignedBoundingBoxXZ xzBoundary) {
 
 		super(textureManager);
 		this.gl = gl;
@@ -145,6 +154,44 @@ public class JOGLRendererVBOShader extends JOGLRendererVBO {
 				}
 			}
 		}
+
+		for (PrimitiveBuffer modelGeometry : modelInstances.keySet()) {
+
+			List<VBODataShader<?>> modelVBOs = new ArrayList<VBODataShader<?>>();
+
+			/* determine the extent of the model, independent of its rotation */
+
+			double radius = 0, minY = 0, maxY = 0;
+
+			for (Material m : modelGeometry.getMaterials()) {
+
+				modelVBOs.add((VBODataShader<?>) createVBOData(textureManager, m, modelGeometry.getPrimitives(m)));
+
+				for (Primitive p : modelGeometry.getPrimitives(m)) {
+					for (VectorXYZ v : p.vertices) {
+						radius = Math.max(radius, v.xz().length());
+						minY = Math.min(minY, v.y);
+						maxY = Math.max(maxY, v.y);
+					}
+				}
+
+			}
+
+			List<InstanceParameters> instances = modelInstances.get(modelGeometry);
+
+			instancedVBOs.add(new InstancedVBOData(gl, modelVBOs, instances));
+
+			for (InstanceParameters instance : instances) {
+				VectorXYZ pos = instance.position;
+				if (xzBoundary == null || xzBoundary.contains(pos.xz())) {
+					double scale = instance.height == null ? 1 : instance.height;
+					boundedVertices.add(new VectorXYZ(pos.x - radius * scale, pos.y + minY * scale, -pos.z - radius * scale));
+					boundedVertices.add(new VectorXYZ(pos.x + radius * scale, pos.y + maxY * scale, -pos.z + radius * scale));
+				}
+			}
+
+		}
+
 		boundingBox = new AxisAlignedBoundingBoxXYZ(boundedVertices);
 	}
 
@@ -172,6 +219,12 @@ public class JOGLRendererVBOShader extends JOGLRendererVBO {
 			vboData.render();
 		}
 
+		/* render instanced models */
+
+		for (InstancedVBOData instancedVBO : instancedVBOs) {
+			instancedVBO.render(shader);
+		}
+
 		/* render transparent primitives unsorted */
 
 		for (PrimitiveWithMaterial p : transparentPrimitives) {
@@ -201,6 +254,12 @@ public class JOGLRendererVBOShader extends JOGLRendererVBO {
 			vboData.render();
 		}
 
+		/* render instanced models */
+
+		for (InstancedVBOData instancedVBO : instancedVBOs) {
+			instancedVBO.render(shader);
+		}
+
 		/* render transparent primitives back-to-front */
 
 		sortPrimitivesBackToFront(camera, projection);
@@ -217,6 +276,12 @@ public class JOGLRendererVBOShader extends JOGLRendererVBO {
 
 	@Override
 	public void freeResources() {
+		if (instancedVBOs != null) {
+			for (InstancedVBOData instancedVBO : instancedVBOs) {
+				instancedVBO.delete();
+			}
+			instancedVBOs = null;
+		}
 		gl = null;
 		super.freeResources();
 	}
@@ -229,7 +294,7 @@ public class JOGLRendererVBOShader extends JOGLRendererVBO {
 	}
 
 	/**
-	 * Get the bounding box around all relevant primitives computed at {@link #JOGLRendererVBOShader(GL3, JOGLTextureManager, PrimitiveBuffer, AxisAlignedBoundingBoxXZ)}
+	 * Get the bounding box around all relevant primitives computed at {@link #JOGLRendererVBOShader(GL3, JOGLTextureManager, PrimitiveBuffer, Map, AxisAlignedBoundingBoxXZ)}
 	 */
 	public AxisAlignedBoundingBoxXYZ getBoundingBox() {
 		return boundingBox;
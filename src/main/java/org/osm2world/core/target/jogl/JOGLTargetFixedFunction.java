@@ -103,6 +103,8 @@ public final class JOGLTargetFixedFunction extends AbstractJOGLTarget implements
 
 		if (isFinished()) return;
 
+		loadTextureAtlas();
+
 		if ("DisplayList".equals(config.getString("joglImplementation"))) {
 			renderer = new JOGLRendererDisplayList(
 					gl, textureManager, primitiveBuffer);
@@ -8,6 +8,10 @@ import static javax.media.opengl.fixedfunc.GLMatrixFunc.*;
 import java.awt.Color;
 import java.io.File;
 import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import javax.media.opengl.GL;
 import javax.media.opengl.GL2GL3;
@@ -17,16 +21,25 @@ import org.osm2world.core.math.AxisAlignedBoundingBoxXYZ;
 import org.osm2world.core.math.AxisAlignedBoundingBoxXZ;
 import org.osm2world.core.math.VectorXYZ;
 import org.osm2world.core.math.VectorXYZW;
+import org.osm2world.core.target.common.Primitive;
+import org.osm2world.core.target.common.TextureData;
 import org.osm2world.core.target.common.lighting.GlobalLightingParameters;
+import org.osm2world.core.target.common.material.Material;
+import org.osm2world.core.target.common.material.Material.Transparency;
+import org.osm2world.core.target.common.model.ExternalResourceModel;
+import org.osm2world.core.target.common.model.InstanceParameters;
+import org.osm2world.core.target.common.model.Model;
 import org.osm2world.core.target.common.rendering.Camera;
 import org.osm2world.core.target.common.rendering.Projection;
+import org.osm2world.core.target.frontend_pbf.ModelTarget;
 
 import com.jogamp.common.nio.Buffers;
 import com.jogamp.opengl.math.FloatUtil;
 import com.jogamp.opengl.util.PMVMatrix;
 import com.jogamp.opengl.util.texture.Texture;
 
-public class JOGLTargetShader extends AbstractJOGLTarget implements JOGLTarget {
+public class JOGLTargetShader extends AbstractJOGLTarget
+		implements JOGLTarget, ModelTarget<RenderableToJOGL> {
 	private DefaultShader defaultShader;
 	private ShadowMapShader shadowMapShader;
 	private ShadowVolumeShader shadowVolumeShader;
@@ -46,6 +59,9 @@ public class JOGLTargetShader extends AbstractJOGLTarget implements JOGLTarget {
 	private AxisAlignedBoundingBoxXZ xzBoundary;
 	private boolean showShadowPerspective;
 
+	/** the instances of each model, drawn with instanced rendering if possible */
+	private Map<Model, List<InstanceParameters>> modelInstances = new LinkedHashMap<Model, List<InstanceParameters>>();
+
 	public JOGLTargetShader(GL3 gl, JOGLRenderingParameters renderingParameters,
 			GlobalLightingParameters globalLightingParameters) {
 		super(gl, renderingParameters, globalLightingParameters);
@@ -603,24 +619,153 @@ public class JOGLTargetShader extends AbstractJOGLTarget implements JOGLTarget {
 		drawLineLoop(color, 1, asList(v1, v2, v3, v4));
 	}
 
+	/**
+	 * draws an instance of a model. The geometry of each model is only stored once,
+	 * and all instances of the model are drawn with instanced rendering.
+	 *
+	 * Like the o2w.pbf format, this assumes that a model's size is proportional to its height,
+	 * with a height of 1 being the unscaled model. Instances with an explicit width or length
+	 * are therefore drawn as separate geometry.
+	 */
+	@Override
+	public void drawModel(Model model, VectorXYZ position,
+			double direction, Double height, Double width, Double length) {
+
+		if (model instanceof ExternalResourceModel) {
+			return; // geometry is not available
+		}
+
+		if (width != null || length != null) {
+			model.render(this, position, direction, height, width, length);
+			return;
+		}
+
+		List<InstanceParameters> instances = modelInstances.get(model);
+
+		if (instances == null) {
+			instances = new ArrayList<InstanceParameters>();
+			modelInstances.put(model, instances);
+		}
+
+		instances.add(new InstanceParameters(position, direction, height, null, null));
+
+	}
+
+	/**
+	 * returns whether the OpenGL implementation supports the functions needed for instanced rendering
+	 */
+	private boolean isInstancingSupported() {
+		return gl.isFunctionAvailable("glDrawArraysInstanced")
+				&& gl.isFunctionAvailable("glVertexAttribDivisor");
+	}
+
+	/**
+	 * adds the geometry of a model instance to a primitive buffer.
+	 * Transforms the model's geometry the same way as the shaders do for instanced rendering.
+	 *
+	 * @param target  the buffer to add the geometry to, null to draw it to this target
+	 */
+	private void drawModelInstance(PrimitiveBuffer target, PrimitiveBuffer modelGeometry,
+			InstanceParameters instance) {
+
+		double scale = instance.height == null ? 1 : instance.height;
+
+		for (Material material : modelGeometry.getMaterials()) {
+			for (Primitive p : modelGeometry.getPrimitives(material)) {
+
+				List<VectorXYZ> vertices = new ArrayList<VectorXYZ>(p.vertices.size());
+				List<VectorXYZ> normals = new ArrayList<VectorXYZ>(p.normals.size());
+
+				for (VectorXYZ v : p.vertices) {
+					vertices.add(v.mult(scale).rotateY(instance.direction).add(instance.position));
+				}
+
+				for (VectorXYZ n : p.normals) {
+					normals.add(n.rotateY(instance.direction));
+				}
+
+				if (target == null) {
+					drawPrimitive(p.type, material, vertices, normals, p.texCoordLists);
+				} else {
+					target.drawPrimitive(p.type, material, vertices, normals, p.texCoordLists);
+				}
+
+			}
+		}
+
+	}
+
 	@Override
 	public void finish() {
 		if (isFinished()) return;
 
+		/* render the geometry of each model once */
+
+		Map<PrimitiveBuffer, List<InstanceParameters>> instancedModels =
+				new LinkedHashMap<PrimitiveBuffer, List<InstanceParameters>>();
+
+		for (Model model : modelInstances.keySet()) {
+
+			PrimitiveBuffer modelGeometry = new PrimitiveBuffer();
+			modelGeometry.setConfiguration(config);
+			model.render(modelGeometry, VectorXYZ.NULL_VECTOR, 0, 1.0, null, null);
+
+			boolean semiTransparent = false;
+
+			for (Material material : modelGeometry.getMaterials()) {
+				semiTransparent |= material.getTransparency() == Transparency.TRUE;
+				if (material.getNumTextureLayers() > 0) {
+					for (TextureData t : material.getTextureDataList()) {
+						textureManager.getTextureForTextureData(t);
+					}
+				}
+			}
+
+			if (isInstancingSupported() && !semiTransparent) {
+				instancedModels.put(modelGeometry, modelInstances.get(model));
+			} else {
+				// semi-transparent geometry needs to be sorted, so it cannot be instanced
+				for (InstanceParameters instance : modelInstances.get(model)) {
+					drawModelInstance(null, modelGeometry, instance);
+				}
+			}
+
+		}
+
+		loadTextureAtlas();
+
 		//this.drawLineLoop(Color.WHITE, 1, Arrays.asList(new VectorXYZ[]{xzBoundary.topLeft().xyz(0.1), xzBoundary.topRight().xyz(0.1), xzBoundary.bottomRight().xyz(0.1), xzBoundary.bottomLeft().xyz(0.1)}));
-		rendererShader = new JOGLRendererVBOShader(gl, textureManager, primitiveBuffer, xzBoundary);
+		rendererShader = new JOGLRendererVBOShader(gl, textureManager, primitiveBuffer, instancedModels, xzBoundary);
 		renderer = rendererShader;
 		if (renderingParameters.drawBoundingBox) {
 			this.drawBoundingBox(Color.RED, rendererShader.getBoundingBox());
 		}
 		nonAreaRenderer = new JOGLRendererVBONonAreaShader(gl, nonAreaShader, nonAreaPrimitives);
-		if (renderingParameters.useShadowVolumes)
-			rendererShadowVolume = new JOGLRendererVBOShadowVolume(gl, primitiveBuffer, new VectorXYZW(globalLightingParameters.lightFromDirection, 0));
+		if (renderingParameters.useShadowVolumes) {
+
+			/* shadow volumes are calculated on the CPU, so they need the geometry of each instance */
+
+			PrimitiveBuffer shadowCasters = primitiveBuffer;
+
+			if (!instancedModels.isEmpty()) {
+				shadowCasters = new PrimitiveBuffer();
+				shadowCasters.addAll(primitiveBuffer);
+				for (PrimitiveBuffer modelGeometry : instancedModels.keySet()) {
+					for (InstanceParameters instance : instancedModels.get(modelGeometry)) {
+						drawModelInstance(shadowCasters, modelGeometry, instance);
+					}
+				}
+			}
+
+			rendererShadowVolume = new JOGLRendererVBOShadowVolume(gl, shadowCasters, new VectorXYZW(globalLightingParameters.lightFromDirection, 0));
+
+		}
 	}
 
 	@Override
 	public void reset() {
 		super.reset();
+		modelInstances = new LinkedHashMap<Model, List<InstanceParameters>>();
 		if (rendererShadowVolume != null) {
 			rendererShadowVolume.freeResources();
 			rendererShadowVolume = null;
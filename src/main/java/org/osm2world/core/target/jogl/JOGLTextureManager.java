@@ -3,12 +3,13 @@ package org.osm2world.core.target.jogl;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.imageio.ImageIO;
 import javax.media.opengl.GL;
 
+import org.osm2world.core.target.common.ImageTextureData;
 import org.osm2world.core.target.common.TextureData;
 
 import com.jogamp.opengl.util.awt.ImageUtil;
@@ -17,13 +18,15 @@ import com.jogamp.opengl.util.texture.TextureIO;
 import com.jogamp.opengl.util.texture.awt.AWTTextureIO;
 
 /**
- * loads textures from files to JOGL and keeps them available for future use
+ * loads textures from files or in-memory images to JOGL and keeps them available for future use
  */
 public class JOGLTextureManager {
 
 	private final GL gl;
 
-	private final Map<File, Texture> availableTextures = new HashMap<File, Texture>();
+	private final Map<File, Texture> availableTextures = new ConcurrentHashMap<File, Texture>();
+
+	private final Map<TextureData, Texture> availableImageTextures = new ConcurrentHashMap<TextureData, Texture>();
 
 	public JOGLTextureManager(GL gl) {
 		this.gl = gl;
@@ -33,8 +36,52 @@ public class JOGLTextureManager {
 		return getTextureForFile(file, true);
 	}
 
+	/**
+	 * returns the texture for a {@link TextureData}.
+	 * Textures which are not loaded from a file as-is (such as text or SVG textures)
+	 * are created from their in-memory image, without writing a file.
+	 */
 	public Texture getTextureForTextureData(TextureData textureData) {
-		return getTextureForFile(textureData.getFile());
+
+		if (textureData instanceof ImageTextureData
+				&& !((ImageTextureData)textureData).isSVG()) {
+			return getTextureForFile(textureData.getFile());
+		}
+
+		Texture result = availableImageTextures.get(textureData);
+
+		if (result == null) {
+
+			synchronized (this) {
+
+				//try again
+
+				if (availableImageTextures.containsKey(textureData)) {
+					return availableImageTextures.get(textureData);
+				}
+
+				//flip a copy to ensure consistent tex coords with png images
+				BufferedImage image = textureData.getBufferedImage();
+				BufferedImage flippedImage = new BufferedImage(
+						image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+				flippedImage.getGraphics().drawImage(image, 0, 0, null);
+				ImageUtil.flipImageVertically(flippedImage);
+
+				result = AWTTextureIO.newTexture(gl.getGLProfile(), flippedImage, true);
+
+				/* workaround for OpenGL 3, see getTextureForFile */
+				if (gl.isGL3()) {
+					gl.glGenerateMipmap(result.getTarget());
+				}
+
+				availableImageTextures.put(textureData, result);
+
+			}
+
+		}
+
+		return result;
+
 	}
 
 	public Texture getTextureForFile(File file, boolean createMipmaps) {
@@ -99,7 +146,12 @@ public class JOGLTextureManager {
 			texture.destroy(gl);
 		}
 
+		for (Texture texture : availableImageTextures.values()) {
+			texture.destroy(gl);
+		}
+
 		availableTextures.clear();
+		availableImageTextures.clear();
 
 	}
 
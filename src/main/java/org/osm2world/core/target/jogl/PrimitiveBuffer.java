@@ -44,6 +44,13 @@ public class PrimitiveBuffer extends
 				new Primitive(type, vertices, normals, texCoordLists));
 	}
 
+	/**
+	 * adds all primitives of another buffer to this one
+	 */
+	public void addAll(PrimitiveBuffer other) {
+		primitiveMap.putAll(other.primitiveMap);
+	}
+
 	/**
 	 * returns all materials used in the buffer
 	 */
@@ -68,4 +68,19 @@ public class ShadowVolumeShader extends AbstractPrimitiveShader {
 	public int getVertexTangentID() {
 		return -1; // unused
 	}
+
+	@Override
+	public int getInstancePositionID() {
+		return -1; // unused
+	}
+
+	@Override
+	public int getInstanceDirectionID() {
+		return -1; // unused
+	}
+
+	@Override
+	public int getInstanceScaleID() {
+		return -1; // unused
+	}
 }
\ No newline at end of file
@@ -143,6 +143,24 @@ abstract class VBODataShader<BufferT extends Buffer> extends VBOData<BufferT> {
 		if (shader.setMaterial(material, textureManager))
 			gl.glDrawArrays(GL_TRIANGLES, 0, vertexCount);
 
+		resetPointerLayout();
+	}
+
+	/**
+	 * Bind and render several instances of this vertex buffer object with a single draw call.
+	 * The instance attributes of the shader need to be set up by the caller.
+	 */
+	public void renderInstanced(int instanceCount) {
+		gl.glBindBuffer(GL_ARRAY_BUFFER, id[0]);
+
+		setPointerLayout();
+		if (shader.setMaterial(material, textureManager))
+			gl.glDrawArraysInstanced(GL_TRIANGLES, 0, vertexCount, instanceCount);
+
+		resetPointerLayout();
+	}
+
+	private void resetPointerLayout() {
 		for (int i=1; i<DefaultShader.MAX_TEXTURE_LAYERS; i++) {
 			shader.glDisableVertexAttribArray(shader.getVertexTexCoordID(i));
 		}
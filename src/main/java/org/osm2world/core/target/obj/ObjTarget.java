@@ -8,6 +8,7 @@ import static org.osm2world.core.target.common.material.Material.multiplyColor;
 import java.awt.Color;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -25,6 +26,7 @@ import org.osm2world.core.target.common.TextTextureData;
 import org.osm2world.core.target.common.TextureData;
 import org.osm2world.core.target.common.material.Material;
 import org.osm2world.core.target.common.material.Materials;
+import org.osm2world.core.util.Metrics;
 import org.osm2world.core.world.data.WorldObject;
 
 public class ObjTarget extends FaceTarget<RenderableToObj> {
@@ -158,6 +160,104 @@ public class ObjTarget extends FaceTarget<RenderableToObj> {
 
 	}
 
+	/**
+	 * writes the mesh's vertices, normals and texture coordinates straight from the packed arrays,
+	 * looking up the obj index of each array entry only once.
+	 * When faces are to be reconstructed, the mesh is passed on as triangles instead.
+	 */
+	@Override
+	public void drawMesh(Material material, double[] positions, double[] normals,
+			double[][] texCoords, int[] indices) {
+
+		if (reconstructFaces()) {
+			super.drawMesh(material, positions, normals, texCoords, indices);
+			return;
+		}
+
+		int cornerCount = (indices != null) ? indices.length : positions.length / 3;
+		cornerCount -= cornerCount % 3;
+
+		if (normals == null) {
+			Metrics.add("triangles", cornerCount / 3);
+		}
+
+		boolean hasTexCoords = texCoords != null && texCoords.length > 0;
+
+		int[] vertexIndexCache = newIndexCache(positions.length / 3);
+		int[] normalIndexCache = (normals != null) ? newIndexCache(normals.length / 3) : null;
+
+		for (int layer = 0; layer < max(1, material.getNumTextureLayers()); layer++) {
+
+			useMaterial(material, layer);
+
+			int[] texCoordIndexCache = hasTexCoords ? newIndexCache(texCoords[layer].length / 2) : null;
+
+			for (int corner = 0; corner < cornerCount; corner += 3) {
+
+				int[] vertexIndices = new int[3];
+				int[] normalIndices = (normals != null) ? new int[3] : null;
+				int[] texCoordIndices = hasTexCoords ? new int[3] : null;
+
+				VectorXYZ faceNormal = null;
+				if (layer > 0 && normals == null) {
+					faceNormal = new TriangleXYZ(
+							vectorAt(positions, (indices != null) ? indices[corner] : corner),
+							vectorAt(positions, (indices != null) ? indices[corner + 1] : corner + 1),
+							vectorAt(positions, (indices != null) ? indices[corner + 2] : corner + 2)).getNormal();
+				}
+
+				for (int i = 0; i < 3; i++) {
+
+					int v = (indices != null) ? indices[corner + i] : corner + i;
+
+					if (layer == 0) {
+						if (vertexIndexCache[v] < 0) {
+							vertexIndexCache[v] = vectorToIndex(vertexIndexMap, "v ", vectorAt(positions, v));
+						}
+						vertexIndices[i] = vertexIndexCache[v];
+					} else {
+						VectorXYZ direction = (normals != null) ? vectorAt(normals, v) : faceNormal;
+						vertexIndices[i] = vectorToIndex(vertexIndexMap, "v ",
+								vectorAt(positions, v).add(direction.mult(layer * SMALL_OFFSET)));
+					}
+
+					if (normals != null) {
+						if (normalIndexCache[v] < 0) {
+							normalIndexCache[v] = vectorToIndex(normalsIndexMap, "vn ", vectorAt(normals, v));
+						}
+						normalIndices[i] = normalIndexCache[v];
+					}
+
+					if (hasTexCoords) {
+						if (texCoordIndexCache[v] < 0) {
+							double[] texCoordArray = texCoords[layer];
+							texCoordIndexCache[v] = vectorToIndex(texCoordsIndexMap, "vt ",
+									new VectorXZ(texCoordArray[2 * v], texCoordArray[2 * v + 1]));
+						}
+						texCoordIndices[i] = texCoordIndexCache[v];
+					}
+
+				}
+
+				writeFace(vertexIndices, normalIndices, texCoordIndices);
+
+			}
+
+		}
+
+	}
+
+	private static final int[] newIndexCache(int size) {
+		int[] result = new int[size];
+		Arrays.fill(result, -1);
+		return result;
+	}
+
+	private static final VectorXYZ vectorAt(double[] packedVectors, int index) {
+		return new VectorXYZ(packedVectors[3 * index],
+				packedVectors[3 * index + 1], packedVectors[3 * index + 2]);
+	}
+
 	private void useMaterial(Material material, int layer) {
 		if (!material.equals(currentMaterial) || (layer != currentMaterialLayer)) {
 
@@ -208,20 +308,26 @@ public class ObjTarget extends FaceTarget<RenderableToObj> {
 		int[] indices = new int[vectors.size()];
 
 		for (int i=0; i<vectors.size(); i++) {
-			final V v = vectors.get(i);
-			Integer index = indexMap.get(v);
-			if (index == null) {
-				index = indexMap.size();
-				objStream.println(objLineStart + " " + formatVector(v));
-				indexMap.put(v, index);
-			}
-			indices[i] = index;
+			indices[i] = vectorToIndex(indexMap, objLineStart, vectors.get(i));
 		}
 
 		return indices;
 
 	}
 
+	private <V> int vectorToIndex(Map<V, Integer> indexMap,
+			String objLineStart, V v) {
+
+		Integer index = indexMap.get(v);
+		if (index == null) {
+			index = indexMap.size();
+			objStream.println(objLineStart + " " + formatVector(v));
+			indexMap.put(v, index);
+		}
+		return index;
+
+	}
+
 	private String formatVector(Object v) {
 
 		if (v instanceof VectorXYZ) {
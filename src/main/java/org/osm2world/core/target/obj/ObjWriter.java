@@ -15,6 +15,7 @@ import org.osm2world.core.map_data.data.MapData;
 import org.osm2world.core.math.VectorXYZ;
 import org.osm2world.core.math.VectorXZ;
 import org.osm2world.core.target.TargetUtil;
+import org.osm2world.core.target.common.RecordingTarget;
 import org.osm2world.core.target.common.rendering.Camera;
 import org.osm2world.core.target.common.rendering.Projection;
 
@@ -31,6 +32,19 @@ public final class ObjWriter {
 			MapProjection mapProjection,
 			Camera camera, Projection projection, boolean underground)
 			throws IOException {
+		writeObjFile(objFile, mapData, mapProjection, camera, projection, underground, null);
+	}
+
+	/**
+	 * @param recording  recording of the world objects in mapData
+	 *                   which is replayed instead of rendering them again, can be null
+	 */
+	public static final void writeObjFile(
+			File objFile, MapData mapData,
+			MapProjection mapProjection,
+			Camera camera, Projection projection, boolean underground,
+			RecordingTarget recording)
+			throws IOException {
 
 		if (!objFile.exists()) {
 			objFile.createNewFile();
@@ -60,7 +74,7 @@ public final class ObjWriter {
 
 			ObjTarget target = new ObjTarget(objStream, mtlStream);
 
-			TargetUtil.renderWorldObjects(target, mapData, underground);
+			TargetUtil.renderWorldObjects(target, mapData, recording, underground);
 
 		}
 
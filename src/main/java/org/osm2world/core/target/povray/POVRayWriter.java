@@ -10,6 +10,7 @@ import org.osm2world.core.map_data.data.MapData;
 import org.osm2world.core.map_data.data.MapElement;
 import org.osm2world.core.math.VectorXYZ;
 import org.osm2world.core.target.TargetUtil;
+import org.osm2world.core.target.common.RecordingTarget;
 import org.osm2world.core.target.common.lighting.GlobalLightingParameters;
 import org.osm2world.core.target.common.rendering.Camera;
 import org.osm2world.core.target.common.rendering.Projection;
@@ -26,6 +27,16 @@ public final class POVRayWriter {
 	public static final void writePOVInstructionFile(File file, MapData mapData,
 			Camera camera, Projection projection)
 			throws IOException {
+		writePOVInstructionFile(file, mapData, camera, projection, null);
+	}
+
+	/**
+	 * @param recording  recording of the world objects in mapData
+	 *                   which is replayed instead of rendering them again, can be null
+	 */
+	public static final void writePOVInstructionFile(File file, MapData mapData,
+			Camera camera, Projection projection, RecordingTarget recording)
+			throws IOException {
 
 		if (!file.exists()) {
 			file.createNewFile();
@@ -34,14 +45,14 @@ public final class POVRayWriter {
 		PrintStream printStream = new PrintStream(file);
 
 		writePOVInstructionStringToStream(printStream,
-				mapData, camera, projection);
+				mapData, recording, camera, projection);
 
 		printStream.close();
 
 	}
 
 	private static final void writePOVInstructionStringToStream(
-			PrintStream stream, MapData mapData,
+			PrintStream stream, MapData mapData, RecordingTarget recording,
 			Camera camera, Projection projection) {
 
 		POVRayTarget target = new POVRayTarget(stream);
@@ -96,7 +107,7 @@ public final class POVRayWriter {
 
 		target.append("\n\n//\n//Map data\n//\n\n");
 
-		TargetUtil.renderWorldObjects(target, mapData, true);
+		TargetUtil.renderWorldObjects(target, mapData, recording, true);
 
 	}
 
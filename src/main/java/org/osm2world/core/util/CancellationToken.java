@@ -0,0 +1,53 @@
+package org.osm2world.core.util;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * allows a long-running operation, such as a conversion, to be cancelled from another thread.
+ *
+ * The operation regularly calls {@link #throwIfCancelled()}, usually after each element,
+ * and is aborted with a {@link CancellationException} once the token has been cancelled.
+ */
+public final class CancellationToken {
+
+	private volatile boolean cancelled = false;
+
+	/** deadline in terms of {@link System#nanoTime()}, only valid if hasDeadline is true */
+	private volatile long deadline;
+	private volatile boolean hasDeadline = false;
+
+	/** cancels the operation. Can be called from any thread. */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * cancels the operation once a time budget has been used up,
+	 * measured from the time of this call
+	 */
+	public void cancelAfter(long timeout, TimeUnit unit) {
+		deadline = System.nanoTime() + unit.toNanos(timeout);
+		hasDeadline = true;
+	}
+
+	public boolean isCancelled() {
+
+		if (!cancelled && hasDeadline && System.nanoTime() - deadline >= 0) {
+			cancelled = true;
+		}
+
+		return cancelled;
+
+	}
+
+	/**
+	 * @throws CancellationException  if the operation has been cancelled
+	 */
+	public void throwIfCancelled() {
+		if (isCancelled()) {
+			throw new CancellationException("operation has been cancelled");
+		}
+	}
+
+}
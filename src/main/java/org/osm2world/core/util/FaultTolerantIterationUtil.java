@@ -1,10 +1,13 @@
 package org.osm2world.core.util;
 
+import java.util.Collection;
+import java.util.concurrent.CancellationException;
 import java.util.function.Consumer;
 
 /**
  * utility class that allows iterations where Exceptions in the processing
- * of a single element don't cause program failure
+ * of a single element don't cause program failure.
+ * A {@link CancellationException} still aborts the iteration.
  */
 final public class FaultTolerantIterationUtil {
 
@@ -14,17 +17,40 @@ final public class FaultTolerantIterationUtil {
 			Iterable<? extends T> collection, Consumer<T> operation) {
 
 		for (T input : collection) {
-			try {
-				operation.accept(input);
-			} catch (Exception e) {
-				System.err.println("ignored exception:");
-				//TODO proper logging
-				e.printStackTrace();
-				System.err.println("this exception occurred for the following input:\n"
-						+ input);
-			}
+			accept(operation, input);
 		}
 
 	}
 
+	/**
+	 * variant of {@link #iterate(Iterable, Consumer)}
+	 * which reports the progress after each element
+	 */
+	public static final <T> void iterate(Collection<? extends T> collection,
+			Consumer<T> operation, ProgressTracker progress) {
+
+		int completedCount = 0;
+
+		for (T input : collection) {
+			accept(operation, input);
+			progress.updateProgress(++completedCount, collection.size());
+		}
+
+	}
+
+	private static final <T> void accept(Consumer<T> operation, T input) {
+		try {
+			operation.accept(input);
+		} catch (CancellationException e) {
+			throw e;
+		} catch (Exception e) {
+			Metrics.increment("exceptions ignored");
+			System.err.println("ignored exception:");
+			//TODO proper logging
+			e.printStackTrace();
+			System.err.println("this exception occurred for the following input:\n"
+					+ input);
+		}
+	}
+
 }
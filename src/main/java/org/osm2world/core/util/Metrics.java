@@ -0,0 +1,310 @@
+package org.osm2world.core.util;
+
+import static java.util.Comparator.comparingLong;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * collects performance metrics of a conversion run: hierarchical timers (e.g. for phases,
+ * modules and targets), counters (e.g. for triangles or ignored exceptions)
+ * and a list of the map elements which took longest to process.
+ *
+ * Metrics are disabled by default. While disabled, all methods return immediately,
+ * so instrumented code doesn't need to check {@link #isEnabled()} itself.
+ * The collected metrics are global and can be written as JSON or CSV.
+ */
+public final class Metrics {
+
+	/** number of elements in the report of the slowest elements */
+	private static final int SLOWEST_ELEMENTS_COUNT = 20;
+
+	private static volatile boolean enabled = false;
+	private static volatile boolean jfrEnabled = false;
+
+	private static final Map<String, TimerStats> timers = new ConcurrentHashMap<String, TimerStats>();
+	private static final Map<String, LongAdder> counters = new ConcurrentHashMap<String, LongAdder>();
+
+	private static final PriorityQueue<ElementTime> slowestElements =
+			new PriorityQueue<ElementTime>(comparingLong((ElementTime e) -> e.nanos));
+
+	/** the names of the running timers for each thread, used to build the hierarchical timer names */
+	private static final ThreadLocal<Deque<String>> timerStack =
+			ThreadLocal.withInitial(() -> new ArrayDeque<String>());
+
+	/** prevents instantiation */
+	private Metrics() { }
+
+	/**
+	 * enables or disables the collection of metrics
+	 *
+	 * @param jfr  whether timers should also be emitted as Java Flight Recorder events.
+	 *             Ignored if the JVM doesn't support JFR.
+	 */
+	public static void setEnabled(boolean enabled, boolean jfr) {
+		Metrics.enabled = enabled;
+		Metrics.jfrEnabled = enabled && jfr && MetricsTimerEvent.isSupported();
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/** discards all metrics collected so far */
+	public static void reset() {
+		timers.clear();
+		counters.clear();
+		synchronized (slowestElements) {
+			slowestElements.clear();
+		}
+	}
+
+	/**
+	 * starts a timer. If another timer is running on the same thread,
+	 * the new timer is nested within it, e.g. "REPRESENTATION/BuildingModule".
+	 * The returned timer needs to be closed (usually with try-with-resources)
+	 * before any timer started earlier on the same thread.
+	 */
+	public static Timer startTimer(String name) {
+
+		if (!enabled) return DISABLED_TIMER;
+
+		Deque<String> stack = timerStack.get();
+		String path = stack.isEmpty() ? name : stack.peek() + "/" + name;
+		stack.push(path);
+
+		return new Timer(path);
+
+	}
+
+	/** increments a counter by one */
+	public static void increment(String counter) {
+		add(counter, 1);
+	}
+
+	/** increments a counter */
+	public static void add(String counter, long delta) {
+		if (!enabled) return;
+		counters.computeIfAbsent(counter, c -> new LongAdder()).add(delta);
+	}
+
+	/**
+	 * records the time needed to process an element, e.g. a map element.
+	 * Only the slowest elements are kept.
+	 *
+	 * @param element  the element, will be converted to a string for the report
+	 */
+	public static void recordElementTime(Object element, long nanos) {
+
+		if (!enabled) return;
+
+		synchronized (slowestElements) {
+			if (slowestElements.size() < SLOWEST_ELEMENTS_COUNT) {
+				slowestElements.add(new ElementTime(element, nanos));
+			} else if (slowestElements.peek().nanos < nanos) {
+				slowestElements.poll();
+				slowestElements.add(new ElementTime(element, nanos));
+			}
+		}
+
+	}
+
+	/**
+	 * writes the collected metrics to a file.
+	 * The format is CSV if the file name ends with ".csv", JSON otherwise.
+	 */
+	public static void write(File file) throws IOException {
+		try (PrintWriter writer = new PrintWriter(new FileWriter(file))) {
+			if (file.getName().toLowerCase().endsWith(".csv")) {
+				writeCSV(writer);
+			} else {
+				writeJSON(writer);
+			}
+		}
+	}
+
+	/**
+	 * writes the collected metrics as a JSON object with
+	 * "timers", "counters" and "slowestElements" properties
+	 */
+	public static void writeJSON(PrintWriter writer) {
+
+		writer.println("{");
+
+		writer.println("  \"timers\": {");
+
+		List<String> lines = new ArrayList<String>();
+		for (Map.Entry<String, TimerStats> e : new TreeMap<String, TimerStats>(timers).entrySet()) {
+			TimerStats stats = e.getValue();
+			lines.add(String.format(Locale.ROOT, "    %s: {\"count\": %d, \"totalMs\": %.3f, \"maxMs\": %.3f}",
+					jsonString(e.getKey()), stats.count.sum(),
+					stats.totalNanos.sum() / 1e6, stats.maxNanos.get() / 1e6));
+		}
+		writer.println(String.join(",\n", lines));
+
+		writer.println("  },");
+
+		writer.println("  \"counters\": {");
+
+		lines.clear();
+		for (Map.Entry<String, LongAdder> e : new TreeMap<String, LongAdder>(counters).entrySet()) {
+			lines.add("    " + jsonString(e.getKey()) + ": " + e.getValue().sum());
+		}
+		writer.println(String.join(",\n", lines));
+
+		writer.println("  },");
+
+		writer.println("  \"slowestElements\": [");
+
+		lines.clear();
+		for (ElementTime e : getSlowestElements()) {
+			lines.add(String.format(Locale.ROOT, "    {\"element\": %s, \"ms\": %.3f}",
+					jsonString(e.element.toString()), e.nanos / 1e6));
+		}
+		writer.println(String.join(",\n", lines));
+
+		writer.println("  ]");
+
+		writer.println("}");
+
+	}
+
+	/**
+	 * writes the collected metrics as CSV with the columns type, name, count and milliseconds
+	 */
+	public static void writeCSV(PrintWriter writer) {
+
+		writer.println("type,name,count,totalMs,maxMs");
+
+		for (Map.Entry<String, TimerStats> e : new TreeMap<String, TimerStats>(timers).entrySet()) {
+			TimerStats stats = e.getValue();
+			writer.println(String.format(Locale.ROOT, "timer,%s,%d,%.3f,%.3f", csvString(e.getKey()),
+					stats.count.sum(), stats.totalNanos.sum() / 1e6, stats.maxNanos.get() / 1e6));
+		}
+
+		for (Map.Entry<String, LongAdder> e : new TreeMap<String, LongAdder>(counters).entrySet()) {
+			writer.println(String.format(Locale.ROOT, "counter,%s,%d,,", csvString(e.getKey()), e.getValue().sum()));
+		}
+
+		for (ElementTime e : getSlowestElements()) {
+			writer.println(String.format(Locale.ROOT, "element,%s,1,%.3f,%.3f", csvString(e.element.toString()),
+					e.nanos / 1e6, e.nanos / 1e6));
+		}
+
+	}
+
+	/** returns the slowest elements, starting with the slowest */
+	private static List<ElementTime> getSlowestElements() {
+
+		List<ElementTime> result;
+
+		synchronized (slowestElements) {
+			result = new ArrayList<ElementTime>(slowestElements);
+		}
+
+		result.sort(comparingLong((ElementTime e) -> e.nanos).reversed());
+
+		return result;
+
+	}
+
+	private static String jsonString(String s) {
+
+		StringBuilder result = new StringBuilder("\"");
+
+		for (char c : s.toCharArray()) {
+			switch (c) {
+			case '"': result.append("\\\""); break;
+			case '\\': result.append("\\\\"); break;
+			case '\n': result.append("\\n"); break;
+			case '\r': result.append("\\r"); break;
+			case '\t': result.append("\\t"); break;
+			default:
+				if (c < 0x20) {
+					result.append(String.format("\\u%04x", (int) c));
+				} else {
+					result.append(c);
+				}
+			}
+		}
+
+		return result.append('"').toString();
+
+	}
+
+	private static String csvString(String s) {
+		return "\"" + s.replace("\"", "\"\"").replace('\n', ' ') + "\"";
+	}
+
+	/**
+	 * a running timer, see {@link Metrics#startTimer(String)}
+	 */
+	public static class Timer implements AutoCloseable {
+
+		private final String path;
+		private final long start;
+		private final MetricsTimerEvent event;
+
+		private Timer(String path) {
+			this.path = path;
+			this.event = jfrEnabled ? MetricsTimerEvent.begin(path) : null;
+			this.start = System.nanoTime();
+		}
+
+		/** stops the timer and records the time */
+		@Override
+		public void close() {
+
+			long nanos = System.nanoTime() - start;
+
+			TimerStats stats = timers.computeIfAbsent(path, p -> new TimerStats());
+			stats.count.increment();
+			stats.totalNanos.add(nanos);
+			stats.maxNanos.accumulate(nanos);
+
+			timerStack.get().remove(path);
+
+			if (event != null) {
+				event.commit();
+			}
+
+		}
+
+	}
+
+	private static final Timer DISABLED_TIMER = new Timer(null) {
+		@Override public void close() {}
+	};
+
+	private static class TimerStats {
+		final LongAdder count = new LongAdder();
+		final LongAdder totalNanos = new LongAdder();
+		final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+	}
+
+	private static class ElementTime {
+
+		final Object element;
+		final long nanos;
+
+		ElementTime(Object element, long nanos) {
+			this.element = element;
+			this.nanos = nanos;
+		}
+
+	}
+
+}
@@ -0,0 +1,101 @@
+package org.osm2world.core.util;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * Java Flight Recorder event for a {@link Metrics.Timer}.
+ *
+ * The JFR API (package jdk.jfr) is only available from Java 8u262 on,
+ * so it is accessed using reflection and the event type is defined at runtime with JFR's EventFactory.
+ * Events must only be created if {@link #isSupported()} is true.
+ */
+final class MetricsTimerEvent {
+
+	/** the jdk.jfr.EventFactory for this event type, null if JFR is not supported */
+	private static final Object factory;
+
+	private static final Method newEventMethod;
+	private static final Method setMethod;
+	private static final Method beginMethod;
+	private static final Method commitMethod;
+
+	static {
+
+		Object f = null;
+		Method newEvent = null, set = null, begin = null, commit = null;
+
+		try {
+
+			Class<?> eventClass = Class.forName("jdk.jfr.Event");
+			Class<?> factoryClass = Class.forName("jdk.jfr.EventFactory");
+			Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement");
+			Class<?> valueDescriptorClass = Class.forName("jdk.jfr.ValueDescriptor");
+
+			Constructor<?> annotationElement = annotationElementClass.getConstructor(Class.class, Object.class);
+			Constructor<?> valueDescriptor = valueDescriptorClass.getConstructor(Class.class, String.class, List.class);
+
+			List<Object> eventAnnotations = asList(
+					annotationElement.newInstance(Class.forName("jdk.jfr.Name"), "org.osm2world.Timer"),
+					annotationElement.newInstance(Class.forName("jdk.jfr.Label"), "OSM2World Timer"),
+					annotationElement.newInstance(Class.forName("jdk.jfr.Category"), new String[] {"OSM2World"}));
+
+			List<Object> fields = singletonList(valueDescriptor.newInstance(String.class, "name",
+					singletonList(annotationElement.newInstance(Class.forName("jdk.jfr.Label"), "Name"))));
+
+			f = factoryClass.getMethod("create", List.class, List.class).invoke(null, eventAnnotations, fields);
+
+			newEvent = factoryClass.getMethod("newEvent");
+			set = eventClass.getMethod("set", int.class, Object.class);
+			begin = eventClass.getMethod("begin");
+			commit = eventClass.getMethod("commit");
+
+		} catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+			f = null;
+		}
+
+		factory = f;
+		newEventMethod = newEvent;
+		setMethod = set;
+		beginMethod = begin;
+		commitMethod = commit;
+
+	}
+
+	/** the jdk.jfr.Event instance */
+	private final Object event;
+
+	private MetricsTimerEvent(Object event) {
+		this.event = event;
+	}
+
+	/** returns true if the JVM supports JFR events */
+	static boolean isSupported() {
+		return factory != null;
+	}
+
+	static MetricsTimerEvent begin(String name) {
+		try {
+			Object event = newEventMethod.invoke(factory);
+			setMethod.invoke(event, 0, name);
+			beginMethod.invoke(event);
+			return new MetricsTimerEvent(event);
+		} catch (IllegalAccessException | InvocationTargetException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	void commit() {
+		try {
+			commitMethod.invoke(event);
+		} catch (IllegalAccessException | InvocationTargetException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+}
@@ -0,0 +1,44 @@
+package org.osm2world.core.util;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * receives the progress of a long-running operation, such as one phase of a conversion.
+ *
+ * Operations should report their progress regularly, e.g. after each element.
+ * This also allows implementations to abort the operation by throwing a
+ * {@link CancellationException}, see {@link CancellationToken}.
+ */
+@FunctionalInterface
+public interface ProgressTracker {
+
+	/** tracker which ignores all progress updates */
+	public static final ProgressTracker NONE = progress -> {};
+
+	/**
+	 * announces the fraction of the operation that is completed.
+	 * Can be called by several threads at the same time.
+	 *
+	 * @param progress  value between 0 and 1
+	 * @throws CancellationException  if the operation has been cancelled
+	 */
+	public void updateProgress(double progress);
+
+	/**
+	 * convenience variant of {@link #updateProgress(double)} for operations
+	 * which process a known number of elements
+	 */
+	public default void updateProgress(long completedCount, long totalCount) {
+		updateProgress(totalCount > 0 ? (double) completedCount / totalCount : 1.0);
+	}
+
+	/**
+	 * returns a tracker for a part of this operation.
+	 * Progress from 0 to 1 reported to the returned tracker will be forwarded
+	 * to this tracker as progress from start to end.
+	 */
+	public default ProgressTracker subTask(double start, double end) {
+		return progress -> updateProgress(start + progress * (end - start));
+	}
+
+}
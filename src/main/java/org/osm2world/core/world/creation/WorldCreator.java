@@ -5,6 +5,8 @@ import java.util.List;
 
 import org.apache.commons.configuration.Configuration;
 import org.osm2world.core.map_data.data.MapData;
+import org.osm2world.core.util.Metrics;
+import org.osm2world.core.util.ProgressTracker;
 
 public class WorldCreator {
 
@@ -22,12 +24,29 @@ public class WorldCreator {
 	}
 
 	public void addRepresentationsTo(MapData mapData) {
+		addRepresentationsTo(mapData, ProgressTracker.NONE);
+	}
 
-		for (WorldModule module : modules) {
-			module.applyTo(mapData);
+	/**
+	 * variant of {@link #addRepresentationsTo(MapData)} which reports its progress.
+	 * Each module, as well as the network calculation, is counted as an equal share.
+	 */
+	public void addRepresentationsTo(MapData mapData, ProgressTracker progress) {
+
+		int stepCount = modules.size() + 1;
+
+		for (int i = 0; i < modules.size(); i++) {
+			WorldModule module = modules.get(i);
+			try (Metrics.Timer timer = Metrics.startTimer(module.getClass().getSimpleName())) {
+				module.applyTo(mapData, progress.subTask((double) i / stepCount, (double) (i + 1) / stepCount));
+			}
+		}
+
+		try (Metrics.Timer timer = Metrics.startTimer("NetworkCalculator")) {
+			NetworkCalculator.calculateNetworkInformationInGrid(mapData);
 		}
 
-		NetworkCalculator.calculateNetworkInformationInGrid(mapData);
+		progress.updateProgress(1);
 
 	}
 
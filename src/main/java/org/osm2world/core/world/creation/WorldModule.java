@@ -3,6 +3,7 @@ package org.osm2world.core.world.creation;
 import org.apache.commons.configuration.Configuration;
 import org.osm2world.core.map_data.data.MapData;
 import org.osm2world.core.map_data.data.MapElement;
+import org.osm2world.core.util.ProgressTracker;
 import org.osm2world.core.world.data.WorldObject;
 
 public interface WorldModule {
@@ -22,4 +23,13 @@ public interface WorldModule {
 	 */
 	public void applyTo(MapData mapData);
 
+	/**
+	 * variant of {@link #applyTo(MapData)} which reports its progress.
+	 * The default implementation only reports completion at the end.
+	 */
+	public default void applyTo(MapData mapData, ProgressTracker progress) {
+		applyTo(mapData);
+		progress.updateProgress(1);
+	}
+
 }
@@ -93,6 +93,15 @@ public abstract class AbstractAreaWorldObject
 		return connectors.getTriangulationXYZ(getTriangulationXZ());
 	}
 
+	/**
+	 * packed variant of {@link #getTriangulation()}, with the x, y and z coordinate
+	 * of each triangle vertex in a single array.
+	 * Only available after elevation calculation.
+	 */
+	protected double[] getTriangulationPositions() {
+		return connectors.getTriangulationXYZPositions(getTriangulationXZ());
+	}
+
 	@Override
 	public String toString() {
 		return this.getClass().getSimpleName() + "(" + area + ")";
@@ -17,6 +17,7 @@ import static org.osm2world.core.math.VectorXYZ.Z_UNIT;
 import static org.osm2world.core.target.common.material.NamedTexCoordFunction.*;
 import static org.osm2world.core.target.common.material.TexCoordUtil.*;
 import static org.osm2world.core.util.FaultTolerantIterationUtil.iterate;
+import static org.osm2world.core.world.modules.common.WorldModuleGeometryUtil.drawExtrudedFlatTopPolygon;
 import static org.osm2world.core.world.modules.common.WorldModuleParseUtil.*;
 
 import java.awt.Color;
@@ -59,11 +60,13 @@ import org.osm2world.core.math.algorithms.TriangulationUtil;
 import org.osm2world.core.math.shapes.ShapeXZ;
 import org.osm2world.core.target.RenderableToAllTargets;
 import org.osm2world.core.target.Target;
+import org.osm2world.core.target.common.LevelOfDetail;
 import org.osm2world.core.target.common.TextureData;
 import org.osm2world.core.target.common.material.ImmutableMaterial;
 import org.osm2world.core.target.common.material.Material;
 import org.osm2world.core.target.common.material.Materials;
 import org.osm2world.core.util.CSSColors;
+import org.osm2world.core.util.ProgressTracker;
 import org.osm2world.core.util.exception.TriangulationException;
 import org.osm2world.core.world.data.AreaWorldObject;
 import org.osm2world.core.world.data.NodeWorldObject;
@@ -80,6 +83,11 @@ public class BuildingModule extends ConfigurableWorldModule {
 
 	@Override
 	public void applyTo(MapData mapData) {
+		applyTo(mapData, ProgressTracker.NONE);
+	}
+
+	@Override
+	public void applyTo(MapData mapData, ProgressTracker progress) {
 
 		final boolean useBuildingColors = config.getBoolean("useBuildingColors", true);
 		final boolean drawBuildingWindows = config.getBoolean("drawBuildingWindows", true);
@@ -98,7 +106,7 @@ public class BuildingModule extends ConfigurableWorldModule {
 
 			}
 
-		});
+		}, progress);
 
 	}
 
@@ -355,12 +363,32 @@ public class BuildingModule extends ConfigurableWorldModule {
 		@Override
 		public void renderTo(Target<?> target) {
 
+			if (target.getLevelOfDetail() == LevelOfDetail.LOW) {
+				renderSimplified(target);
+				return;
+			}
+
 			renderWalls(target, roof);
 
 			roof.renderTo(target);
 
 		}
 
+		/**
+		 * renders this part as its footprint, extruded to the average height of the roof.
+		 * Replaces the detailed geometry for {@link LevelOfDetail#LOW}.
+		 */
+		private void renderSimplified(Target<?> target) {
+
+			double baseEle = building.getGroundLevelEle();
+			double bottomEle = baseEle + calculateFloorHeight(roof);
+			double topEle = baseEle + heightWithoutRoof + roof.getRoofHeight() / 2;
+
+			drawExtrudedFlatTopPolygon(target, polygon, bottomEle, topEle,
+					materialWall, materialRoof, SLOPED_TRIANGLES);
+
+		}
+
 		private void renderFloor(Target<?> target, double floorEle) {
 
 			Collection<TriangleXZ> triangles =
@@ -552,7 +580,11 @@ public class BuildingModule extends ConfigurableWorldModule {
 
 			double floorEle = baseEle + floorHeight;
 
-			List<TextureData> textureDataList = materialWallWithWindows.getTextureDataList();
+			Material materialMainWall = (target.getLevelOfDetail() == LevelOfDetail.HIGH)
+					? materialWallWithWindows
+					: materialWall;
+
+			List<TextureData> textureDataList = materialMainWall.getTextureDataList();
 			List<VectorXZ> vertices = polygon.getVertexLoop();
 
 			List<VectorXYZ> mainWallVectors = new ArrayList<VectorXYZ>(vertices.size() * 2);
@@ -643,7 +675,7 @@ public class BuildingModule extends ConfigurableWorldModule {
 
 			}
 
-			target.drawTriangleStrip(materialWallWithWindows, mainWallVectors,
+			target.drawTriangleStrip(materialMainWall, mainWallVectors,
 					mainWallTexCoordLists);
 
 			drawStripWithoutDegenerates(target, materialWall, roofWallVectors,
@@ -1375,28 +1407,29 @@ public class BuildingModule extends ConfigurableWorldModule {
 
 				}
 
-				List<TriangleXYZ> trianglesXYZ =
-						new ArrayList<TriangleXYZ>(triangles.size());
+				double[] positions = new double[9 * triangles.size()];
+
+				int i = 0;
 
 				for (TriangleXZ triangle : triangles) {
 					TriangleXZ tCCW = triangle.makeCounterclockwise();
-					trianglesXYZ.add(new TriangleXYZ(
-							withRoofEle(tCCW.v1),
-							withRoofEle(tCCW.v2),
-							withRoofEle(tCCW.v3)));
-					//TODO: avoid duplicate objects for points in more than one triangle
+					i = putWithRoofEle(positions, i, tCCW.v1);
+					i = putWithRoofEle(positions, i, tCCW.v2);
+					i = putWithRoofEle(positions, i, tCCW.v3);
 				}
 
 				/* draw triangles */
 
-				target.drawTriangles(materialRoof, trianglesXYZ,
-						triangleTexCoordLists(trianglesXYZ,
-								materialRoof, SLOPED_TRIANGLES));
+				target.drawMesh(materialRoof, positions, null,
+						texCoordArrays(positions, materialRoof, SLOPED_TRIANGLES), null);
 
 			}
 
-			private VectorXYZ withRoofEle(VectorXZ v) {
-				return v.xyz(getRoofEleAt(v));
+			private int putWithRoofEle(double[] positions, int i, VectorXZ v) {
+				positions[i] = v.x;
+				positions[i + 1] = getRoofEleAt(v);
+				positions[i + 2] = v.z;
+				return i + 3;
 			}
 
 		}
@@ -1,17 +1,20 @@
 package org.osm2world.core.world.modules;
 
+import static java.lang.Math.*;
 import static java.util.Collections.*;
 import static org.osm2world.core.map_data.creation.EmptyTerrainBuilder.EMPTY_SURFACE_VALUE;
 import static org.osm2world.core.map_elevation.creation.EleConstraintEnforcer.ConstraintType.MIN;
 import static org.osm2world.core.map_elevation.data.GroundState.*;
 import static org.osm2world.core.target.common.material.NamedTexCoordFunction.GLOBAL_X_Z;
-import static org.osm2world.core.target.common.material.TexCoordUtil.triangleTexCoordLists;
+import static org.osm2world.core.target.common.material.TexCoordUtil.texCoordArrays;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 import org.openstreetmap.josm.plugins.graphview.core.data.Tag;
 import org.openstreetmap.josm.plugins.graphview.core.data.TagGroup;
@@ -22,10 +25,10 @@ import org.osm2world.core.map_data.data.overlaps.MapOverlapType;
 import org.osm2world.core.map_elevation.creation.EleConstraintEnforcer;
 import org.osm2world.core.map_elevation.data.EleConnector;
 import org.osm2world.core.map_elevation.data.GroundState;
+import org.osm2world.core.math.AxisAlignedBoundingBoxXZ;
 import org.osm2world.core.math.PolygonWithHolesXZ;
 import org.osm2world.core.math.PolygonXYZ;
 import org.osm2world.core.math.SimplePolygonXZ;
-import org.osm2world.core.math.TriangleXYZ;
 import org.osm2world.core.math.TriangleXZ;
 import org.osm2world.core.math.VectorGridXZ;
 import org.osm2world.core.math.VectorXZ;
@@ -41,6 +44,8 @@ import org.osm2world.core.world.data.WorldObject;
 import org.osm2world.core.world.data.WorldObjectWithOutline;
 import org.osm2world.core.world.modules.common.AbstractModule;
 
+import com.google.common.primitives.Doubles;
+
 /**
  * adds generic areas with surface information to the world.
  * Is based on surface information on otherwise unknown/unspecified areas.
@@ -96,6 +101,9 @@ public class SurfaceAreaModule extends AbstractModule {
 
 		private Collection<TriangleXZ> triangulationXZ;
 
+		/** whether the triangulation has been created by {@link #triangulateGridPatch(PolygonWithHolesXZ)} */
+		private boolean isGridPatch = false;
+
 		public SurfaceArea(MapArea area, String surface) {
 			super(area);
 			this.surface = surface;
@@ -114,9 +122,19 @@ public class SurfaceAreaModule extends AbstractModule {
 
 			if (material != null) {
 
-				Collection<TriangleXYZ> triangles = getTriangulation();
-				target.drawTriangles(material, triangles,
-						triangleTexCoordLists(triangles, material, GLOBAL_X_Z));
+				double[] positions;
+
+				int gridStep = target.getLevelOfDetail().terrainGridStep;
+
+				if (isGridPatch && gridStep > 1) {
+					positions = getEleConnectors().getTriangulationXYZPositions(
+							triangulateGridPatch(area.getPolygon(), gridStep));
+				} else {
+					positions = getTriangulationPositions();
+				}
+
+				target.drawMesh(material, positions, null,
+						texCoordArrays(positions, material, GLOBAL_X_Z), null);
 
 			}
 
@@ -214,41 +232,70 @@ public class SurfaceAreaModule extends AbstractModule {
 			}
 			}
 
+			/* empty terrain patches without any overlaps are a regular grid */
+
+			if (isEmptyTerrain && allPolys.isEmpty() && eleConnectorPoints.isEmpty()) {
+				triangulationXZ = triangulateGridPatch(area.getPolygon());
+				if (triangulationXZ != null) {
+					isGridPatch = true;
+					return triangulationXZ;
+				}
+			}
+
 			/* add a grid of points within the area for smoother surface shapes */
 
 			VectorGridXZ pointGrid = new VectorGridXZ(
 					area.getAxisAlignedBoundingBoxXZ(),
 					EmptyTerrainBuilder.POINT_GRID_DIST);
 
-			for (VectorXZ point : pointGrid) {
+			//don't insert if it is e.g. on top of a tunnel;
+			//otherwise there would be no minimum vertical distance
 
-				//don't insert if it is e.g. on top of a tunnel;
-				//otherwise there would be no minimum vertical distance
+			boolean[][] unsafe = new boolean[pointGrid.sizeX()][pointGrid.sizeZ()];
 
-				boolean safe = true;
+			if (!pointGrid.isEmpty()) {
+
+				VectorXZ gridStart = pointGrid.get(0, 0);
+				double dist = EmptyTerrainBuilder.POINT_GRID_DIST;
 
 				for (SimplePolygonXZ polygon : allPolys) {
-					if (polygon.contains(point)) {
-						safe = false;
-						break;
+
+					/* only test the grid points within the polygon's bounding box */
+
+					AxisAlignedBoundingBoxXZ bbox =
+							new AxisAlignedBoundingBoxXZ(polygon.getVertexCollection());
+
+					int minX = max(0, (int)ceil((bbox.minX - gridStart.x) / dist));
+					int minZ = max(0, (int)ceil((bbox.minZ - gridStart.z) / dist));
+					int maxX = min(pointGrid.sizeX() - 1, (int)floor((bbox.maxX - gridStart.x) / dist));
+					int maxZ = min(pointGrid.sizeZ() - 1, (int)floor((bbox.maxZ - gridStart.z) / dist));
+
+					for (int x = minX; x <= maxX; x++) {
+						for (int z = minZ; z <= maxZ; z++) {
+							if (!unsafe[x][z] && polygon.contains(pointGrid.get(x, z))) {
+								unsafe[x][z] = true;
+							}
+						}
 					}
-				}
 
-				if (safe) {
-					eleConnectorPoints.add(point);
 				}
 
 			}
 
+			for (int x = 0; x < pointGrid.sizeX(); x++) {
+				for (int z = 0; z < pointGrid.sizeZ(); z++) {
+					if (!unsafe[x][z]) {
+						eleConnectorPoints.add(pointGrid.get(x, z));
+					}
+				}
+			}
+
 			/* create "leftover" polygons by subtracting the existing ones */
 
 			Collection<PolygonWithHolesXZ> polygons;
 
 			if (subtractPolys.isEmpty()) {
 
-				/* SUGGEST (performance) handle the common "empty terrain cell"
-				 * special case more efficiently, also regarding point raster? */
-
 				polygons = singleton(area.getPolygon());
 
 			} else {
@@ -266,8 +313,11 @@ public class SurfaceAreaModule extends AbstractModule {
 
 				List<VectorXZ> points = new ArrayList<VectorXZ>();
 
+				AxisAlignedBoundingBoxXZ bbox =
+						new AxisAlignedBoundingBoxXZ(polygon.getOuter().getVertexCollection());
+
 				for (VectorXZ point : eleConnectorPoints) {
-					if (polygon.contains(point)) {
+					if (bbox.contains(point) && polygon.contains(point)) {
 						points.add(point);
 					}
 				}
@@ -281,6 +331,185 @@ public class SurfaceAreaModule extends AbstractModule {
 
 		}
 
+		/**
+		 * triangulates an axis-aligned rectangle with vertices on a regular grid,
+		 * such as the patches created by {@link EmptyTerrainBuilder}.
+		 * The result uses all vertices of the polygon and all grid points within it.
+		 *
+		 * @return  the triangulation, or null if the polygon is not such a rectangle
+		 */
+		static List<TriangleXZ> triangulateGridPatch(PolygonWithHolesXZ polygon) {
+			return triangulateGridPatch(polygon, 1);
+		}
+
+		/**
+		 * variant of {@link #triangulateGridPatch(PolygonWithHolesXZ)} which produces
+		 * a coarser triangulation by only using every step-th grid line (and the last one).
+		 * Used for lower levels of detail.
+		 *
+		 * All vertices of the polygon are still used, so the patch keeps matching its neighbors
+		 * (which may use a different step) without cracks. Cells along the polygon's outline are
+		 * triangulated including the vertices on their outer sides.
+		 */
+		static List<TriangleXZ> triangulateGridPatch(PolygonWithHolesXZ polygon, int step) {
+
+			if (!polygon.getHoles().isEmpty()) return null;
+
+			List<VectorXZ> vertices = polygon.getOuter().getVertices();
+
+			/* collect the grid lines */
+
+			SortedSet<Double> xSet = new TreeSet<Double>();
+			SortedSet<Double> zSet = new TreeSet<Double>();
+
+			for (VectorXZ v : vertices) {
+				xSet.add(v.x);
+				zSet.add(v.z);
+			}
+
+			double[] xs = Doubles.toArray(xSet);
+			double[] zs = Doubles.toArray(zSet);
+
+			/* check that the polygon is a rectangle with a vertex on each grid line */
+
+			if (xs.length < 2 || zs.length < 2
+					|| vertices.size() != 2 * (xs.length - 1) + 2 * (zs.length - 1)) {
+				return null;
+			}
+
+			for (VectorXZ v : vertices) {
+				if (v.x != xs[0] && v.x != xs[xs.length - 1]
+						&& v.z != zs[0] && v.z != zs[zs.length - 1]) {
+					return null;
+				}
+			}
+
+			int[] xIndices = decimate(xs.length, step);
+			int[] zIndices = decimate(zs.length, step);
+
+			/* triangulate each cell of the decimated grid */
+
+			List<TriangleXZ> result = new ArrayList<TriangleXZ>(
+					2 * (xIndices.length - 1) * (zIndices.length - 1) + vertices.size());
+
+			for (int i = 0; i + 1 < xIndices.length; i++) {
+				for (int j = 0; j + 1 < zIndices.length; j++) {
+
+					int x0 = xIndices[i];
+					int x1 = xIndices[i + 1];
+					int z0 = zIndices[j];
+					int z1 = zIndices[j + 1];
+
+					/* the cell's outline, with all grid points on sides which are part of the polygon's outline */
+
+					List<VectorXZ> outline = new ArrayList<VectorXZ>(4);
+
+					for (int x = x0; x < x1; x += (z0 == 0) ? 1 : x1 - x0) {
+						outline.add(new VectorXZ(xs[x], zs[z0]));
+					}
+					for (int z = z0; z < z1; z += (x1 == xs.length - 1) ? 1 : z1 - z0) {
+						outline.add(new VectorXZ(xs[x1], zs[z]));
+					}
+					for (int x = x1; x > x0; x -= (z1 == zs.length - 1) ? 1 : x1 - x0) {
+						outline.add(new VectorXZ(xs[x], zs[z1]));
+					}
+					for (int z = z1; z > z0; z -= (x0 == 0) ? 1 : z1 - z0) {
+						outline.add(new VectorXZ(xs[x0], zs[z]));
+					}
+
+					if (outline.size() == 4) {
+						result.add(new TriangleXZ(outline.get(0), outline.get(1), outline.get(2))
+								.makeCounterclockwise());
+						result.add(new TriangleXZ(outline.get(0), outline.get(2), outline.get(3))
+								.makeCounterclockwise());
+					} else {
+						triangulateCellOutline(outline, result);
+					}
+
+				}
+			}
+
+			return result;
+
+		}
+
+		/**
+		 * returns the indices of every step-th of a number of grid lines, always including the last one
+		 */
+		private static int[] decimate(int count, int step) {
+
+			step = max(1, step);
+
+			int resultCount = (count - 1) / step + ((count - 1) % step != 0 ? 2 : 1);
+
+			int[] result = new int[resultCount];
+
+			for (int i = 0; i < resultCount - 1; i++) {
+				result[i] = i * step;
+			}
+
+			result[resultCount - 1] = count - 1;
+
+			return result;
+
+		}
+
+		/**
+		 * triangulates an axis-aligned rectangle which can have additional vertices in the middle of its sides.
+		 * Repeatedly cuts off a vertex which is neither in the middle of a side
+		 * nor the last vertex off the remaining vertices' line,
+		 * so no triangle is degenerate and all vertices are used.
+		 */
+		private static void triangulateCellOutline(List<VectorXZ> outline, List<TriangleXZ> result) {
+
+			List<VectorXZ> remaining = new ArrayList<VectorXZ>(outline);
+
+			while (remaining.size() > 3) {
+
+				for (int i = 0; i < remaining.size(); i++) {
+
+					VectorXZ prev = remaining.get((i + remaining.size() - 1) % remaining.size());
+					VectorXZ v = remaining.get(i);
+					VectorXZ next = remaining.get((i + 1) % remaining.size());
+
+					boolean onSide = (prev.x == v.x && v.x == next.x) || (prev.z == v.z && v.z == next.z);
+
+					if (!onSide && !isOnOneSide(remaining, i)) {
+						result.add(new TriangleXZ(prev, v, next).makeCounterclockwise());
+						remaining.remove(i);
+						break;
+					}
+
+				}
+
+			}
+
+			result.add(new TriangleXZ(remaining.get(0), remaining.get(1), remaining.get(2))
+					.makeCounterclockwise());
+
+		}
+
+		/**
+		 * checks whether all vertices except the one at the skipped index have the same x or the same z coordinate
+		 */
+		private static boolean isOnOneSide(List<VectorXZ> vertices, int skippedIndex) {
+
+			VectorXZ first = vertices.get(skippedIndex == 0 ? 1 : 0);
+
+			boolean sameX = true;
+			boolean sameZ = true;
+
+			for (int i = 0; i < vertices.size(); i++) {
+				if (i != skippedIndex) {
+					sameX &= vertices.get(i).x == first.x;
+					sameZ &= vertices.get(i).z == first.z;
+				}
+			}
+
+			return sameX || sameZ;
+
+		}
+
 		@Override
 		public void defineEleConstraints(EleConstraintEnforcer enforcer) {
 
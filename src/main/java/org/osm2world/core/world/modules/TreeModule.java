@@ -1,7 +1,9 @@
 package org.osm2world.core.world.modules;
 
 import static java.util.Arrays.asList;
-import static org.osm2world.core.world.modules.common.WorldModuleGeometryUtil.filterWorldObjectCollisions;
+import static org.osm2world.core.target.common.material.NamedTexCoordFunction.*;
+import static org.osm2world.core.target.common.material.TexCoordUtil.*;
+import static org.osm2world.core.world.modules.common.WorldModuleGeometryUtil.*;
 import static org.osm2world.core.world.modules.common.WorldModuleParseUtil.parseHeight;
 
 import java.util.ArrayList;
@@ -25,9 +27,12 @@ import org.osm2world.core.math.AxisAlignedBoundingBoxXZ;
 import org.osm2world.core.math.GeometryUtil;
 import org.osm2world.core.math.VectorXYZ;
 import org.osm2world.core.math.VectorXZ;
+import org.osm2world.core.math.algorithms.PoissonDiskSamplingUtil;
+import org.osm2world.core.math.algorithms.TriangulationUtil;
 import org.osm2world.core.target.RenderableToAllTargets;
 import org.osm2world.core.target.Target;
 import org.osm2world.core.target.common.FaceTarget;
+import org.osm2world.core.target.common.LevelOfDetail;
 import org.osm2world.core.target.common.RenderableToFaceTarget;
 import org.osm2world.core.target.common.material.Material;
 import org.osm2world.core.target.common.material.Materials;
@@ -193,6 +198,9 @@ public class TreeModule extends ConfigurableWorldModule {
 
 	private static final float TREE_RADIUS_PER_HEIGHT = 0.2f;
 
+	/** height of canopy patches relative to the height of the trees, roughly the middle of the crowns */
+	private static final double CANOPY_HEIGHT_FACTOR = 0.75;
+
 	private void renderTree(Target<?> target, MapElement element, VectorXYZ pos,
 			LeafType leafType, LeafCycle leafCycle, TreeSpecies species) {
 
@@ -207,7 +215,7 @@ public class TreeModule extends ConfigurableWorldModule {
 
 		double height = getTreeHeight(element, leafType == LeafType.NEEDLELEAVED, species != null);
 
-		if (useBillboards) {
+		if (useBillboards || target.getLevelOfDetail() != LevelOfDetail.HIGH) {
 
 			//"random" decision based on x coord
 			boolean mirrored = (long)(pos.getX()) % 2 == 0;
@@ -581,11 +589,9 @@ public class TreeModule extends ConfigurableWorldModule {
 			/* place the trees */
 
 			List<VectorXZ> treePositions =
-				GeometryUtil.distributePointsOn(area.getOsmElement().getId(),
-						area.getPolygon(), mapData.getBoundary(),
-						density, 0.3f);
-
-			filterWorldObjectCollisions(treePositions, avoidedObjects);
+				PoissonDiskSamplingUtil.distributePoints(area.getOsmElement().getId(),
+						area.getPolygon(), getGroundOutlinePolygons(avoidedObjects),
+						mapData.getBoundary(), density, 0.3f);
 
 			/* create a terrain connector for each tree */
 
@@ -637,6 +643,10 @@ public class TreeModule extends ConfigurableWorldModule {
 
 		@Override
 		public void renderTo(FaceTarget<?> target) {
+			if (target.getLevelOfDetail() == LevelOfDetail.LOW) {
+				renderCanopyPatch(target);
+				return;
+			}
 			for (EleConnector treeConnector : treeConnectors) {
 				renderTree(target, area, treeConnector.getPosXYZ(),
 						leafType, leafCycle, species);
@@ -646,6 +656,10 @@ public class TreeModule extends ConfigurableWorldModule {
 
 		@Override
 		public void renderTo(ModelTarget<?> target) {
+			if (target.getLevelOfDetail() == LevelOfDetail.LOW) {
+				renderCanopyPatch(target);
+				return;
+			}
 			for (EleConnector treeConnector : treeConnectors) {
 				renderTreeModel(target, area, treeConnector.getPosXYZ(),
 						leafType, leafCycle, species);
@@ -654,12 +668,45 @@ public class TreeModule extends ConfigurableWorldModule {
 
 		@Override
 		public void renderTo(Target<?> target) {
+			if (target.getLevelOfDetail() == LevelOfDetail.LOW) {
+				renderCanopyPatch(target);
+				return;
+			}
 			for (EleConnector treeConnector : treeConnectors) {
 				renderTree(target, area, treeConnector.getPosXYZ(),
 						leafType, leafCycle, species);
 			}
 		}
 
+		/**
+		 * renders the forest as a single patch of canopy instead of individual trees.
+		 * Used for {@link LevelOfDetail#LOW}.
+		 */
+		private void renderCanopyPatch(Target<?> target) {
+
+			/* place the patch on the average elevation of the trees.
+			 * The trees' connectors are the forest's only source of elevation information,
+			 * so a forest without trees has no patch (just like it has no trees otherwise). */
+
+			if (treeConnectors.isEmpty()) return;
+
+			double baseEle = 0;
+
+			for (EleConnector treeConnector : treeConnectors) {
+				baseEle += treeConnector.getPosXYZ().y;
+			}
+
+			baseEle /= treeConnectors.size();
+
+			double defaultHeight = species != null ? defaultTreeHeight : defaultTreeHeightForest;
+			double topEle = baseEle + CANOPY_HEIGHT_FACTOR
+					* parseHeight(area.getTags(), (float) defaultHeight);
+
+			drawExtrudedFlatTopPolygon(target, area.getPolygon(), baseEle, topEle,
+					Materials.TREE_CROWN, Materials.TREE_CROWN, GLOBAL_X_Z);
+
+		}
+
 	}
 
 }
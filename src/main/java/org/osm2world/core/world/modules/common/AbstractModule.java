@@ -5,6 +5,7 @@ import org.osm2world.core.map_data.data.MapData;
 import org.osm2world.core.map_data.data.MapElement;
 import org.osm2world.core.map_data.data.MapNode;
 import org.osm2world.core.map_data.data.MapWaySegment;
+import org.osm2world.core.util.ProgressTracker;
 import org.osm2world.core.world.creation.WorldModule;
 import org.osm2world.core.world.data.WorldObject;
 
@@ -19,17 +20,28 @@ public abstract class AbstractModule extends ConfigurableWorldModule {
 
 	@Override
 	public final void applyTo(MapData grid) {
+		applyTo(grid, ProgressTracker.NONE);
+	}
+
+	@Override
+	public final void applyTo(MapData grid, ProgressTracker progress) {
+
+		int elementCount = grid.getMapElementCount();
+		int completedCount = 0;
 
 		for (MapNode node : grid.getMapNodes()) {
 			applyToNode(node);
+			progress.updateProgress(++completedCount, elementCount);
 		}
 
 		for (MapWaySegment segment : grid.getMapWaySegments()) {
 			applyToWaySegment(segment);
+			progress.updateProgress(++completedCount, elementCount);
 		}
 
 		for (MapArea area : grid.getMapAreas()) {
 			applyToArea(area);
+			progress.updateProgress(++completedCount, elementCount);
 		}
 
 	}
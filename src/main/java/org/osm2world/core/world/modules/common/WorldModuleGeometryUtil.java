@@ -2,6 +2,8 @@ package org.osm2world.core.world.modules.common;
 
 import static java.lang.Math.toRadians;
 import static java.util.Arrays.asList;
+import static org.osm2world.core.target.common.material.NamedTexCoordFunction.STRIP_WALL;
+import static org.osm2world.core.target.common.material.TexCoordUtil.*;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -11,9 +13,16 @@ import java.util.List;
 import org.osm2world.core.map_elevation.data.GroundState;
 import org.osm2world.core.math.GeometryUtil;
 import org.osm2world.core.math.InvalidGeometryException;
+import org.osm2world.core.math.PolygonWithHolesXZ;
 import org.osm2world.core.math.SimplePolygonXZ;
+import org.osm2world.core.math.TriangleXYZ;
+import org.osm2world.core.math.TriangleXZ;
 import org.osm2world.core.math.VectorXYZ;
 import org.osm2world.core.math.VectorXZ;
+import org.osm2world.core.math.algorithms.TriangulationUtil;
+import org.osm2world.core.target.Target;
+import org.osm2world.core.target.common.material.Material;
+import org.osm2world.core.target.common.material.TexCoordFunction;
 import org.osm2world.core.world.creation.WorldModule;
 import org.osm2world.core.world.data.WorldObject;
 import org.osm2world.core.world.data.WorldObjectWithOutline;
@@ -74,6 +83,53 @@ public final class WorldModuleGeometryUtil {
 	}
 
 
+	/**
+	 * draws a polygon extruded vertically between two elevations,
+	 * i.e. walls along the outer and inner rings and a flat top.
+	 * The bottom is not drawn.
+	 *
+	 * @param topTexCoordFunction  default texture coordinate function for the top
+	 */
+	public static final void drawExtrudedFlatTopPolygon(Target<?> target,
+			PolygonWithHolesXZ polygon, double bottomEle, double topEle,
+			Material wallMaterial, Material topMaterial,
+			TexCoordFunction topTexCoordFunction) {
+
+		/* draw the walls */
+
+		for (SimplePolygonXZ p : polygon.getPolygons()) {
+
+			SimplePolygonXZ ring = (p == polygon.getOuter())
+					? p.makeCounterclockwise()
+					: p.makeClockwise();
+
+			List<VectorXYZ> vs = new ArrayList<VectorXYZ>(2 * ring.size() + 2);
+
+			for (VectorXZ v : ring.getVertexList()) {
+				vs.add(v.xyz(topEle));
+				vs.add(v.xyz(bottomEle));
+			}
+
+			target.drawTriangleStrip(wallMaterial, vs,
+					texCoordLists(vs, wallMaterial, STRIP_WALL));
+
+		}
+
+		/* draw the top */
+
+		Collection<TriangleXZ> triangles = TriangulationUtil.triangulate(polygon);
+
+		List<TriangleXYZ> trianglesXYZ = new ArrayList<TriangleXYZ>(triangles.size());
+
+		for (TriangleXZ triangle : triangles) {
+			trianglesXYZ.add(triangle.makeCounterclockwise().xyz(topEle));
+		}
+
+		target.drawTriangles(topMaterial, trianglesXYZ,
+				triangleTexCoordLists(trianglesXYZ, topMaterial, topTexCoordFunction));
+
+	}
+
 	/**
 	 * @param ratio  0 is at left outline, 1 at right outline
 	 */
@@ -162,27 +218,13 @@ public final class WorldModuleGeometryUtil {
 
 
 	/**
-	 * removes positions from a collection if they are on the area covered by a
-	 * {@link WorldObjectWithOutline} from a collection of {@link WorldObject}s.
-	 *
-	 * This can be used to avoid placing trees, bridge pillars
-	 * and other randomly distributed features on roads, rails
-	 * or other similar places where they don't belong.
+	 * returns the outline polygons of all those world objects which are on the ground
+	 * and have an outline. Invalid outlines are ignored.
 	 */
-	public static final void filterWorldObjectCollisions(
-			Collection<VectorXZ> positions,
+	public static final List<SimplePolygonXZ> getGroundOutlinePolygons(
 			Collection<WorldObject> worldObjects) {
 
-		//TODO: add support for avoiding a radius around the position, too.
-		//this is easily possible once "inflating"/"shrinking" polygons is supported [would also be useful for water bodies etc.]
-
-		/*
-		 * prepare filter polygons.
-		 * It improves performance to construct the outline polygons only once
-		 * instead of doing this within the loop iterating over positions.
-		 */
-
-		List<SimplePolygonXZ> filterPolygons = new ArrayList<SimplePolygonXZ>();
+		List<SimplePolygonXZ> outlinePolygons = new ArrayList<SimplePolygonXZ>();
 
 		for (WorldObject worldObject : worldObjects) {
 
@@ -199,13 +241,40 @@ public final class WorldModuleGeometryUtil {
 				}
 
 				if (outline != null) {
-					filterPolygons.add(outline);
+					outlinePolygons.add(outline);
 				}
 
 			}
 
 		}
 
+		return outlinePolygons;
+
+	}
+
+	/**
+	 * removes positions from a collection if they are on the area covered by a
+	 * {@link WorldObjectWithOutline} from a collection of {@link WorldObject}s.
+	 *
+	 * This can be used to avoid placing trees, bridge pillars
+	 * and other randomly distributed features on roads, rails
+	 * or other similar places where they don't belong.
+	 */
+	public static final void filterWorldObjectCollisions(
+			Collection<VectorXZ> positions,
+			Collection<WorldObject> worldObjects) {
+
+		//TODO: add support for avoiding a radius around the position, too.
+		//this is easily possible once "inflating"/"shrinking" polygons is supported [would also be useful for water bodies etc.]
+
+		/*
+		 * prepare filter polygons.
+		 * It improves performance to construct the outline polygons only once
+		 * instead of doing this within the loop iterating over positions.
+		 */
+
+		List<SimplePolygonXZ> filterPolygons = getGroundOutlinePolygons(worldObjects);
+
 		/* perform filtering of positions */
 
 		Iterator<VectorXZ> positionIterator = positions.iterator();
@@ -135,8 +135,12 @@ public abstract class AbstractLoadOSMAction extends AbstractAction {
 
 		}
 
+		/** percentage at which the current phase started, each phase is 20% */
+		private int phaseStartPercentage = 0;
+
 		@Override
 		public void updatePhase(Phase newPhase) {
+			phaseStartPercentage = 20 * newPhase.ordinal();
 			switch (newPhase) {
 			case MAP_DATA:
 				progressDialog.setProgress(0);
@@ -162,6 +166,13 @@ public abstract class AbstractLoadOSMAction extends AbstractAction {
 
 		}
 
+		@Override
+		public void updatePhaseProgress(float phaseProgress) {
+			/* called by the conversion thread, so the dialog is updated on the event dispatch thread */
+			final int percentage = phaseStartPercentage + Math.round(20 * phaseProgress);
+			SwingUtilities.invokeLater(() -> progressDialog.setProgress(percentage));
+		}
+
 	}
 
 	private static class ConversionExceptionHandler
@@ -12,6 +12,7 @@ import org.osm2world.core.ConversionFacade.ProgressListener;
 import org.osm2world.core.ConversionFacade.Results;
 import org.osm2world.core.map_elevation.creation.EleConstraintEnforcer;
 import org.osm2world.core.map_elevation.creation.TerrainInterpolator;
+import org.osm2world.core.osm.creation.JOSMFileReader;
 import org.osm2world.core.osm.creation.OSMDataReader;
 import org.osm2world.core.osm.creation.OSMFileReader;
 import org.osm2world.core.osm.creation.StrictOSMFileReader;
@@ -51,6 +52,8 @@ public class Data extends Observable {
 
 			if (reader instanceof StrictOSMFileReader) {
 				this.osmFile = ((StrictOSMFileReader)reader).getFile();
+			} else if (reader instanceof JOSMFileReader) {
+				this.osmFile = ((JOSMFileReader)reader).getFile();
 			} else if (reader instanceof OSMFileReader) {
 				this.osmFile = ((OSMFileReader)reader).getFile();
 			} else {
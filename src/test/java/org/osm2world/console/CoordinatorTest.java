@@ -0,0 +1,243 @@
+package org.osm2world.console;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.ProcessBuilder.Redirect;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+import org.osm2world.console.Worker.UnitRunner;
+
+import com.lexicalscope.jewel.cli.CliFactory;
+
+public class CoordinatorTest {
+
+	/** a runner which writes the name of the input file to each output file */
+	private static final UnitRunner TEST_RUNNER = args -> {
+		List<String> argList = asList(args);
+		String input = argList.get(argList.indexOf("-i") + 1);
+		for (String output : argList.subList(argList.indexOf("--output") + 1, argList.size())) {
+			Files.write(new File(output).toPath(), input.getBytes(StandardCharsets.UTF_8));
+		}
+	};
+
+	private static List<String[]> createUnits(File outputDir, int count) {
+		List<String[]> units = new ArrayList<String[]>();
+		for (int i = 0; i < count; i++) {
+			units.add(new String[] {"-i", "input" + i + ".osm",
+					"-o", new File(outputDir, "output" + i + ".obj").getPath()});
+		}
+		return units;
+	}
+
+	private static void assertOutputsWritten(File outputDir, int count) throws IOException {
+		for (int i = 0; i < count; i++) {
+			File outputFile = new File(outputDir, "output" + i + ".obj");
+			assertEquals("input" + i + ".osm",
+					new String(Files.readAllBytes(outputFile.toPath()), StandardCharsets.UTF_8));
+		}
+		assertEquals(count, outputDir.listFiles().length);
+	}
+
+	/**
+	 * runs a coordinator with one worker thread for each of the runners
+	 */
+	private static boolean runWithWorkerThreads(Coordinator coordinator,
+			List<UnitRunner> runners) throws Exception {
+
+		ExecutorService executor = Executors.newCachedThreadPool();
+
+		try (ServerSocket serverSocket = new ServerSocket(0)) {
+
+			Future<Boolean> result = executor.submit(() -> coordinator.run(serverSocket));
+
+			for (UnitRunner runner : runners) {
+				executor.submit(() -> {
+					new Worker("localhost", serverSocket.getLocalPort(), runner).run();
+					return null;
+				});
+			}
+
+			return result.get(60, TimeUnit.SECONDS);
+
+		} finally {
+			executor.shutdownNow();
+		}
+
+	}
+
+	@Test
+	public void testAllUnitsFinished() throws Exception {
+
+		File outputDir = Files.createTempDirectory("osm2world-test").toFile();
+
+		Coordinator coordinator = new Coordinator(createUnits(outputDir, 20), 3, 60000);
+
+		assertTrue(runWithWorkerThreads(coordinator, asList(TEST_RUNNER, TEST_RUNNER, TEST_RUNNER)));
+
+		assertOutputsWritten(outputDir, 20);
+
+	}
+
+	@Test
+	public void testFailedUnitsAreRetried() throws Exception {
+
+		/* fail the first attempt of each unit */
+
+		Set<String> attemptedInputs = Collections.synchronizedSet(new HashSet<String>());
+
+		UnitRunner runner = args -> {
+			if (attemptedInputs.add(args[1])) {
+				throw new Exception("first attempt");
+			}
+			TEST_RUNNER.run(args);
+		};
+
+		File outputDir = Files.createTempDirectory("osm2world-test").toFile();
+
+		assertTrue(runWithWorkerThreads(new Coordinator(createUnits(outputDir, 5), 2, 60000),
+				asList(runner, runner)));
+
+		assertOutputsWritten(outputDir, 5);
+
+		/* with only a single attempt, all units fail */
+
+		attemptedInputs.clear();
+
+		File outputDir2 = Files.createTempDirectory("osm2world-test").toFile();
+
+		assertFalse(runWithWorkerThreads(new Coordinator(createUnits(outputDir2, 5), 1, 60000),
+				asList(runner, runner)));
+
+		assertEquals(0, outputDir2.listFiles().length);
+
+	}
+
+	@Test
+	public void testStragglerIsReissued() throws Exception {
+
+		/* the first attempt never finishes on its own */
+
+		AtomicBoolean firstAttempt = new AtomicBoolean(true);
+		CountDownLatch latch = new CountDownLatch(1);
+
+		UnitRunner runner = args -> {
+			if (firstAttempt.getAndSet(false)) {
+				latch.await();
+			}
+			TEST_RUNNER.run(args);
+		};
+
+		File outputDir = Files.createTempDirectory("osm2world-test").toFile();
+
+		try {
+			assertTrue(runWithWorkerThreads(new Coordinator(createUnits(outputDir, 1), 3, 100),
+					asList(runner, runner)));
+			assertOutputsWritten(outputDir, 1);
+		} finally {
+			latch.countDown();
+		}
+
+	}
+
+	@Test
+	public void testWorkUnitsFromTiles() throws Exception {
+
+		String[] unparsedArgs = {"--coordinator", "4711", "--coordinator_address", "0.0.0.0",
+				"-i", "input.osm", "-o", "out.png", "out.o2w.pbf",
+				"--oview.tiles", "13,4231,2777", "13,4232,2777", "--oview.from", "N"};
+
+		List<String[]> units = DistributedMode.createWorkUnits(
+				CliFactory.parseArguments(CLIArguments.class, unparsedArgs), unparsedArgs);
+
+		assertEquals(2, units.size());
+
+		assertEquals(asList("-i", "input.osm", "--oview.from", "N", "--oview.tiles", "13,4232,2777",
+				"--output", "out_13_4232_2777.png", "out_13_4232_2777.o2w.pbf"), asList(units.get(1)));
+
+	}
+
+	/**
+	 * runs real conversions with several worker JVMs
+	 */
+	@Test
+	public void testWorkerProcesses() throws Exception {
+
+		File inputFile = File.createTempFile("coordinator", ".osm");
+		inputFile.deleteOnExit();
+
+		try (PrintWriter writer = new PrintWriter(inputFile, "UTF-8")) {
+			writer.println("<?xml version='1.0' encoding='UTF-8'?>");
+			writer.println("<osm version='0.6' generator='test'>");
+			writer.println("<node id='1' version='1' lat='50.0' lon='8.0'/>");
+			writer.println("<node id='2' version='1' lat='50.001' lon='8.001'/>");
+			writer.println("<way id='1' version='1'><nd ref='1'/><nd ref='2'/>"
+					+ "<tag k='highway' v='residential'/></way>");
+			writer.println("</osm>");
+		}
+
+		File outputDir = Files.createTempDirectory("osm2world-test").toFile();
+
+		List<String[]> units = new ArrayList<String[]>();
+		for (int i = 0; i < 4; i++) {
+			units.add(new String[] {"-i", inputFile.getPath(),
+					"-o", new File(outputDir, "output" + i + ".obj").getPath()});
+		}
+
+		Coordinator coordinator = new Coordinator(units, 3, 60000);
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		List<Process> processes = new ArrayList<Process>();
+
+		try (ServerSocket serverSocket = new ServerSocket(0)) {
+
+			Future<Boolean> result = executor.submit(() -> coordinator.run(serverSocket));
+
+			String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+
+			for (int i = 0; i < 3; i++) {
+				processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+						OSM2World.class.getName(), "--worker", "localhost:" + serverSocket.getLocalPort())
+						.redirectErrorStream(true).redirectOutput(Redirect.INHERIT).start());
+			}
+
+			assertTrue(result.get(120, TimeUnit.SECONDS));
+
+			for (Process process : processes) {
+				assertTrue(process.waitFor(30, TimeUnit.SECONDS));
+				assertEquals(0, process.exitValue());
+			}
+
+		} finally {
+			executor.shutdownNow();
+			for (Process process : processes) {
+				process.destroy();
+			}
+		}
+
+		for (int i = 0; i < 4; i++) {
+			File outputFile = new File(outputDir, "output" + i + ".obj");
+			assertTrue(outputFile.length() > 0);
+			outputFile.delete();
+		}
+
+	}
+
+}
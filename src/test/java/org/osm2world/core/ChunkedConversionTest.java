@@ -0,0 +1,209 @@
+package org.osm2world.core;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.junit.Test;
+import org.osm2world.core.ChunkedConversion.Chunk;
+import org.osm2world.core.map_data.creation.LatLonBounds;
+import org.osm2world.core.map_data.creation.MapProjection;
+import org.osm2world.core.map_data.data.MapArea;
+import org.osm2world.core.map_data.data.MapNode;
+import org.osm2world.core.map_data.data.MapWaySegment;
+import org.osm2world.core.math.AxisAlignedBoundingBoxXZ;
+import org.osm2world.core.math.VectorXZ;
+import org.osm2world.core.test.TestWorldModule;
+
+public class ChunkedConversionTest {
+
+	private static Configuration createConfig(double chunkSize, int threads) {
+		Configuration config = new BaseConfiguration();
+		config.setProperty("chunkSize", chunkSize);
+		config.setProperty("chunkHalo", 50);
+		config.setProperty("chunkThreads", threads);
+		return config;
+	}
+
+	@Test
+	public void testChunksPartitionRegion() {
+
+		LatLonBounds region = new LatLonBounds(50.0, 8.0, 50.01, 8.025);
+
+		List<Chunk> chunks = new ChunkedConversion(ConversionFacade::new,
+				createConfig(0.004, 1)).createChunks(region);
+
+		assertEquals(3 * 7, chunks.size());
+
+		Random random = new Random(1);
+
+		for (int i = 0; i < 1000; i++) {
+
+			double lat = 49.999 + 0.012 * random.nextDouble();
+			double lon = 7.999 + 0.027 * random.nextDouble();
+
+			int containingChunks = 0;
+
+			for (Chunk chunk : chunks) {
+				if (chunk.coreContains(lat, lon)) {
+					containingChunks += 1;
+					assertTrue(chunk.bounds.minlat <= chunk.core.minlat);
+					assertTrue(chunk.bounds.maxlon >= chunk.core.maxlon);
+				}
+			}
+
+			assertEquals(1, containingChunks);
+
+		}
+
+	}
+
+	/**
+	 * converts a grid of nodes connected by ways
+	 * and checks that each node and way segment is output exactly once
+	 */
+	@Test
+	public void testEachElementOutputOnce() throws IOException {
+
+		int gridSize = 20;
+		double spacing = 0.0005;
+
+		File osmFile = File.createTempFile("chunked", ".osm");
+		osmFile.deleteOnExit();
+
+		try (PrintWriter writer = new PrintWriter(osmFile, "UTF-8")) {
+
+			writer.println("<?xml version='1.0' encoding='UTF-8'?>");
+			writer.println("<osm version='0.6' generator='test'>");
+			writer.println(String.format(Locale.ROOT,
+					"<bounds minlat='50' minlon='8' maxlat='%f' maxlon='%f'/>",
+					50 + gridSize * spacing, 8 + gridSize * spacing));
+
+			for (int y = 0; y < gridSize; y++) {
+				for (int x = 0; x < gridSize; x++) {
+					writer.println(String.format(Locale.ROOT,
+							"<node id='%d' version='1' lat='%f' lon='%f'/>",
+							1 + y * gridSize + x, 50 + (y + 0.5) * spacing, 8 + (x + 0.5) * spacing));
+				}
+			}
+
+			for (int y = 0; y < gridSize; y++) {
+				writer.println(String.format("<way id='%d' version='1'>", y + 1));
+				for (int x = 0; x < gridSize; x++) {
+					writer.println(String.format("<nd ref='%d'/>", 1 + y * gridSize + x));
+				}
+				writer.println("<tag k='highway' v='residential'/>");
+				writer.println("</way>");
+			}
+
+			writer.println("</osm>");
+
+		}
+
+		for (int threads : asList(1, 3)) {
+
+			List<MapNode> nodes = Collections.synchronizedList(new ArrayList<MapNode>());
+			List<MapWaySegment> segments = Collections.synchronizedList(new ArrayList<MapWaySegment>());
+			List<Chunk> chunks = Collections.synchronizedList(new ArrayList<Chunk>());
+
+			ChunkedConversion conversion = new ChunkedConversion(ConversionFacade::new,
+					createConfig(0.004, threads));
+
+			conversion.convert(osmFile, () -> asList(new TestWorldModule()), (chunk, results, coreData) -> {
+				chunks.add(chunk);
+				nodes.addAll(coreData.getMapNodes());
+				segments.addAll(coreData.getMapWaySegments());
+			});
+
+			assertEquals(9, chunks.size());
+			assertEquals(gridSize * gridSize, nodes.size());
+			assertEquals(gridSize * (gridSize - 1), segments.size());
+
+			List<Long> nodeIds = new ArrayList<Long>();
+			for (MapNode node : nodes) {
+				nodeIds.add(node.getOsmElement().getId());
+			}
+			Collections.sort(nodeIds);
+
+			for (int i = 0; i < nodeIds.size(); i++) {
+				assertEquals(i + 1, (long) nodeIds.get(i));
+			}
+
+		}
+
+	}
+
+	/**
+	 * converts a region with a coastline
+	 * and checks that the resulting water polygons do not extend beyond each chunk's core
+	 */
+	@Test
+	public void testCoastlineWaterWithinCore() throws IOException {
+
+		File osmFile = File.createTempFile("chunked", ".osm");
+		osmFile.deleteOnExit();
+
+		try (PrintWriter writer = new PrintWriter(osmFile, "UTF-8")) {
+
+			writer.println("<?xml version='1.0' encoding='UTF-8'?>");
+			writer.println("<osm version='0.6' generator='test'>");
+			writer.println("<bounds minlat='50' minlon='8' maxlat='50.01' maxlon='8.01'/>");
+
+			/* a coastline running north, with water on its eastern side */
+
+			int nodeCount = 21;
+
+			for (int i = 0; i < nodeCount; i++) {
+				writer.println(String.format(Locale.ROOT,
+						"<node id='%d' version='1' lat='%f' lon='8.005'/>", i + 1, 49.995 + i * 0.001));
+			}
+
+			writer.println("<way id='1' version='1'>");
+			for (int i = 0; i < nodeCount; i++) {
+				writer.println(String.format("<nd ref='%d'/>", i + 1));
+			}
+			writer.println("<tag k='natural' v='coastline'/>");
+			writer.println("</way>");
+
+			writer.println("</osm>");
+
+		}
+
+		List<MapArea> waterAreas = Collections.synchronizedList(new ArrayList<MapArea>());
+
+		ChunkedConversion conversion = new ChunkedConversion(ConversionFacade::new,
+				createConfig(0.004, 2));
+
+		conversion.convert(osmFile, () -> asList(new TestWorldModule()), (chunk, results, coreData) -> {
+
+			MapProjection projection = results.getMapProjection();
+
+			List<VectorXZ> coreCorners = asList(
+					projection.calcPos(chunk.core.getMin()),
+					projection.calcPos(chunk.core.getMax()));
+			AxisAlignedBoundingBoxXZ coreBox = new AxisAlignedBoundingBoxXZ(coreCorners).pad(0.01);
+
+			for (MapArea area : coreData.getMapAreas()) {
+				if (area.getTags().contains("natural", "water")) {
+					assertTrue(coreBox.contains(area.getAxisAlignedBoundingBoxXZ()));
+					waterAreas.add(area);
+				}
+			}
+
+		});
+
+		assertFalse(waterAreas.isEmpty());
+
+	}
+
+}
@@ -0,0 +1,112 @@
+package org.osm2world.core;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+import org.junit.Test;
+import org.osm2world.core.ConversionFacade.Phase;
+import org.osm2world.core.ConversionFacade.ProgressListener;
+import org.osm2world.core.osm.data.OSMData;
+import org.osm2world.core.test.TestWorldModule;
+import org.osm2world.core.util.CancellationToken;
+
+import de.topobyte.osm4j.core.model.impl.Node;
+
+public class ConversionFacadeTest {
+
+	/** a listener which stores the progress values reported for each phase */
+	private static class TestListener implements ProgressListener {
+
+		final List<Phase> phases = new ArrayList<Phase>();
+		final Map<Phase, List<Float>> progress = new EnumMap<Phase, List<Float>>(Phase.class);
+
+		@Override
+		public void updatePhase(Phase newPhase) {
+			phases.add(newPhase);
+			progress.put(newPhase, new ArrayList<Float>());
+		}
+
+		@Override
+		public void updatePhaseProgress(float phaseProgress) {
+			progress.get(phases.get(phases.size() - 1)).add(phaseProgress);
+		}
+
+	}
+
+	private static OSMData createTestData() {
+
+		List<Node> nodes = new ArrayList<Node>();
+
+		for (int i = 0; i < 500; i++) {
+			nodes.add(new Node(i + 1, 0.0001 * i, 0.0001 * (i % 7)));
+		}
+
+		return new OSMData(emptyList(), nodes, emptyList(), emptyList());
+
+	}
+
+	@Test
+	public void testPhaseProgress() throws IOException {
+
+		TestListener listener = new TestListener();
+
+		ConversionFacade cf = new ConversionFacade();
+		cf.addProgressListener(listener);
+		cf.createRepresentations(createTestData(), asList(new TestWorldModule()), null, null);
+
+		assertEquals(asList(Phase.values()), listener.phases);
+
+		for (Phase phase : asList(Phase.MAP_DATA, Phase.REPRESENTATION, Phase.ELEVATION)) {
+
+			List<Float> values = listener.progress.get(phase);
+
+			assertFalse(values.isEmpty());
+			assertEquals(1.0f, values.get(values.size() - 1), 0);
+
+			for (int i = 1; i < values.size(); i++) {
+				assertTrue(values.get(i - 1) < values.get(i));
+			}
+
+		}
+
+	}
+
+	@Test
+	public void testCancellation() throws IOException {
+
+		CancellationToken token = new CancellationToken();
+
+		TestListener listener = new TestListener() {
+			@Override
+			public void updatePhaseProgress(float phaseProgress) {
+				super.updatePhaseProgress(phaseProgress);
+				if (phases.contains(Phase.REPRESENTATION) && phaseProgress > 0.1) {
+					token.cancel();
+				}
+			}
+		};
+
+		ConversionFacade cf = new ConversionFacade();
+		cf.setCancellationToken(token);
+		cf.addProgressListener(listener);
+
+		try {
+			cf.createRepresentations(createTestData(), asList(new TestWorldModule()), null, null);
+			fail("conversion has not been cancelled");
+		} catch (CancellationException e) {
+			assertEquals(Phase.REPRESENTATION, listener.phases.get(listener.phases.size() - 1));
+			List<Float> values = listener.progress.get(Phase.REPRESENTATION);
+			assertTrue(values.get(values.size() - 1) < 0.2);
+		}
+
+	}
+
+}
@@ -0,0 +1,109 @@
+package org.osm2world.core.map_data.creation;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.junit.Test;
+import org.openstreetmap.josm.plugins.graphview.core.data.Tag;
+import org.osm2world.core.map_data.data.MapArea;
+import org.osm2world.core.map_data.data.MapData;
+import org.osm2world.core.map_data.data.MapElement;
+import org.osm2world.core.map_data.data.MapNode;
+import org.osm2world.core.osm.creation.StrictOSMFileReader;
+import org.osm2world.core.osm.data.OSMData;
+
+import de.topobyte.osm4j.core.resolve.EntityNotFoundException;
+
+public class MapDataSnapshotTest {
+
+	private static File getTestFile(String filename) {
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		return new File(classLoader.getResource(filename).getFile());
+	}
+
+	private void genericRoundTripTest(String filename) throws IOException, EntityNotFoundException {
+
+		File testFile = getTestFile(filename);
+		BaseConfiguration config = new BaseConfiguration();
+
+		OSMData osmData = new StrictOSMFileReader(testFile).getData();
+		OriginMapProjection mapProjection = new MetricMapProjection();
+		mapProjection.setOrigin(osmData);
+
+		MapData original = new OSMToMapDataConverter(mapProjection, config).createMapData(osmData);
+
+		String key = MapDataSnapshot.cacheKey(testFile, config, MetricMapProjection.class);
+
+		File snapshotFile = File.createTempFile("osm2world-test", MapDataSnapshot.FILE_EXTENSION);
+		snapshotFile.deleteOnExit();
+
+		MapDataSnapshot.write(snapshotFile, key, mapProjection.getOrigin(), osmData.getBounds(), original);
+
+		assertNull(MapDataSnapshot.read(snapshotFile, "someOtherKey"));
+
+		MapDataSnapshot snapshot = MapDataSnapshot.read(snapshotFile, key);
+		assertNotNull(snapshot);
+
+		MapData restored = snapshot.getMapData();
+
+		assertEquals(mapProjection.getOrigin().lat, snapshot.getOrigin().lat, 0);
+		assertEquals(mapProjection.getOrigin().lon, snapshot.getOrigin().lon, 0);
+		assertEquals(osmData.getBounds().size(), snapshot.getBounds().size());
+
+		assertEquals(original.getMapNodes().size(), restored.getMapNodes().size());
+		assertEquals(original.getMapWaySegments().size(), restored.getMapWaySegments().size());
+		assertEquals(original.getMapAreas().size(), restored.getMapAreas().size());
+		assertEquals(original.getMapRelations().size(), restored.getMapRelations().size());
+		assertEquals(original.getBoundary().minX, restored.getBoundary().minX, 0);
+		assertEquals(original.getBoundary().maxZ, restored.getBoundary().maxZ, 0);
+
+		Iterator<MapNode> restoredNodes = restored.getMapNodes().iterator();
+		for (MapNode node : original.getMapNodes()) {
+			MapNode restoredNode = restoredNodes.next();
+			assertEquals(node.getPos(), restoredNode.getPos());
+			assertEquals(node.getOsmElement().getId(), restoredNode.getOsmElement().getId());
+			assertEquals(node.getConnectedSegments().size(), restoredNode.getConnectedSegments().size());
+		}
+
+		Iterator<MapArea> restoredAreas = restored.getMapAreas().iterator();
+		for (MapArea area : original.getMapAreas()) {
+			MapArea restoredArea = restoredAreas.next();
+			assertEquals(area.getPolygon().getOuter(), restoredArea.getPolygon().getOuter());
+			assertEquals(area.getHoles().size(), restoredArea.getHoles().size());
+			assertEquals(area.getTags().size(), restoredArea.getTags().size());
+			for (Tag tag : area.getTags()) {
+				assertTrue(restoredArea.getTags().contains(tag));
+			}
+		}
+
+		List<Integer> originalOverlapCounts = new ArrayList<>();
+		for (MapElement e : original.getMapElements()) {
+			originalOverlapCounts.add(e.getOverlaps().size());
+		}
+
+		List<Integer> restoredOverlapCounts = new ArrayList<>();
+		for (MapElement e : restored.getMapElements()) {
+			restoredOverlapCounts.add(e.getOverlaps().size());
+		}
+
+		assertEquals(originalOverlapCounts, restoredOverlapCounts);
+
+	}
+
+	@Test
+	public void testRoundTripMultipolygon() throws IOException, EntityNotFoundException {
+		genericRoundTripTest("mp_two_holes_advanced.osm");
+	}
+
+	@Test
+	public void testRoundTripCoastline() throws IOException, EntityNotFoundException {
+		genericRoundTripTest("coastline_islands_and_coast.osm");
+	}
+
+}
@@ -6,7 +6,9 @@ import static org.junit.Assert.*;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import org.apache.commons.configuration.BaseConfiguration;
 import org.junit.Ignore;
@@ -18,6 +20,16 @@ import org.osm2world.core.math.VectorXZ;
 import org.osm2world.core.osm.creation.StrictOSMFileReader;
 import org.osm2world.core.osm.data.OSMData;
 
+import com.slimjars.dist.gnu.trove.list.array.TLongArrayList;
+
+import de.topobyte.osm4j.core.model.iface.EntityType;
+import de.topobyte.osm4j.core.model.iface.OsmBounds;
+import de.topobyte.osm4j.core.model.impl.Bounds;
+import de.topobyte.osm4j.core.model.impl.Node;
+import de.topobyte.osm4j.core.model.impl.Relation;
+import de.topobyte.osm4j.core.model.impl.RelationMember;
+import de.topobyte.osm4j.core.model.impl.Tag;
+import de.topobyte.osm4j.core.model.impl.Way;
 import de.topobyte.osm4j.core.resolve.EntityNotFoundException;
 
 public class OSMToMapDataConverterTest {
@@ -90,12 +102,21 @@ public class OSMToMapDataConverterTest {
 	private void genericCoastlineTest(String filename, List<LatLon> landSites,
 			List<LatLon> waterSites) throws IOException, EntityNotFoundException {
 
-		/* create map data */
-
 		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
 		File testFile = new File(classLoader.getResource(filename).getFile());
 
-		OSMData osmData = new StrictOSMFileReader(testFile).getData();
+		genericCoastlineTest(new StrictOSMFileReader(testFile).getData(), landSites, waterSites);
+
+	}
+
+	/**
+	 * @return  the water areas created from the coastlines
+	 */
+	private List<MapArea> genericCoastlineTest(OSMData osmData, List<LatLon> landSites,
+			List<LatLon> waterSites) throws IOException, EntityNotFoundException {
+
+		/* create map data */
+
 		OriginMapProjection mapProjection = new MetricMapProjection();
 		mapProjection.setOrigin(osmData);
 
@@ -140,6 +161,8 @@ public class OSMToMapDataConverterTest {
 
 		}
 
+		return waterAreas;
+
 	}
 
 	@Test
@@ -189,6 +212,111 @@ public class OSMToMapDataConverterTest {
 
 	}
 
+	/**
+	 * uses a detailed coastline crossing the file boundary,
+	 * which results in a water polygon that is large enough to be split
+	 */
+	@Test
+	public void testCoastlineSplitting() throws IOException, EntityNotFoundException {
+
+		List<Node> nodes = new ArrayList<Node>();
+		TLongArrayList nodeIds = new TLongArrayList();
+
+		for (int i = 0; i < 3000; i++) {
+			nodes.add(new Node(i + 1, -0.001 + 0.022 * i / 2999, 0.01 + 0.001 * Math.sin(0.3 * i)));
+			nodeIds.add(i + 1);
+		}
+
+		Way coastline = new Way(1, nodeIds);
+		coastline.setTags(asList(new Tag("natural", "coastline")));
+
+		OSMData osmData = new OSMData(asList((OsmBounds) new Bounds(0, 0.02, 0.02, 0)),
+				nodes, asList(coastline), new ArrayList<Relation>());
+
+		List<MapArea> waterAreas = genericCoastlineTest(osmData,
+				asList(new LatLon(0.017, 0.005), new LatLon(0.017, 0.015)),
+				asList(new LatLon(0.003, 0.005), new LatLon(0.003, 0.015)));
+
+		assertTrue(waterAreas.size() > 1);
+
+		for (MapArea waterArea : waterAreas) {
+			assertTrue(waterArea.getOuterPolygon().size() < 3000);
+		}
+
+	}
+
+	/**
+	 * builds a multipolygon with an outer ring, a hole and an island within that hole.
+	 * Each ring consists of many short member ways in random order and direction.
+	 */
+	@Test
+	public void testMultipolygonManyMemberWays() throws IOException, EntityNotFoundException {
+
+		Random random = new Random(42);
+
+		List<Node> nodes = new ArrayList<Node>();
+		List<Way> ways = new ArrayList<Way>();
+		List<RelationMember> members = new ArrayList<RelationMember>();
+
+		double[] radii = {0.01, 0.005, 0.002};
+		String[] roles = {"outer", "inner", "outer"};
+
+		for (int r = 0; r < radii.length; r++) {
+
+			int nodeCount = 500;
+			long firstNodeId = nodes.size() + 1;
+
+			for (int i = 0; i < nodeCount; i++) {
+				double angle = 2 * Math.PI * i / nodeCount;
+				nodes.add(new Node(nodes.size() + 1,
+						radii[r] * Math.cos(angle), radii[r] * Math.sin(angle)));
+			}
+
+			for (int i = 0; i < nodeCount; i += 5) {
+
+				TLongArrayList nodeIds = new TLongArrayList();
+				for (int j = i; j <= i + 5; j++) {
+					nodeIds.add(firstNodeId + j % nodeCount);
+				}
+
+				if (random.nextBoolean()) {
+					nodeIds.reverse();
+				}
+
+				Way way = new Way(ways.size() + 1, nodeIds);
+				ways.add(way);
+				members.add(new RelationMember(way.getId(), EntityType.Way, roles[r]));
+
+			}
+
+		}
+
+		Collections.shuffle(members, random);
+
+		Relation relation = new Relation(1, members, asList(
+				new Tag("type", "multipolygon"), new Tag("landuse", "grass")));
+
+		OSMData osmData = new OSMData(new ArrayList<OsmBounds>(), nodes, ways, asList(relation));
+
+		OriginMapProjection mapProjection = new MetricMapProjection();
+		mapProjection.setOrigin(osmData);
+
+		MapData mapData = new OSMToMapDataConverter(mapProjection, new BaseConfiguration())
+				.createMapData(osmData);
+
+		assertEquals(2, mapData.getMapAreas().size());
+
+		int holeCount = 0;
+
+		for (MapArea area : mapData.getMapAreas()) {
+			assertEquals(500, area.getOuterPolygon().size());
+			holeCount += area.getHoles().size();
+		}
+
+		assertEquals(1, holeCount);
+
+	}
+
 	/**
 	 * reads two nodes with the same coordinates
 	 * @throws EntityNotFoundException
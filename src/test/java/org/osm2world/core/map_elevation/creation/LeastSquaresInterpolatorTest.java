@@ -0,0 +1,65 @@
+package org.osm2world.core.map_elevation.creation;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.osm2world.core.map_elevation.creation.LeastSquaresInterpolator.SiteWithPolynomial;
+import org.osm2world.core.math.VectorXYZ;
+import org.osm2world.core.math.VectorXZ;
+
+public class LeastSquaresInterpolatorTest {
+
+	private static double quadraticEle(double x, double z) {
+		return 100 + 0.05 * x - 0.02 * z + 1e-4 * x * x - 2e-4 * x * z + 3e-4 * z * z;
+	}
+
+	@Test
+	public void testQuadraticSurfaceIsReproduced() {
+
+		Random random = new Random(42);
+
+		List<VectorXYZ> sites = new ArrayList<VectorXYZ>();
+
+		for (int i = 0; i < 2000; i++) {
+			double x = 5000 + random.nextDouble() * 1000;
+			double z = -3000 + random.nextDouble() * 1000;
+			sites.add(new VectorXYZ(x, quadraticEle(x, z), z));
+		}
+
+		LeastSquaresInterpolator interpolator = new LeastSquaresInterpolator();
+		interpolator.setKnownSites(sites);
+
+		for (SiteWithPolynomial site : interpolator.getSitesWithPolynomials()) {
+			assertNotNull(site.getPolynomial());
+		}
+
+		for (int i = 0; i < 100; i++) {
+			VectorXZ pos = new VectorXZ(5100 + random.nextDouble() * 800, -2900 + random.nextDouble() * 800);
+			assertEquals(quadraticEle(pos.x, pos.z), interpolator.interpolateEle(pos).y, 1e-6);
+		}
+
+	}
+
+	@Test
+	public void testCollinearSitesHaveNoPolynomial() {
+
+		List<VectorXYZ> sites = new ArrayList<VectorXYZ>();
+
+		for (int i = 0; i < 20; i++) {
+			sites.add(new VectorXYZ(i * 10, i, 0));
+		}
+
+		LeastSquaresInterpolator interpolator = new LeastSquaresInterpolator();
+		interpolator.setKnownSites(sites);
+
+		for (SiteWithPolynomial site : interpolator.getSitesWithPolynomials()) {
+			assertNull(site.getPolynomial());
+		}
+
+	}
+
+}
@@ -1,11 +1,15 @@
 package org.osm2world.core.math;
 
-import static java.lang.Math.sqrt;
+import static java.lang.Math.*;
 import static java.util.Arrays.asList;
 import static org.junit.Assert.*;
 import static org.osm2world.core.math.VectorXZ.NULL_VECTOR;
 import static org.osm2world.core.test.TestUtil.assertAlmostEquals;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import org.junit.Test;
 
 public class SimplePolygonXZTest {
@@ -89,4 +93,51 @@ public class SimplePolygonXZTest {
 
 	}
 
+	@Test
+	public void testIndexedContainsAndIntersects() {
+
+		/* create a star-shaped polygon that is large enough to be indexed */
+
+		Random random = new Random(42);
+
+		List<VectorXZ> vertexLoop = new ArrayList<VectorXZ>();
+
+		for (int i = 0; i < 500; i++) {
+			double angle = 2 * PI * i / 500;
+			double radius = 50 + 40 * random.nextDouble();
+			vertexLoop.add(new VectorXZ(radius * sin(angle), radius * cos(angle)));
+		}
+
+		vertexLoop.add(vertexLoop.get(0));
+
+		SimplePolygonXZ polygon = new SimplePolygonXZ(vertexLoop);
+		assertNotNull(polygon.getSegmentIndex());
+
+		/* compare with the results of the unindexed calculations */
+
+		for (int i = 0; i < 1000; i++) {
+
+			VectorXZ p = new VectorXZ(200 * random.nextDouble() - 100, 200 * random.nextDouble() - 100);
+			VectorXZ q = new VectorXZ(200 * random.nextDouble() - 100, 200 * random.nextDouble() - 100);
+
+			assertEquals(SimplePolygonXZ.contains(vertexLoop, p), polygon.contains(p));
+
+			List<VectorXZ> expectedIntersections = new ArrayList<VectorXZ>();
+			for (LineSegmentXZ segment : polygon.getSegments()) {
+				VectorXZ intersection = GeometryUtil.getTrueLineSegmentIntersection(p, q, segment.p1, segment.p2);
+				if (intersection != null) {
+					expectedIntersections.add(intersection);
+				}
+			}
+
+			LineSegmentXZ lineSegment = new LineSegmentXZ(p, q);
+
+			assertEquals(expectedIntersections, polygon.intersectionPositions(lineSegment));
+			assertEquals(expectedIntersections.size(), polygon.intersectionSegments(lineSegment).size());
+			assertEquals(!expectedIntersections.isEmpty(), polygon.intersects(lineSegment));
+
+		}
+
+	}
+
 }
@@ -5,9 +5,12 @@ import static org.junit.Assert.assertEquals;
 import static org.osm2world.core.math.VectorXYZ.*;
 import static org.osm2world.core.test.TestUtil.assertAlmostEquals;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.Test;
+import org.osm2world.core.math.TriangleXYZ;
+import org.osm2world.core.math.TriangleXYZWithNormals;
 import org.osm2world.core.math.VectorXYZ;
 
 
@@ -51,4 +54,39 @@ public class NormalCalculationUtilTest {
 
 	}
 
+	@Test
+	public final void testCalculateTrianglesWithNormals() {
+
+		VectorXYZ top = new VectorXYZ(0, 1, 0);
+		VectorXYZ ridgeEnd = new VectorXYZ(1, 1, 0);
+
+		/* two sloped faces meeting at a ridge, and a vertical face touching them at the top */
+
+		List<TriangleXYZ> triangles = asList(
+				new TriangleXYZ(top, new VectorXYZ(0, 0.8, 1), ridgeEnd),
+				new TriangleXYZ(top, ridgeEnd, new VectorXYZ(0, 0.8, -1)),
+				new TriangleXYZ(top, new VectorXYZ(0, 0, -1), new VectorXYZ(0, 0, 1)));
+
+		List<TriangleXYZWithNormals> result = new ArrayList<TriangleXYZWithNormals>(
+				NormalCalculationUtil.calculateTrianglesWithNormals(triangles));
+
+		assertEquals(3, result.size());
+
+		/* the normals at the ridge are averaged */
+
+		assertAlmostEquals(Y_UNIT.invert(), result.get(0).n1);
+		assertAlmostEquals(Y_UNIT.invert(), result.get(0).n3);
+		assertAlmostEquals(Y_UNIT.invert(), result.get(1).n1);
+		assertAlmostEquals(Y_UNIT.invert(), result.get(1).n2);
+
+		/* other vertices keep the face normal */
+
+		assertAlmostEquals(triangles.get(0).getNormal(), result.get(0).n2);
+
+		/* the vertical face is not smoothed with the others */
+
+		assertAlmostEquals(X_UNIT, result.get(2).n1);
+
+	}
+
 }
@@ -0,0 +1,63 @@
+package org.osm2world.core.math.algorithms;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.osm2world.core.math.PolygonWithHolesXZ;
+import org.osm2world.core.math.SimplePolygonXZ;
+import org.osm2world.core.math.VectorXZ;
+
+public class PoissonDiskSamplingUtilTest {
+
+	private static final SimplePolygonXZ OUTER = new SimplePolygonXZ(asList(
+			new VectorXZ(0, 0),
+			new VectorXZ(200, 0),
+			new VectorXZ(100, 200),
+			new VectorXZ(0, 0)
+			));
+
+	private static final SimplePolygonXZ AVOIDED = new SimplePolygonXZ(asList(
+			new VectorXZ(80, 20),
+			new VectorXZ(120, 20),
+			new VectorXZ(120, 60),
+			new VectorXZ(80, 60),
+			new VectorXZ(80, 20)
+			));
+
+	@Test
+	public void testDistributePoints() {
+
+		PolygonWithHolesXZ polygon = new PolygonWithHolesXZ(OUTER, emptyList());
+
+		double minimumDistance = 1.0;
+
+		List<VectorXZ> result = PoissonDiskSamplingUtil.distributePoints(
+				42, polygon, asList(AVOIDED), null, 0.1, minimumDistance);
+
+		double expectedCount = 0.1 * (OUTER.getArea() - AVOIDED.getArea());
+		assertTrue(result.size() > 0.7 * expectedCount);
+		assertTrue(result.size() <= 1.2 * expectedCount);
+
+		for (VectorXZ v : result) {
+			assertTrue(OUTER.contains(v));
+			assertFalse(AVOIDED.contains(v));
+		}
+
+		for (int i = 0; i < result.size(); i++) {
+			for (int j = i + 1; j < result.size(); j++) {
+				assertTrue(result.get(i).distanceTo(result.get(j)) >= minimumDistance);
+			}
+		}
+
+		/* the result must be deterministic */
+
+		assertEquals(result, PoissonDiskSamplingUtil.distributePoints(
+				42, polygon, asList(AVOIDED), null, 0.1, minimumDistance));
+
+	}
+
+}
@@ -0,0 +1,99 @@
+package org.osm2world.core.math.algorithms;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+import org.osm2world.core.math.SimplePolygonXZ;
+import org.osm2world.core.math.TriangleXZ;
+import org.osm2world.core.math.VectorXZ;
+import org.osm2world.core.math.algorithms.TriangulationCache.Algorithm;
+
+public class TriangulationCacheTest {
+
+	private static final SimplePolygonXZ RECTANGLE = new SimplePolygonXZ(asList(
+			new VectorXZ(0, 0),
+			new VectorXZ(1, 0),
+			new VectorXZ(1, 1),
+			new VectorXZ(0, 1),
+			new VectorXZ(0, 0)
+			));
+
+	private int triangulationCount = 0;
+
+	@After
+	public void cleanUp() {
+		TriangulationCache.setMaximumWeight(TriangulationCache.DEFAULT_MAXIMUM_WEIGHT);
+		TriangulationCache.clear();
+	}
+
+	private List<TriangleXZ> triangulateRectangle(Algorithm algorithm, SimplePolygonXZ polygon) {
+		return TriangulationCache.triangulate(algorithm, polygon, emptyList(), emptyList(), emptyList(),
+				() -> {
+					triangulationCount++;
+					return Earcut4JTriangulationUtil.triangulate(polygon, emptyList());
+				});
+	}
+
+	@Test
+	public void testCacheHit() {
+
+		TriangulationCache.clear();
+
+		List<TriangleXZ> result1 = triangulateRectangle(Algorithm.EARCUT, RECTANGLE);
+		List<TriangleXZ> result2 = triangulateRectangle(Algorithm.EARCUT, RECTANGLE.reverse().reverse());
+
+		assertEquals(1, triangulationCount);
+		assertEquals(result1, result2);
+
+		/* results must be independent copies */
+
+		result2.clear();
+		assertEquals(2, triangulateRectangle(Algorithm.EARCUT, RECTANGLE).size());
+
+		/* different algorithms must not share results */
+
+		triangulateRectangle(Algorithm.JTS, RECTANGLE);
+		assertEquals(2, triangulationCount);
+
+	}
+
+	@Test
+	public void testDisabled() {
+
+		TriangulationCache.setMaximumWeight(0);
+
+		triangulateRectangle(Algorithm.EARCUT, RECTANGLE);
+		triangulateRectangle(Algorithm.EARCUT, RECTANGLE);
+
+		assertEquals(2, triangulationCount);
+
+	}
+
+	@Test
+	public void testSaveAndLoad() throws IOException {
+
+		TriangulationCache.clear();
+
+		List<TriangleXZ> result = triangulateRectangle(Algorithm.EARCUT, RECTANGLE);
+
+		File file = File.createTempFile("osm2world-test", ".o2wtc");
+		file.deleteOnExit();
+
+		TriangulationCache.save(file);
+		TriangulationCache.clear();
+		TriangulationCache.load(file);
+
+		assertEquals(1, TriangulationCache.size());
+		assertEquals(result, triangulateRectangle(Algorithm.EARCUT, RECTANGLE));
+		assertEquals(1, triangulationCount);
+
+	}
+
+}
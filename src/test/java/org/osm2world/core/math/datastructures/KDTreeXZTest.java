@@ -0,0 +1,77 @@
+package org.osm2world.core.math.datastructures;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class KDTreeXZTest {
+
+	@Test
+	public void testFindNearest() {
+
+		Random random = new Random(42);
+
+		double[] xs = new double[1000];
+		double[] zs = new double[xs.length];
+
+		for (int i = 0; i < xs.length; i++) {
+			/* use a coarse grid of coordinates to include duplicates and ties */
+			xs[i] = random.nextInt(200) * 0.5;
+			zs[i] = random.nextInt(100) * 0.5;
+		}
+
+		KDTreeXZ tree = new KDTreeXZ(xs, zs);
+
+		assertEquals(xs.length, tree.size());
+
+		int[] ids = new int[29];
+		double[] distancesSq = new double[29];
+
+		for (int query = 0; query < 200; query++) {
+
+			double x = random.nextDouble() * 120 - 10;
+			double z = random.nextDouble() * 70 - 10;
+
+			for (int k : new int[] {1, 9, 29}) {
+
+				int count = tree.findNearest(x, z, k, ids, distancesSq);
+
+				assertEquals(k, count);
+
+				double[] expected = new double[xs.length];
+				for (int i = 0; i < xs.length; i++) {
+					expected[i] = (xs[i] - x) * (xs[i] - x) + (zs[i] - z) * (zs[i] - z);
+				}
+				Arrays.sort(expected);
+
+				for (int i = 0; i < k; i++) {
+					assertEquals(expected[i], distancesSq[i], 1e-9);
+					int id = ids[i];
+					assertEquals(distancesSq[i], (xs[id] - x) * (xs[id] - x) + (zs[id] - z) * (zs[id] - z), 1e-9);
+				}
+
+			}
+
+		}
+
+	}
+
+	@Test
+	public void testFewerPointsThanRequested() {
+
+		KDTreeXZ tree = new KDTreeXZ(new double[] {0, 1, 2}, new double[] {0, 0, 0});
+
+		int[] ids = new int[5];
+		double[] distancesSq = new double[5];
+
+		assertEquals(3, tree.findNearest(1.9, 0, 5, ids, distancesSq));
+		assertArrayEquals(new int[] {2, 1, 0}, Arrays.copyOf(ids, 3));
+
+		assertEquals(0, new KDTreeXZ(new double[0], new double[0]).findNearest(0, 0, 5, ids, distancesSq));
+
+	}
+
+}
@@ -9,6 +9,8 @@ import java.io.IOException;
 import org.junit.Test;
 import org.osm2world.core.osm.data.OSMData;
 
+import de.topobyte.osm4j.core.model.iface.EntityType;
+import de.topobyte.osm4j.core.model.iface.OsmBounds;
 import de.topobyte.osm4j.core.model.iface.OsmNode;
 import de.topobyte.osm4j.core.model.iface.OsmRelation;
 import de.topobyte.osm4j.core.model.iface.OsmWay;
@@ -39,4 +41,36 @@ public class OSMFileReaderTest {
 
 	}
 
+	@Test
+	public void testJOSMFile() throws IOException, EntityNotFoundException {
+
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		File testFile = new File(classLoader.getResource("josm_deleted_and_bounds.osm").getFile());
+		OSMData osmData = new OSMFileReader(testFile).getData();
+
+		/* elements with action='delete' are skipped */
+
+		assertEquals(3, osmData.getNodes().size());
+		assertEquals(1, osmData.getWays().size());
+		assertEquals(1, osmData.getRelations().size());
+
+		OsmWay way = osmData.getWay(-4);
+		assertArrayEquals(new long[] {-1, -2}, nodesAsList(way).toArray());
+		assertEquals("tree", getTagsAsMap(osmData.getNode(-3)).get("natural"));
+
+		OsmRelation relation = osmData.getRelations().iterator().next();
+		assertEquals(2, relation.getNumberOfMembers());
+		assertEquals(EntityType.Node, relation.getMember(1).getType());
+
+		/* multiple bounds are merged */
+
+		assertEquals(1, osmData.getBounds().size());
+		OsmBounds bounds = osmData.getBounds().iterator().next();
+		assertEquals(48.57, bounds.getBottom(), 1e-9);
+		assertEquals(48.59, bounds.getTop(), 1e-9);
+		assertEquals(13.45, bounds.getLeft(), 1e-9);
+		assertEquals(13.47, bounds.getRight(), 1e-9);
+
+	}
+
 }
@@ -0,0 +1,183 @@
+package org.osm2world.core.osm.creation;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osm2world.core.map_data.creation.LatLon;
+import org.osm2world.core.osm.data.OSMData;
+
+import com.sun.net.httpserver.HttpServer;
+
+public class OverpassCacheTest {
+
+	private static final String ETAG = "\"test-etag\"";
+
+	private static final String RESPONSE =
+			"<?xml version='1.0' encoding='UTF-8'?>\n"
+			+ "<osm version='0.6'>\n"
+			+ "  <node id='1' lat='50.7465' lon='7.1545' version='1'/>\n"
+			+ "  <node id='2' lat='50.7470' lon='7.1550' version='1'/>\n"
+			+ "  <node id='3' lat='50.7600' lon='7.2000' version='1'/>\n"
+			+ "  <way id='10' version='1'>\n"
+			+ "    <nd ref='1'/>\n"
+			+ "    <nd ref='2'/>\n"
+			+ "    <tag k='highway' v='residential'/>\n"
+			+ "  </way>\n"
+			+ "</osm>\n";
+
+	/** a local stand-in for Overpass API which counts requests and supports conditional requests */
+	private HttpServer server;
+	private String apiURL;
+
+	private final AtomicInteger requestCount = new AtomicInteger();
+	private final AtomicInteger notModifiedCount = new AtomicInteger();
+	private final AtomicBoolean unavailable = new AtomicBoolean(false);
+
+	private File cacheDir;
+
+	@Before
+	public void setUp() throws IOException {
+
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+
+		server.createContext("/api/interpreter", exchange -> {
+
+			requestCount.incrementAndGet();
+
+			exchange.getRequestBody().close();
+
+			if (unavailable.get()) {
+				exchange.sendResponseHeaders(503, -1);
+			} else if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+				notModifiedCount.incrementAndGet();
+				exchange.sendResponseHeaders(304, -1);
+			} else {
+				byte[] body = RESPONSE.getBytes(UTF_8);
+				exchange.getResponseHeaders().set("ETag", ETAG);
+				exchange.sendResponseHeaders(200, body.length);
+				try (OutputStream os = exchange.getResponseBody()) {
+					os.write(body);
+				}
+			}
+
+			exchange.close();
+
+		});
+
+		server.start();
+
+		apiURL = "http://localhost:" + server.getAddress().getPort() + "/api/interpreter";
+
+		cacheDir = Files.createTempDirectory("osm2world-test").toFile();
+
+	}
+
+	@After
+	public void tearDown() {
+
+		server.stop(0);
+
+		for (File file : cacheDir.listFiles()) {
+			file.delete();
+		}
+		cacheDir.delete();
+
+	}
+
+	@Test
+	public void testFreshEntryIsReused() throws IOException {
+
+		OverpassCache cache = new OverpassCache(cacheDir);
+
+		File first = cache.getResponse(apiURL, "query");
+		File second = cache.getResponse(apiURL, "query");
+
+		assertEquals(first, second);
+		assertEquals(1, requestCount.get());
+
+		cache.getResponse(apiURL, "other query");
+
+		assertEquals(2, requestCount.get());
+
+	}
+
+	@Test
+	public void testStaleEntryIsRevalidated() throws IOException {
+
+		OverpassCache cache = new OverpassCache(cacheDir, 0, OverpassCache.DEFAULT_MAX_SIZE_BYTES);
+
+		File first = cache.getResponse(apiURL, "query");
+		long length = first.length();
+
+		File second = cache.getResponse(apiURL, "query");
+
+		assertEquals(2, requestCount.get());
+		assertEquals(1, notModifiedCount.get());
+		assertEquals(length, second.length());
+
+	}
+
+	@Test
+	public void testStaleEntryIsUsedIfServerIsUnavailable() throws IOException {
+
+		OverpassCache cache = new OverpassCache(cacheDir, 0, OverpassCache.DEFAULT_MAX_SIZE_BYTES);
+
+		File first = cache.getResponse(apiURL, "query");
+
+		unavailable.set(true);
+
+		assertEquals(first, cache.getResponse(apiURL, "query"));
+
+	}
+
+	@Test
+	public void testEviction() throws IOException {
+
+		OverpassCache cache = new OverpassCache(cacheDir, OverpassCache.DEFAULT_TTL_MILLIS, 1);
+
+		File first = cache.getResponse(apiURL, "query 1");
+		File second = cache.getResponse(apiURL, "query 2");
+
+		assertFalse(first.exists());
+		assertTrue(second.exists());
+
+	}
+
+	@Test
+	public void testReaderWithCache() throws IOException {
+
+		OverpassCache cache = new OverpassCache(cacheDir);
+
+		for (int i = 0; i < 2; i++) {
+
+			OverpassReader reader = new OverpassReader(apiURL,
+					new LatLon(50.746, 7.154), new LatLon(50.748, 7.157), cache);
+
+			OSMData data = reader.getData();
+
+			assertEquals(2, data.getNodes().size());
+			assertEquals(1, data.getWays().size());
+
+		}
+
+		assertEquals(1, requestCount.get());
+
+		OSMData data = new OverpassReader(apiURL, "arbitrary query", cache).getData();
+
+		assertEquals(3, data.getNodes().size());
+		assertEquals(1, data.getWays().size());
+
+	}
+
+}
@@ -37,6 +37,9 @@ public class AbstractTargetTest {
 
 		private final List<TriangleXYZ> drawnTriangles = new ArrayList<TriangleXYZ>();
 
+		/** number of draw calls, which determines the groups of triangles used for smooth normals */
+		private int drawCallCount = 0;
+
 		public List<TriangleXYZ> getDrawnTriangles() {
 			return drawnTriangles;
 		}
@@ -55,12 +58,14 @@ public class AbstractTargetTest {
 		public void drawTriangles(Material material, Collection<? extends TriangleXYZ> triangles,
 				List<List<VectorXZ>> texCoordLists) {
 			drawnTriangles.addAll(triangles);
+			drawCallCount ++;
 		}
 
 		@Override
 		public void drawTrianglesWithNormals(Material material, Collection<? extends TriangleXYZWithNormals> triangles,
 				List<List<VectorXZ>> texCoordLists) {
 			drawnTriangles.addAll(triangles);
+			drawCallCount ++;
 		}
 
 	}
@@ -223,6 +228,34 @@ public class AbstractTargetTest {
 
 	}
 
+	/**
+	 * checks that the strips of extruded shapes and boxes are drawn with separate calls,
+	 * so that smooth normals are calculated for each strip separately
+	 */
+	@Test
+	public void testSeparateCallsPerStrip() {
+
+		ShapeXZ shape = new SimplePolygonXZ(asList(
+				new VectorXZ(-1, 0), new VectorXZ(1, 0), new VectorXZ(0, 2), new VectorXZ(-1, 0)));
+
+		TestTarget target = new TestTarget();
+
+		target.drawExtrudedShape(PLASTIC.makeSmooth(), shape,
+				asList(new VectorXYZ(0, 0, 0), new VectorXYZ(0, 1, 0), new VectorXYZ(0, 2, 0)),
+				nCopies(3, Z_UNIT), null, null, null);
+
+		assertEquals(3, target.drawCallCount);
+		assertEquals(12, target.getDrawnTriangles().size());
+
+		target = new TestTarget();
+
+		target.drawBox(PLASTIC, new VectorXYZ(0, 0, 0), new VectorXZ(0, 1), 1, 1, 1);
+
+		assertEquals(2, target.drawCallCount);
+		assertEquals(12, target.getDrawnTriangles().size());
+
+	}
+
 	/**
 	 * asserts that the collection contains two triangles which together form the quad.
 	 *
@@ -1,11 +1,13 @@
 package org.osm2world.core.target.common;
 
-import static org.junit.Assert.assertSame;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import org.junit.Test;
 import org.osm2world.core.math.TriangleXYZ;
@@ -45,6 +47,76 @@ public class FaceTargetTest {
 
 	}
 
+	@Test
+	public void testCombineTrianglesToFacesGrid() {
+
+		int size = 20;
+
+		List<IsolatedTriangle> isolatedTriangles = new ArrayList<IsolatedTriangle>();
+
+		for (int x = 0; x < size; x++) {
+			for (int z = 0; z < size; z++) {
+
+				VectorXYZ v00 = new VectorXYZ(x, 0, z);
+				VectorXYZ v10 = new VectorXYZ(x + 1, 0, z);
+				VectorXYZ v01 = new VectorXYZ(x, 0, z + 1);
+				VectorXYZ v11 = new VectorXYZ(x + 1, 0, z + 1);
+
+				isolatedTriangles.add(triangle(v00, v01, v10));
+				isolatedTriangles.add(triangle(v10, v01, v11));
+
+			}
+		}
+
+		Collections.shuffle(isolatedTriangles, new Random(42));
+
+		Collection<Face> faces =
+				FaceTarget.combineTrianglesToFaces(isolatedTriangles);
+
+		assertEquals(1, faces.size());
+		assertEquals(4 * size, faces.iterator().next().vs.size());
+
+	}
+
+	@Test
+	public void testCombineTrianglesToFacesTexCoords() {
+
+		VectorXYZ v1 = new VectorXYZ(0, 0, 0);
+		VectorXYZ v2 = new VectorXYZ(1, 0, 0);
+		VectorXYZ v3 = new VectorXYZ(1, 1, 0);
+		VectorXYZ v4 = new VectorXYZ(0, 1, 0);
+
+		TriangleXYZ t1 = new TriangleXYZ(v1, v2, v3);
+		TriangleXYZ t2 = new TriangleXYZ(v1, v3, v4);
+
+		/* matching tex coords along the shared edge */
+
+		List<VectorXZ> texCoords = asList(
+				new VectorXZ(0, 0), new VectorXZ(1, 0), new VectorXZ(1, 1),
+				new VectorXZ(0, 0), new VectorXZ(1, 1), new VectorXZ(0, 1));
+
+		Collection<Face> faces = FaceTarget.combineTrianglesToFaces(asList(
+				new IsolatedTriangle(t1, t1.getNormal(), 0, asList(texCoords)),
+				new IsolatedTriangle(t2, t2.getNormal(), 3, asList(texCoords))));
+
+		assertEquals(1, faces.size());
+		assertEquals(4, faces.iterator().next().vs.size());
+		assertEquals(4, faces.iterator().next().texCoordLists.get(0).size());
+
+		/* texture seam along the shared edge */
+
+		List<VectorXZ> seamTexCoords = asList(
+				new VectorXZ(0, 0), new VectorXZ(1, 0), new VectorXZ(1, 1),
+				new VectorXZ(5, 0), new VectorXZ(6, 1), new VectorXZ(5, 1));
+
+		faces = FaceTarget.combineTrianglesToFaces(asList(
+				new IsolatedTriangle(t1, t1.getNormal(), 0, asList(seamTexCoords)),
+				new IsolatedTriangle(t2, t2.getNormal(), 3, asList(seamTexCoords))));
+
+		assertEquals(2, faces.size());
+
+	}
+
 	private static final IsolatedTriangle triangle(
 			VectorXYZ v1, VectorXYZ v2, VectorXYZ v3) {
 
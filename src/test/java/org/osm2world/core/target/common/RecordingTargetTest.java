@@ -0,0 +1,233 @@
+package org.osm2world.core.target.common;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.junit.Test;
+import org.osm2world.core.ConversionFacade;
+import org.osm2world.core.ConversionFacade.BoundingBoxSizeException;
+import org.osm2world.core.ConversionFacade.Results;
+import org.osm2world.core.map_data.data.MapData;
+import org.osm2world.core.map_data.data.MapElement;
+import org.osm2world.core.math.TriangleXYZ;
+import org.osm2world.core.math.TriangleXYZWithNormals;
+import org.osm2world.core.math.VectorXYZ;
+import org.osm2world.core.math.VectorXZ;
+import org.osm2world.core.osm.data.OSMData;
+import org.osm2world.core.target.Renderable;
+import org.osm2world.core.target.TargetUtil;
+import org.osm2world.core.target.common.material.Material;
+import org.osm2world.core.target.common.model.Model;
+import org.osm2world.core.target.frontend_pbf.ModelTarget;
+import org.osm2world.core.test.TestWorldModule;
+import org.osm2world.core.test.TestWorldModule.TestNodeWorldObject;
+import org.osm2world.core.world.data.WorldObject;
+
+import de.topobyte.osm4j.core.model.impl.Node;
+
+public class RecordingTargetTest {
+
+	/**
+	 * a renderable type which is not implemented by the test world objects,
+	 * so their draw calls are replayed from the recording
+	 */
+	private static interface RenderableToTestTarget extends Renderable {
+		public void renderTo(TestTarget target);
+	}
+
+	/**
+	 * a test target which collects the vertices of all triangles and the objects they belong to
+	 */
+	private static class TestTarget extends AbstractTarget<RenderableToTestTarget> {
+
+		private final List<VectorXYZ> vertices = new ArrayList<VectorXYZ>();
+		private final List<WorldObject> objects = new ArrayList<WorldObject>();
+
+		@Override
+		public Class<RenderableToTestTarget> getRenderableType() {
+			return RenderableToTestTarget.class;
+		}
+
+		@Override
+		public void render(RenderableToTestTarget renderable) {
+			renderable.renderTo(this);
+		}
+
+		@Override
+		public void beginObject(WorldObject object) {
+			objects.add(object);
+		}
+
+		@Override
+		public void drawTriangles(Material material, Collection<? extends TriangleXYZ> triangles,
+				List<List<VectorXZ>> texCoordLists) {
+			for (TriangleXYZ t : triangles) {
+				vertices.addAll(t.getVertices());
+			}
+		}
+
+		@Override
+		public void drawTrianglesWithNormals(Material material,
+				Collection<? extends TriangleXYZWithNormals> triangles,
+				List<List<VectorXZ>> texCoordLists) {
+			drawTriangles(material, triangles, texCoordLists);
+		}
+
+	}
+
+	/**
+	 * a variant of the test target which supports instanced models
+	 */
+	private static class TestModelTarget extends TestTarget implements ModelTarget<RenderableToTestTarget> {
+
+		@Override
+		public void drawModel(Model model, VectorXYZ position,
+				double direction, Double height, Double width, Double length) {}
+
+	}
+
+	@Test
+	public void testReplay() throws BoundingBoxSizeException, IOException {
+
+		OSMData osmData = new OSMData(emptyList(),
+				asList(new Node(1, 0, 0), new Node(2, 0.001, 0.001)),
+				emptyList(), emptyList());
+
+		Results results = new ConversionFacade().createRepresentations(
+				osmData, asList(new TestWorldModule()), null, null);
+
+		RecordingTarget recording = RecordingTarget.record(results.getMapData());
+
+		assertEquals(2, recording.getCallCount());
+
+		TestTarget directTarget = new TestTarget();
+		TargetUtil.renderWorldObjects(directTarget, results.getMapData(), true);
+
+		int renderCount = getRenderCount(results.getMapData());
+
+		TestTarget replayTarget = new TestTarget();
+		recording.replayTo(replayTarget, results.getMapData(), true);
+
+		/* the recorded calls have been replayed, rather than rendering the objects again */
+		assertEquals(renderCount, getRenderCount(results.getMapData()));
+
+		assertEquals(6, replayTarget.vertices.size());
+		assertEquals(directTarget.vertices, replayTarget.vertices);
+		assertEquals(directTarget.objects, replayTarget.objects);
+
+	}
+
+	@Test
+	public void testParallelRecording() throws BoundingBoxSizeException, IOException {
+
+		List<Node> nodes = new ArrayList<Node>();
+
+		for (int i = 0; i < 50; i++) {
+			nodes.add(new Node(i + 1, 0.0001 * i, 0.0001 * (i % 7)));
+		}
+
+		OSMData osmData = new OSMData(emptyList(), nodes, emptyList(), emptyList());
+
+		Results results = new ConversionFacade().createRepresentations(
+				osmData, asList(new TestWorldModule()), null, null);
+
+		RecordingTarget recording = RecordingTarget.record(results.getMapData(), 4);
+
+		assertEquals(50, recording.getCallCount());
+
+		TestTarget directTarget = new TestTarget();
+		TargetUtil.renderWorldObjects(directTarget, results.getMapData(), true);
+
+		int renderCount = getRenderCount(results.getMapData());
+
+		TestTarget replayTarget = new TestTarget();
+		recording.replayTo(replayTarget, results.getMapData(), true);
+
+		/* the recorded calls have been replayed, rather than rendering the objects again */
+		assertEquals(renderCount, getRenderCount(results.getMapData()));
+
+		assertEquals(directTarget.vertices, replayTarget.vertices);
+		assertEquals(directTarget.objects, replayTarget.objects);
+
+	}
+
+	@Test
+	public void testReplayToModelTarget() throws BoundingBoxSizeException, IOException {
+
+		OSMData osmData = new OSMData(emptyList(),
+				asList(new Node(1, 0, 0), new Node(2, 0.001, 0.001)),
+				emptyList(), emptyList());
+
+		Results results = new ConversionFacade().createRepresentations(
+				osmData, asList(new TestWorldModule()), null, null);
+
+		RecordingTarget recording = RecordingTarget.record(results.getMapData());
+
+		TestModelTarget directTarget = new TestModelTarget();
+		TargetUtil.renderWorldObjects(directTarget, results.getMapData(), true);
+
+		assertFalse(RecordingTarget.canReplayTo(directTarget));
+		assertTrue(RecordingTarget.canReplayTo(new TestTarget()));
+
+		/* objects are rendered directly for model targets */
+
+		int renderCount = getRenderCount(results.getMapData());
+
+		TestModelTarget replayTarget = new TestModelTarget();
+		recording.replayTo(replayTarget, results.getMapData(), true);
+
+		assertEquals(renderCount + 2, getRenderCount(results.getMapData()));
+		assertEquals(directTarget.vertices, replayTarget.vertices);
+		assertEquals(directTarget.objects, replayTarget.objects);
+
+	}
+
+	@Test
+	public void testNoRecordingForModelTargets() throws BoundingBoxSizeException, IOException {
+
+		OSMData osmData = new OSMData(emptyList(),
+				asList(new Node(1, 0, 0), new Node(2, 0.001, 0.001)),
+				emptyList(), emptyList());
+
+		BaseConfiguration config = new BaseConfiguration();
+		config.addProperty("renderThreads", 4);
+
+		TestModelTarget target1 = new TestModelTarget();
+		TestModelTarget target2 = new TestModelTarget();
+
+		Results results = new ConversionFacade().createRepresentations(
+				osmData, asList(new TestWorldModule()), config, asList(target1, target2));
+
+		/* each object has been rendered once per target, without an additional recording */
+
+		assertEquals(4, getRenderCount(results.getMapData()));
+		assertEquals(6, target1.vertices.size());
+		assertEquals(target1.vertices, target2.vertices);
+
+	}
+
+	/**
+	 * returns the total number of times the test world objects have been rendered
+	 */
+	private static int getRenderCount(MapData mapData) {
+
+		int result = 0;
+
+		for (MapElement element : mapData.getMapElements()) {
+			for (WorldObject object : element.getRepresentations()) {
+				result += ((TestNodeWorldObject) object).renderCount.get();
+			}
+		}
+
+		return result;
+
+	}
+
+}
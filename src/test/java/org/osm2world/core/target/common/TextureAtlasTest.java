@@ -0,0 +1,176 @@
+package org.osm2world.core.target.common;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.*;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.List;
+
+import org.junit.Test;
+import org.osm2world.core.math.VectorXZ;
+import org.osm2world.core.target.common.TextureData.Wrap;
+import org.osm2world.core.target.common.material.ImmutableMaterial;
+import org.osm2world.core.target.common.material.Material;
+import org.osm2world.core.target.common.material.Material.Interpolation;
+import org.osm2world.core.target.common.material.Material.Transparency;
+
+public class TextureAtlasTest {
+
+	/**
+	 * a texture with a single color, created in memory
+	 */
+	private static class ColorTextureData extends TextureData {
+
+		private final Color color;
+		private final int imageWidth;
+		private final int imageHeight;
+
+		public ColorTextureData(Color color, int imageWidth, int imageHeight, Wrap wrap) {
+			super(1, 1, wrap, null, false, false);
+			this.color = color;
+			this.imageWidth = imageWidth;
+			this.imageHeight = imageHeight;
+		}
+
+		@Override
+		public File getFile() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public BufferedImage getBufferedImage() {
+			BufferedImage image = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_ARGB);
+			for (int x = 0; x < imageWidth; x++) {
+				for (int y = 0; y < imageHeight; y++) {
+					image.setRGB(x, y, color.getRGB());
+				}
+			}
+			return image;
+		}
+
+		@Override
+		public int hashCode() {
+			return color.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof ColorTextureData && ((ColorTextureData)obj).color.equals(color);
+		}
+
+	}
+
+	private static Material createMaterial(TextureData textureData) {
+		return new ImmutableMaterial(Interpolation.FLAT, Color.WHITE,
+				Transparency.FALSE, singletonList(textureData));
+	}
+
+	private static final List<List<VectorXZ>> UNIT_TEX_COORDS = singletonList(asList(
+			new VectorXZ(0, 0), new VectorXZ(1, 0), new VectorXZ(1, 1)));
+
+	@Test
+	public void testMaterialsAreMerged() {
+
+		TextureAtlas atlas = new TextureAtlas(256, 64);
+
+		Material red = createMaterial(new ColorTextureData(Color.RED, 32, 16, Wrap.CLAMP));
+		Material blue = createMaterial(new ColorTextureData(Color.BLUE, 16, 32, Wrap.CLAMP));
+
+		TextureAtlas.Mapping redMapping = atlas.map(red, UNIT_TEX_COORDS);
+		TextureAtlas.Mapping blueMapping = atlas.map(blue, UNIT_TEX_COORDS);
+
+		assertEquals(redMapping.material, blueMapping.material);
+		assertEquals(1, atlas.getPages().size());
+		assertEquals(atlas.getPages(), redMapping.material.getTextureDataList());
+
+		/* check that the texture coordinates point to the right color */
+
+		BufferedImage image = atlas.getPages().get(0).getBufferedImage();
+
+		assertEquals(Color.RED.getRGB(), getPixel(image, redMapping.texCoordLists.get(0), 0.25, 0.25));
+		assertEquals(Color.BLUE.getRGB(), getPixel(image, blueMapping.texCoordLists.get(0), 0.25, 0.25));
+
+	}
+
+	@Test
+	public void testUnsuitableGeometryIsNotMapped() {
+
+		TextureAtlas atlas = new TextureAtlas(256, 64);
+
+		/* repeating textures */
+
+		Material repeat = createMaterial(new ColorTextureData(Color.RED, 32, 32, Wrap.REPEAT));
+		TextureAtlas.Mapping mapping = atlas.map(repeat, UNIT_TEX_COORDS);
+
+		assertSame(repeat, mapping.material);
+		assertSame(UNIT_TEX_COORDS, mapping.texCoordLists);
+
+		/* texture coordinates outside the texture */
+
+		Material clamp = createMaterial(new ColorTextureData(Color.BLUE, 32, 32, Wrap.CLAMP));
+		List<List<VectorXZ>> texCoords = singletonList(asList(
+				new VectorXZ(0, 0), new VectorXZ(2, 0), new VectorXZ(2, 1)));
+		mapping = atlas.map(clamp, texCoords);
+
+		assertSame(clamp, mapping.material);
+		assertSame(texCoords, mapping.texCoordLists);
+
+		assertTrue(atlas.getPages().isEmpty());
+
+	}
+
+	@Test
+	public void testNewPageAfterImageCreation() {
+
+		TextureAtlas atlas = new TextureAtlas(256, 64);
+
+		Material red = createMaterial(new ColorTextureData(Color.RED, 32, 32, Wrap.CLAMP));
+		Material blue = createMaterial(new ColorTextureData(Color.BLUE, 32, 32, Wrap.CLAMP));
+
+		Material redAtlasMaterial = atlas.map(red, UNIT_TEX_COORDS).material;
+		atlas.getPages().get(0).getBufferedImage();
+
+		Material blueAtlasMaterial = atlas.map(blue, UNIT_TEX_COORDS).material;
+
+		assertEquals(2, atlas.getPages().size());
+		assertNotEquals(redAtlasMaterial, blueAtlasMaterial);
+		assertEquals(redAtlasMaterial, atlas.map(red, UNIT_TEX_COORDS).material);
+
+	}
+
+	@Test
+	public void testLargeTexturesAreScaled() {
+
+		TextureAtlas atlas = new TextureAtlas(256, 64);
+
+		Material material = createMaterial(new ColorTextureData(Color.RED, 1000, 500, Wrap.CLAMP));
+
+		List<VectorXZ> texCoords = atlas.map(material, UNIT_TEX_COORDS).texCoordLists.get(0);
+
+		assertEquals(64 / 256.0, texCoords.get(1).x - texCoords.get(0).x, 1e-9);
+		assertEquals(32 / 256.0, texCoords.get(2).z - texCoords.get(1).z, 1e-9);
+
+	}
+
+	/**
+	 * returns the color at a point within the triangle defined by atlas texture coordinates
+	 */
+	private static int getPixel(BufferedImage image, List<VectorXZ> triangleTexCoords, double s, double t) {
+
+		VectorXZ a = triangleTexCoords.get(0);
+		VectorXZ b = triangleTexCoords.get(1);
+		VectorXZ c = triangleTexCoords.get(2);
+
+		VectorXZ p = a.add(b.subtract(a).mult(s)).add(c.subtract(a).mult(t));
+
+		int x = (int) (p.x * image.getWidth());
+		int y = (int) ((1 - p.z) * image.getHeight());
+
+		return image.getRGB(x, y);
+
+	}
+
+}
@@ -0,0 +1,292 @@
+package org.osm2world.core.target.frontend_pbf;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.osm2world.core.target.frontend_pbf.FrontendPbf.ExtrusionGeometry;
+import org.osm2world.core.target.frontend_pbf.FrontendPbf.MaterialBlock;
+import org.osm2world.core.target.frontend_pbf.FrontendPbf.ModelBlock;
+import org.osm2world.core.target.frontend_pbf.FrontendPbf.Shape;
+import org.osm2world.core.target.frontend_pbf.FrontendPbf.Shape.ShapeType;
+import org.osm2world.core.target.frontend_pbf.FrontendPbf.ShapeBlock;
+import org.osm2world.core.target.frontend_pbf.FrontendPbf.StringBlock;
+import org.osm2world.core.target.frontend_pbf.FrontendPbf.Tile;
+import org.osm2world.core.target.frontend_pbf.FrontendPbf.TriangleGeometry;
+import org.osm2world.core.target.frontend_pbf.FrontendPbf.Vector2dBlock;
+import org.osm2world.core.target.frontend_pbf.FrontendPbf.Vector3dBlock;
+import org.osm2world.core.target.frontend_pbf.FrontendPbf.WorldObject;
+
+public class FrontendPbfFormatTest {
+
+	private static final int GRID_SIZE = 20;
+
+	/**
+	 * creates a version 1 tile with a grid of triangles. The vectors are stored in random order.
+	 */
+	private static Tile createTestTile() {
+
+		Random random = new Random(42);
+
+		List<long[]> vectors = new ArrayList<long[]>();
+
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int z = 0; z < GRID_SIZE; z++) {
+				vectors.add(new long[] {x * 1000 - 7500, random.nextInt(3000), z * 1000 - 9500});
+			}
+		}
+
+		List<Integer> order = new ArrayList<Integer>();
+		for (int i = 0; i < vectors.size(); i++) {
+			order.add(i);
+		}
+		Collections.shuffle(order, random);
+
+		int[] indexOf = new int[vectors.size()];
+
+		Vector3dBlock.Builder vector3dBlock = Vector3dBlock.newBuilder();
+
+		for (int i = 0; i < order.size(); i++) {
+			long[] v = vectors.get(order.get(i));
+			vector3dBlock.addCoords(v[0]).addCoords(v[1]).addCoords(v[2]);
+			indexOf[order.get(i)] = i;
+		}
+
+		Vector2dBlock.Builder vector2dBlock = Vector2dBlock.newBuilder();
+
+		for (int i = 0; i < 10; i++) {
+			vector2dBlock.addCoords(random.nextInt(1000)).addCoords(random.nextInt(1000));
+		}
+
+		TriangleGeometry.Builder triangles = TriangleGeometry.newBuilder().setMaterial(0);
+
+		for (int x = 0; x + 1 < GRID_SIZE; x++) {
+			for (int z = 0; z + 1 < GRID_SIZE; z++) {
+				int v00 = indexOf[x * GRID_SIZE + z];
+				int v10 = indexOf[(x + 1) * GRID_SIZE + z];
+				int v01 = indexOf[x * GRID_SIZE + z + 1];
+				int v11 = indexOf[(x + 1) * GRID_SIZE + z + 1];
+				triangles.addAllVertices(asList((long)v00, (long)v10, (long)v11));
+				triangles.addAllVertices(asList((long)v00, (long)v11, (long)v01));
+			}
+		}
+
+		return Tile.newBuilder()
+				.setVector3DBlock(vector3dBlock)
+				.setVector2DBlock(vector2dBlock)
+				.setStringBlock(StringBlock.newBuilder())
+				.setShapeBlock(ShapeBlock.newBuilder())
+				.setMaterialBlock(MaterialBlock.newBuilder())
+				.setModelBlock(ModelBlock.newBuilder())
+				.addObjects(WorldObject.newBuilder().addTriangleGeometries(triangles))
+				.build();
+
+	}
+
+	/**
+	 * adds an extrusion, a circle shape and a template model to the tile from {@link #createTestTile()}.
+	 * One of the extrusion's up vectors is also used as a position.
+	 */
+	private static Tile createTestTileWithExtrusion() {
+
+		Tile tile = createTestTile();
+
+		long upIndex = tile.getVector3DBlock().getCoordsCount() / 3;
+
+		Vector3dBlock.Builder vector3dBlock = tile.getVector3DBlock().toBuilder()
+				.addCoords(0).addCoords(1000).addCoords(0)
+				.addCoords(707).addCoords(707).addCoords(0)
+				.addCoords(100).addCoords(0).addCoords(0)
+				.addCoords(0).addCoords(100).addCoords(0)
+				.addCoords(0).addCoords(0).addCoords(100);
+
+		ExtrusionGeometry extrusion = ExtrusionGeometry.newBuilder()
+				.setMaterial(0)
+				.setShape(0)
+				.addAllPath(asList(5L, 17L, upIndex))
+				.addAllUpVectors(asList(upIndex, upIndex + 1, upIndex))
+				.build();
+
+		WorldObject model = WorldObject.newBuilder()
+				.addTriangleGeometries(TriangleGeometry.newBuilder().setMaterial(0)
+						.addAllVertices(asList(upIndex + 2, upIndex + 3, upIndex + 4)))
+				.build();
+
+		return tile.toBuilder()
+				.setVector3DBlock(vector3dBlock)
+				.setShapeBlock(ShapeBlock.newBuilder().addShapes(Shape.newBuilder()
+						.setType(ShapeType.CIRCLE).addParameters(3).addParameters(500)))
+				.setModelBlock(ModelBlock.newBuilder().addModels(model))
+				.addObjects(WorldObject.newBuilder().addExtrusionGeometries(extrusion))
+				.build();
+
+	}
+
+	/**
+	 * returns the coordinates of vectors in the vector3dBlock of a version 1 tile
+	 */
+	private static List<Long> getCoords(Tile tile, List<Long> indices) {
+
+		List<Long> coords = tile.getVector3DBlock().getCoordsList();
+		List<Long> result = new ArrayList<Long>();
+
+		for (long index : indices) {
+			for (int dim = 0; dim < 3; dim++) {
+				result.add(coords.get((int)index * 3 + dim));
+			}
+		}
+
+		return result;
+
+	}
+
+	private static void assertCoordsEqual(List<Long> expected, List<Long> actual, double delta) {
+
+		assertEquals(expected.size(), actual.size());
+
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).doubleValue(), actual.get(i).doubleValue(), delta);
+		}
+
+	}
+
+	/**
+	 * returns the coordinates of all triangle vertices in a version 1 tile, in the order they are referenced
+	 */
+	private static List<Long> getVertexCoords(Tile tile) {
+
+		List<Long> coords = tile.getVector3DBlock().getCoordsList();
+		List<Long> result = new ArrayList<Long>();
+
+		for (WorldObject object : tile.getObjectsList()) {
+			for (TriangleGeometry triangles : object.getTriangleGeometriesList()) {
+				for (long index : triangles.getVerticesList()) {
+					for (int dim = 0; dim < 3; dim++) {
+						result.add(coords.get((int)index * 3 + dim));
+					}
+				}
+			}
+		}
+
+		return result;
+
+	}
+
+	@Test
+	public void testEncodeDecode() {
+
+		Tile tile = createTestTile();
+
+		Tile encodedTile = FrontendPbfFormat.encode(tile, 0);
+
+		assertEquals(2, encodedTile.getFormatVersion());
+		assertTrue(encodedTile.getSerializedSize() < tile.getSerializedSize());
+
+		Tile decodedTile = FrontendPbfFormat.decode(encodedTile);
+
+		assertEquals(1, decodedTile.getFormatVersion());
+		assertEquals(getVertexCoords(tile), getVertexCoords(decodedTile));
+
+	}
+
+	@Test
+	public void testEncodeDecode_quantized() {
+
+		Tile tile = createTestTile();
+
+		Tile encodedTile = FrontendPbfFormat.encode(tile, 8);
+
+		assertTrue(encodedTile.getQuantizationStep() > 1);
+		assertTrue(encodedTile.getSerializedSize() < FrontendPbfFormat.encode(tile, 0).getSerializedSize());
+
+		Tile decodedTile = FrontendPbfFormat.decode(encodedTile);
+
+		List<Long> expected = getVertexCoords(tile);
+		List<Long> actual = getVertexCoords(decodedTile);
+
+		assertEquals(expected.size(), actual.size());
+
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).doubleValue(), actual.get(i).doubleValue(), encodedTile.getQuantizationStep() / 2.0);
+		}
+
+	}
+
+	@Test
+	public void testEncodeDecodeReferences() {
+
+		List<Long> references = asList(5L, 6L, 7L, 5L, 7L, 8L, 100L, 3L, 5L, 5L, 0L);
+
+		List<Long> encoded = FrontendPbfFormat.encodeReferences(references);
+
+		assertEquals(references.size(), encoded.size());
+		assertEquals(references, FrontendPbfFormat.decodeReferences(encoded));
+
+		/* repeated indices are cache hits */
+		assertTrue(encoded.get(3) < FrontendPbfFormat.VERTEX_CACHE_SIZE);
+		assertTrue(encoded.get(9) < FrontendPbfFormat.VERTEX_CACHE_SIZE);
+
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDecodeReferences_invalid() {
+		FrontendPbfFormat.decodeReferences(asList(3L));
+	}
+
+	@Test
+	public void testEncodeDecode_extrusionShapeModel() {
+
+		Tile tile = createTestTileWithExtrusion();
+
+		for (int quantizationBits : asList(0, 8)) {
+
+			Tile encodedTile = FrontendPbfFormat.encode(tile, quantizationBits);
+			Tile decodedTile = FrontendPbfFormat.decode(encodedTile);
+
+			double delta = encodedTile.getQuantizationStep() / 2.0;
+
+			if (quantizationBits > 0) {
+				assertTrue(encodedTile.getQuantizationStep() > 1);
+			}
+
+			/* extrusion: the path is quantized, the up vectors are exact */
+
+			ExtrusionGeometry extrusion = tile.getObjects(1).getExtrusionGeometries(0);
+			ExtrusionGeometry decodedExtrusion = decodedTile.getObjects(1).getExtrusionGeometries(0);
+
+			assertCoordsEqual(getCoords(tile, extrusion.getPathList()),
+					getCoords(decodedTile, decodedExtrusion.getPathList()), delta);
+			assertEquals(getCoords(tile, extrusion.getUpVectorsList()),
+					getCoords(decodedTile, decodedExtrusion.getUpVectorsList()));
+
+			/* shape: the circle's center references the reordered vector2dBlock */
+
+			int center = (int) tile.getShapeBlock().getShapes(0).getParameters(0);
+			int decodedCenter = (int) decodedTile.getShapeBlock().getShapes(0).getParameters(0);
+
+			assertEquals(tile.getVector2DBlock().getCoordsList().subList(center * 2, center * 2 + 2),
+					decodedTile.getVector2DBlock().getCoordsList().subList(decodedCenter * 2, decodedCenter * 2 + 2));
+			assertEquals(500, decodedTile.getShapeBlock().getShapes(0).getParameters(1));
+
+			/* model */
+
+			assertCoordsEqual(
+					getCoords(tile, tile.getModelBlock().getModels(0).getTriangleGeometries(0).getVerticesList()),
+					getCoords(decodedTile, decodedTile.getModelBlock().getModels(0)
+							.getTriangleGeometries(0).getVerticesList()),
+					delta);
+
+			/* the triangles of the grid are unaffected */
+
+			assertCoordsEqual(getVertexCoords(tile), getVertexCoords(decodedTile), delta);
+
+		}
+
+	}
+
+}
@@ -3,6 +3,8 @@ package org.osm2world.core.test;
 import static java.util.Collections.*;
 import static org.osm2world.core.target.common.material.Materials.PLASTIC;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.osm2world.core.map_data.data.MapNode;
 import org.osm2world.core.map_elevation.data.GroundState;
 import org.osm2world.core.math.TriangleXYZ;
@@ -25,6 +27,9 @@ public class TestWorldModule extends AbstractModule {
 
 	public static class TestNodeWorldObject extends NoOutlineNodeWorldObject implements RenderableToAllTargets {
 
+		/** number of times {@link #renderTo(Target)} has been called */
+		public final AtomicInteger renderCount = new AtomicInteger();
+
 		public TestNodeWorldObject(MapNode node) {
 			super(node);
 		}
@@ -37,6 +42,8 @@ public class TestWorldModule extends AbstractModule {
 		@Override
 		public void renderTo(Target<?> target) {
 
+			renderCount.incrementAndGet();
+
 			VectorXYZ base = node.getPos().xyz(0);
 
 			TriangleXYZ triangle = new TriangleXYZ(base, base.add(0, 1, 0), base.add(1, 1, 0));
@@ -0,0 +1,66 @@
+package org.osm2world.core.util;
+
+import static org.junit.Assert.*;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class MetricsTest {
+
+	@After
+	public void disableMetrics() {
+		Metrics.setEnabled(false, false);
+		Metrics.reset();
+	}
+
+	@Test
+	public void testDisabled() {
+
+		try (Metrics.Timer timer = Metrics.startTimer("a")) {
+			Metrics.increment("counter");
+		}
+
+		String csv = writeCSV();
+
+		assertFalse(csv.contains("\"a\""));
+		assertFalse(csv.contains("\"counter\""));
+
+	}
+
+	@Test
+	public void testNestedTimersAndCounters() {
+
+		Metrics.setEnabled(true, false);
+
+		try (Metrics.Timer outer = Metrics.startTimer("outer")) {
+			for (int i = 0; i < 2; i++) {
+				try (Metrics.Timer inner = Metrics.startTimer("inner")) {
+					Metrics.add("triangles", 5);
+				}
+			}
+		}
+
+		try (Metrics.Timer second = Metrics.startTimer("second")) {
+			Metrics.recordElementTime("slow element", 1000000);
+		}
+
+		String csv = writeCSV();
+
+		assertTrue(csv.contains("timer,\"outer\",1,"));
+		assertTrue(csv.contains("timer,\"outer/inner\",2,"));
+		assertTrue(csv.contains("timer,\"second\",1,"));
+		assertTrue(csv.contains("counter,\"triangles\",10,,"));
+		assertTrue(csv.contains("element,\"slow element\",1,1.000,1.000"));
+
+	}
+
+	private static String writeCSV() {
+		StringWriter result = new StringWriter();
+		Metrics.writeCSV(new PrintWriter(result));
+		return result.toString();
+	}
+
+}
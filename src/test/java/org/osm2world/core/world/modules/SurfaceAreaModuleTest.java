@@ -0,0 +1,115 @@
+package org.osm2world.core.world.modules;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.*;
+import static org.osm2world.core.world.modules.SurfaceAreaModule.SurfaceArea.triangulateGridPatch;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.osm2world.core.math.PolygonWithHolesXZ;
+import org.osm2world.core.math.SimplePolygonXZ;
+import org.osm2world.core.math.TriangleXZ;
+import org.osm2world.core.math.VectorXZ;
+
+public class SurfaceAreaModuleTest {
+
+	@Test
+	public void testTriangulateGridPatch() {
+
+		SimplePolygonXZ outer = new SimplePolygonXZ(asList(
+				new VectorXZ(0, 0),
+				new VectorXZ(30, 0),
+				new VectorXZ(60, 0),
+				new VectorXZ(60, 30),
+				new VectorXZ(60, 60),
+				new VectorXZ(30, 60),
+				new VectorXZ(0, 60),
+				new VectorXZ(0, 30),
+				new VectorXZ(0, 0)
+				));
+
+		List<TriangleXZ> result = triangulateGridPatch(
+				new PolygonWithHolesXZ(outer, emptyList()));
+
+		assertNotNull(result);
+		assertEquals(8, result.size());
+
+		double area = 0;
+		Set<VectorXZ> vertices = new HashSet<VectorXZ>();
+
+		for (TriangleXZ t : result) {
+			assertFalse(t.isClockwise());
+			area += t.getArea();
+			vertices.addAll(t.getVertices());
+		}
+
+		assertEquals(outer.getArea(), area, 1e-6);
+		assertEquals(9, vertices.size());
+		assertTrue(vertices.contains(new VectorXZ(30, 30)));
+
+	}
+
+	@Test
+	public void testTriangulateGridPatch_decimated() {
+
+		List<VectorXZ> vertices = new ArrayList<VectorXZ>();
+
+		for (int i = 0; i < 10; i++) vertices.add(new VectorXZ(i * 30, 0));
+		for (int i = 0; i < 10; i++) vertices.add(new VectorXZ(300, i * 30));
+		for (int i = 10; i > 0; i--) vertices.add(new VectorXZ(i * 30, 300));
+		for (int i = 10; i >= 0; i--) vertices.add(new VectorXZ(0, i * 30));
+
+		SimplePolygonXZ outer = new SimplePolygonXZ(vertices);
+
+		for (int step : asList(1, 2, 5, 10, 20)) {
+
+			List<TriangleXZ> result = triangulateGridPatch(
+					new PolygonWithHolesXZ(outer, emptyList()), step);
+
+			int cellsPerAxis = (int) Math.ceil(10.0 / step);
+
+			/* each vertex of the outline which is not on a decimated grid line adds a triangle */
+
+			assertNotNull(result);
+			assertEquals(2 * cellsPerAxis * cellsPerAxis + 40 - 4 * cellsPerAxis, result.size());
+
+			double area = 0;
+			Set<VectorXZ> resultVertices = new HashSet<VectorXZ>();
+
+			for (TriangleXZ t : result) {
+				assertFalse(t.isClockwise());
+				assertTrue(t.getArea() > 0);
+				area += t.getArea();
+				resultVertices.addAll(t.getVertices());
+			}
+
+			assertEquals(outer.getArea(), area, 1e-6);
+
+			/* all vertices of the outline are kept, so there are no cracks next to neighboring patches */
+
+			assertTrue(resultVertices.containsAll(outer.getVertices()));
+
+		}
+
+	}
+
+	@Test
+	public void testTriangulateGridPatch_notARectangle() {
+
+		SimplePolygonXZ outer = new SimplePolygonXZ(asList(
+				new VectorXZ(0, 0),
+				new VectorXZ(30, 0),
+				new VectorXZ(30, 30),
+				new VectorXZ(0, 0)
+				));
+
+		assertNull(triangulateGridPatch(new PolygonWithHolesXZ(outer, emptyList())));
+
+	}
+
+}